@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.benchmark;
+
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.datamelt.util.CsvTokenizer;
+
+/**
+ * compares two result files of the benchmarks - e.g. of the current version and of the
+ * version before an upgrade - and lists the change of the score of each benchmark.
+ *
+ * the files are the CSV result files written by jmh. benchmarks are matched by their name
+ * and their parameters. a benchmark is reported as regression if its score is worse than
+ * the score of the baseline by more than the given percentage. for the average time modes
+ * a lower score is better, for the throughput mode a higher score.
+ *
+ * the program exits with return code 1 if there is at least one regression, so that it can
+ * be used to stop a build.
+ *
+ * usage: BenchmarkComparison [baseline csv file] [current csv file] [threshold in percent]
+ *
+ * @author uwe geercken
+ */
+public class BenchmarkComparison
+{
+	private static final String MODE_THROUGHPUT		= "thrpt";
+	private static final String COLUMN_BENCHMARK	= "Benchmark";
+	private static final String COLUMN_MODE			= "Mode";
+	private static final String COLUMN_SCORE		= "Score";
+	private static final String COLUMN_UNIT			= "Unit";
+	private static final String COLUMN_PARAMETER	= "Param: ";
+	private static final double DEFAULT_THRESHOLD	= 10;
+
+	public static void main(String[] args) throws Exception
+	{
+		if(args.length<2)
+		{
+			help();
+			return;
+		}
+		double threshold = DEFAULT_THRESHOLD;
+		if(args.length>2)
+		{
+			threshold = Double.parseDouble(args[2]);
+		}
+		Map<String,Score> baseline = readScores(args[0]);
+		Map<String,Score> current = readScores(args[1]);
+
+		int regressions = 0;
+		System.out.println(String.format("%-100s %15s %15s %10s %s", "benchmark", "baseline", "current", "change", "unit"));
+		for(Map.Entry<String,Score> entry : current.entrySet())
+		{
+			Score score = entry.getValue();
+			Score baselineScore = baseline.get(entry.getKey());
+			if(baselineScore==null)
+			{
+				System.out.println(String.format("%-100s %15s %15.3f %10s %s", entry.getKey(), "-", score.value, "new", score.unit));
+				continue;
+			}
+			double change = (score.value - baselineScore.value) / baselineScore.value * 100;
+			// the change in the direction of a worse score
+			double worse = score.mode.equals(MODE_THROUGHPUT) ? -change : change;
+			String status = "";
+			if(worse>threshold)
+			{
+				status = " REGRESSION";
+				regressions++;
+			}
+			System.out.println(String.format("%-100s %15.3f %15.3f %9.1f%% %s%s", entry.getKey(), baselineScore.value, score.value, change, score.unit, status));
+		}
+		System.out.println();
+		System.out.println("benchmarks compared: " + current.size() + ", regressions of more than " + threshold + "%: " + regressions);
+		if(regressions>0)
+		{
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * reads the scores of the benchmarks from the given CSV result file of jmh
+	 *
+	 * @param filename		the name of the file
+	 * @return				the scores by benchmark name and parameters
+	 * @throws Exception	when the file can not be read or is not a result file of jmh
+	 */
+	private static Map<String,Score> readScores(String filename) throws Exception
+	{
+		LinkedHashMap<String,Score> scores = new LinkedHashMap<String,Score>();
+		try(CsvTokenizer tokenizer = new CsvTokenizer(new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8), ","))
+		{
+			if(!tokenizer.nextRow() || !tokenizer.getField(0).equals(COLUMN_BENCHMARK))
+			{
+				throw new Exception("the file is not a CSV result file of jmh: " + filename);
+			}
+			String[] columns = new String[tokenizer.getNumberOfFields()];
+			for(int i=0;i<columns.length;i++)
+			{
+				columns[i] = tokenizer.getField(i);
+			}
+			while(tokenizer.nextRow())
+			{
+				StringBuilder name = new StringBuilder();
+				Score score = new Score();
+				for(int i=0;i<columns.length && i<tokenizer.getNumberOfFields();i++)
+				{
+					String value = tokenizer.getField(i);
+					if(columns[i].equals(COLUMN_BENCHMARK))
+					{
+						name.insert(0, value);
+					}
+					else if(columns[i].equals(COLUMN_MODE))
+					{
+						score.mode = value;
+					}
+					else if(columns[i].equals(COLUMN_SCORE))
+					{
+						score.value = Double.parseDouble(value);
+					}
+					else if(columns[i].equals(COLUMN_UNIT))
+					{
+						score.unit = value;
+					}
+					else if(columns[i].startsWith(COLUMN_PARAMETER) && value.length()>0)
+					{
+						name.append(" ").append(columns[i].substring(COLUMN_PARAMETER.length())).append("=").append(value);
+					}
+				}
+				scores.put(name.toString(), score);
+			}
+		}
+		return scores;
+	}
+
+	private static void help()
+	{
+		System.out.println("BenchmarkComparison. compares the CSV result files of two runs of the jmh benchmarks.");
+		System.out.println("a benchmark is reported as regression if its score is worse by more than the threshold.");
+		System.out.println();
+		System.out.println("BenchmarkComparison [baseline csv file] [current csv file] [threshold in percent]");
+		System.out.println();
+		System.out.println("the threshold is optional and defaults to " + DEFAULT_THRESHOLD + " percent");
+	}
+
+	/**
+	 * the score of a benchmark
+	 */
+	private static class Score
+	{
+		private String mode;
+		private double value;
+		private String unit;
+	}
+}
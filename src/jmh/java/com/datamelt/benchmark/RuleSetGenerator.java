@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * creates synthetic rule sets for the benchmarks of the ruleengine.
+ *
+ * the rules of a rule set are distributed over groups of ten rules each. every group has
+ * one subgroup, in which the rules are combined using the "and" operator, and - if requested -
+ * an action which sets a field of the row when the group passed.
+ *
+ * the rules check the fields of the row created by createRow(). a rule set contains rules of
+ * one type only or - using the type "mixed" - all types in turn, so that the results can be
+ * compared between the types and between versions of the ruleengine.
+ *
+ * @author uwe geercken
+ */
+public class RuleSetGenerator
+{
+	public static final String TYPE_MIXED			= "mixed";
+	public static final String TYPE_GREATER		= "greater";
+	public static final String TYPE_EQUAL			= "equal";
+	public static final String TYPE_BETWEEN		= "between";
+	public static final String TYPE_IN_LIST		= "inlist";
+	public static final String TYPE_MATCHES		= "matches";
+	public static final String TYPE_CONTAINS		= "contains";
+	public static final String TYPE_LENGTH		= "length";
+	public static final String TYPE_NOT_NULL		= "notnull";
+	public static final String TYPE_SOUNDS_LIKE	= "soundslike";
+
+	// the types used for a rule set of type "mixed"
+	public static final String[] TYPES				= {TYPE_GREATER, TYPE_EQUAL, TYPE_BETWEEN, TYPE_IN_LIST, TYPE_MATCHES, TYPE_CONTAINS, TYPE_LENGTH, TYPE_NOT_NULL, TYPE_SOUNDS_LIKE};
+
+	public static final String[] FIELD_NAMES		= {"age", "name", "country", "amount", "flag"};
+
+	private static final int RULES_PER_GROUP		= 10;
+	private static final String ROW_CLASS			= "com.datamelt.util.RowFieldCollection";
+	private static final String CHECK_PACKAGE		= "com.datamelt.rules.implementation.";
+
+	/**
+	 * creates a row containing the fields used by the rules of the generated rule sets
+	 *
+	 * @return		the row
+	 */
+	public static RowFieldCollection createRow()
+	{
+		return new RowFieldCollection(FIELD_NAMES, new Object[] {"35", "Martin", "DE", "1250", "OK"});
+	}
+
+	/**
+	 * creates the xml of a rule set with the given number of rules of the given type
+	 *
+	 * @param numberOfRules		the number of rules
+	 * @param type				the type of the rules or "mixed"
+	 * @param withActions		indicator if an action is added to each group
+	 * @return					the xml of the rule set
+	 * @throws Exception		when the type of the rules is unknown
+	 */
+	public static String createRuleSet(int numberOfRules, String type, boolean withActions) throws Exception
+	{
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		xml.append("<rulegroup>\n");
+		for(int rule=0;rule<numberOfRules;rule++)
+		{
+			int group = rule / RULES_PER_GROUP;
+			if(rule % RULES_PER_GROUP==0)
+			{
+				xml.append("<group id=\"g").append(group).append("\" description=\"group ").append(group).append("\" validfrom=\"2000-01-01\" validuntil=\"2099-12-31\">\n");
+				xml.append("  <subgroup id=\"s").append(group).append("\" description=\"subgroup ").append(group).append("\" ruleoperator=\"and\">\n");
+			}
+			String ruleType = type;
+			if(type.equals(TYPE_MIXED))
+			{
+				ruleType = TYPES[rule % TYPES.length];
+			}
+			appendRule(xml, "r" + rule, ruleType);
+			if(rule % RULES_PER_GROUP==RULES_PER_GROUP - 1 || rule==numberOfRules - 1)
+			{
+				xml.append("  </subgroup>\n");
+				if(withActions)
+				{
+					appendAction(xml, "a" + group);
+				}
+				xml.append("</group>\n");
+			}
+		}
+		xml.append("</rulegroup>\n");
+		return xml.toString();
+	}
+
+	/**
+	 * writes the given xml of a rule set to a temporary zip file - the format used by the RuleEngineServer.
+	 * the file is deleted when the jvm exits.
+	 *
+	 * @param xml				the xml of the rule set
+	 * @return					the zip file
+	 * @throws Exception		when the file can not be written
+	 */
+	public static File createZipFile(String xml) throws Exception
+	{
+		File file = File.createTempFile("benchmark", ".zip");
+		file.deleteOnExit();
+		try(ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file)))
+		{
+			stream.putNextEntry(new ZipEntry("rules.xml"));
+			stream.write(xml.getBytes(StandardCharsets.UTF_8));
+			stream.closeEntry();
+		}
+		return file;
+	}
+
+	private static void appendRule(StringBuilder xml, String id, String type) throws Exception
+	{
+		if(type.equals(TYPE_GREATER))
+		{
+			appendRule(xml, id, "age", "integer", "18", "integer", "CheckIsGreater");
+		}
+		else if(type.equals(TYPE_EQUAL))
+		{
+			appendRule(xml, id, "country", "string", "DE", "string", "CheckIsEqual");
+		}
+		else if(type.equals(TYPE_BETWEEN))
+		{
+			appendRule(xml, id, "amount", "long", "1000,5000", "string", "CheckIsBetween");
+		}
+		else if(type.equals(TYPE_IN_LIST))
+		{
+			appendRule(xml, id, "country", "string", "AT,BE,CH,DE,ES,FR,IT,NL", "string", "CheckIsInList");
+		}
+		else if(type.equals(TYPE_MATCHES))
+		{
+			appendRule(xml, id, "name", "string", "[A-Z][a-z]+", "string", "CheckMatches");
+		}
+		else if(type.equals(TYPE_CONTAINS))
+		{
+			appendRule(xml, id, "name", "string", "art", "string", "CheckContains");
+		}
+		else if(type.equals(TYPE_LENGTH))
+		{
+			appendRule(xml, id, "name", "string", "6", "integer", "CheckLength");
+		}
+		else if(type.equals(TYPE_NOT_NULL))
+		{
+			appendRule(xml, id, "name", "string", null, null, "CheckIsNotNull");
+		}
+		else if(type.equals(TYPE_SOUNDS_LIKE))
+		{
+			appendRule(xml, id, "name", "string", "Martine", "string", "CheckSoundsLike");
+		}
+		else
+		{
+			throw new Exception("unknown type of rule: " + type);
+		}
+	}
+
+	private static void appendRule(StringBuilder xml, String id, String field, String fieldType, String expectedValue, String expectedType, String checkClass)
+	{
+		xml.append("    <rule id=\"").append(id).append("\" description=\"rule ").append(id).append("\">\n");
+		xml.append("      <object classname=\"").append(ROW_CLASS).append("\" method=\"getFieldValue\" parameter=\"").append(field).append("\" parametertype=\"string\" type=\"").append(fieldType).append("\"/>\n");
+		if(expectedValue!=null)
+		{
+			xml.append("      <expected value=\"").append(expectedValue).append("\" type=\"").append(expectedType).append("\"/>\n");
+		}
+		xml.append("      <execute value=\"").append(CHECK_PACKAGE).append(checkClass).append("\"/>\n");
+		xml.append("      <message type=\"failed\" text=\"rule ").append(id).append(" failed for value $0\"/>\n");
+		xml.append("    </rule>\n");
+	}
+
+	private static void appendAction(StringBuilder xml, String id)
+	{
+		xml.append("  <action id=\"").append(id).append("\" description=\"set flag\" classname=\"com.datamelt.rules.core.action.StringAction\" method=\"setValue\" executeif=\"passed\">\n");
+		xml.append("    <object classname=\"").append(ROW_CLASS).append("\" method=\"setFieldValue\" type=\"setter\" returntype=\"string\">\n");
+		xml.append("      <parameter type=\"string\" value=\"flag\"/>\n");
+		xml.append("      <parameter type=\"string\" value=\"\" settervalue=\"true\"/>\n");
+		xml.append("    </object>\n");
+		xml.append("    <parameter type=\"string\" value=\"CHECKED\"/>\n");
+		xml.append("  </action>\n");
+	}
+}
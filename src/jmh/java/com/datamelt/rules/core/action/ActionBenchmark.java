@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.core.action;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.datamelt.rules.core.ActionObject;
+import com.datamelt.rules.core.CompiledAction;
+import com.datamelt.rules.core.Parameter;
+import com.datamelt.rules.core.XmlAction;
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * benchmark for the actions of the ruleengine.
+ *
+ * the methods of the StringAction, MathAction and DateAction are called directly. additionally
+ * actions are invoked the way the ruleengine invokes them: using the compiled action, which
+ * gets the values from the row, calls the action method and sets the result in the row.
+ *
+ * @author uwe geercken
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActionBenchmark
+{
+	private static final String ROW_CLASS = "com.datamelt.util.RowFieldCollection";
+
+	private StringAction stringAction = new StringAction();
+	private MathAction mathAction = new MathAction();
+	private DateAction dateAction = new DateAction();
+	private XmlAction xmlAction = new XmlAction("benchmark", "benchmark action");
+
+	// the values are fields, so that the compiler can not fold the actions into constants
+	private String stringValue = "Martin";
+	private String dateString = "2020-04-17";
+	private String dateFormat = "yyyy-MM-dd";
+	private int integerValue = 35;
+	private double doubleValue = 1250.75d;
+	private Date dateValue;
+
+	private CompiledAction compiledSetValue;
+	private CompiledAction compiledAddValues;
+	private RowFieldCollection row;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(2020, Calendar.APRIL, 17, 12, 30, 0);
+		dateValue = calendar.getTime();
+
+		row = new RowFieldCollection(new String[] {"name","a","b","sum"}, new Object[] {"Martin", 2, 3, 0});
+
+		XmlAction setValue = new XmlAction("a1", "set value");
+		setValue.setClassName("com.datamelt.rules.core.action.StringAction");
+		setValue.setMethodName("setValue");
+		setValue.addParameter(new Parameter("string", "CHECKED"));
+		setValue.setActionSetterObject(createSetter("name", "string"));
+		compiledSetValue = setValue.getCompiledAction();
+
+		XmlAction addValues = new XmlAction("a2", "add values");
+		addValues.setClassName("com.datamelt.rules.core.action.MathAction");
+		addValues.setMethodName("addValues");
+		addValues.addActionGetterObject(createGetter("a"));
+		addValues.addActionGetterObject(createGetter("b"));
+		addValues.setActionSetterObject(createSetter("sum", "integer"));
+		compiledAddValues = addValues.getCompiledAction();
+	}
+
+	private static ActionObject createGetter(String field) throws Exception
+	{
+		ActionObject getter = new ActionObject(ROW_CLASS, "getFieldValue");
+		getter.setReturnType("integer");
+		getter.addParameter(new Parameter("string", field));
+		return getter;
+	}
+
+	private static ActionObject createSetter(String field, String type) throws Exception
+	{
+		ActionObject setter = new ActionObject(ROW_CLASS, "setFieldValue");
+		setter.addParameter(new Parameter("string", field));
+		setter.addParameter(new Parameter(type, "", true));
+		return setter;
+	}
+
+	@Benchmark
+	public String stringSetValue() throws Exception
+	{
+		return stringAction.setValue(xmlAction, stringValue);
+	}
+
+	@Benchmark
+	public String stringReplaceValue() throws Exception
+	{
+		return stringAction.replaceValue(xmlAction, stringValue, "r", "rr");
+	}
+
+	@Benchmark
+	public String stringConcatValues() throws Exception
+	{
+		return stringAction.concatValues(xmlAction, stringValue, integerValue, "-");
+	}
+
+	@Benchmark
+	public String stringMaskValue()
+	{
+		return stringAction.maskValue(xmlAction, stringValue, "*", 2);
+	}
+
+	@Benchmark
+	public String stringUpperCaseValue()
+	{
+		return stringAction.upperCaseValue(xmlAction, stringValue);
+	}
+
+	@Benchmark
+	public int mathAddValues() throws Exception
+	{
+		return mathAction.addValues(xmlAction, integerValue, integerValue);
+	}
+
+	@Benchmark
+	public double mathMultiplyValues() throws Exception
+	{
+		return mathAction.multiplyValues(xmlAction, doubleValue, integerValue);
+	}
+
+	@Benchmark
+	public Date dateSetValue()
+	{
+		return dateAction.setValue(xmlAction, dateString, dateFormat);
+	}
+
+	@Benchmark
+	public int dateSetQuarter()
+	{
+		return dateAction.setQuarter(xmlAction, dateValue);
+	}
+
+	@Benchmark
+	public Date dateSetLastDayOfMonth()
+	{
+		return dateAction.setLastDayOfMonth(xmlAction, dateValue);
+	}
+
+	@Benchmark
+	public Object compiledStringSetValue() throws Exception
+	{
+		compiledSetValue.execute(row);
+		return row.getFieldValue("name");
+	}
+
+	@Benchmark
+	public Object compiledMathAddValues() throws Exception
+	{
+		compiledAddValues.execute(row);
+		return row.getFieldValue("sum");
+	}
+}
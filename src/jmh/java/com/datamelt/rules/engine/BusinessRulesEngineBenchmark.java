@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.engine;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.datamelt.benchmark.RuleSetGenerator;
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * benchmark for running the rules of a synthetic rule set against a single row using
+ * the BusinessRulesEngine.
+ *
+ * the rule sets contain rules of one type or of all types ("mixed"). the actions of the
+ * groups are executed for every row, as all rules pass.
+ *
+ * @author uwe geercken
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BusinessRulesEngineBenchmark
+{
+	@Param({"10", "100", "1000"})
+	private int numberOfRules;
+
+	@Param({"mixed", "greater", "equal", "between", "inlist", "matches", "contains", "length", "notnull", "soundslike"})
+	private String ruleType;
+
+	private BusinessRulesEngine ruleEngine;
+	private RuleExecutionContext context;
+	private RowFieldCollection row;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		File file = RuleSetGenerator.createZipFile(RuleSetGenerator.createRuleSet(numberOfRules, ruleType, true));
+		ruleEngine = new BusinessRulesEngine(new ZipFile(file));
+		ruleEngine.setOutputType(BusinessRulesEngine.OUTPUT_TYPE_NO_OUTPUT);
+		context = ruleEngine.createExecutionContext();
+		row = RuleSetGenerator.createRow();
+		// make sure that the rule set is valid before measuring it
+		ruleEngine.run("row", row);
+		if(ruleEngine.getNumberOfGroupsFailed()>0)
+		{
+			throw new Exception("the rules of the generated rule set failed: " + ruleType);
+		}
+		ruleEngine.clear();
+	}
+
+	@Benchmark
+	public long run() throws Exception
+	{
+		ruleEngine.run("row", row);
+		long groupsPassed = ruleEngine.getNumberOfGroupsPassed();
+		ruleEngine.clear();
+		return groupsPassed;
+	}
+
+	@Benchmark
+	public long runWithContext() throws Exception
+	{
+		context.run("row", row);
+		long groupsPassed = context.getNumberOfGroupsPassed();
+		context.clear();
+		return groupsPassed;
+	}
+}
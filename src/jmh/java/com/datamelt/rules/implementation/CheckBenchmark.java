@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.implementation;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.datamelt.util.PatternMatcher;
+import com.datamelt.util.ValueSet;
+
+/**
+ * benchmark for the evaluate methods of the check families of the ruleengine.
+ *
+ * the methods are called directly - the same way the compiled rules call them. the
+ * checks that compile their expected value once per rule (lists and patterns) are
+ * measured with and without the compiled value.
+ *
+ * @author uwe geercken
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckBenchmark
+{
+	// the values are fields, so that the compiler can not fold the checks into constants
+	private int integerValue = 35;
+	private int integerCompareValue = 18;
+	private long longValue = 1250;
+	private double doubleValue = 1250.75d;
+	private double doubleCompareValue = 999.99d;
+	private String stringValue = "Martin";
+	private String stringCompareValue = "martin";
+	private String numericValue = "1250.75";
+	private String country = "DE";
+	private String countryList = "AT,BE,CH,DE,ES,FR,IT,NL";
+	private String pattern = "[A-Z][a-z]+";
+	private String betweenLimits = "1000,5000";
+	private String timeLimits = "08:00:00,18:00:00";
+	private Date dateValue;
+	private Date dateCompareValue;
+
+	private ValueSet countries;
+	private PatternMatcher matcher;
+
+	@Setup
+	public void setup()
+	{
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(2020, Calendar.APRIL, 17, 12, 30, 0);
+		dateValue = calendar.getTime();
+		calendar.add(Calendar.DAY_OF_MONTH, -10);
+		dateCompareValue = calendar.getTime();
+		countries = CheckIsInList.compile(countryList);
+		matcher = CheckMatches.compile(pattern);
+	}
+
+	@Benchmark
+	public boolean isEqualInteger()
+	{
+		return CheckIsEqual.evaluate(integerValue, integerCompareValue);
+	}
+
+	@Benchmark
+	public boolean isEqualString()
+	{
+		return CheckIsEqual.evaluate(stringValue, stringCompareValue, true);
+	}
+
+	@Benchmark
+	public boolean isGreaterInteger()
+	{
+		return CheckIsGreater.evaluate(integerValue, integerCompareValue);
+	}
+
+	@Benchmark
+	public boolean isSmallerDouble()
+	{
+		return CheckIsSmaller.evaluate(doubleValue, doubleCompareValue);
+	}
+
+	@Benchmark
+	public boolean isGreaterDate()
+	{
+		return CheckIsGreater.evaluate(dateValue, dateCompareValue);
+	}
+
+	@Benchmark
+	public boolean isBetween()
+	{
+		return CheckIsBetween.evaluate(longValue, betweenLimits);
+	}
+
+	@Benchmark
+	public boolean dateTimeIsBetween()
+	{
+		return CheckDateTimeIsBetween.evaluate(dateValue, timeLimits);
+	}
+
+	@Benchmark
+	public boolean isInList()
+	{
+		return CheckIsInList.evaluate(country, countryList);
+	}
+
+	@Benchmark
+	public boolean isInListCompiled()
+	{
+		return CheckIsInList.evaluate(country, countries);
+	}
+
+	@Benchmark
+	public boolean listHasMember()
+	{
+		return CheckListHasMember.evaluate(countryList, country);
+	}
+
+	@Benchmark
+	public boolean matches()
+	{
+		return CheckMatches.evaluate(stringValue, pattern);
+	}
+
+	@Benchmark
+	public boolean matchesCompiled()
+	{
+		return CheckMatches.evaluate(stringValue, matcher);
+	}
+
+	@Benchmark
+	public boolean contains()
+	{
+		return CheckContains.evaluate(stringValue, "art");
+	}
+
+	@Benchmark
+	public boolean startsWith()
+	{
+		return CheckStartsWith.evaluate(stringValue, "mar", true);
+	}
+
+	@Benchmark
+	public boolean endsWith()
+	{
+		return CheckEndsWith.evaluate(stringValue, "tin");
+	}
+
+	@Benchmark
+	public boolean length()
+	{
+		return CheckLength.evaluate(stringValue, 6);
+	}
+
+	@Benchmark
+	public boolean isEmpty()
+	{
+		return CheckIsEmpty.evaluate(stringValue);
+	}
+
+	@Benchmark
+	public boolean isUppercase()
+	{
+		return CheckIsUppercase.evaluate(stringValue);
+	}
+
+	@Benchmark
+	public boolean isNull()
+	{
+		return CheckIsNull.evaluate(stringValue);
+	}
+
+	@Benchmark
+	public boolean isNumeric()
+	{
+		return CheckIsNumeric.evaluate(numericValue);
+	}
+
+	@Benchmark
+	public boolean isEven()
+	{
+		return CheckIsEven.evaluate(integerValue);
+	}
+
+	@Benchmark
+	public boolean isPrime()
+	{
+		return CheckIsPrime.evaluate(integerValue);
+	}
+
+	@Benchmark
+	public boolean isNegativeNumber()
+	{
+		return CheckIsNegativeNumber.evaluate(doubleValue);
+	}
+
+	@Benchmark
+	public boolean soundsLike()
+	{
+		return CheckSoundsLike.evaluate(stringValue, "Martine");
+	}
+
+	@Benchmark
+	public boolean distanceIsSmaller()
+	{
+		return CheckDistanceIsSmaller.evaluate(stringValue, "Martine", 2);
+	}
+}
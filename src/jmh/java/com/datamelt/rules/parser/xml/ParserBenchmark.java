@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.parser.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.datamelt.benchmark.RuleSetGenerator;
+import com.datamelt.rules.engine.BusinessRulesEngine;
+
+/**
+ * benchmark for loading synthetic rule sets: parsing the xml using the Parser and
+ * reloading a rule set from a zip file - which parses, compiles and activates the rules.
+ *
+ * @author uwe geercken
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark
+{
+	@Param({"10", "100", "1000"})
+	private int numberOfRules;
+
+	private byte[] xml;
+	private File zipFile;
+	private BusinessRulesEngine ruleEngine;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		String ruleSet = RuleSetGenerator.createRuleSet(numberOfRules, RuleSetGenerator.TYPE_MIXED, true);
+		xml = ruleSet.getBytes(StandardCharsets.UTF_8);
+		zipFile = RuleSetGenerator.createZipFile(ruleSet);
+		ruleEngine = new BusinessRulesEngine(new ZipFile(zipFile));
+	}
+
+	@Benchmark
+	public int parse() throws Exception
+	{
+		Parser parser = new Parser(null);
+		parser.parse(new ByteArrayInputStream(xml));
+		return parser.getGroups().size();
+	}
+
+	@Benchmark
+	public long reloadZipFile() throws Exception
+	{
+		ruleEngine.reloadZipFile(new ZipFile(zipFile));
+		return ruleEngine.getNumberOfRules();
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.datamelt.benchmark.RuleSetGenerator;
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * benchmark for the round trip of a row from the RuleEngineClient to the server and back
+ * using the loopback interface.
+ *
+ * the connection types are:
+ * - classic-object: the thread per connection server of the RuleEngineServer using the object stream protocol
+ * - classic-binary: the thread per connection server of the RuleEngineServer using the binary protocol
+ * - nio-framed: the RuleEngineNioServer using the framed protocol
+ *
+ * the classic server is run the same way as by the RuleEngineServer: a thread accepts the
+ * connections and runs a ClientHandler for each of them.
+ *
+ * @author uwe geercken
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleEngineServerBenchmark
+{
+	private static final String LOOPBACK		= "127.0.0.1";
+
+	@Param({"10", "100", "1000"})
+	private int numberOfRules;
+
+	@Param({"classic-object", "classic-binary", "nio-framed"})
+	private String connection;
+
+	private BusinessRulesEngine ruleEngine;
+	private ServerSocket serverSocket;
+	private RuleEngineNioServer nioServer;
+	private RuleEngineClient client;
+	private RowFieldCollection row;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		File file = RuleSetGenerator.createZipFile(RuleSetGenerator.createRuleSet(numberOfRules, RuleSetGenerator.TYPE_MIXED, true));
+		ruleEngine = new BusinessRulesEngine(new ZipFile(file));
+		row = RuleSetGenerator.createRow();
+		if(connection.equals("nio-framed"))
+		{
+			nioServer = new RuleEngineNioServer(ruleEngine, null, file.getParent(), file.getName(), 1, 2, 8);
+			nioServer.start(0);
+			client = new RuleEngineClient(LOOPBACK, nioServer.getPort(), RuleEngineClient.PROTOCOL_FRAMED);
+		}
+		else
+		{
+			serverSocket = new ServerSocket(0, 50, InetAddress.getByName(LOOPBACK));
+			final long serverStart = System.currentTimeMillis();
+			Thread acceptor = new Thread("benchmark-acceptor")
+			{
+				public void run()
+				{
+					while(!serverSocket.isClosed())
+					{
+						try
+						{
+							Socket socket = serverSocket.accept();
+							ClientHandler clientHandler = new ClientHandler("benchmark", socket, ruleEngine, null, serverStart);
+							Thread handler = new Thread(clientHandler, "benchmark-client");
+							handler.setDaemon(true);
+							handler.start();
+						}
+						catch(Exception ex)
+						{
+							// the server socket has been closed
+						}
+					}
+				}
+			};
+			acceptor.setDaemon(true);
+			acceptor.start();
+			if(connection.equals("classic-binary"))
+			{
+				client = new RuleEngineClient(LOOPBACK, serverSocket.getLocalPort(), RuleEngineClient.PROTOCOL_BINARY);
+			}
+			else
+			{
+				client = new RuleEngineClient(LOOPBACK, serverSocket.getLocalPort(), RuleEngineClient.PROTOCOL_OBJECT_STREAM);
+			}
+		}
+		// make sure that the server runs the rules before measuring it
+		RuleEngineServerObject result = client.getServerObject(row);
+		if(result.getRuleEngineException() || result.getGroupsFailed()>0)
+		{
+			throw new Exception("the rules of the generated rule set failed on the server");
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		client.closeSocket();
+		if(nioServer!=null)
+		{
+			nioServer.stop();
+		}
+		if(serverSocket!=null)
+		{
+			serverSocket.close();
+		}
+	}
+
+	@Benchmark
+	public long roundTrip() throws Exception
+	{
+		return client.getServerObject(row).getGroupsFailed();
+	}
+}
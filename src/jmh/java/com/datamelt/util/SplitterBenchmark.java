@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * benchmark for splitting lines of a CSV file and of a fixed length ASCII file into
+ * their fields using the Splitter.
+ *
+ * @author uwe geercken
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SplitterBenchmark
+{
+	private static final String ROW_DEFINITION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<fields>\n"
+			+ "  <field name=\"age\" start=\"0\" length=\"3\"/>\n"
+			+ "  <field name=\"name\" start=\"3\" length=\"10\"/>\n"
+			+ "  <field name=\"country\" start=\"13\" length=\"2\"/>\n"
+			+ "  <field name=\"amount\" start=\"15\" length=\"8\"/>\n"
+			+ "  <field name=\"date\" start=\"23\" length=\"10\"/>\n"
+			+ "</fields>\n";
+
+	private static final String[] TYPES = {Splitter.FIELDTYPE_INTEGER, Splitter.FIELDTYPE_STRING, Splitter.FIELDTYPE_STRING, Splitter.FIELDTYPE_DOUBLE, Splitter.FIELDTYPE_STRING};
+
+	private Splitter csvSplitter;
+	private Splitter fixedLengthSplitter;
+	private String csvLine = "35;Martin;DE;1250.75;2020-04-17";
+	private String fixedLengthLine = " 35Martin    DE 1250.752020-04-17";
+
+	@Setup
+	public void setup() throws Exception
+	{
+		csvSplitter = new Splitter(Splitter.TYPE_COMMA_SEPERATED, Splitter.SEPERATOR_SEMICOLON);
+
+		File file = File.createTempFile("benchmark", ".xml");
+		file.deleteOnExit();
+		try(FileOutputStream stream = new FileOutputStream(file))
+		{
+			stream.write(ROW_DEFINITION.getBytes(StandardCharsets.UTF_8));
+		}
+		fixedLengthSplitter = new Splitter(Splitter.TYPE_FIXED_LENGTH);
+		fixedLengthSplitter.setRowDefinitionFile(file.getPath());
+	}
+
+	@Benchmark
+	public Object[] csvFields() throws Exception
+	{
+		return csvSplitter.getFields(csvLine);
+	}
+
+	@Benchmark
+	public Object[] csvTypedFields() throws Exception
+	{
+		return csvSplitter.getFields(csvLine, TYPES);
+	}
+
+	@Benchmark
+	public RowFieldCollection csvRowFieldCollection() throws Exception
+	{
+		return csvSplitter.getRowFieldCollection(csvLine);
+	}
+
+	@Benchmark
+	public Object[] fixedLengthFields() throws Exception
+	{
+		return fixedLengthSplitter.getFields(fixedLengthLine);
+	}
+
+	@Benchmark
+	public RowFieldCollection fixedLengthRowFieldCollection() throws Exception
+	{
+		return fixedLengthSplitter.getRowFieldCollection(fixedLengthLine);
+	}
+}
@@ -47,6 +47,10 @@ public class MySqlConnection
 	private static final String CONNECTSTRING = "jdbc:mysql://";
 	// additional connection settings
 	private static final String CONNECTSTRING_ADDITIONAL = "?useUnicode=true&characterEncoding=ISO-8859-1";
+	// setting to use cursors. the records are then streamed from the server if a fetch size is set
+	private static final String CONNECTSTRING_CURSOR_FETCH = "&useCursorFetch=true";
+	// the default port of the MySQL server
+	public static final int DEFAULT_PORT = 3306;
 	// message when user tries to retrieve data but the connection object is undefined
 	private static final String EXCEPTION_CONNECTION_OBJECT_UNDEFINED = "connection object is undefined";
 	
@@ -59,7 +63,7 @@ public class MySqlConnection
 	// variable to contain the password of the user
 	private String password;
 	// variable to contain the port of the database server
-	private int port = 3306;
+	private int port = DEFAULT_PORT;
 	// a java sql connection object
 	private Connection connection;
 	
@@ -155,9 +159,47 @@ public class MySqlConnection
 	public Connection getConnection() throws Exception
 	{
 		Class.forName("com.mysql.jdbc.Driver").newInstance();
-		return DriverManager.getConnection(CONNECTSTRING + hostname + ":" + port + "/" + databaseName + CONNECTSTRING_ADDITIONAL,userid,password);
+		return DriverManager.getConnection(getUrl(hostname, port, databaseName),userid,password);
 	} 
 
+	/**
+	 * returns the JDBC url for the given hostname, port and database name - including
+	 * the additional connection settings used by this class.
+	 *
+	 * @param hostname 		hostname or IP adress of the database server 
+	 * @param port		 	the port the database server listens on
+	 * @param databaseName 	the name of the database to use
+	 * @return				the JDBC url
+	 */
+	public static String getUrl(String hostname, int port, String databaseName)
+	{
+		return getUrl(hostname, port, databaseName, false);
+	}
+
+	/**
+	 * returns the JDBC url for the given hostname, port and database name - including
+	 * the additional connection settings used by this class.
+	 * 
+	 * connections using cursors stream the records of a query from the server, when a fetch
+	 * size is set for the statement. this is intended for reading large results; other
+	 * statements should use connections without cursors.
+	 *
+	 * @param hostname 		hostname or IP adress of the database server 
+	 * @param port		 	the port the database server listens on
+	 * @param databaseName 	the name of the database to use
+	 * @param cursorFetch	indicator if the connection uses cursors to fetch the records
+	 * @return				the JDBC url
+	 */
+	public static String getUrl(String hostname, int port, String databaseName, boolean cursorFetch)
+	{
+		String url = CONNECTSTRING + hostname + ":" + port + "/" + databaseName + CONNECTSTRING_ADDITIONAL;
+		if(cursorFetch)
+		{
+			url = url + CONNECTSTRING_CURSOR_FETCH;
+		}
+		return url;
+	}
+
 	/**
 	 * Executes the given SQL statement and returns the results.
 	 * 
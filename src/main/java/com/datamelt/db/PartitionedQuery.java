@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Arrays;
+
+import com.datamelt.util.HeaderRow;
+
+/**
+ * a query that is split into partitions by the ranges of a numeric key, so that the partitions
+ * can be read in parallel - each one using its own connection to the database.
+ *
+ * the query must contain two placeholders for the range of the key of a partition: the first one
+ * for the lower bound, which is included, and the second one for the upper bound, which is excluded.
+ * example:
+ *
+ * select * from customer where id &gt;= ? and id &lt; ?
+ *
+ * the range from the lower bound to the upper bound - both are included - is divided into ranges of
+ * the same size. records with a key outside of the range are not read. for the best performance the
+ * key should be indexed - e.g. the primary key of the table.
+ *
+ * the connections are opened using the JDBC url, the userid and the password of the query. they are
+ * read-only and do not use autocommit, so that the drivers can use cursors to stream the records.
+ *
+ * the readers of all partitions use the same header row, so that the rules resolve the fields of
+ * the rows only once for the query.
+ *
+ * @author uwe geercken
+ */
+public class PartitionedQuery
+{
+	private final String url;
+	private final String userid;
+	private final String password;
+	private final String sql;
+	private final long lowerBound;
+	private final long upperBound;
+	private final int numberOfPartitions;
+
+	private int fetchSize = ResultSetReader.DEFAULT_FETCH_SIZE;
+	// the header row shared by the readers of the partitions. it is taken from the first reader
+	private HeaderRow header;
+
+	/**
+	 * constructor for a query, which is split into the given number of partitions. if the range of
+	 * the key contains less values than the number of partitions, the number of values is used as
+	 * the number of partitions.
+	 *
+	 * @param url					the JDBC url of the database
+	 * @param userid				the id of the user
+	 * @param password				the password of the user
+	 * @param sql					the query, containing the placeholders for the lower and the upper bound of the key
+	 * @param lowerBound			the lowest value of the key to read
+	 * @param upperBound			the highest value of the key to read
+	 * @param numberOfPartitions	the number of partitions
+	 * @throws Exception			exception when the bounds or the number of partitions are invalid
+	 */
+	public PartitionedQuery(String url, String userid, String password, String sql, long lowerBound, long upperBound, int numberOfPartitions) throws Exception
+	{
+		if(numberOfPartitions<1)
+		{
+			throw new Exception("the number of partitions must be at least 1: " + numberOfPartitions);
+		}
+		// the upper bound of the last partition is excluded and must not overflow
+		if(upperBound<lowerBound || upperBound==Long.MAX_VALUE || upperBound - lowerBound + 1 <= 0)
+		{
+			throw new Exception("invalid range of the key: " + lowerBound + " to " + upperBound);
+		}
+		this.url = url;
+		this.userid = userid;
+		this.password = password;
+		this.sql = sql;
+		this.lowerBound = lowerBound;
+		this.upperBound = upperBound;
+		this.numberOfPartitions = (int)Math.min(numberOfPartitions, upperBound - lowerBound + 1);
+	}
+
+	/**
+	 * opens a new read-only connection to the database, which does not use autocommit
+	 *
+	 * @return				the connection
+	 * @throws Exception	exception when the connection can not be established
+	 */
+	public Connection getConnection() throws Exception
+	{
+		Connection connection = DriverManager.getConnection(url, userid, password);
+		try
+		{
+			connection.setReadOnly(true);
+			connection.setAutoCommit(false);
+		}
+		catch(Exception ex)
+		{
+			connection.close();
+			throw ex;
+		}
+		return connection;
+	}
+
+	/**
+	 * runs the query for the given partition and returns a reader for its records
+	 *
+	 * @param connection	the connection to use
+	 * @param partition		the number of the partition, starting at 0
+	 * @return				the reader for the records of the partition
+	 * @throws Exception	exception when the query can not be run
+	 */
+	public ResultSetReader createReader(Connection connection, int partition) throws Exception
+	{
+		ResultSetReader reader = new ResultSetReader(connection, sql, fetchSize, getPartitionLowerBound(partition), getPartitionUpperBound(partition));
+		try
+		{
+			reader.setHeader(getHeader(reader.getHeader()));
+		}
+		catch(Exception ex)
+		{
+			reader.close();
+			throw ex;
+		}
+		return reader;
+	}
+
+	/**
+	 * returns the header row shared by the readers of the partitions. if there is none yet or if the
+	 * fields of the query have changed, the header row of the given reader is used from now on.
+	 *
+	 * @param readerHeader	the header row of a reader
+	 * @return				the shared header row
+	 */
+	private synchronized HeaderRow getHeader(HeaderRow readerHeader)
+	{
+		if(header==null || !Arrays.equals(header.getFieldNames(), readerHeader.getFieldNames()))
+		{
+			header = readerHeader;
+		}
+		return header;
+	}
+
+	/**
+	 * returns the lowest value of the key of the given partition, which is included
+	 *
+	 * @param partition		the number of the partition, starting at 0
+	 * @return				the lower bound of the partition
+	 */
+	public long getPartitionLowerBound(int partition)
+	{
+		long range = upperBound - lowerBound + 1;
+		long size = range / numberOfPartitions;
+		long remainder = range % numberOfPartitions;
+		// the first partitions contain one more value, if the range can not be divided evenly
+		return lowerBound + partition * size + Math.min(partition, remainder);
+	}
+
+	/**
+	 * returns the upper bound of the key of the given partition, which is excluded
+	 *
+	 * @param partition		the number of the partition, starting at 0
+	 * @return				the upper bound of the partition
+	 */
+	public long getPartitionUpperBound(int partition)
+	{
+		return getPartitionLowerBound(partition + 1);
+	}
+
+	/**
+	 * returns the number of partitions
+	 *
+	 * @return		the number of partitions
+	 */
+	public int getNumberOfPartitions()
+	{
+		return numberOfPartitions;
+	}
+
+	/**
+	 * returns the query
+	 *
+	 * @return		the query
+	 */
+	public String getSql()
+	{
+		return sql;
+	}
+
+	/**
+	 * returns the number of records the driver fetches from the database at once
+	 *
+	 * @return		the fetch size
+	 */
+	public int getFetchSize()
+	{
+		return fetchSize;
+	}
+
+	/**
+	 * sets the number of records the driver fetches from the database at once. the
+	 * default is 1000 records.
+	 *
+	 * @param fetchSize		the fetch size
+	 */
+	public void setFetchSize(int fetchSize)
+	{
+		this.fetchSize = fetchSize;
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * reader for the records of a query, which passes them to the ruleengine as rows.
+ *
+ * the query is run using a forward-only, read-only cursor with the given fetch size, so that the
+ * driver transfers the records in chunks of this size from the database instead of keeping all
+ * records of the result set in memory. the values of each record are copied by their position into
+ * a RowFieldCollection, which is reused for all records. the names of the fields are the column
+ * labels of the query.
+ *
+ * note that the drivers handle the fetch size differently: the MySQL driver only streams the records
+ * if the connection uses the property useCursorFetch=true or if the fetch size is Integer.MIN_VALUE and
+ * the PostgreSQL driver only if autocommit is switched off for the connection.
+ *
+ * because the row is reused, it must not be kept after the next row is read. use a copy of the
+ * values if they are needed later.
+ *
+ * example:
+ *
+ * ResultSetReader reader = new ResultSetReader(connection, "select * from customer", 1000);
+ * while(reader.nextRow())
+ * {
+ *     RowFieldCollection row = reader.getRowFieldCollection();
+ *     ...
+ * }
+ * reader.close();
+ *
+ * @author uwe geercken
+ */
+public class ResultSetReader implements AutoCloseable
+{
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+
+	private final PreparedStatement statement;
+	private final ResultSet resultSet;
+	private HeaderRow header;
+	// the values of the current record. the array is reused for all records
+	private final Object[] values;
+
+	private RowFieldCollection row;
+	private long numberOfRows;
+
+	/**
+	 * constructor for a reader of the records of the given query.
+	 *
+	 * the parameters are set - in the given order - for the placeholders of the query.
+	 *
+	 * @param connection	the connection to the database
+	 * @param sql			the query to run
+	 * @param fetchSize		the number of records the driver fetches from the database at once
+	 * @param parameters	the values for the placeholders of the query
+	 * @throws SQLException	exception when the query can not be run
+	 */
+	public ResultSetReader(Connection connection, String sql, int fetchSize, Object... parameters) throws SQLException
+	{
+		statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		try
+		{
+			statement.setFetchSize(fetchSize);
+			for(int i=0;i<parameters.length;i++)
+			{
+				statement.setObject(i+1, parameters[i]);
+			}
+			resultSet = statement.executeQuery();
+			ResultSetMetaData metaData = resultSet.getMetaData();
+			String[] fieldNames = new String[metaData.getColumnCount()];
+			for(int i=0;i<fieldNames.length;i++)
+			{
+				fieldNames[i] = metaData.getColumnLabel(i+1);
+			}
+			header = new HeaderRow(fieldNames);
+			values = new Object[fieldNames.length];
+		}
+		catch(SQLException ex)
+		{
+			statement.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * reads the next record of the result set and copies its values into the row
+	 *
+	 * @return				true if a record was read, false if there are no more records
+	 * @throws SQLException	exception when the record can not be read
+	 */
+	public boolean nextRow() throws SQLException
+	{
+		if(!resultSet.next())
+		{
+			return false;
+		}
+		for(int i=0;i<values.length;i++)
+		{
+			values[i] = resultSet.getObject(i+1);
+		}
+		if(row==null)
+		{
+			row = new RowFieldCollection(header, values);
+		}
+		else
+		{
+			row.replaceFieldValues(values);
+		}
+		numberOfRows++;
+		return true;
+	}
+
+	/**
+	 * returns the row containing the values of the current record. the same row is returned
+	 * for all records
+	 *
+	 * @return		the row of the current record
+	 */
+	public RowFieldCollection getRowFieldCollection()
+	{
+		return row;
+	}
+
+	/**
+	 * returns a new row containing a copy of the values of the current record
+	 *
+	 * @return		a new row of the current record
+	 */
+	public RowFieldCollection copyRowFieldCollection()
+	{
+		return new RowFieldCollection(header, values);
+	}
+
+	/**
+	 * returns the header row containing the column labels of the query. the header row
+	 * is shared by all rows of the reader
+	 *
+	 * @return		the header row
+	 */
+	public HeaderRow getHeader()
+	{
+		return header;
+	}
+
+	/**
+	 * sets the header row used for the rows of the reader - e.g. to share one header row between the
+	 * readers of the partitions of a query. the header row must contain the same fields as the query.
+	 * it can only be set before the first record is read.
+	 *
+	 * @param header		the header row
+	 * @throws Exception	exception when records have already been read or the fields are different
+	 */
+	public void setHeader(HeaderRow header) throws Exception
+	{
+		if(row!=null)
+		{
+			throw new Exception("the header row can not be changed after records have been read");
+		}
+		else if(!Arrays.equals(header.getFieldNames(), this.header.getFieldNames()))
+		{
+			throw new Exception("the header row does not contain the same fields as the query: " + header.getFieldNamesWithSeparator());
+		}
+		this.header = header;
+	}
+
+	/**
+	 * returns the number of records read so far
+	 *
+	 * @return		the number of records
+	 */
+	public long getNumberOfRows()
+	{
+		return numberOfRows;
+	}
+
+	/**
+	 * closes the result set and the statement. the connection is not closed.
+	 *
+	 * @throws SQLException	exception when the result set or the statement can not be closed
+	 */
+	@Override
+	public void close() throws SQLException
+	{
+		try
+		{
+			resultSet.close();
+		}
+		finally
+		{
+			statement.close();
+		}
+	}
+}
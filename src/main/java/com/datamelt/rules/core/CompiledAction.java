@@ -0,0 +1,383 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+
+import com.datamelt.rules.core.action.ActionInvocationException;
+import com.datamelt.util.ClassUtility;
+import com.datamelt.util.FieldNotFoundException;
+
+/**
+ * a CompiledAction holds the methods of an action in a form that is ready to be invoked.
+ *
+ * the methods of the getter objects, of the action class and of the setter object are
+ * resolved once, the parameters defined in the xml file are converted to typed objects and
+ * bound to the methods and the instance of the action class is created. when the action is
+ * executed, only the object the action is applied to and the values that are passed from
+ * the getters to the action and from the action to the setter are passed to the methods.
+ *
+ * if a method can not be resolved or the parameters can not be bound, the error is kept
+ * and reported when the action is executed - the same way it was reported before the
+ * actions were compiled.
+ *
+ * @author uwe geercken
+ */
+public class CompiledAction
+{
+	private static final MethodType METHOD_TYPE_GETTER	= MethodType.methodType(Object.class, Object.class);
+	private static final MethodType METHOD_TYPE_SETTER	= MethodType.methodType(void.class, Object.class, Object.class);
+	private static final MethodType METHOD_TYPE_ACTION	= MethodType.methodType(Object.class, Object[].class);
+	private static final Object[] NO_VALUES				= new Object[0];
+
+	private XmlAction action;
+
+	// the number of getter objects whose values are passed to the action
+	private int numberOfGetters;
+	private Method[] getterMethods;
+	// the getter methods with the parameters bound to them. the object is the only argument
+	private MethodHandle[] getterHandles;
+	private String getterError;
+
+	private Method setterMethod;
+	// the setter method with the parameters bound to it. the object and the value are the arguments
+	private MethodHandle setterHandle;
+	private String setterError;
+
+	private Object actionInstance;
+	private Method actionMethod;
+	// the action method with the action and the parameters bound to it. the values from the getters are the argument
+	private MethodHandle actionHandle;
+	private String actionError;
+
+	/**
+	 * compiles the given action
+	 *
+	 * @param	action	the action to compile
+	 */
+	public CompiledAction(XmlAction action)
+	{
+		this.action = action;
+		ArrayList<ActionObject> actionGetterObjects = action.getActionGetterObjects();
+		ActionObject actionSetterObject = action.getActionSetterObject();
+
+		if(actionSetterObject!=null)
+		{
+			compileSetter(actionGetterObjects.size()>0);
+		}
+		// the values of the getter objects are only used if the action has a setter object
+		if(actionGetterObjects.size()>0 && actionSetterObject!=null && setterError==null)
+		{
+			compileGetters();
+		}
+		if(action.getClassName()!=null)
+		{
+			compileAction();
+		}
+	}
+
+	/**
+	 * resolves the setter method and binds the parameters to it
+	 *
+	 * @param	hasGetters	indicator if the action has getter objects
+	 */
+	private void compileSetter(boolean hasGetters)
+	{
+		ActionObject actionSetterObject = action.getActionSetterObject();
+		try
+		{
+			setterMethod = ClassUtility.getObjectMethod(action,actionSetterObject);
+		}
+		catch(NoSuchMethodException nsm)
+		{
+			setterError = hasGetters ? nsm.toString() : "no such setter method. action: ["+ action.getDescription() + "] method: " + action.getClassName() + "." + actionSetterObject.getMethodName();
+			return;
+		}
+		catch(Exception ex)
+		{
+			setterError = hasGetters ? ex.toString() : "error invoking action method. action: ["+ action.getDescription() + "] method: " + action.getClassName() + "." + actionSetterObject.getMethodName();
+			return;
+		}
+		try
+		{
+			setterHandle = createHandle(setterMethod, actionSetterObject.getParameters(), METHOD_TYPE_SETTER, 1);
+		}
+		catch(Throwable th)
+		{
+			// the error is reported when the setter is invoked
+			setterHandle = null;
+		}
+	}
+
+	/**
+	 * resolves the methods of the getter objects and binds the parameters to them
+	 */
+	private void compileGetters()
+	{
+		ArrayList<ActionObject> actionGetterObjects = action.getActionGetterObjects();
+		numberOfGetters = actionGetterObjects.size();
+		getterMethods = new Method[numberOfGetters];
+		getterHandles = new MethodHandle[numberOfGetters];
+		for(int i=0;i<numberOfGetters;i++)
+		{
+			try
+			{
+				getterMethods[i] = ClassUtility.getObjectMethod(action,actionGetterObjects.get(i));
+			}
+			catch(Exception ex)
+			{
+				getterError = ex.toString();
+				return;
+			}
+			try
+			{
+				getterHandles[i] = createHandle(getterMethods[i], actionGetterObjects.get(i).getParameters(), METHOD_TYPE_GETTER, 0);
+			}
+			catch(Throwable th)
+			{
+				// the error is reported when the getter is invoked
+				getterHandles[i] = null;
+			}
+		}
+	}
+
+	/**
+	 * resolves the method of the action class, creates the instance of the class and binds the
+	 * action and the parameters to the method
+	 */
+	private void compileAction()
+	{
+		try
+		{
+			actionMethod = ClassUtility.getActionMethod(action);
+			actionInstance = Class.forName(action.getClassName()).newInstance();
+		}
+		catch(Exception ex)
+		{
+			actionError = ex.toString();
+			return;
+		}
+		try
+		{
+			MethodHandle handle = MethodHandles.publicLookup().unreflect(actionMethod);
+			if(Modifier.isStatic(actionMethod.getModifiers()))
+			{
+				handle = MethodHandles.insertArguments(handle, 0, action);
+			}
+			else
+			{
+				handle = MethodHandles.insertArguments(handle, 0, actionInstance, action);
+			}
+			// the parameters follow the values from the getters
+			int numberOfValues = actionMethod.getParameterTypes().length - 1 - action.getParameters().size();
+			for(int i=action.getParameters().size()-1;i>=0;i--)
+			{
+				Parameter parameter = action.getParameters().get(i);
+				handle = MethodHandles.insertArguments(handle, numberOfValues, ClassUtility.getObject(parameter.getType(), parameter.getValue()));
+			}
+			actionHandle = handle.asType(MethodType.genericMethodType(numberOfValues)).asSpreader(Object[].class, numberOfValues).asType(METHOD_TYPE_ACTION);
+		}
+		catch(Throwable th)
+		{
+			// the error is reported when the action is invoked
+			actionHandle = null;
+		}
+	}
+
+	/**
+	 * creates a method handle for a method of a getter or setter object. the parameters are bound
+	 * to the method, except the ones that are defined as the setter value. these receive the argument
+	 * at the given position. the first argument is always the object to invoke the method on.
+	 *
+	 * @param	method					the method
+	 * @param	parameters				the parameters of the method as defined in the xml file
+	 * @param	type					the type of the resulting method handle
+	 * @param	setterValueArgument		the position of the argument that is passed for the setter value
+	 * @return							the method handle
+	 * @throws	Exception				exception if the parameters can not be bound to the method
+	 */
+	private static MethodHandle createHandle(Method method, ArrayList<Parameter> parameters, MethodType type, int setterValueArgument) throws Exception
+	{
+		MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+		if(Modifier.isStatic(method.getModifiers()))
+		{
+			handle = MethodHandles.dropArguments(handle, 0, Object.class);
+		}
+		int numberOfSetterValues = 0;
+		for(int i=parameters.size()-1;i>=0;i--)
+		{
+			Parameter parameter = parameters.get(i);
+			if(parameter.isSetterValue())
+			{
+				numberOfSetterValues++;
+			}
+			else
+			{
+				handle = MethodHandles.insertArguments(handle, 1 + i, ClassUtility.getObject(parameter.getType(), parameter.getValue()));
+			}
+		}
+		handle = handle.asType(MethodType.genericMethodType(1 + numberOfSetterValues));
+		int[] reorder = new int[1 + numberOfSetterValues];
+		for(int i=1;i<reorder.length;i++)
+		{
+			reorder[i] = setterValueArgument;
+		}
+		return MethodHandles.permuteArguments(handle, type.changeReturnType(Object.class), reorder).asType(type);
+	}
+
+	/**
+	 * executes the action on the given object: the values of the getter objects are retrieved
+	 * from the object and passed to the method of the action class. the result is set on the
+	 * object using the setter object.
+	 *
+	 * @param	object		the object the action is applied to
+	 * @throws	Exception	exception if the action could not be executed
+	 */
+	public void execute(Object object) throws Exception
+	{
+		if(setterError!=null)
+		{
+			throw new Exception(setterError);
+		}
+		Object[] getterValues = NO_VALUES;
+		if(numberOfGetters>0)
+		{
+			if(getterError!=null)
+			{
+				throw new Exception(getterError);
+			}
+			getterValues = new Object[numberOfGetters];
+			for(int i=0;i<numberOfGetters;i++)
+			{
+				try
+				{
+					getterValues[i] = (Object)getterHandles[i].invokeExact(object);
+				}
+				catch(Throwable th)
+				{
+					throw getExecutionException("error invoking object: " + object.getClass().getName() + " method: " + getterMethods[i].getName(), th);
+				}
+			}
+		}
+
+		Object actionClassResult=null;
+		if(action.getClassName()!=null)
+		{
+			if(actionError!=null)
+			{
+				throw new Exception(actionError);
+			}
+			try
+			{
+				actionClassResult = (Object)actionHandle.invokeExact(getterValues);
+			}
+			catch(Throwable th)
+			{
+				throw getExecutionException("error invoking action: " + action.getClassName() + " method: " + actionMethod.getName(), th);
+			}
+		}
+
+		if(setterMethod!=null)
+		{
+			try
+			{
+				setterHandle.invokeExact(object, actionClassResult);
+			}
+			catch(Throwable th)
+			{
+				throw getExecutionException("error invoking action setter method. action: [" + action.getDescription() + "] method: "  + action.getClassName() + "." + setterMethod.getName() + " on object: " + object, th);
+			}
+		}
+	}
+
+	/**
+	 * creates the exception for a failed getter, action or setter method. a FieldNotFoundException
+	 * or an ActionInvocationException keeps its type, so that the caller can distinguish them. other
+	 * exceptions are wrapped. errors are thrown as they are.
+	 *
+	 * @param	message		the message describing the failed method
+	 * @param	th			the exception thrown by the method
+	 * @return				the exception to throw, with the exception of the method as its cause
+	 */
+	private static Exception getExecutionException(String message, Throwable th)
+	{
+		if(th instanceof Error)
+		{
+			throw (Error)th;
+		}
+		else if(th instanceof FieldNotFoundException)
+		{
+			return new FieldNotFoundException(message + " - " + th.getMessage(), th);
+		}
+		else if(th instanceof ActionInvocationException)
+		{
+			return new ActionInvocationException(message + " - " + th.getMessage(), th);
+		}
+		else
+		{
+			return new Exception(message + " - " + th, th);
+		}
+	}
+
+	/**
+	 * returns the method of the action class that is invoked
+	 *
+	 * @return	the method or null if it could not be resolved
+	 */
+	public Method getActionMethod()
+	{
+		return actionMethod;
+	}
+
+	/**
+	 * returns the instance of the action class that the method is invoked on
+	 *
+	 * @return	the instance or null if it could not be created
+	 */
+	public Object getActionInstance()
+	{
+		return actionInstance;
+	}
+
+	/**
+	 * returns the error that occurred when resolving the methods of the action
+	 *
+	 * @return	the error or null if the methods were resolved
+	 */
+	public String getMethodError()
+	{
+		if(setterError!=null)
+		{
+			return setterError;
+		}
+		else if(getterError!=null)
+		{
+			return getterError;
+		}
+		else
+		{
+			return actionError;
+		}
+	}
+}
@@ -0,0 +1,433 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.datamelt.rules.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import com.datamelt.rules.implementation.GenericCheck;
+import com.datamelt.util.ClassUtility;
+
+/**
+ * a CompiledCheck holds the evaluate method of the check of a rule in a form that is
+ * ready to be invoked.
+ *
+ * the evaluate method of the check is resolved once, the expected value and the
+ * additional parameters of the rule are converted to typed objects and all of these are
+ * bound into a method handle. when the rule is run, only the value(s) from the data
+ * object have to be passed to the invoke method.
+ *
+ * if the check defines a compile method for the types of the expected value and the
+ * parameters, the compile method is invoked once and its result is bound to the
+ * evaluate method that accepts it - e.g. the pattern of a rule using the CheckMatches
+ * check is compiled once instead of for every value.
+ *
+ * checks that are not part of the rule engine may still use the cache of values of the
+ * rule: it is set for the current thread before their evaluate method is invoked.
+ *
+ * if the method can not be resolved or the values can not be bound, the error is kept
+ * and reported when the rule is run - the same way it was reported before the rules
+ * were compiled.
+ *
+ * @author uwe geercken
+ */
+public class CompiledCheck
+{
+	private static final MethodType METHOD_TYPE_ONE_VALUE	= MethodType.methodType(boolean.class, Object.class);
+	private static final MethodType METHOD_TYPE_TWO_VALUES	= MethodType.methodType(boolean.class, Object.class, Object.class);
+	// the package of the checks of the rule engine. these checks do not use the cache of values
+	private static final String ENGINE_CHECKS_PACKAGE		= "com.datamelt.rules.implementation.";
+
+	// the evaluate method of the check
+	private Method method;
+	// the expected value and the parameters, converted to the types defined in the rule
+	private Object[] boundValues;
+	// the check method with the expected value and parameters bound to it
+	private MethodHandle methodHandle;
+	// number of values from the data object that are passed to the check
+	private int numberOfValues;
+
+	// the types the values from the data object are converted to
+	private String returnType1;
+	private String returnType2;
+
+	// indicator if the rule passes when the value is null
+	private boolean passesOnNullValue;
+	// the cache of values of the rule - only for checks that are not part of the rule engine
+	private HashSet<String> valueCache;
+
+	// errors that occurred while compiling the check
+	private String methodError;
+	private String invocationError;
+
+	/**
+	 * compiles the check of the given rule
+	 *
+	 * @param	rule	the rule to compile the check for
+	 */
+	public CompiledCheck(XmlRule rule)
+	{
+		this.passesOnNullValue = rule.getCheckToExecute()!=null && (rule.getCheckToExecute().equals("com.datamelt.rules.implementation.CheckIsNull") || rule.getCheckToExecute().equals("com.datamelt.rules.implementation.CheckIsEmpty"));
+
+		boolean hasExpectedValue = rule.getExpectedValueRuleType()!=null && rule.getExpectedValueRule()!=null;
+		if(rule.getRuleObjects().size()>0)
+		{
+			returnType1 = rule.getRuleObjects().get(0).getMethodReturnType();
+		}
+		if(!hasExpectedValue && rule.getRuleObjects().size()>1)
+		{
+			numberOfValues = 2;
+			returnType2 = rule.getRuleObjects().get(1).getMethodReturnType();
+		}
+		else
+		{
+			numberOfValues = 1;
+		}
+
+		try
+		{
+			method = getEvaluateMethod(rule, hasExpectedValue);
+		}
+		catch(Exception ex)
+		{
+			methodError = ex.getMessage();
+			return;
+		}
+		if(!method.getDeclaringClass().getName().startsWith(ENGINE_CHECKS_PACKAGE))
+		{
+			valueCache = rule.getValueCache();
+		}
+
+		// the objects that are bound to the method: the expected value, if any, and the parameters
+		ArrayList<Object> boundValues = new ArrayList<Object>();
+		if(hasExpectedValue)
+		{
+			boundValues.add(ClassUtility.getObject(rule.getExpectedValueRuleType(),rule.getExpectedValueRule()));
+		}
+		for (int i=0;i<rule.getParameters().size();i++)
+        {
+            Parameter parameter = rule.getParameters().get(i);
+            boundValues.add(ClassUtility.getObject(parameter.getType(),parameter.getValue()));
+        }
+		this.boundValues = boundValues.toArray();
+
+		if(hasExpectedValue)
+		{
+			try
+			{
+				compileBoundValues();
+			}
+			catch(Exception ex)
+			{
+				invocationError = "the expected value or the parameters of the rule can not be compiled: " + ex.getMessage();
+				return;
+			}
+		}
+
+		try
+		{
+			MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+			if(boundValues.size()>0)
+			{
+				handle = MethodHandles.insertArguments(handle, numberOfValues, this.boundValues);
+			}
+			if(numberOfValues==1)
+			{
+				methodHandle = handle.asType(METHOD_TYPE_ONE_VALUE);
+			}
+			else
+			{
+				methodHandle = handle.asType(METHOD_TYPE_TWO_VALUES);
+			}
+		}
+		catch(Throwable th)
+		{
+			if(method.getReturnType()!=boolean.class && method.getReturnType()!=Boolean.class)
+			{
+				invocationError = "return type of rule result must always be of type boolean";
+			}
+			else
+			{
+				invocationError = "the expected value or the parameters of the rule can not be converted to the required types: " + th.getMessage();
+			}
+		}
+	}
+
+	/**
+	 * resolves the evaluate method of the check using the types defined in the rule
+	 *
+	 * @param	rule				the rule
+	 * @param	hasExpectedValue	indicator if the rule defines an expected value
+	 * @return						the evaluate method of the check
+	 * @throws	Exception			exception if the method can not be resolved
+	 */
+	private Method getEvaluateMethod(XmlRule rule, boolean hasExpectedValue) throws Exception
+	{
+		int numberOfParameters = rule.getParameters().size();
+		Class<?>[] classes;
+		if(hasExpectedValue)
+		{
+			classes = new Class<?>[2 + numberOfParameters];
+			classes[0] = ClassUtility.getClass(returnType1);
+			classes[1] = ClassUtility.getClass(rule.getExpectedValueRuleType());
+		}
+		else if(numberOfValues==1)
+		{
+			classes = new Class<?>[1 + numberOfParameters];
+			classes[0] = ClassUtility.getClass(returnType1);
+		}
+		else
+		{
+			classes = new Class<?>[2 + numberOfParameters];
+			classes[0] = ClassUtility.getClass(returnType1);
+			classes[1] = ClassUtility.getClass(returnType2);
+		}
+		for (int i=0;i<numberOfParameters;i++)
+		{
+			classes[classes.length - numberOfParameters + i] = ClassUtility.getClass(rule.getParameters().get(i).getType());
+		}
+
+		GenericCheck check = rule.getExecuteCheck();
+		if(check==null)
+		{
+			throw new Exception("the check [" + rule.getCheckToExecute() + "] could not be instantiated");
+		}
+		return check.getClass().getMethod(GenericCheck.GENERIC_CHECK_METHOD_EVALUATE,classes);
+	}
+
+	/**
+	 * compiles the expected value and the parameters, if the check defines a static compile method
+	 * for their types and an evaluate method that accepts the result of the compile method. the
+	 * evaluate method is then replaced by that method and the result is the only bound value.
+	 *
+	 * @throws	Exception		exception if the compile method fails
+	 */
+	private void compileBoundValues() throws Exception
+	{
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		Class<?> checkClass = method.getDeclaringClass();
+		Method compileMethod;
+		Method compiledMethod;
+		try
+		{
+			compileMethod = checkClass.getMethod(GenericCheck.GENERIC_CHECK_METHOD_COMPILE, Arrays.copyOfRange(parameterTypes, numberOfValues, parameterTypes.length));
+			Class<?>[] classes = Arrays.copyOf(parameterTypes, numberOfValues + 1);
+			classes[numberOfValues] = compileMethod.getReturnType();
+			compiledMethod = checkClass.getMethod(GenericCheck.GENERIC_CHECK_METHOD_EVALUATE, classes);
+		}
+		catch(NoSuchMethodException ex)
+		{
+			// the check does not compile the values
+			return;
+		}
+		if(!Modifier.isStatic(compileMethod.getModifiers()))
+		{
+			return;
+		}
+		try
+		{
+			Object compiledValue = compileMethod.invoke(null, boundValues);
+			method = compiledMethod;
+			boundValues = new Object[] {compiledValue};
+		}
+		catch(InvocationTargetException ex)
+		{
+			throw new Exception(ex.getCause().getMessage());
+		}
+	}
+
+	/**
+	 * converts a value from the data object to the type that is defined for the rule object.
+	 *
+	 * the value is only converted if the actual type and the type defined in the rule are different.
+	 *
+	 * @param	value			the value from the data object
+	 * @param	returnType		the type defined in the rule object
+	 * @return					the converted value
+	 * @throws	Exception		exception if the value has an invalid type
+	 */
+	private static Object convertValue(Object value, String returnType) throws Exception
+	{
+		String valueType = ClassUtility.getObjectType(value);
+		if(valueType!=null && !valueType.equals(returnType))
+		{
+			return ClassUtility.getObject(returnType,(String)value);
+		}
+		else
+		{
+			return value;
+		}
+	}
+
+	/**
+	 * converts the first value from the data object to the type defined for the rule
+	 *
+	 * @param	value			the value from the data object
+	 * @return					the converted value
+	 * @throws	Exception		exception if the value has an invalid type
+	 */
+	public Object convertValue1(Object value) throws Exception
+	{
+		return convertValue(value,returnType1);
+	}
+
+	/**
+	 * converts the second value from the data object to the type defined for the rule.
+	 *
+	 * @param	value			the value from the data object
+	 * @return					the converted value
+	 * @throws	Exception		exception if the value has an invalid type
+	 */
+	public Object convertValue2(Object value) throws Exception
+	{
+		if(numberOfValues==2)
+		{
+			return convertValue(value,returnType2);
+		}
+		else
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * invokes the check with the value(s) from the data object. for checks that are not part
+	 * of the rule engine, the cache of values of the rule is set for the current thread first.
+	 *
+	 * @param	value1			the first - converted - value
+	 * @param	value2			the second - converted - value. only used if the check compares two values
+	 * @return					the result of the check
+	 * @throws	Exception		exception if the check can not be invoked
+	 */
+	@SuppressWarnings("deprecation")
+	public boolean evaluate(Object value1, Object value2) throws Exception
+	{
+		if(invocationError!=null)
+		{
+			throw new Exception(invocationError);
+		}
+		if(valueCache!=null)
+		{
+			GenericCheck.setValueCache(valueCache);
+		}
+		try
+		{
+			if(numberOfValues==1)
+			{
+				return (boolean)methodHandle.invokeExact(value1);
+			}
+			else
+			{
+				return (boolean)methodHandle.invokeExact(value1, value2);
+			}
+		}
+		catch(Throwable th)
+		{
+			// exceptions of the check are passed on as they are
+			if(th instanceof Exception)
+			{
+				throw (Exception)th;
+			}
+			throw new Exception(th);
+		}
+	}
+
+	/**
+	 * returns the error that occurred when resolving the evaluate method of the check
+	 *
+	 * @return	the error or null if the method was resolved
+	 */
+	public String getMethodError()
+	{
+		return methodError;
+	}
+
+	/**
+	 * returns the error that occurred when binding the expected value and the parameters
+	 * to the evaluate method of the check
+	 *
+	 * @return	the error or null if the values were bound
+	 */
+	public String getInvocationError()
+	{
+		return invocationError;
+	}
+
+	/**
+	 * returns the evaluate method of the check that is invoked
+	 *
+	 * @return	the method or null if it could not be resolved
+	 */
+	public Method getMethod()
+	{
+		return method;
+	}
+
+	/**
+	 * returns the values that are passed to the check after the value(s) from the data
+	 * object: the expected value - if the rule defines one - followed by the parameters of
+	 * the rule, converted to the types defined in the rule. if the check compiles these
+	 * values, the result of the compile method is the only value.
+	 *
+	 * @return	array of values or null if the method could not be resolved
+	 */
+	public Object[] getBoundValues()
+	{
+		return boundValues;
+	}
+
+	/**
+	 * returns the type that the first value from the data object is converted to
+	 *
+	 * @return	the type of the first value
+	 */
+	public String getReturnType1()
+	{
+		return returnType1;
+	}
+
+	/**
+	 * returns the number of values from the data object that are passed to the check
+	 *
+	 * @return	number of values
+	 */
+	public int getNumberOfValues()
+	{
+		return numberOfValues;
+	}
+
+	/**
+	 * indicator if the rule passes when the value from the data object is null. this is the case
+	 * for checks that explicitly test for a null or empty value.
+	 *
+	 * @return	indicator if the rule passes for null values
+	 */
+	public boolean getPassesOnNullValue()
+	{
+		return passesOnNullValue;
+	}
+}
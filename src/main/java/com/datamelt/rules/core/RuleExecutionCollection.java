@@ -349,6 +349,60 @@ public class RuleExecutionCollection implements Serializable
     {
     	rulesPassedCount =  rulesPassedCount + number;
     }
+    
+    /**
+     * add the number of groups that failed to the counter
+     * 
+     * @param number	the number to add to the count of failed groups
+     */
+    public void addNumberOfGroupsFailed(long number)
+    {
+    	failedGroupsCount =  failedGroupsCount + number;
+    }
+    
+    /**
+     * add the number of groups that passed to the counter
+     * 
+     * @param number	the number to add to the count of passed groups
+     */
+    public void addNumberOfGroupsPassed(long number)
+    {
+    	passedGroupsCount =  passedGroupsCount + number;
+    }
+    
+    /**
+     * add the number of groups that were skipped to the counter
+     * 
+     * @param number	the number to add to the count of skipped groups
+     */
+    public void addNumberOfGroupsSkipped(long number)
+    {
+    	skippedGroupsCount =  skippedGroupsCount + number;
+    }
+    
+    /**
+     * merges the results and counters of another collection into this collection.
+     * 
+     * the results of the other collection are added after the existing results of this
+     * collection - unless preserveRuleExcecutionResults is set to false.
+     * 
+     * @param other	the collection to merge into this collection
+     */
+    public void merge(RuleExecutionCollection other)
+    {
+    	if(other==null)
+    	{
+    		return;
+    	}
+    	addAll(other.getResults());
+    	rulesRunCount = rulesRunCount + other.getRulesRunCount();
+    	rulesFailedCount = rulesFailedCount + other.getRulesFailedCount();
+    	rulesPassedCount = rulesPassedCount + other.getRulesPassedCount();
+    	failedGroupsCount = failedGroupsCount + other.getFailedGroupsCount();
+    	passedGroupsCount = passedGroupsCount + other.getPassedGroupsCount();
+    	skippedGroupsCount = skippedGroupsCount + other.getSkippedGroupsCount();
+    	actionsExecutedCount = actionsExecutedCount + other.getActionsExecutedCount();
+    }
 
     /**
      * Gets the indicator if the results of the rule execution should be preserved
@@ -21,6 +21,8 @@ package com.datamelt.rules.core;
 import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.regex.Pattern;
 
 import com.datamelt.rules.core.util.Converter;
 
@@ -31,7 +33,9 @@ import com.datamelt.rules.core.util.Converter;
  * that were constructed from the xml definition file.
  * 
  * for identifying the object in the output an object label - a simple string -
- * is used. a timestamp is assigned when the rule was executed.
+ * is used. a timestamp is assigned when the rule was executed. the time of the execution
+ * is kept and only formatted when the timestamp is requested. the message is also only
+ * created when it is requested.
  * 
  * @author uwe geercken
  */
@@ -43,9 +47,37 @@ public class RuleExecutionResult implements Serializable
     private String objectLabel;
     private String timestamp;
     private String subgroupId;
+    // the time of the execution and the format of the timestamp
+    private long executionTime;
+    private String timestampFormat;
+    // the message, created when it is requested
+    private transient String message;
     
     public static final long serialVersionUID = 1964070330;
     
+    private static final Pattern PLACEHOLDER_EXPECTED_VALUE	= Pattern.compile("\\$0");
+    private static final Pattern PLACEHOLDER_VALUE				= Pattern.compile("\\$1");
+    
+    // format for date values in the message. SimpleDateFormat is not thread safe, so each thread uses its own
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>()
+    {
+    	@Override
+    	protected SimpleDateFormat initialValue()
+    	{
+    		return new SimpleDateFormat("yyyy-MM-dd");
+    	}
+    };
+    
+    // formats for the timestamps by the format string. each thread uses its own formats
+    private static final ThreadLocal<HashMap<String,SimpleDateFormat>> TIMESTAMP_FORMATS = new ThreadLocal<HashMap<String,SimpleDateFormat>>()
+    {
+    	@Override
+    	protected HashMap<String,SimpleDateFormat> initialValue()
+    	{
+    		return new HashMap<String,SimpleDateFormat>();
+    	}
+    };
+    
     /**
      * constructor including the timestamp of when the rule was executed
      * 
@@ -72,6 +104,25 @@ public class RuleExecutionResult implements Serializable
         this.objectLabel = objectLabel;
         this.subgroupId = subgroupId;
     }
+    
+    /**
+     * constructor for this class using the time of the execution, the format of the timestamp, the rule
+     * and a label for the rule used during output. the timestamp is formatted when it is requested.
+     * 
+     * @param executionTime		the time of the execution in milliseconds
+     * @param timestampFormat	the format of the timestamp. follows the rules of the java.text.SimpleDateFormat class
+     * @param rule				the rule belonging to the execution result
+     * @param objectLabel		the label for the object
+     * @param subgroupId		the id of the subgroup
+     */
+    public RuleExecutionResult(long executionTime, String timestampFormat, XmlRule rule, String objectLabel, String subgroupId)
+    {
+        this.executionTime = executionTime;
+        this.timestampFormat = timestampFormat;
+        this.rule = rule;
+        this.objectLabel = objectLabel;
+        this.subgroupId = subgroupId;
+    }
 
     /**
      * returns the rule that was executed 
@@ -91,6 +142,7 @@ public class RuleExecutionResult implements Serializable
     public void setRule(XmlRule rule)
     {
         this.rule = rule;
+        this.message = null;
     }
     
     /**
@@ -111,6 +163,7 @@ public class RuleExecutionResult implements Serializable
     public void setResultObject1(Object result)
     {
         this.resultObject1 = result;
+        this.message = null;
     }
     
     /**
@@ -131,6 +184,7 @@ public class RuleExecutionResult implements Serializable
     public void setResultObject2(Object result)
     {
         this.resultObject2 = result;
+        this.message = null;
     }
 
     /**
@@ -138,9 +192,25 @@ public class RuleExecutionResult implements Serializable
      * this method returns the message assigned to the rule. at the same time variables in the message text
      * are replaced with values from the objects that were constructed.
      * 
+     * the message is created when it is requested for the first time.
+     * 
      * @return 	the appropriate message belonging to the rule with placeholders replaced by actual values
      */
     public String getMessage()
+    {
+    	if(message==null)
+    	{
+    		message = createMessage();
+    	}
+    	return message;
+    }
+    
+    /**
+     * creates the message of the rule with the placeholders replaced by the actual values
+     * 
+     * @return 	the message
+     */
+    private String createMessage()
     {
         String messageText="";
         // get message for failed rule
@@ -160,8 +230,7 @@ public class RuleExecutionResult implements Serializable
         	{
         		if(resultObject1 instanceof Date)
         		{
-        			SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        			resultString1 = sdf.format(resultObject1);
+        			resultString1 = DATE_FORMAT.get().format(resultObject1);
         		}
         		else
         		{
@@ -188,15 +257,15 @@ public class RuleExecutionResult implements Serializable
         if(messageText!=null)
         {
 	        // replace some of the chracters that would fail the regular expression match
-        	resultString1 = resultString1.replaceAll("\\\\", "/");
-	        resultString1 = resultString1.replaceAll("\\$", "\\\\\\$");
+        	resultString1 = resultString1.replace("\\", "/");
+	        resultString1 = resultString1.replace("$", "\\$");
         	if(rule.getExpectedValueRule()!=null && rule.getExpectedValueRuleType()!=null)
 	        {
 	            if(rule.getRuleObjects().get(0).getParameter()!=null)
 	            {
-	                messageText =  messageText.replaceAll("\\$1","[" + resultString1 +"]");
+	                messageText =  PLACEHOLDER_VALUE.matcher(messageText).replaceAll("[" + resultString1 +"]");
 	            }
-	            messageText =  messageText.replaceAll("\\$0","[" + rule.getExpectedValueRule()+"]");
+	            messageText =  PLACEHOLDER_EXPECTED_VALUE.matcher(messageText).replaceAll("[" + rule.getExpectedValueRule()+"]");
 	        }
 	        else
 	        {
@@ -209,8 +278,7 @@ public class RuleExecutionResult implements Serializable
 	                	{
 	                		if(resultObject2 instanceof Date)
 	                		{
-	                			SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-	                			resultString2 = sdf.format(resultObject2);
+	                			resultString2 = DATE_FORMAT.get().format(resultObject2);
 	                		}
 	                		else
 	                		{
@@ -235,18 +303,18 @@ public class RuleExecutionResult implements Serializable
 	                }
 	            	if(rule.getRuleObjects().get(0).getParameter()!=null)
 	                {
-	                    messageText =  messageText.replaceAll("\\$1","[" + resultString1 +"]");
+	                    messageText =  PLACEHOLDER_VALUE.matcher(messageText).replaceAll("[" + resultString1 +"]");
 	                }
 		            if(rule.getRuleObjects().get(1).getParameter()!=null)
 		            {
-		                messageText =  messageText.replaceAll("\\$0","[" + resultString2 + "]" );
+		                messageText =  PLACEHOLDER_EXPECTED_VALUE.matcher(messageText).replaceAll("[" + resultString2 + "]" );
 		            }
 	            }
 	            else
 	            {
 	                if(rule.getRuleObjects().get(0).getParameter()!=null)
 	                {
-	                    messageText =  messageText.replaceAll("\\$1","[" + resultString1 +"]");
+	                    messageText =  PLACEHOLDER_VALUE.matcher(messageText).replaceAll("[" + resultString1 +"]");
 	                }
 	            	
 	            }
@@ -278,12 +346,24 @@ public class RuleExecutionResult implements Serializable
     }
 
     /**
-     * returns the timestamp that was assign to rule execution result
+     * returns the timestamp that was assign to rule execution result. if the result was created
+     * using the time of the execution, the timestamp is formatted when it is requested for the first time.
      * 
      * @return 	the timestamp of the rule execution result
      */
     public String getTimestamp()
     {
+    	if(timestamp==null && timestampFormat!=null)
+    	{
+    		HashMap<String,SimpleDateFormat> formats = TIMESTAMP_FORMATS.get();
+    		SimpleDateFormat format = formats.get(timestampFormat);
+    		if(format==null)
+    		{
+    			format = new SimpleDateFormat(timestampFormat);
+    			formats.put(timestampFormat, format);
+    		}
+    		timestamp = format.format(new Date(executionTime));
+    	}
         return timestamp;
     }
     
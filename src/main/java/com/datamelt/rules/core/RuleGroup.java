@@ -28,6 +28,8 @@ import com.datamelt.rules.core.RuleSubGroupCollection;
 import com.datamelt.rules.core.action.Action;
 import com.datamelt.rules.core.util.Converter;
 import com.datamelt.rules.core.util.MappingCollection;
+import com.datamelt.rules.metrics.ExecutionMetrics;
+import com.datamelt.rules.metrics.RuleEngineMetrics;
 
 /**
  * Rules are organized in groups and subgroups. Subgroups can contain multiple rules
@@ -54,6 +56,8 @@ public class RuleGroup implements Serializable
     private boolean preserveRuleExcecutionResults=true;
     private int numberOfActionsExecuted;
     private int skipped;
+    private boolean shortCircuitEvaluation=false;
+    private boolean adaptiveRuleOrder=false;
 
     // list of all subgroups belonging to this group
     private RuleSubGroupCollection subGroupCollection = new RuleSubGroupCollection();
@@ -61,6 +65,11 @@ public class RuleGroup implements Serializable
     private ArrayList <XmlAction>actions = new ArrayList<XmlAction>();
     // mapping collection containing maps of key/values pairs
     private MappingCollection mappingCollection;
+    // the metrics in which the executions are recorded. null if no metrics are collected
+    private transient RuleEngineMetrics metrics;
+    // the metrics of this group and of its actions - by the index of the action
+    private transient ExecutionMetrics groupMetrics;
+    private transient ExecutionMetrics[] actionMetrics;
     
     private static final int OPERATOR_AND = 0;
     
@@ -235,26 +244,138 @@ public class RuleGroup implements Serializable
     /**
      * this method is used to run all rules in all subgroups.
      * 
+     * if short-circuit evaluation is switched on, a subgroup is skipped when the outcome of the group is
+     * already decided by the previous subgroups: if they failed and the subgroup is connected with 'and'
+     * or if they passed and the subgroup is connected with 'or'. the rules of a skipped subgroup are not run
+     * and its counters and results are empty. the rules inside of the subgroups are also only run until the
+     * outcome of the subgroup is decided.
+     * 
      * @param	objectLabel		the label used for the object
      * @param	object			the object to use
      * @throws	Exception		throws an exception if the rulegroup or action can not be executed
      */
     public void runRules(String objectLabel,Object object)throws Exception
     {
+        long startTime = groupMetrics!=null ? System.nanoTime() : 0;
+        // the outcome of the subgroups that were run so far
+        int failed = 0;
         for(int i=0;i<subGroupCollection.size();i++)
         {
             RuleSubGroup subGroup = (RuleSubGroup)subGroupCollection.get(i);
             subGroup.setTimestampFormat(timestampFormat);
             subGroup.setOutputType(outputType);
             subGroup.setPreserveRuleExcecutionResults(preserveRuleExcecutionResults);
-            subGroup.runRules(objectLabel, object);
+            subGroup.setShortCircuitEvaluation(shortCircuitEvaluation);
+            subGroup.setAdaptiveRuleOrder(adaptiveRuleOrder);
+            subGroup.setMetrics(metrics, id);
+            if(!shortCircuitEvaluation)
+            {
+            	subGroup.runRules(objectLabel, object);
+            }
+            else if(i==0)
+            {
+            	subGroup.runRules(objectLabel, object);
+            	failed = subGroup.getFailed();
+            }
+            else if(isDecided(failed, subGroup.getLogicalOperatorSubGroup()))
+            {
+            	// the outcome of a skipped subgroup does not change the outcome of the group
+            	subGroup.skip();
+            }
+            else
+            {
+            	subGroup.runRules(objectLabel, object);
+            	failed = getFailed(failed,subGroup.getFailed(),subGroup.getLogicalOperatorSubGroup());
+            }
         }
         // execute all actions on this object
-        Action action = new Action(this.getFailed(), object, outputAfterActions);
-        // set the collection of maps containing key/value pairs
-        action.setMappingCollection(mappingCollection);
-        // the method gives back the number of actions that were executed
-        numberOfActionsExecuted = action.executeActions(actions);
+        if(actions.size()>0)
+        {
+	        Action action = new Action(this.getFailed(), object, outputAfterActions);
+	        // set the collection of maps containing key/value pairs
+	        action.setMappingCollection(mappingCollection);
+	        action.setActionMetrics(actionMetrics);
+	        // the method gives back the number of actions that were executed
+	        numberOfActionsExecuted = action.executeActions(actions);
+        }
+        else
+        {
+        	numberOfActionsExecuted = 0;
+        }
+        if(groupMetrics!=null)
+        {
+        	groupMetrics.record(System.nanoTime() - startTime, getFailed()==1);
+        }
+    }
+    
+    /**
+     * indicates if the outcome of the group is decided, independent of the outcome of the
+     * next subgroup: a failed group stays failed when chained with 'and' and a passed group
+     * stays passed when chained with 'or'.
+     * 
+     * @param	failed		indicator if the subgroups run so far failed
+     * @param	operator	the operator how the next subgroup is connected
+     * @return				indicator if the outcome is decided
+     */
+    private boolean isDecided(int failed, int operator)
+    {
+    	if(operator == OPERATOR_AND)
+    	{
+    		return failed==1;
+    	}
+    	else
+    	{
+    		return failed==0;
+    	}
+    }
+    
+    /**
+     * creates a copy of the rulegroup that is used to run the rules. the copy shares the rules and
+     * actions with this group - they are not changed when they are run - but has its own copies of
+     * the subgroups, so that the results and counters of the execution are kept separately.
+     * 
+     * this way multiple threads can run the same rules, each one using its own copy of the group.
+     * 
+     * @return	a copy of the rulegroup with its own execution state
+     */
+    public RuleGroup copy()
+    {
+    	RuleGroup group = new RuleGroup(id, description);
+    	group.outputAfterActions = outputAfterActions;
+    	group.validFrom = validFrom;
+    	group.validUntil = validUntil;
+    	group.outputType = outputType;
+    	group.timestampFormat = timestampFormat;
+    	group.dependentRuleGroupId = dependentRuleGroupId;
+    	group.dependentRuleGroupExecuteIf = dependentRuleGroupExecuteIf;
+    	group.preserveRuleExcecutionResults = preserveRuleExcecutionResults;
+    	group.shortCircuitEvaluation = shortCircuitEvaluation;
+    	group.adaptiveRuleOrder = adaptiveRuleOrder;
+    	group.actions = actions;
+    	group.mappingCollection = mappingCollection;
+    	for(int i=0;i<subGroupCollection.size();i++)
+        {
+    		group.subGroupCollection.add(subGroupCollection.get(i).copy());
+        }
+    	return group;
+    }
+    
+    /**
+     * compiles the rules of all subgroups and the actions of the group, so that the
+     * checks of the rules and the methods of the actions do not have to be resolved
+     * each time they are run.
+     */
+    public void compile()
+    {
+        for(int i=0;i<subGroupCollection.size();i++)
+        {
+            RuleSubGroup subGroup = (RuleSubGroup)subGroupCollection.get(i);
+            subGroup.compile();
+        }
+        for(int i=0;i<actions.size();i++)
+        {
+        	actions.get(i).compile();
+        }
     }
     
     /**
@@ -633,5 +754,86 @@ public class RuleGroup implements Serializable
 	{
 		this.mappingCollection = collection;
 	}
+
+	/**
+	 * indicator if the evaluation of the subgroups and rules stops as soon as the outcome is decided
+	 * 
+	 * @return	indicator if short-circuit evaluation is used
+	 */
+	public boolean getShortCircuitEvaluation()
+	{
+		return shortCircuitEvaluation;
+	}
+
+	/**
+	 * sets if the evaluation of the subgroups and rules stops as soon as the outcome is decided.
+	 * default is false - all subgroups and rules are run.
+	 * 
+	 * @param	shortCircuitEvaluation	indicator if short-circuit evaluation is used
+	 */
+	public void setShortCircuitEvaluation(boolean shortCircuitEvaluation)
+	{
+		this.shortCircuitEvaluation = shortCircuitEvaluation;
+	}
+
+	/**
+	 * indicator if the order of the rules in the subgroups is adjusted by their measured cost and selectivity
+	 * 
+	 * @return	indicator if the adaptive rule order is used
+	 */
+	public boolean getAdaptiveRuleOrder()
+	{
+		return adaptiveRuleOrder;
+	}
+
+	/**
+	 * sets if the order of the rules in the subgroups is adjusted by their measured cost and selectivity.
+	 * this is only used together with short-circuit evaluation. default is false.
+	 * 
+	 * @param	adaptiveRuleOrder	indicator if the adaptive rule order is used
+	 */
+	public void setAdaptiveRuleOrder(boolean adaptiveRuleOrder)
+	{
+		this.adaptiveRuleOrder = adaptiveRuleOrder;
+	}
+
+	/**
+	 * returns the metrics in which the executions of the group, its subgroups, rules and actions are recorded
+	 * 
+	 * @return	the metrics or null if no metrics are collected
+	 */
+	public RuleEngineMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * sets the metrics in which the executions of the group, its subgroups, rules and actions are recorded.
+	 * the time recorded for the group includes the time of its actions. default is null - no metrics are collected.
+	 * 
+	 * @param	metrics	the metrics or null if no metrics shall be collected
+	 */
+	public void setMetrics(RuleEngineMetrics metrics)
+	{
+		// the metrics of the actions are resolved again, if actions have been added
+		if(metrics!=this.metrics || (metrics!=null && actionMetrics.length!=actions.size()))
+		{
+			this.metrics = metrics;
+			if(metrics!=null)
+			{
+				groupMetrics = metrics.getGroupMetrics(id);
+				actionMetrics = new ExecutionMetrics[actions.size()];
+				for(int i=0;i<actions.size();i++)
+				{
+					actionMetrics[i] = metrics.getActionMetrics(actions.get(i).getId());
+				}
+			}
+			else
+			{
+				groupMetrics = null;
+				actionMetrics = null;
+			}
+		}
+	}
     
 }
@@ -20,6 +20,8 @@ package com.datamelt.rules.core;
 
 import java.io.Serializable;
 
+import com.datamelt.util.ClassUtility;
+
 
 /**
  * 	a RuleObject identifies an object that will be instantiated and one of its methods
@@ -38,6 +40,13 @@ public class RuleObject implements Serializable
     private String parameter;
     private String parameterType;
     
+    // the class and the value of the parameter are resolved once and
+    // not every time the method is invoked
+    private transient Class<?>[] parameterClasses;
+    private transient Object[] parameterValues;
+    // incremented when the rule object is changed. accessors bound to an older revision are not used
+    private transient int revision;
+    
     public static final long serialVersionUID = 1964070334;
     
     /**
@@ -112,6 +121,7 @@ public class RuleObject implements Serializable
     public void setMethodName(String methodName)
     {
         this.methodName = methodName;
+        revision++;
     }
     
     /**
@@ -152,6 +162,8 @@ public class RuleObject implements Serializable
     public void setParameter(String parameter)
     {
         this.parameter = parameter;
+        this.parameterValues = null;
+        revision++;
     }
     
     /**
@@ -172,5 +184,89 @@ public class RuleObject implements Serializable
     public void setParameterType(String parameterType)
     {
         this.parameterType = parameterType;
+        this.parameterClasses = null;
+        this.parameterValues = null;
+        revision++;
+    }
+    
+    /**
+     * returns the classes of the parameters that have to be passed to the method.
+     * returns null if the method does not have a parameter.
+     * 
+     * @return		array of parameter classes
+     */
+    public Class<?>[] getParameterClasses()
+    {
+    	if(parameterClasses==null && parameterType!=null)
+    	{
+    		parameterClasses = new Class<?>[] { ClassUtility.getClass(parameterType) };
+    	}
+    	return parameterClasses;
+    }
+    
+    /**
+     * returns the values of the parameters that have to be passed to the method.
+     * returns null if the method does not have a parameter.
+     * 
+     * @return		array of parameter values
+     */
+    public Object[] getParameterValues()
+    {
+    	if(parameterValues==null && parameterType!=null)
+    	{
+    		parameterValues = new Object[] { ClassUtility.getObject(parameterType, parameter) };
+    	}
+    	return parameterValues;
+    }
+    
+    /**
+     * returns the revision of the rule object. it changes when the method or the parameter are changed.
+     * 
+     * @return		the revision of the rule object
+     */
+    int getRevision()
+    {
+    	return revision;
+    }
+    
+    /**
+     * returns the value of the rule object from the given data object by invoking the method
+     * with the parameter on it.
+     * 
+     * the method is resolved each time. when values are retrieved from many objects, use
+     * getAccessor() and keep the accessor - one per thread - for the following objects.
+     * 
+     * @param	object		the data object
+     * @return				the value retrieved from the object
+     * @throws	Exception	when the method does not exist or can not be invoked
+     */
+    public Object getValue(Object object) throws Exception
+    {
+    	return RuleObjectAccessor.bind(this, object).getValue(object);
+    }
+    
+    /**
+     * returns an accessor for retrieving the value of the rule object from the given data object.
+     * 
+     * if the given accessor - from a previous object - can be used for the object, it is returned.
+     * this is the case for objects of the same class and - for a RowFieldCollection - rows with a
+     * header row of the same layout. otherwise the method and the index of the field are resolved
+     * and a new accessor is returned.
+     * 
+     * accessors are not stored with the rule object, as the rule object is shared by multiple threads
+     * which may run rows with different header rows. each thread keeps its own accessors.
+     * 
+     * @param	object		the data object
+     * @param	accessor	the accessor used for the previous object or null
+     * @return				the accessor for the object
+     * @throws	Exception	when the method does not exist
+     */
+    RuleObjectAccessor getAccessor(Object object, RuleObjectAccessor accessor) throws Exception
+    {
+    	if(accessor!=null && accessor.isBoundTo(this, object))
+    	{
+    		return accessor;
+    	}
+    	return RuleObjectAccessor.bind(this, object);
     }
 }
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.core;
+
+import java.lang.reflect.Method;
+
+import com.datamelt.util.HeaderLayout;
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * a RuleObjectAccessor holds the method of a RuleObject, resolved for one class of data objects.
+ *
+ * if the data object is a RowFieldCollection and the method retrieves a field by its name,
+ * the name is resolved to the index of the field in the header row once. as long as the
+ * following rows use a header row with the same layout - the same names of fields at the same
+ * positions - the value is taken directly from the list of fields of the row, without invoking
+ * the method and without looking up the name of the field. the header rows do not have to be the
+ * same objects.
+ *
+ * an accessor does not change after it has been created. if a data object of a different class
+ * or a row with a different layout is passed, or if the rule object was changed, a new accessor
+ * has to be bound.
+ *
+ * @author uwe geercken
+ */
+final class RuleObjectAccessor
+{
+	private static final String METHOD_GET_FIELD_VALUE = "getFieldValue";
+
+	// the rule object and its revision at the time the accessor was bound
+	private final RuleObject ruleObject;
+	private final int revision;
+
+	private final Class<?> objectClass;
+	private final Method method;
+	private final Object[] parameterValues;
+
+	// the layout of the header row the field index was resolved for and its number of fields
+	private final HeaderLayout layout;
+	private final int numberOfHeaderFields;
+	// the index of the field in the row or -1 if the value is retrieved using the method
+	private final int fieldIndex;
+
+	private RuleObjectAccessor(RuleObject ruleObject, Class<?> objectClass, Method method, Object[] parameterValues, HeaderLayout layout, int numberOfHeaderFields, int fieldIndex)
+	{
+		this.ruleObject = ruleObject;
+		this.revision = ruleObject.getRevision();
+		this.objectClass = objectClass;
+		this.method = method;
+		this.parameterValues = parameterValues;
+		this.layout = layout;
+		this.numberOfHeaderFields = numberOfHeaderFields;
+		this.fieldIndex = fieldIndex;
+	}
+
+	/**
+	 * resolves the method of the rule object for the class of the given data object. if the
+	 * object is a RowFieldCollection and the value of a field is retrieved by its name, the
+	 * index of the field in the header row of the object is resolved as well.
+	 *
+	 * @param ruleObject	the rule object
+	 * @param object		the data object
+	 * @return				the accessor for the object
+	 * @throws Exception	when the method does not exist
+	 */
+	static RuleObjectAccessor bind(RuleObject ruleObject, Object object) throws Exception
+	{
+		Method method = object.getClass().getMethod(ruleObject.getMethodName(),ruleObject.getParameterClasses());
+		Object[] parameterValues = ruleObject.getParameterValues();
+
+		HeaderLayout layout = null;
+		int numberOfHeaderFields = 0;
+		int fieldIndex = -1;
+		if(object instanceof RowFieldCollection && method.getName().equals(METHOD_GET_FIELD_VALUE) && method.getParameterCount()==1 && parameterValues[0] instanceof String)
+		{
+			HeaderRow header = ((RowFieldCollection)object).getHeader();
+			if(header!=null)
+			{
+				layout = header.getLayout();
+				numberOfHeaderFields = header.getNumberOfFields();
+				try
+				{
+					fieldIndex = header.getFieldIndex((String)parameterValues[0]);
+				}
+				catch(Exception ex)
+				{
+					// the field does not exist. the method is invoked and reports the error
+					fieldIndex = -1;
+				}
+			}
+		}
+		return new RuleObjectAccessor(ruleObject, object.getClass(), method, parameterValues, layout, numberOfHeaderFields, fieldIndex);
+	}
+
+	/**
+	 * indicates if the accessor can be used for the given rule object and data object: the rule
+	 * object must be the one - unchanged - that the accessor was bound to and the data object must
+	 * have the same class as the object the accessor was bound to. for a RowFieldCollection the
+	 * header row must have the same layout and number of fields.
+	 *
+	 * @param ruleObject	the rule object
+	 * @param object		the data object
+	 * @return				indicator if the accessor is bound to the objects
+	 */
+	boolean isBoundTo(RuleObject ruleObject, Object object)
+	{
+		if(ruleObject!=this.ruleObject || ruleObject.getRevision()!=revision || object.getClass()!=objectClass)
+		{
+			return false;
+		}
+		else if(layout==null)
+		{
+			return true;
+		}
+		else
+		{
+			HeaderRow rowHeader = ((RowFieldCollection)object).getHeader();
+			if(rowHeader==null || rowHeader.getNumberOfFields()!=numberOfHeaderFields)
+			{
+				return false;
+			}
+			// layouts are interned, so that equal layouts are usually the same object
+			HeaderLayout rowLayout = rowHeader.getLayout();
+			return rowLayout==layout || rowLayout.equals(layout);
+		}
+	}
+
+	/**
+	 * returns the value from the data object
+	 *
+	 * @param object		the data object
+	 * @return				the value
+	 * @throws Exception	when the method can not be invoked
+	 */
+	Object getValue(Object object) throws Exception
+	{
+		if(fieldIndex>=0)
+		{
+			RowFieldCollection row = (RowFieldCollection)object;
+			if(fieldIndex<row.getFields().size())
+			{
+				return row.getFields().get(fieldIndex).getValue();
+			}
+		}
+		return method.invoke(object,parameterValues);
+	}
+}
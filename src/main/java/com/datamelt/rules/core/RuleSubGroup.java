@@ -20,14 +20,13 @@ package com.datamelt.rules.core;
 
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
 
 import com.datamelt.rules.core.util.Converter;
-import com.datamelt.rules.implementation.GenericCheck;
-import com.datamelt.util.ClassUtility;
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.rules.metrics.ExecutionMetrics;
+import com.datamelt.rules.metrics.RuleEngineMetrics;
 import com.datamelt.util.FieldNotFoundException;
 
 /**
@@ -65,6 +64,41 @@ public class RuleSubGroup implements Serializable
     private String timestampFormat;
     private boolean preserveRuleExcecutionResults=true;
     
+    // indicators if the rules failed when they were last run - by the index of the rule
+    private transient boolean[] rulesFailed;
+    // indicators if the rules were run - by the index of the rule
+    private transient boolean[] rulesRun;
+    // indicator if the subgroup was skipped, because the outcome of the group was already decided
+    private transient boolean skipped;
+    // the accessors of the two rule objects of the rules - by two times the index of the rule plus the number of the rule object.
+    // they are kept with the subgroup, so that each copy of the subgroup - and each thread - binds its own accessors
+    private transient RuleObjectAccessor[] accessors;
+    
+    // indicator if the evaluation of the rules stops as soon as the outcome of the subgroup is decided
+    private boolean shortCircuitEvaluation=false;
+    // indicator if the order of the rules is adjusted by their measured cost and selectivity
+    private boolean adaptiveRuleOrder=false;
+    
+    // the number of runs after which the order of the rules is adjusted
+    private static final int RULE_ORDER_INTERVAL	= 1024;
+    // every n-th run the execution time of the rules is measured
+    private static final int RULE_TIMING_INTERVAL	= 16;
+    
+    // the order in which the rules are run - by the index of the rule. null means the order of definition
+    private transient int[] ruleOrder;
+    // statistics of the rules for the adaptive order - by the index of the rule
+    private transient long[] ruleEvaluations;
+    private transient long[] ruleDecisions;
+    private transient long[] ruleTimedEvaluations;
+    private transient long[] ruleNanos;
+    private transient long numberOfRuns;
+    
+    // the metrics in which the executions are recorded. null if no metrics are collected
+    private transient RuleEngineMetrics metrics;
+    // the metrics of this subgroup and of its rules - by the index of the rule
+    private transient ExecutionMetrics subGroupMetrics;
+    private transient ExecutionMetrics[] ruleMetrics;
+    
     public RuleSubGroup(String id, String description,String operatorSubGroup,String operatorRules)
     {
         this.id = id;
@@ -109,17 +143,24 @@ public class RuleSubGroup implements Serializable
      * 
      * first the class and method are created using reflection and the relevant
      * value from the object is retrieved.
-     * next an object from the business rule (from the xml file) is created using reflection
-     * and the value is retrieved.
-     * then any additional parameters from the rule are transformed into objects, again
-     * using reflection.
-     * lastly, both values (objects) plus the additional parameters (objects) are passed to the [evaluate] method
-     * of an object that extends the GenericCheck class.
+     * the [evaluate] method of the check - an object that extends the GenericCheck class - has been resolved
+     * when the rule was compiled. the expected value from the business rule (from the xml file) and any additional
+     * parameters from the rule have been transformed into objects at the same time and are bound to the compiled check.
+     * so only the value(s) from the object are passed to the compiled check.
      * 
      * the result will be a boolean true or false, depending if the rule passed the test or not. if the result of
      * the rule is not a boolean, an exception is thrown.
      * 
-     * all results running the rule engine are put in a collection, containing the rule that was run and the object the rule ran against.
+     * the results of running the rules are put in a collection, containing the rule that was run and the object the rule ran against.
+     * a result is only created if it is output according to the output type - failed, passed, both or none - and if
+     * the results are preserved. the timestamp and the message of a result are only created when they are requested.
+     * 
+     * if short-circuit evaluation is switched on, the rules are only run until the outcome of the subgroup is decided:
+     * for rules connected with 'and' until the first rule fails, for rules connected with 'or' until the first rule passes.
+     * the counters and results then only contain the rules that were run; the outcome of the subgroup is the same. rules that
+     * were not run can also not throw an exception. if additionally the adaptive rule order is switched on, the rules are
+     * run in the order of their measured cost divided by the rate at which they decide the outcome - so cheap rules that
+     * often decide the outcome are run first. the order of the results may then differ from the order of definition.
      * 
      * @param	objectLabel		the label of the object
      * @param	object			the object to use
@@ -127,27 +168,61 @@ public class RuleSubGroup implements Serializable
      */	
     public void runRules(String objectLabel, Object object) throws Exception
     {
+        boolean measured = subGroupMetrics!=null;
+        long subGroupStartTime = measured ? System.nanoTime() : 0;
+        
         // clear the list of errors
         executionCollection.clear();
 
-        SimpleDateFormat sdf = new SimpleDateFormat(timestampFormat);
+        skipped = false;
+
+        ArrayList<XmlRule> rules = rulesCollection.getRules();
+        if(rulesFailed==null || rulesFailed.length!=rules.size())
+        {
+        	rulesFailed = new boolean[rules.size()];
+        	rulesRun = new boolean[rules.size()];
+        	accessors = new RuleObjectAccessor[2 * rules.size()];
+        	ruleOrder = null;
+        }
+        // the time of the execution. it is only formatted when the timestamp of a result is requested
+        long executionTime = 0;
+        
+        boolean adaptive = shortCircuitEvaluation && adaptiveRuleOrder;
+        boolean timed = false;
+        if(adaptive)
+        {
+        	if(ruleOrder==null)
+        	{
+        		initRuleStatistics(rules.size());
+        	}
+        	numberOfRuns++;
+        	timed = numberOfRuns % RULE_TIMING_INTERVAL == 0;
+        }
+        if(shortCircuitEvaluation)
+        {
+        	Arrays.fill(rulesFailed, false);
+        	Arrays.fill(rulesRun, false);
+        }
         
         // process all rules from all parsed xml files
-        for(int i=0;i<rulesCollection.getRules().size();i++)
+        for(int n=0;n<rules.size();n++)
         {
-            // get a xmlrule
-            // this is the xml rule/business rule as defined in the external xml file
-            XmlRule rule = (XmlRule)rulesCollection.getRules().get(i).clone(); 
-            
-            // we pass the value cache to the generic check
-            rule.getExecuteCheck();
-            GenericCheck.setValueCache(rule.getValueCache());
+        	// the index of the rule to run
+        	int i = adaptive ? ruleOrder[n] : n;
+        	long startTime = timed || measured ? System.nanoTime() : 0;
+        	
+        	// get a xmlrule
+            // this is the xml rule/business rule as defined in the external xml file.
+        	// it is shared by all rows and is not changed when it is run
+        	XmlRule rule = rules.get(i);
+        	// the check of the rule is compiled when the rules are loaded
+        	CompiledCheck compiledCheck = rule.getCompiledCheck();
             
             // create object from the object as defined in the xml file
             Object result1=null;
             try
             {
-            	result1 = createObjectFromXmlObject(rule.getRuleObjects().get(0),object);
+            	result1 = createObjectFromXmlObject(rule.getRuleObjects().get(0),object,2 * i);
             }
             catch(FieldNotFoundException fnfe)
             {
@@ -169,7 +244,7 @@ public class RuleSubGroup implements Serializable
             {
             	try
             	{
-            		result2 = createObjectFromXmlObject(rule.getRuleObjects().get(1),object);
+            		result2 = createObjectFromXmlObject(rule.getRuleObjects().get(1),object,2 * i + 1);
             	}
             	catch(FieldNotFoundException fnfe)
                 {
@@ -186,290 +261,288 @@ public class RuleSubGroup implements Serializable
 
             }
             
-            // create the method for the rule that is to be executed
-            Method ruleMethodToExecute;
-            try
-            {
-            	ruleMethodToExecute = createMethodFromXmlRule(rule);
-            }
-            catch(Exception ex)
+            // the method for the rule has been resolved when the rule was compiled
+            if(compiledCheck.getMethodError()!=null)
             {
-            	throw new Exception("error rule: [" + rule.getId() + "] creating method from xml rule " + ex.getMessage());
+            	throw new Exception("error rule: [" + rule.getId() + "] creating method from xml rule " + compiledCheck.getMethodError());
             }
 
-            // create the objects that will be used for the method
-            Object[] arguments;
+            // convert the values from the object to the types defined in the rule
+            Object value1;
+            Object value2;
             try
             {
-            	arguments = createRuleMethodArguments(rule,result1,result2);
+            	value1 = compiledCheck.convertValue1(result1);
+            	value2 = compiledCheck.convertValue2(result2);
             }
             catch(Exception ex)
             {
             	throw new Exception("error rule: [" + rule.getId() + "] creating method arguments from xml rule " + ex.getMessage());
             }
             
-            if(arguments[0]!=null)
+            boolean failed;
+            if(value1!=null)
             {
 	            // invoke the rule
-	            // attention: all of these methods are deemed to be static, that is why <null> is used as first parameter here
-            	Object executeRuleResult;
+	            // the expected value and the parameters of the rule are already bound to the compiled check
+            	boolean result;
             	try
             	{
-            		executeRuleResult = ruleMethodToExecute.invoke(null,arguments);
+            		result = compiledCheck.evaluate(value1, value2);
             	}
             	catch(Exception ex)
             	{
             		throw new Exception("error invoking method on rule: [" + rule.getId() + "]: " + ex.getMessage());
             	}
 	            
-	            // the result of the invocation must be a boolean
-	            if(executeRuleResult instanceof Boolean)
-	            {
-	            	// create a result object
-	                RuleExecutionResult executionResult = new RuleExecutionResult(sdf.format(new Date()), rule,objectLabel,getId());
-	                // the result from the data object
-	                executionResult.setResultObject1(result1);
-	                // the result from the data object
-	                executionResult.setResultObject2(result2);
-	                
-	                // so its a boolean we need to cast it to use it further on
-	                Boolean b = (Boolean)executeRuleResult;
-	                boolean result = b.booleanValue();
-	                if(result==true)
-	                {
-	                    // the execution of the rule was sucessful                    
-	                    executionResult.getRule().setFailed(0);
-	                    executionCollection.increaseRulesPassedCount();
-	                }
-	                else // the execution of the rule was unsucessful
-	                {
-	                    // set the rule failed indicator of the xmlrule
-	                    executionResult.getRule().setFailed(1);
-	                    executionCollection.increaseRulesFailedCount();
-	                }
-	                
-                	executionCollection.add(executionResult);
-	            }
-	            else
-	            {
-	                // throw an error if the return type is not a boolean
-	                throw new Exception("error rule: [" + rule.getId() + "] return type of rule result must always be of type boolean");
-	            }
+                // the rule failed if the execution of the rule was unsucessful
+                failed = !result;
             }
             else
             {
-            	// if the arguments object is null then this means that the conversion of the value/field to the requested type
+            	// if the value is null then this means that the conversion of the value/field to the requested type
             	// ended in an exception. meaning it is of the wrong type.
             	// so we mark the rule as failed, because we cannot compare the value to the rule.
             	
             	// attention: this is not true if we explicitly check for a null value with the "com.datamelt.rules.implementation.CheckIsNull" check.
             	// in this case the rule has passed.
-            	
-            	// create a result object
-                RuleExecutionResult executionResult = new RuleExecutionResult(sdf.format(new Date()), rule,objectLabel, getId());
-                // the result from the data object
-              
-                executionResult.setResultObject1(result1);
-                // the result from the data object
-                executionResult.setResultObject2(result2);
-                
-                // here is the exception
-                if (rule.getCheckToExecute().equals("com.datamelt.rules.implementation.CheckIsNull") || rule.getCheckToExecute().equals("com.datamelt.rules.implementation.CheckIsEmpty"))
-                {
-                	executionResult.getRule().setFailed(0);
-                	executionCollection.increaseRulesPassedCount();
-                }
-                else
-                {
-                	executionResult.getRule().setFailed(1);
-                	executionCollection.increaseRulesFailedCount();
-                }
-                
-                // add result to list.
-               	executionCollection.add(executionResult);
+                failed = !compiledCheck.getPassesOnNullValue();
+            }
+            
+            if(measured)
+            {
+            	ruleMetrics[i].record(System.nanoTime() - startTime, failed);
+            }
+            rulesFailed[i] = failed;
+            rulesRun[i] = true;
+            if(failed)
+            {
+            	executionCollection.increaseRulesFailedCount();
+            }
+            else
+            {
+            	executionCollection.increaseRulesPassedCount();
             }
             executionCollection.increaseRulesRunCount();
+            
+            // a result object is only created if it is kept: depending on the output type and
+            // if the results shall be preserved
+            if(preserveRuleExcecutionResults && isOutput(failed))
+            {
+            	if(executionTime==0)
+            	{
+            		executionTime = System.currentTimeMillis();
+            	}
+            	// the result gets its own copy of the rule, carrying the failed indicator
+            	XmlRule resultRule = (XmlRule)rule.clone();
+            	resultRule.setFailed(failed ? 1 : 0);
+            	RuleExecutionResult executionResult = new RuleExecutionResult(executionTime, timestampFormat, resultRule, objectLabel, getId());
+            	// the results from the data object
+            	executionResult.setResultObject1(result1);
+            	executionResult.setResultObject2(result2);
+            	// add result to list.
+            	executionCollection.add(executionResult);
+            }
+            
+            if(shortCircuitEvaluation)
+            {
+            	// the outcome is decided by a failed rule for 'and' and by a passed rule for 'or'
+            	boolean decided = logicalOperatorRules==OPERATOR_AND ? failed : !failed;
+            	if(adaptive)
+            	{
+            		ruleEvaluations[i]++;
+            		if(decided)
+            		{
+            			ruleDecisions[i]++;
+            		}
+            		if(timed)
+            		{
+            			ruleTimedEvaluations[i]++;
+            			ruleNanos[i] += System.nanoTime() - startTime;
+            		}
+            	}
+            	if(decided)
+            	{
+            		break;
+            	}
+            }
         }
-    }
-    
-    private Object createObjectFromXmlObject(RuleObject ruleObject,Object object)throws Exception
-    {
-        //  create the classes array corresponding to the parameters/arguments of the method
-        Class<?> parameters[]=null;
-		if(ruleObject.getParameterType()!=null)
-		{
-		    parameters = new Class[1];
-		    parameters[0]= ClassUtility.getClass(ruleObject.getParameterType());
-		}
         
-        // create the actual value of the method parameter/argument
-        Object parameterValues[] = null;
-        if(ruleObject.getParameterType()!=null)
+        if(adaptive && numberOfRuns % RULE_ORDER_INTERVAL == 0)
         {
-            parameterValues = new Object[1];
-            parameterValues[0] = ClassUtility.getObject(ruleObject.getParameterType(), ruleObject.getParameter());
+        	adjustRuleOrder();
+        }
+        if(measured)
+        {
+        	subGroupMetrics.record(System.nanoTime() - subGroupStartTime, getFailed()==1);
         }
-        
-        // get the data from the object in question
-        Method method = object.getClass().getMethod(ruleObject.getMethodName(),parameters);
-        Object result = method.invoke(object,parameterValues);
-        
-        return result;
     }
     
-    private Method createMethodFromXmlRule(XmlRule rule) throws Exception
+    /**
+     * creates the order of the rules - the order of definition - and the statistics
+     * used to adjust the order
+     * 
+     * @param	numberOfRules	the number of rules of the subgroup
+     */
+    private void initRuleStatistics(int numberOfRules)
     {
-        Class<?>[] classes;
-        // when [expected value] und [type] of the rule are empty, then this means that no (expected) value
-        // is required. meaning that the rule does not compare two values against each other, but one value will
-        // be checked only.
-        //
-        // example: test for <null> of a value.
-        //
-        if(rule.getExpectedValueRuleType()!=null && rule.getExpectedValueRule()!=null)
-        {
-        
-	        // create an array of classes
-	        // based on the number of parameters
-	        classes = new Class[2 + rule.getParameters().size()];
-	
-	        // get the correct class for the actual value
-	        classes[0] = ClassUtility.getClass(rule.getRuleObjects().get(0).getMethodReturnType());
-	        
-	        // get the correct class for the expected value
-	        classes[1] = ClassUtility.getClass(rule.getExpectedValueRuleType());
-	        
-	        // get all additional parameters of the method
-	        // and create an equivalent class
-	        for (int i=0;i<rule.getParameters().size();i++)
-	        {
-	            Parameter parameter = (Parameter)rule.getParameters().get(i);
-	            classes[2+i]= ClassUtility.getClass(parameter.getType());
-	        }
-        }
-        else
-        {
-	        if(rule.getRuleObjects().size()==1)
-	        {
-	            // create an array of classes
-		        // based on the number of parameters
-		        classes = new Class[1 + rule.getParameters().size()];
-		
-	            // get the correct class for the actual value
-	            classes[0] = ClassUtility.getClass(rule.getRuleObjects().get(0).getMethodReturnType());
-	        }
-	        else
-	        {
-	            // create an array of classes
-		        // based on the number of parameters
-		        classes = new Class[2 + rule.getParameters().size()];
-		
-	            // get the correct class for the actual value
-	            classes[0] = ClassUtility.getClass(rule.getRuleObjects().get(0).getMethodReturnType());
-	            
-	            // get the correct class for the actual value
-	            classes[1] = ClassUtility.getClass(rule.getRuleObjects().get(1).getMethodReturnType());
-	        }
-	        
-	        // get all additional parameters of the method
-	        // and create an equivalent class
-	        for (int i=0;i<rule.getParameters().size();i++)
-	        {
-	            Parameter parameter = (Parameter)rule.getParameters().get(i);
-	            classes[classes.length-rule.getParameters().size()+i] = ClassUtility.getClass(parameter.getType());
-	        }
-        }
-        Method m = null;
-        GenericCheck gc = null;
-        try
-        {
-        	 gc = rule.getExecuteCheck();
-        }
-        catch (Exception sue)
-        {
-        	sue.printStackTrace();
-        }
-       	m = gc.getClass().getMethod(GenericCheck.GENERIC_CHECK_METHOD_EVALUATE,classes);
-        return m;
+    	ruleOrder = new int[numberOfRules];
+    	for(int i=0;i<numberOfRules;i++)
+    	{
+    		ruleOrder[i] = i;
+    	}
+    	ruleEvaluations = new long[numberOfRules];
+    	ruleDecisions = new long[numberOfRules];
+    	ruleTimedEvaluations = new long[numberOfRules];
+    	ruleNanos = new long[numberOfRules];
+    	numberOfRuns = 0;
+    }
+    
+    /**
+     * sorts the rules by their expected cost to decide the outcome of the subgroup: the average
+     * execution time of a rule divided by the rate at which it decides the outcome. rules that
+     * have not been timed yet are assumed to have the same cost, so they are ordered by their rate only.
+     * the sort is stable, so rules with the same score keep their current order.
+     */
+    private void adjustRuleOrder()
+    {
+    	double[] scores = new double[ruleOrder.length];
+    	for(int i=0;i<ruleOrder.length;i++)
+    	{
+    		double cost = 1;
+    		if(ruleTimedEvaluations[i]>0)
+    		{
+    			// at least one nanosecond, so that the rate still counts for very fast rules
+    			cost = Math.max(1, (double)ruleNanos[i] / ruleTimedEvaluations[i]);
+    		}
+    		// the rate is smoothed, so that rules that were rarely run are neither preferred nor excluded
+    		double rate = (ruleDecisions[i] + 1.0) / (ruleEvaluations[i] + 2.0);
+    		scores[i] = cost / rate;
+    	}
+    	// insertion sort - the number of rules is small
+    	for(int n=1;n<ruleOrder.length;n++)
+    	{
+    		int index = ruleOrder[n];
+    		int m = n - 1;
+    		while(m>=0 && scores[ruleOrder[m]]>scores[index])
+    		{
+    			ruleOrder[m + 1] = ruleOrder[m];
+    			m--;
+    		}
+    		ruleOrder[m + 1] = index;
+    	}
     }
     
     /**
-     * before the method can be invoked, an array of objects has to be created. these will be passed into
-     * the method and with these objects/values the method will be executed.
+     * marks the subgroup as skipped. the rules are not run, because the outcome of the group
+     * is already decided by the previous subgroups. the counters and results are cleared.
+     */
+    void skip()
+    {
+    	executionCollection.clear();
+    	if(rulesFailed!=null)
+    	{
+    		Arrays.fill(rulesFailed, false);
+    		Arrays.fill(rulesRun, false);
+    	}
+    	skipped = true;
+    }
+    
+    /**
+     * indicates if the subgroup was skipped when the rules of the group were last run, because
+     * short-circuit evaluation is switched on and the outcome of the group was already decided.
      * 
-     * @param	rule			the rule to use
-     * @param	result			the first object to use
-     * @param	result2			the second object to use
-     * @return					an array of objects/arguments to pass to the method
-     * @throws	Exception		exception if the arguments of the rule method can not be created
+     * @return		indicator if the subgroup was skipped
      */
-    private Object[] createRuleMethodArguments(XmlRule rule, Object result, Object result2) throws Exception
+    public boolean getSkipped()
     {
-        // if the expected type/value are null/empty and the number of objects of the rule is 1
-        // then we are not comparing two values but only one: e.g. a test for <null> of a given value.
-
-    	Object[] objects = null;
-    	
-        // check how many objects we have defined in the rule
-        int numberOfObjects = rule.getRuleObjects().size();
-        // check if we have an expected value
-        if(rule.getExpectedValueRuleType()!=null && rule.getExpectedValueRule()!=null)
-        {
-        	numberOfObjects++;
-        }
-        
-        // total number of objects is the number of objects plus the additional parameters
-        objects = new Object[numberOfObjects + rule.getParameters().size()];
-        
-        // get the actual type of the first object
-        String resultType = ClassUtility.getObjectType(result);
-        
-        // we always have at least one object.
-        // if the actual type and the type defined in the rule are different
-        // then convert/cast the object
-        if(resultType!=null && !resultType.equals(rule.getRuleObjects().get(0).getMethodReturnType()))
-        {
-        	objects[0] = ClassUtility.getObject(rule.getRuleObjects().get(0).getMethodReturnType(),(String)result);	
-        }
-        else
-        {
-        	objects[0] = result;
-        }
-
-        // if we have an expected value
-        if(rule.getExpectedValueRuleType()!=null && rule.getExpectedValueRule()!=null)
-        {
-            // get the object for the expected value
-            objects[1] = ClassUtility.getObject(rule.getExpectedValueRuleType(),rule.getExpectedValueRule());
-        }
-        else
-        {
-            if(rule.getRuleObjects().size()==2)
-	        {
-            	// get the actual type of the second object
-                String resultType2 = ClassUtility.getObjectType(result2);
-                
-                // if the actual type and the type defined in the rule are different
-                // then convert/cast the object
-                if(!resultType2.equals(rule.getRuleObjects().get(1).getMethodReturnType()))
-                {
-                	objects[1] = ClassUtility.getObject(rule.getRuleObjects().get(1).getMethodReturnType(),(String)result2);
-                }
-                else
-                {
-                	objects[1] = result2;
-                }
-            }
-        }
-        
-        // get all additional parameters of the rule 
-        // and create an equivalent class for each of them
-        for (int i=0;i<rule.getParameters().size();i++)
+    	return skipped;
+    }
+    
+    /**
+     * indicates if the result of a rule is output - and therefore kept - according to the output type
+     * 
+     * @param	failed	indicator if the rule failed
+     * @return			indicator if the result is output
+     */
+    private boolean isOutput(boolean failed)
+    {
+    	switch(outputType)
+    	{
+    		case BusinessRulesEngine.OUTPUT_TYPE_FAILED_ONLY:
+    			return failed;
+    		case BusinessRulesEngine.OUTPUT_TYPE_PASSED_ONLY:
+    			return !failed;
+    		case BusinessRulesEngine.OUTPUT_TYPE_FAILED_AND_PASSED:
+    			return true;
+    		default:
+    			return false;
+    	}
+    }
+    
+    /**
+     * indicates if the rule with the given index failed, when the rules of the subgroup were last run.
+     * this information is available for all rules - independent of the output type.
+     * 
+     * @param	index	the index of the rule in the collection of rules
+     * @return			indicator if the rule failed
+     */
+    public boolean getRuleFailed(int index)
+    {
+    	return rulesFailed!=null && rulesFailed[index];
+    }
+    
+    /**
+     * indicates if the rule with the given index was run, when the rules of the subgroup were last run.
+     * with short-circuit evaluation rules are not run once the outcome of the subgroup is decided.
+     * 
+     * @param	index	the index of the rule in the collection of rules
+     * @return			indicator if the rule was run
+     */
+    public boolean getRuleRun(int index)
+    {
+    	return rulesRun!=null && rulesRun[index];
+    }
+    
+    private Object createObjectFromXmlObject(RuleObject ruleObject,Object object,int accessorIndex)throws Exception
+    {
+        // get the data from the object in question
+    	// the method and - for rows - the index of the field are resolved once per layout of the header row and then reused
+    	RuleObjectAccessor accessor = ruleObject.getAccessor(object, accessors[accessorIndex]);
+    	accessors[accessorIndex] = accessor;
+        return accessor.getValue(object);
+    }
+    
+    /**
+     * creates a copy of the subgroup that is used to run the rules. the copy shares the rules
+     * with this subgroup - they are not changed when they are run - but has its own collection of
+     * execution results. this way multiple threads can run the same rules, each one using
+     * its own copy of the subgroup.
+     * 
+     * @return	a copy of the subgroup with its own execution results
+     */
+    public RuleSubGroup copy()
+    {
+    	RuleSubGroup subGroup = new RuleSubGroup(id, description, getLogicalOperatorSubGroupAsString(), getLogicalOperatorRulesAsString());
+    	subGroup.setRulesCollection(rulesCollection);
+    	subGroup.setOutputType(outputType);
+    	subGroup.setTimestampFormat(timestampFormat);
+    	subGroup.setPreserveRuleExcecutionResults(preserveRuleExcecutionResults);
+    	subGroup.setShortCircuitEvaluation(shortCircuitEvaluation);
+    	subGroup.setAdaptiveRuleOrder(adaptiveRuleOrder);
+    	return subGroup;
+    }
+    
+    /**
+     * compiles all rules of the subgroup. the method of the check of each rule is resolved
+     * and the expected value and parameters are converted to typed objects once.
+     */
+    public void compile()
+    {
+    	for(int i=0;i<rulesCollection.getRules().size();i++)
         {
-            Parameter parameter = (Parameter)rule.getParameters().get(i);
-            objects[numberOfObjects+i]= ClassUtility.getObject(parameter.getType(),parameter.getValue());
+    		rulesCollection.getRules().get(i).compile();
         }
-        return objects;
     }
     
     
@@ -779,4 +852,78 @@ public class RuleSubGroup implements Serializable
 		this.executionCollection.setPreserveRuleExcecutionResults(preserveRuleExcecutionResults);
 	}
 
+	/**
+	 * indicator if the evaluation of the rules stops as soon as the outcome of the subgroup is decided
+	 * 
+	 * @return	indicator if short-circuit evaluation is used
+	 */
+	public boolean getShortCircuitEvaluation()
+	{
+		return shortCircuitEvaluation;
+	}
+
+	/**
+	 * sets if the evaluation of the rules stops as soon as the outcome of the subgroup is decided.
+	 * default is false - all rules are run.
+	 * 
+	 * @param	shortCircuitEvaluation	indicator if short-circuit evaluation is used
+	 */
+	public void setShortCircuitEvaluation(boolean shortCircuitEvaluation)
+	{
+		this.shortCircuitEvaluation = shortCircuitEvaluation;
+	}
+
+	/**
+	 * indicator if the order of the rules is adjusted by their measured cost and selectivity.
+	 * 
+	 * @return	indicator if the adaptive rule order is used
+	 */
+	public boolean getAdaptiveRuleOrder()
+	{
+		return adaptiveRuleOrder;
+	}
+
+	/**
+	 * sets if the order of the rules is adjusted by their measured cost and selectivity.
+	 * this is only used together with short-circuit evaluation. default is false.
+	 * 
+	 * @param	adaptiveRuleOrder	indicator if the adaptive rule order is used
+	 */
+	public void setAdaptiveRuleOrder(boolean adaptiveRuleOrder)
+	{
+		this.adaptiveRuleOrder = adaptiveRuleOrder;
+	}
+
+	/**
+	 * sets the metrics in which the executions of the subgroup and its rules are recorded. the id
+	 * of a subgroup is only unique within its group, so the id of the group is used to identify
+	 * the metrics of the subgroup. a skipped subgroup is not recorded.
+	 * 
+	 * @param	metrics		the metrics or null if no metrics shall be collected
+	 * @param	groupId		the id of the group of the subgroup
+	 */
+	public void setMetrics(RuleEngineMetrics metrics, String groupId)
+	{
+		// the metrics of the rules are resolved again, if rules have been added
+		if(metrics!=this.metrics || (metrics!=null && ruleMetrics.length!=rulesCollection.size()))
+		{
+			this.metrics = metrics;
+			if(metrics!=null)
+			{
+				subGroupMetrics = metrics.getSubGroupMetrics(groupId, id);
+				ArrayList<XmlRule> rules = rulesCollection.getRules();
+				ruleMetrics = new ExecutionMetrics[rules.size()];
+				for(int i=0;i<rules.size();i++)
+				{
+					ruleMetrics[i] = metrics.getRuleMetrics(rules.get(i).getId());
+				}
+			}
+			else
+			{
+				subGroupMetrics = null;
+				ruleMetrics = null;
+			}
+		}
+	}
+
 }
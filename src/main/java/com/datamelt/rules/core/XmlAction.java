@@ -54,6 +54,10 @@ public class XmlAction implements Serializable
     
 	// the collection of maps containing key/value pairs
     private MappingCollection mappingCollection; 
+    
+    // the methods of the action in a form that is ready to be invoked
+    // it is created when the rules are loaded and not serialized
+    private transient volatile CompiledAction compiledAction;
 
 
 	/**
@@ -88,6 +92,7 @@ public class XmlAction implements Serializable
 	public void setClassName(String className)
 	{
 		this.className = className;
+		this.compiledAction = null;
 	}
 	
 	 /**
@@ -110,6 +115,7 @@ public class XmlAction implements Serializable
     public void setParameters(ArrayList<Parameter> parameters)
     {
         this.parameters = parameters;
+        this.compiledAction = null;
     }
     
     /**
@@ -120,6 +126,7 @@ public class XmlAction implements Serializable
     public void addParameter(Parameter parameter)
     {
         parameters.add(parameter);
+        this.compiledAction = null;
     }
 
     /**
@@ -164,6 +171,7 @@ public class XmlAction implements Serializable
 	public void setMethodName(String methodName)
 	{
 		this.methodName = methodName;
+		this.compiledAction = null;
 	}
 	
 	/**
@@ -197,6 +205,7 @@ public class XmlAction implements Serializable
 	public void setActionGetterObjects(ArrayList<ActionObject> actionGetterObjects)
 	{
 		this.actionGetterObjects = actionGetterObjects;
+		this.compiledAction = null;
 	}
 	
 	/**
@@ -208,6 +217,7 @@ public class XmlAction implements Serializable
 	public void addActionGetterObject(ActionObject actionGetterObject)
 	{
 		this.actionGetterObjects.add(actionGetterObject);
+		this.compiledAction = null;
 	}
 	
 	/**
@@ -218,6 +228,7 @@ public class XmlAction implements Serializable
 	public void removeActionGetterObject(int index)
 	{
 		this.actionGetterObjects.remove(index);
+		this.compiledAction = null;
 	}
 
 	/**
@@ -251,6 +262,7 @@ public class XmlAction implements Serializable
 	public void setActionSetterObject(ActionObject actionSetterObject)
 	{
 		this.actionSetterObject = actionSetterObject;
+		this.compiledAction = null;
 	}
 	
 	/**
@@ -302,6 +314,34 @@ public class XmlAction implements Serializable
 	{
 		this.mappingCollection = mappingCollection;
 	}
+	
+	/**
+	 * compiles the action: the methods of the getter and setter objects and of the action
+	 * class are resolved, the parameters are converted to the required types and the
+	 * instance of the action class is created once, so that this does not have to be done
+	 * each time the action is executed.
+	 */
+	public synchronized void compile()
+	{
+		compiledAction = new CompiledAction(this);
+	}
+	
+	/**
+	 * returns the compiled action. if the action has not been compiled yet,
+	 * it will be compiled first.
+	 * 
+	 * @return	the compiled action
+	 */
+	public CompiledAction getCompiledAction()
+	{
+		CompiledAction action = compiledAction;
+		if(action==null)
+		{
+			compile();
+			action = compiledAction;
+		}
+		return action;
+	}
     
     
 }
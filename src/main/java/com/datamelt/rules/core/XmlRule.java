@@ -77,9 +77,13 @@ public class XmlRule implements Cloneable, Serializable
     // the class that implements the GenericCheck class
     private GenericCheck executeCheck;
     
+    // the check of the rule in a form that is ready to be invoked
+    // it is created when the rules are loaded and not serialized
+    private transient volatile CompiledCheck compiledCheck;
+    
     // to cache values from rules
-    // these values are passed to the check to increase performance
-    private HashSet<String> valueCache = new HashSet<>();
+    // these values are passed to checks, which are not part of the rule engine
+    private HashSet<String> valueCache = new HashSet<String>();
 
     /**
      * Constructor using the id and description of the rule.
@@ -123,9 +127,10 @@ public class XmlRule implements Cloneable, Serializable
     public void setExpectedValueRule(String value)
     {
         this.expectedValueRule = value;
+        this.compiledCheck = null;
         
         // fill the value cache
-        fillValueCache(value);
+        this.valueCache = createValueCache(value);
     }
     
     /**
@@ -145,6 +150,7 @@ public class XmlRule implements Cloneable, Serializable
     public void setExpectedValueRuleType(String valueType)
     {
         this.expectedValueRuleType = valueType;
+        this.compiledCheck = null;
     }
     
     /**
@@ -166,6 +172,7 @@ public class XmlRule implements Cloneable, Serializable
     public void setCheckToExecute(String checkToExecute)
     {
         this.checkToExecute = checkToExecute;
+        this.compiledCheck = null;
         try
         {
             setExecuteCheck(Class.forName(checkToExecute).newInstance());
@@ -196,6 +203,7 @@ public class XmlRule implements Cloneable, Serializable
     public void setExecuteCheck(Object executeCheck)
     {
         this.executeCheck = (GenericCheck)executeCheck;
+        this.compiledCheck = null;
     }
 
     /**
@@ -219,6 +227,7 @@ public class XmlRule implements Cloneable, Serializable
     public void setParameters(ArrayList <Parameter>parameters)
     {
         this.parameters = parameters;
+        this.compiledCheck = null;
     }
     
     /**
@@ -229,6 +238,7 @@ public class XmlRule implements Cloneable, Serializable
     public void addParameter(Parameter parameter)
     {
         parameters.add(parameter);
+        this.compiledCheck = null;
     }
     
     /**
@@ -343,6 +353,7 @@ public class XmlRule implements Cloneable, Serializable
     public void setRuleObjects(RuleObjectCollection ruleObjects)
     {
         this.ruleObjects = ruleObjects;
+        this.compiledCheck = null;
     }
     
     /**
@@ -421,14 +432,34 @@ public class XmlRule implements Cloneable, Serializable
 		this.actions = actions;
 	}
 	
+	/**
+	 * compiles the rule: the method of the check is resolved and the expected value and
+	 * the parameters of the rule are converted to the required types once, so that this
+	 * does not have to be done each time the rule is run.
+	 * 
+	 * the parameters of the rule objects are resolved as well.
+	 */
+	public synchronized void compile()
+	{
+		for(int i=0;i<ruleObjects.size();i++)
+		{
+			RuleObject ruleObject = ruleObjects.get(i);
+			ruleObject.getParameterClasses();
+			ruleObject.getParameterValues();
+		}
+		compiledCheck = new CompiledCheck(this);
+	}
+	
 	/**
 	 * cache the possible values in a HashSet if
 	 * we have multiple values (more than one)
 	 * 
 	 * @param values	String representing a comma separated list of expected values
+	 * @return			the set of values. the set is empty, if there are less than two values
 	 */
-	private void fillValueCache(String values)
+	private static HashSet<String> createValueCache(String values)
 	{
+		HashSet<String> cache = new HashSet<String>();
 		// we only cache if we have more than one value
 		// avoid splitting strings into values over and over again
 		if(values!=null && !values.trim().equals(""))
@@ -436,19 +467,43 @@ public class XmlRule implements Cloneable, Serializable
 			String [] valuesArray = values.split(",");
 			if(valuesArray.length>1)
 			{
-				if(valueCache.size()==0)
+				for(int i=0;i<valuesArray.length;i++)
 				{
-					for(int i=0;i<valuesArray.length;i++)
-					{
-						valueCache.add(valuesArray[i]);
-					}
+					cache.add(valuesArray[i]);
 				}
 			}
 		}
+		return cache;
 	}
 	
+	/**
+	 * returns the values of the expected value of the rule, if it is a comma separated
+	 * list of more than one value. the values are not trimmed.
+	 * 
+	 * the set is passed to checks that are not part of the rule engine, using the
+	 * GenericCheck.setValueCache method, before their evaluate method is invoked.
+	 * 
+	 * @return	the set of values. the set is empty, if there are less than two values
+	 */
 	public HashSet<String> getValueCache()
 	{
 		return valueCache;
 	}
+	
+	/**
+	 * returns the compiled check of the rule. if the rule has not been compiled yet,
+	 * it will be compiled first.
+	 * 
+	 * @return	the compiled check
+	 */
+	public CompiledCheck getCompiledCheck()
+	{
+		CompiledCheck check = compiledCheck;
+		if(check==null)
+		{
+			compile();
+			check = compiledCheck;
+		}
+		return check;
+	}
 }
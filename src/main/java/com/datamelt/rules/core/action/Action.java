@@ -20,15 +20,11 @@ package com.datamelt.rules.core.action;
 
 import java.io.PrintStream;
 import java.io.Serializable;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 
-import com.datamelt.rules.core.ActionObject;
 import com.datamelt.rules.core.XmlAction;
 import com.datamelt.rules.core.util.MappingCollection;
-import com.datamelt.util.ClassUtility;
-import com.datamelt.util.FieldNotFoundException;
+import com.datamelt.rules.metrics.ExecutionMetrics;
 /**
  * class to execute one or a list of actions. An action is executed against a given object.
  * 
@@ -44,6 +40,8 @@ public class Action implements Serializable
 	private PrintStream stream;
 	private boolean outputAfterActions;
 	private MappingCollection mappingCollection;
+	// the metrics of the actions - by the index of the action. null if no metrics are collected
+	private transient ExecutionMetrics[] actionMetrics;
 	
 	public static final long serialVersionUID = 1964070320;
 	
@@ -76,8 +74,18 @@ public class Action implements Serializable
 				XmlAction action = actions.get(i);
 				if(ruleGroupFailed==action.getExecuteIf() || action.getExecuteIf()==XmlAction.TYPE_ALWAYS)
 				{
-					action.setMappingCollection(mappingCollection);
-					executeAction(action);
+					if(action.getMappingCollection()!=mappingCollection)
+					{
+						action.setMappingCollection(mappingCollection);
+					}
+					if(actionMetrics==null)
+					{
+						executeAction(action);
+					}
+					else
+					{
+						executeAction(action, actionMetrics[i]);
+					}
 					counter++;
 				}
 			}
@@ -96,109 +104,31 @@ public class Action implements Serializable
      */
 	public void executeAction(XmlAction action) throws Exception
 	{
-		Method methodSetterObject = null;
-		
-        ArrayList<ActionObject> actionGetterObjects = action.getActionGetterObjects();
-        ActionObject actionSetterObject = action.getActionSetterObject();
-		// if we have a getter method, we invoke the method to get the actual object
-		// then we will pass the object to the action method
-        Object[] getterObjects = null;
-        if(actionGetterObjects.size()>0 && actionSetterObject!=null)
-        {
-        	getterObjects = new Object[action.getActionGetterObjects().size()];
-        	// construct the setter method to execute on the object from the xml action
-    		methodSetterObject = ClassUtility.getObjectMethod(action,action.getActionSetterObject());
-    		
-    		// create the actual object
-        	try
-        	{
-        		for(int i=0;i<actionGetterObjects.size();i++)
-        		{
-        			Method methodGetterObject = ClassUtility.getObjectMethod(action,actionGetterObjects.get(i));
-        			getterObjects[i] = ClassUtility.invokeObjectMethod(object, methodGetterObject, actionGetterObjects.get(i).getParameters());
-        		}
-        	}
-        	catch(ActionInvocationException aie)
-        	{
-        		throw new ActionInvocationException("error invoking action object. action: [" + action.getDescription() + "] " + action.getClassName() + " " + aie.getMessage());
-        	}
-        	catch(FieldNotFoundException fnfe)
-        	{
-        		throw new FieldNotFoundException("error action field not found. action: ["+ action.getDescription() + "] " + action.getClassName() + " "+ fnfe.getMessage());
-        	}
-        	catch(InvocationTargetException ite)
-            {
-            	throw new Exception("error invoking action method. action: [" + action.getDescription() + "] " + action.getClassName() + " " + ite.getTargetException());
-            }
-        }
-        // if we only have a setter method, then we will simply update the object with the given action parameter(s)
-        else if(actionGetterObjects.size()==0 && actionSetterObject!=null)
-        {
-        	// construct the setter method to execute on the object from the xml action
-    		try
-    		{
-    			methodSetterObject = ClassUtility.getObjectMethod(action,action.getActionSetterObject());
-    		}
-    		catch(NoSuchMethodException nsm)
-    		{
-    			throw new Exception("no such setter method. action: ["+ action.getDescription() + "] method: " + action.getClassName() + "." + action.getActionSetterObject().getMethodName());
-    		}
-    		catch(Exception ex)
-    		{
-    			throw new Exception("error invoking action method. action: ["+ action.getDescription() + "] method: " + action.getClassName() + "." + action.getActionSetterObject().getMethodName());
-    		}
-        }
-        Object actionClassResult=null;
-        if(action.getClassName()!=null)
-        {
-	        // construct the method to execute from the xml action
-			Method methodAction = ClassUtility.getActionMethod(action);
-	     
-			// invoke the method of the xml action
-			// create the actual value of the method parameter/argument
-			
-			try
-	        {
-				actionClassResult = ClassUtility.invokeActionMethod(action, getterObjects ,methodAction);
-	        }
-	        catch(ActionInvocationException aie)
-	        {
-	        	throw new ActionInvocationException("error invoking action getter method. action: [" + action.getDescription() + "] method: " + action.getClassName() + "." + methodAction.getName() + " on object: " + getterObjects.toString());
-	        }
-	        catch(FieldNotFoundException fnfe)
-        	{
-        		throw new FieldNotFoundException("error action field not found. action: [" + action.getDescription() + "] method: " + action.getClassName() + "." + methodAction.getName()+ " on object: " + getterObjects.toString());
-        	}
-	        catch(InvocationTargetException ite)
-            {
-            	throw new Exception("error invoking action getter method. action: [" + action.getDescription() + "] method: " + action.getClassName() + "." + methodAction.getName() +  " on object: " + getterObjects.toString());
-            }
-        }        
-
-        // invoke the method on the object
-        if(actionSetterObject!=null)
-        {
-        	try
-        	{
-        		ClassUtility.invokeObjectSetterMethod(object, actionClassResult, methodSetterObject,action.getActionSetterObject().getParameters());
-        	}
-        	catch(ActionInvocationException aie)
-        	{
-        		throw new ActionInvocationException("error invoking action setter method. action: [" + action.getDescription() + "] method: " + action.getClassName() + "." + methodSetterObject.getName() + " on object: " + object);
-        	}
-        	catch(FieldNotFoundException fnfe)
-        	{
-        		throw new FieldNotFoundException("error action field not found. action: [" + action.getDescription() + "] method: "  + action.getClassName() + "." + methodSetterObject.getName() + " on object: " + object);
-        	}
-        	catch(InvocationTargetException ite)
-            {
-            	throw new Exception("error invoking action setter method. action: [" + action.getDescription() + "] method: "  + action.getClassName() + "." + methodSetterObject.getName() + " on object: " + object);
-            }
-        	catch(Exception ex)
-        	{
-        		throw new Exception("error invoking action setter method. action: [" + action.getDescription() + "] method: "  + action.getClassName() + "." + methodSetterObject.getName()  + " on object: " + object);
-        	}
-        }
+		// the methods of the action are resolved when the rules are loaded
+		action.getCompiledAction().execute(object);
+	}
+	
+	/**
+	 * executes a single XmlAction object and records the duration of the execution in the given metrics.
+	 * an action that throws an exception is recorded as failed.
+	 * 
+	 * @param 	action 		the action to execute
+	 * @param	metrics		the metrics of the action
+	 * @throws	Exception	exception if the action could not be executed
+	 */
+	private void executeAction(XmlAction action, ExecutionMetrics metrics) throws Exception
+	{
+		long startTime = System.nanoTime();
+		boolean failed = true;
+		try
+		{
+			executeAction(action);
+			failed = false;
+		}
+		finally
+		{
+			metrics.record(System.nanoTime() - startTime, failed);
+		}
 	}
 	
 	/**
@@ -250,4 +180,15 @@ public class Action implements Serializable
 	{
 		this.mappingCollection = mappingCollection;
 	}
+
+	/**
+	 * sets the metrics in which the executions of the actions are recorded. the metrics
+	 * are by the index of the action in the list of actions passed to the executeActions method.
+	 * 
+	 * @param actionMetrics	the metrics of the actions or null if no metrics are collected
+	 */
+	public void setActionMetrics(ExecutionMetrics[] actionMetrics)
+	{
+		this.actionMetrics = actionMetrics;
+	}
 }
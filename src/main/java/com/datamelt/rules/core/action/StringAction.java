@@ -37,6 +37,9 @@ import com.datamelt.util.ActionMethodAnnotation;
 
 public class StringAction extends GenericAction
 {
+	// name of the method replacing a value with the value from a mapping file
+	public static final String METHOD_REPLACE_VALUE_FROM_MAP = "replaceValueFromMap";
+	
 	@ActionAnnotation(description= "Set a value to another value",methodDisplayname="set value (string)")
 	public String setValue(XmlAction action, String value) throws Exception
 	{
@@ -19,46 +19,185 @@
 
 package com.datamelt.rules.core.util;
 
+import java.io.File;
 import java.io.FileInputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
 * holds the key/value mappings for a given file
 * 
-* the key/value pairs are read from the file and stored in a properties object.
+* the key/value pairs are read from the file - using the format of a properties file - when the map is
+* created. afterwards the map is not changed, so it can be read by multiple threads without locking.
+* 
+* the mappings are either kept in a hash map on the heap or - for very large files - in a store outside of the
+* java heap. the number of lookups that found a value (hits) and that did not find a value (misses) are counted.
 * 
 * @author uwe geercken
 */
 public class KeyValueMap
 {
-	private Properties properties = new Properties();
-    private String filename;
+	private final String filename;
+	private final long lastModified;
+	// the mappings, if they are kept on the heap
+	private final Map<String,String> mappings;
+	// the mappings, if they are kept off the heap
+	private final OffHeapKeyValueStore store;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
 	
+	/**
+	 * constructor for a map containing the key/value mappings from the given file. the mappings are kept on the heap
+	 * 
+	 * @param filename		the path and filename of the mapping file
+	 * @throws Exception	exception when the file can not be read
+	 */
 	public KeyValueMap(String filename) throws Exception
+	{
+		this(filename, false);
+	}
+	
+	/**
+	 * constructor for a map containing the key/value mappings from the given file
+	 * 
+	 * @param filename		the path and filename of the mapping file
+	 * @param offHeap		indicator if the mappings are kept outside of the java heap
+	 * @throws Exception	exception when the file can not be read
+	 */
+	public KeyValueMap(String filename, boolean offHeap) throws Exception
 	{
 		this.filename = filename;
-		properties = new Properties();
-        properties.load(new FileInputStream(filename));
+		this.lastModified = new File(filename).lastModified();
+		final HashMap<String,String> loadedMappings = offHeap ? null : new HashMap<String,String>();
+		final OffHeapKeyValueStore loadedStore = offHeap ? new OffHeapKeyValueStore() : null;
+		// the properties only parse the file. the key/value pairs are passed directly to the map or store
+		Properties parser = new Properties()
+		{
+			private static final long serialVersionUID = 1964070880;
+			
+			@Override
+			public synchronized Object put(Object key, Object value)
+			{
+				if(loadedStore!=null)
+				{
+					loadedStore.put((String)key, (String)value);
+				}
+				else
+				{
+					loadedMappings.put((String)key, (String)value);
+				}
+				return null;
+			}
+		};
+		FileInputStream stream = new FileInputStream(filename);
+		try
+		{
+			parser.load(stream);
+		}
+		finally
+		{
+			stream.close();
+		}
+		this.mappings = loadedMappings!=null ? Collections.unmodifiableMap(loadedMappings) : null;
+		this.store = loadedStore;
 	}
 	
-	/*
+	/**
 	 * gets a value corresponding to the given key
 	 * 
 	 * @param	key		the key to lookup
-	 * @returns			the value corresponding to the key
+	 * @return			the value corresponding to the key or null if the key does not exist
 	 */
 	public String getValue(String key)
 	{
-		return properties.getProperty(key);
+		String value;
+		if(store!=null)
+		{
+			value = store.get(key);
+		}
+		else
+		{
+			value = mappings.get(key);
+		}
+		if(value!=null)
+		{
+			hits.increment();
+		}
+		else
+		{
+			misses.increment();
+		}
+		return value;
 	}
 
-	/*
+	/**
 	 * get the filename of the mappings file used
 	 * 
-	 * @returns			the filename of the mappings file
+	 * @return			the filename of the mappings file
 	 */
 	public String getFilename()
 	{
 		return filename;
 	}
+	
+	/**
+	 * returns the time the mapping file was last modified when it was loaded
+	 * 
+	 * @return			the modification time of the file in milliseconds
+	 */
+	public long getLastModified()
+	{
+		return lastModified;
+	}
+	
+	/**
+	 * indicates if the mappings are kept outside of the java heap
+	 * 
+	 * @return			indicator if the mappings are kept off the heap
+	 */
+	public boolean isOffHeap()
+	{
+		return store!=null;
+	}
+	
+	/**
+	 * returns the number of key/value mappings
+	 * 
+	 * @return			the number of mappings
+	 */
+	public int getNumberOfEntries()
+	{
+		if(store!=null)
+		{
+			return store.size();
+		}
+		else
+		{
+			return mappings.size();
+		}
+	}
+	
+	/**
+	 * returns the number of lookups that found a value
+	 * 
+	 * @return			the number of hits
+	 */
+	public long getNumberOfHits()
+	{
+		return hits.sum();
+	}
+	
+	/**
+	 * returns the number of lookups that did not find a value
+	 * 
+	 * @return			the number of misses
+	 */
+	public long getNumberOfMisses()
+	{
+		return misses.sum();
+	}
 }
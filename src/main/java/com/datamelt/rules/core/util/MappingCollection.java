@@ -19,9 +19,10 @@
 
 package com.datamelt.rules.core.util;
 
+import java.io.File;
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
 * collection containing maps of key/value pairs.
@@ -29,6 +30,12 @@ import java.util.Map;
 * these maps can be used to replace - using an action - the original value with a value defined in a mapping file. The mapping file
 * is identified by it's filename.
 * 
+* the maps should be loaded using the load() method before the rules are run - the rule engine loads all mapping files used
+* by the actions of a rule set when the rule set is loaded. a map that has not been loaded is loaded when it is first requested.
+* the maps do not change after they have been loaded, so looking up a value does not require a lock.
+* 
+* mapping files that are larger than the off-heap threshold are kept outside of the java heap.
+* 
 * @author uwe geercken
 */
 public class MappingCollection implements Serializable
@@ -36,36 +43,177 @@ public class MappingCollection implements Serializable
 	public static final long serialVersionUID = 1964070879;
 	
 	// a hashmap of KeyValueMaps
-	private Map <String,KeyValueMap> maps = new HashMap<String,KeyValueMap>();
+	private final ConcurrentHashMap <String,KeyValueMap> maps = new ConcurrentHashMap<String,KeyValueMap>();
+	// the size in bytes above which the mappings of a file are kept off the heap. zero keeps all mappings on the heap
+	private long offHeapThreshold = 0;
+	
+	/**
+	 * default constructor. all mappings are kept on the heap
+	 */
+	public MappingCollection()
+	{
+	}
+	
+	/**
+	 * constructor for a collection which keeps the mappings of files larger than the given threshold off the heap
+	 * 
+	 * @param offHeapThreshold	the size of a file in bytes above which the mappings are kept off the heap. zero keeps all mappings on the heap
+	 */
+	public MappingCollection(long offHeapThreshold)
+	{
+		this.offHeapThreshold = offHeapThreshold;
+	}
+	
+	/**
+	 * loads the map for the given mapping file. if the map has already been loaded it is not loaded again.
+	 * 
+	 * @param filename		the path and filename of the mapping file
+	 * @return				KeyValueMap containing all key/value mappings
+	 * @throws Exception	exception when the file can not be read
+	 */
+	public KeyValueMap load(String filename) throws Exception
+	{
+		return load(filename, null);
+	}
 	
-	/*
-	 * gets a KeyValueMap from a hashmap
+	/**
+	 * loads the map for the given mapping file. if the previous collection contains the map and the file has not
+	 * been modified since, the map of the previous collection is used instead of loading the file again.
 	 * 
-	 * @param filename 	the path and filename of the mapping file
-     * @return			KeyValueMap containing all key/value mappings
+	 * @param filename		the path and filename of the mapping file
+	 * @param previous		the previous collection or null
+	 * @return				KeyValueMap containing all key/value mappings
+	 * @throws Exception	exception when the file can not be read
 	 */
-	private KeyValueMap getMap(String filename) throws Exception
+	public KeyValueMap load(String filename, MappingCollection previous) throws Exception
 	{
 		KeyValueMap map = maps.get(filename);
-		// in case the map is null we load it
 		if(map==null)
 		{
-			map = new KeyValueMap(filename);
-			// add it to the maps
-			maps.put(filename, map);
+			synchronized(this)
+			{
+				map = maps.get(filename);
+				if(map==null && previous!=null)
+				{
+					KeyValueMap previousMap = previous.maps.get(filename);
+					if(previousMap!=null && previousMap.getLastModified()==new File(filename).lastModified() && previousMap.isOffHeap()==isOffHeap(filename))
+					{
+						map = previousMap;
+					}
+				}
+				if(map==null)
+				{
+					map = new KeyValueMap(filename, isOffHeap(filename));
+				}
+				maps.put(filename, map);
+			}
 		}
 		return map;
 	}
 	
-	/*
+	/**
+	 * checks if the mappings of the given file are kept off the heap
+	 * 
+	 * @param filename	the path and filename of the mapping file
+	 * @return			indicator if the mappings are kept off the heap
+	 */
+	private boolean isOffHeap(String filename)
+	{
+		return offHeapThreshold>0 && new File(filename).length()>offHeapThreshold;
+	}
+	
+	/**
 	 * get a value from a mapping file by providing the filename and the key to lookup
 	 * 
 	 * @param	filename	the path and filename of the mapping file
 	 * @param	key			the key to search for in the mapping file
+	 * @return				the value or null if the key does not exist
+	 * @throws	Exception	exception when the mapping file has not been loaded and can not be read
 	 */
 	public String getValue(String filename, String key) throws Exception
 	{
-		KeyValueMap map = getMap(filename);
+		KeyValueMap map = maps.get(filename);
+		if(map==null)
+		{
+			map = load(filename);
+		}
 		return map.getValue(key);
 	}
+	
+	/**
+	 * returns the map for the given mapping file
+	 * 
+	 * @param	filename	the path and filename of the mapping file
+	 * @return				KeyValueMap containing all key/value mappings or null if the file has not been loaded
+	 */
+	public KeyValueMap getMap(String filename)
+	{
+		return maps.get(filename);
+	}
+	
+	/**
+	 * returns the maps that have been loaded
+	 * 
+	 * @return				list of maps
+	 */
+	public ArrayList<KeyValueMap> getMaps()
+	{
+		return new ArrayList<KeyValueMap>(maps.values());
+	}
+	
+	/**
+	 * returns the number of lookups over all maps that found a value
+	 * 
+	 * @return				the number of hits
+	 */
+	public long getNumberOfHits()
+	{
+		long hits = 0;
+		for(KeyValueMap map : maps.values())
+		{
+			hits = hits + map.getNumberOfHits();
+		}
+		return hits;
+	}
+	
+	/**
+	 * returns the number of lookups over all maps that did not find a value
+	 * 
+	 * @return				the number of misses
+	 */
+	public long getNumberOfMisses()
+	{
+		long misses = 0;
+		for(KeyValueMap map : maps.values())
+		{
+			misses = misses + map.getNumberOfMisses();
+		}
+		return misses;
+	}
+	
+	/**
+	 * returns the ratio of the lookups that found a value to all lookups
+	 * 
+	 * @return				the hit ratio between zero and one. zero if there were no lookups
+	 */
+	public double getHitRatio()
+	{
+		long hits = getNumberOfHits();
+		long lookups = hits + getNumberOfMisses();
+		if(lookups==0)
+		{
+			return 0;
+		}
+		return (double)hits / lookups;
+	}
+	
+	/**
+	 * returns the size in bytes above which the mappings of a file are kept off the heap
+	 * 
+	 * @return				the threshold. zero if all mappings are kept on the heap
+	 */
+	public long getOffHeapThreshold()
+	{
+		return offHeapThreshold;
+	}
 }
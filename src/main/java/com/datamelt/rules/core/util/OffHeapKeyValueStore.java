@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.core.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+* hash table for string keys and values, which keeps the keys and values outside of the java heap.
+* 
+* the keys and values are stored - encoded as UTF-8 - in a direct byte buffer. the heap only contains
+* the table of the positions of the entries, which uses four bytes per slot. this way large mapping files
+* do not fill the heap and do not have to be traced by the garbage collector.
+* 
+* entries are only added while the store is filled. afterwards the store is not changed and may be read
+* by multiple threads at the same time. the total size of the keys and values must be smaller than 2 GB.
+* 
+* @author uwe geercken
+*/
+class OffHeapKeyValueStore
+{
+	private static final int INITIAL_NUMBER_OF_SLOTS	= 1024;
+	private static final int INITIAL_DATA_SIZE			= 65536;
+	// each entry starts with the hash code of the key, the length of the key and the length of the value
+	private static final int ENTRY_HEADER_SIZE			= 12;
+	
+	// the entries. the position of the buffer is the position of the next entry
+	private ByteBuffer data = ByteBuffer.allocateDirect(INITIAL_DATA_SIZE);
+	// the position of the entry plus one for each slot. zero marks an empty slot
+	private int[] slots = new int[INITIAL_NUMBER_OF_SLOTS];
+	private int size;
+	
+	/**
+	 * adds the key and value to the store. if the key already exists, the value replaces the previous one.
+	 * 
+	 * @param key		the key
+	 * @param value		the value
+	 */
+	void put(String key, String value)
+	{
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+		int hash = key.hashCode();
+		int slot = findSlot(hash, keyBytes);
+		int position = writeEntry(hash, keyBytes, valueBytes);
+		if(slots[slot]==0)
+		{
+			size++;
+		}
+		// a replaced entry stays in the data, but is not referenced anymore
+		slots[slot] = position + 1;
+		if(size * 4L > slots.length * 3L)
+		{
+			resize();
+		}
+	}
+	
+	/**
+	 * returns the value for the given key
+	 * 
+	 * @param key		the key
+	 * @return			the value or null if the key does not exist
+	 */
+	String get(String key)
+	{
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		int slot = findSlot(key.hashCode(), keyBytes);
+		if(slots[slot]==0)
+		{
+			return null;
+		}
+		int position = slots[slot] - 1;
+		int keyLength = data.getInt(position + 4);
+		byte[] valueBytes = new byte[data.getInt(position + 8)];
+		// a duplicate has its own position, so multiple threads can read at the same time
+		ByteBuffer buffer = data.duplicate();
+		buffer.position(position + ENTRY_HEADER_SIZE + keyLength);
+		buffer.get(valueBytes);
+		return new String(valueBytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * returns the number of keys of the store
+	 * 
+	 * @return		the number of keys
+	 */
+	int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * returns the number of bytes used by the keys and values outside of the heap
+	 * 
+	 * @return		the number of bytes
+	 */
+	long getDataSize()
+	{
+		return data.position();
+	}
+	
+	/**
+	 * determines the slot containing the given key or the empty slot where the key is added
+	 * 
+	 * @param hash		the hash code of the key
+	 * @param keyBytes	the bytes of the key
+	 * @return			the index of the slot
+	 */
+	private int findSlot(int hash, byte[] keyBytes)
+	{
+		int mask = slots.length - 1;
+		int slot = spread(hash) & mask;
+		while(slots[slot]!=0 && !isKey(slots[slot] - 1, hash, keyBytes))
+		{
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	
+	/**
+	 * checks if the entry at the given position has the given key
+	 * 
+	 * @param position	the position of the entry
+	 * @param hash		the hash code of the key
+	 * @param keyBytes	the bytes of the key
+	 * @return			indicator if the entry has the key
+	 */
+	private boolean isKey(int position, int hash, byte[] keyBytes)
+	{
+		if(data.getInt(position)!=hash || data.getInt(position + 4)!=keyBytes.length)
+		{
+			return false;
+		}
+		int start = position + ENTRY_HEADER_SIZE;
+		for(int i=0;i<keyBytes.length;i++)
+		{
+			if(data.get(start + i)!=keyBytes[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * writes the entry to the data
+	 * 
+	 * @param hash			the hash code of the key
+	 * @param keyBytes		the bytes of the key
+	 * @param valueBytes	the bytes of the value
+	 * @return				the position of the entry
+	 */
+	private int writeEntry(int hash, byte[] keyBytes, byte[] valueBytes)
+	{
+		long entrySize = (long)ENTRY_HEADER_SIZE + keyBytes.length + valueBytes.length;
+		if(data.remaining()<entrySize)
+		{
+			long capacity = Math.max(2L * data.capacity(), data.position() + entrySize);
+			if(data.position() + entrySize >= Integer.MAX_VALUE)
+			{
+				throw new IllegalStateException("the keys and values of the mapping file are too large to be stored off the heap");
+			}
+			ByteBuffer previousData = data;
+			data = ByteBuffer.allocateDirect((int)Math.min(capacity, Integer.MAX_VALUE - 1));
+			previousData.flip();
+			data.put(previousData);
+		}
+		int position = data.position();
+		data.putInt(hash);
+		data.putInt(keyBytes.length);
+		data.putInt(valueBytes.length);
+		data.put(keyBytes);
+		data.put(valueBytes);
+		return position;
+	}
+	
+	/**
+	 * doubles the number of slots and adds the entries again
+	 */
+	private void resize()
+	{
+		int[] previousSlots = slots;
+		slots = new int[previousSlots.length * 2];
+		int mask = slots.length - 1;
+		for(int i=0;i<previousSlots.length;i++)
+		{
+			if(previousSlots[i]!=0)
+			{
+				int slot = spread(data.getInt(previousSlots[i] - 1)) & mask;
+				while(slots[slot]!=0)
+				{
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = previousSlots[i];
+			}
+		}
+	}
+	
+	/**
+	 * spreads the bits of the hash code, so that hash codes which only differ in the higher bits
+	 * are put into different slots
+	 * 
+	 * @param hash		the hash code
+	 * @return			the spread hash code
+	 */
+	private static int spread(int hash)
+	{
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
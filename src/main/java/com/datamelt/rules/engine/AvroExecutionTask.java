@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.engine;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.avro.Schema;
+
+import com.datamelt.rules.core.RuleExecutionCollection;
+import com.datamelt.util.AvroBlockDecoder;
+import com.datamelt.util.HeaderRow;
+
+/**
+ * task to run the rules against the records of blocks of an Avro container file, used by the
+ * parallel run method for Avro files of the BusinessRulesEngine.
+ * <p>
+ * the records of the blocks are decoded by the task, using its own decoder and a new execution
+ * context. the results are returned or merged the same way as by the RuleExecutionTask.
+ *
+ * @author uwe geercken
+ */
+class AvroExecutionTask extends RecursiveTask<RuleExecutionCollection>
+{
+	public static final long serialVersionUID = 1964070342;
+
+	private final BusinessRulesEngine engine;
+	private final Schema schema;
+	private final HeaderRow header;
+	private final List<ByteBuffer> blocks;
+	private final long labelOffset;
+
+	/**
+	 * creates a task for the records of the given blocks
+	 *
+	 * @param	engine				the engine, which provides the execution contexts
+	 * @param	schema				the schema of the Avro file
+	 * @param	header				the header row of the rows, shared by all tasks of the file
+	 * @param	blocks				the blocks containing the binary encoded records
+	 * @param	labelOffset			the running number of the first record of the blocks, used for the label
+	 */
+	AvroExecutionTask(BusinessRulesEngine engine, Schema schema, HeaderRow header, List<ByteBuffer> blocks, long labelOffset)
+	{
+		this.engine = engine;
+		this.schema = schema;
+		this.header = header;
+		this.blocks = blocks;
+		this.labelOffset = labelOffset;
+	}
+
+	@Override
+	protected RuleExecutionCollection compute()
+	{
+		try
+		{
+			return runBlocks();
+		}
+		catch(RuntimeException rex)
+		{
+			throw rex;
+		}
+		catch(Exception ex)
+		{
+			throw new RuntimeException(ex);
+		}
+	}
+
+	/**
+	 * decodes the records of all blocks and runs the rules against them using a new
+	 * execution context.
+	 *
+	 * @return				the results of the execution or null if the results have already been merged
+	 * @throws	Exception	exception decoding the records or running the rules against them
+	 */
+	private RuleExecutionCollection runBlocks() throws Exception
+	{
+		RuleExecutionContext context = engine.createExecutionContext();
+		AvroBlockDecoder decoder = new AvroBlockDecoder(schema, header);
+
+		long number = labelOffset;
+		for(int i=0;i<blocks.size();i++)
+		{
+			decoder.setBlock(blocks.get(i));
+			while(decoder.nextRow())
+			{
+				context.run("row: " + number, decoder.getRowFieldCollection());
+				number++;
+			}
+		}
+
+		if(engine.getPreserveInputOrder())
+		{
+			return context.getRuleExecutionCollection();
+		}
+		else
+		{
+			engine.mergeExecutionCollection(context.getRuleExecutionCollection());
+			return null;
+		}
+	}
+}
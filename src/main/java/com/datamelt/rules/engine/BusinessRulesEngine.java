@@ -19,30 +19,50 @@
 
 package com.datamelt.rules.engine;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
 import java.text.DecimalFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import org.apache.log4j.Logger;
 
+import com.datamelt.db.PartitionedQuery;
+import com.datamelt.db.ResultSetReader;
 import com.datamelt.rules.parser.xml.Parser;
 import com.datamelt.rules.core.ReferenceField;
 import com.datamelt.rules.core.RuleExecutionCollection;
 import com.datamelt.rules.core.RuleGroup;
+import com.datamelt.rules.core.XmlAction;
+import com.datamelt.rules.core.action.StringAction;
 import com.datamelt.rules.core.util.MappingCollection;
 import com.datamelt.rules.core.util.VariableReplacer;
+import com.datamelt.rules.metrics.RuleEngineMetrics;
+import com.datamelt.util.AvroFileReader;
+import com.datamelt.util.CsvTokenizer;
 import com.datamelt.util.FileUtility;
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.MappedFileReader;
 import com.datamelt.util.RowFieldCollection;
 import com.datamelt.util.RuleGroupPrioritizer;
 import com.datamelt.util.Splitter;
@@ -106,9 +126,9 @@ public class BusinessRulesEngine
 	private static final String LAST_UPDATE = "2020-04-17";
 	
     // contains all groups, subgroups and rules that have been parsed from one or more files
-    private ArrayList<RuleGroup> groups = new ArrayList<RuleGroup>();
+    private volatile ArrayList<RuleGroup> groups = new ArrayList<RuleGroup>();
     // contains all groups, subgroups and rules that have been parsed from one or more files
-    private ArrayList<ReferenceField> referenceFields = new ArrayList<ReferenceField>();
+    private volatile ArrayList<ReferenceField> referenceFields = new ArrayList<ReferenceField>();
     
     // indicator if the rule engine ran
     private int status;
@@ -134,6 +154,8 @@ public class BusinessRulesEngine
     // will be used for labeling in output files
     private static final String OBJECT_LABEL_DEFAULT              = "object"; 
     private static final String OBJECT_LABEL_NUMBERFORMAT_DEFAULT = "0000000000"; 
+    private static final int PARALLEL_BATCH_SIZE_DEFAULT          = 1000;
+    private static final int MAXIMUM_NUMBER_OF_HEADER_ROWS        = 1000;
     
     // default is failed rules only
     public static final int OUTPUT_TYPE_FAILED_ONLY               = 0;
@@ -157,17 +179,43 @@ public class BusinessRulesEngine
     private static final String PROPERTY_OUPUT_TYPE 				 = "output_type";
     private static final String PROPERTY_OBJECT_LABEL 				 = "object_label";
     private static final String PROPERTY_OBJECT_LABEL_FORMAT		 = "object_label_format";
+    private static final String PROPERTY_SHORT_CIRCUIT_EVALUATION	 = "short_circuit_evaluation";
+    private static final String PROPERTY_ADAPTIVE_RULE_ORDER		 = "adaptive_rule_order";
+    private static final String PROPERTY_MAPPING_OFFHEAP_THRESHOLD	 = "mapping_offheap_threshold";
+    private static final String PROPERTY_METRICS_ENABLED			 = "metrics_enabled";
 
     final static Logger logger = Logger.getLogger(BusinessRulesEngine.class);
     
     // name of the replacements file
     private String replacementsFile;
-    // the collection of mappings. contains key/values from multiple mapping files
-    private MappingCollection mappingCollection = new MappingCollection();
+    // the collection of mappings. contains key/values from multiple mapping files. replaced for each rule set
+    private volatile MappingCollection mappingCollection = new MappingCollection();
+    // the size of a mapping file in bytes above which the mappings are kept off the heap. zero keeps all on the heap
+    private long mappingOffHeapThreshold = 0;
     // contains the results of the execution of the rules
     private RuleExecutionCollection executionCollection = new RuleExecutionCollection();
     // indicated if the results of the rule execution should be kept
     private boolean preserveRuleExcecutionResults=true;
+    // indicates if subgroups and rules are only run until the outcome of the group is decided
+    private boolean shortCircuitEvaluation=false;
+    // indicates if the order of the rules is adjusted by their measured cost and selectivity
+    private boolean adaptiveRuleOrder=false;
+    // the compiled groups and rules. may be shared by multiple threads
+    private volatile RuleSet ruleSet;
+    // the number of rule sets loaded by the engine - the version of the current rule set
+    private long ruleSetVersion = 0;
+    // the context used to run the rules on the groups of this engine
+    private RuleExecutionContext context;
+    // the pool used to run the rules in parallel. if null the common pool is used
+    private ForkJoinPool forkJoinPool;
+    // the number of objects a task runs the rules against when running in parallel
+    private int parallelBatchSize = PARALLEL_BATCH_SIZE_DEFAULT;
+    // indicates if the results of a parallel run are kept in the order of the input objects
+    private boolean preserveInputOrder = true;
+    // the metrics in which the executions of the groups, subgroups, rules and actions are recorded. null if no metrics are collected
+    private volatile RuleEngineMetrics metrics;
+    // the header rows by the names of their fields. rows with the same fields - e.g. from different sessions - share one header row
+    private final ConcurrentHashMap<List<String>,HeaderRow> headerRows = new ConcurrentHashMap<List<String>,HeaderRow>();
 
     /** 
      * returns the version and revision of the business rule engine
@@ -307,6 +355,9 @@ public class BusinessRulesEngine
      */
     public BusinessRulesEngine(ZipFile zipFile, String[] ruleFiles) throws Exception
     {
+    	long loadStart = System.currentTimeMillis();
+    	ArrayList<RuleGroup> parsedGroups = new ArrayList<RuleGroup>();
+    	ArrayList<ReferenceField> parsedReferenceFields = new ArrayList<ReferenceField>();
         for(Enumeration<?> entries = zipFile.entries();entries.hasMoreElements();)
         {
             ZipEntry entry = (ZipEntry)entries.nextElement();
@@ -316,13 +367,13 @@ public class BusinessRulesEngine
             	{
             		if(ruleFiles[i].equals(entry.getName()))
             		{
-            			parseXmlInputStream(zipFile.getInputStream(entry));
+            			parseXmlInputStream(zipFile.getInputStream(entry), parsedGroups, parsedReferenceFields);
             		}
             	}
             }
         }
         zipFile.close();
-        prioritizeRuleGroups();
+        activateRuleSet(parsedGroups, parsedReferenceFields, loadStart, false);
     }
     
     /**
@@ -366,8 +417,6 @@ public class BusinessRulesEngine
         	// get the next group
             RuleGroup group = groups.get(i);
             
-            // apply settings of ruleengine to the group
-            applyGroupSettings(group);
             // run the group
             run(group,objectLabel,object);            
         }
@@ -399,8 +448,6 @@ public class BusinessRulesEngine
             // check if the name of the group corresponds to the specified name
             if(group.getId().toLowerCase().equals(rulegroupName.toLowerCase()))
             {
-            	// apply settings of ruleengine to the group
-            	applyGroupSettings(group);
             	// run the group
             	run(group,objectLabel,object);
             }
@@ -440,8 +487,6 @@ public class BusinessRulesEngine
 	            // check if the name of the group corresponds to the specified name
 	            if(group.getId().toLowerCase().equals(rulegroupName.toLowerCase()))
 	            {
-	            	// apply settings of ruleengine to the group
-	            	applyGroupSettings(group);
 	            	// run the group
 	            	run(group,objectLabel,object);
 	            }
@@ -464,53 +509,10 @@ public class BusinessRulesEngine
      */
     public void run(RuleGroup group, String objectLabel, Object object)throws Exception
     {
-        // we reset the skipped flag of the group here
-    	// a group may be skipped if it depends on another rulegroup
-    	// and that groups execution result is not as expected
-        group.setSkipped(0);
-        
-        // set the collection of maps containing key/value pairs
-        group.setMappingCollection(mappingCollection);
-        
-        // per default each rulegroup will be run
-        boolean runGroup = true;
-        // check if we have a dependent rulegroup
-        if(group.getDependentRuleGroupId()!=null && !group.getDependentRuleGroupId().equals(""))
-        {
-        	// get the dependent group from the list of groups
-        	RuleGroup dependentRuleGroup = getGroupById(group.getDependentRuleGroupId());
-        	// don't run the group if the dependent group does not exist or does not have the correct status (passed/failed)
-        	if(dependentRuleGroup!=null && dependentRuleGroup.getFailed()!=group.getDependentRuleGroupExecuteIf())
-        	{
-        		runGroup= false;
-        		group.setSkipped(1);
-        		// increase the counter for the skipped rule groups
-        		executionCollection.increaseSkippedGroupCount();
-        	}
-        }
-        if(runGroup)
-        {
-            applyGroupSettings(group);
-        	group.runRules(objectLabel, object);
-            if(group.getFailed()==1) // group failed
-            {
-            	// increase the counter of failed groups
-            	executionCollection.increaseFailedGroupCount();
-            }
-            else
-            {
-            	// increase the counter of failed groups
-            	executionCollection.increasePassedGroupCount();
-            	
-            }
-            // execution results will be added unless the preserveRuleExcecutionResults is set to false
-            executionCollection.addAll(group.getExecutionCollection().getResults());
-            // add the number of executed actions by the rulegroup
-            executionCollection.addNumberOfActionsExecuted(group.getNumberOfActionsExecuted());
-            executionCollection.addNumberOfRulesRun(group.getNumberOfRulesRun());
-            executionCollection.addNumberOfRulesFailed(group.getNumberOfRulesFailed());
-            executionCollection.addNumberOfRulesPassed(group.getNumberOfRulesPassed());
-        }
+    	// apply settings of ruleengine to the context
+    	applyContextSettings(context);
+    	// run the group
+    	context.run(group, objectLabel, object);
     }
     
     /**
@@ -530,38 +532,79 @@ public class BusinessRulesEngine
         for(Iterator<Object> iterator = objects.iterator(); iterator.hasNext(); )
         {
             Object object = iterator.next();
-	        String label = objectsLabel;
-	        if(label !=null && !label.trim().equals(""))
-	        {
-	            label = label + " [" + df.format(i) + "]";
-	        }
-            run(label, object);
+            run(getObjectLabel(df, i), object);
             i++;
         }
     }
     
+    /**
+     * returns the label of an object of a collection of objects: the label for the objects
+     * followed by the running number of the object. if the label for the objects is empty,
+     * it is used as it is. the parallel runs use the same labels as the sequential run.
+     * 
+     * @param		df				the format of the running number
+     * @param		number			the running number of the object
+     * @return						the label of the object
+     */
+    String getObjectLabel(DecimalFormat df, long number)
+    {
+        String label = objectsLabel;
+        if(label !=null && !label.trim().equals(""))
+        {
+            label = label + " [" + df.format(number) + "]";
+        }
+        return label;
+    }
+    
     /**
      * reloads the rule project zip file for a running BusinessRulesEngine instance.
      * 
+     * the rules are parsed and compiled into a new rule set, which then replaces the current
+     * rule set in one step. if the file can not be parsed, the current rules stay active.
+     * 
      * @param zipFile		path and name of the zip file
      * @throws Exception	exception when the file could not be located or parsed
      */
     public void reloadZipFile(ZipFile zipFile) throws Exception
     {
-    	clear();
-    	groups.clear();
-        referenceFields.clear();
-        
-    	for(Enumeration<?> entries = zipFile.entries();entries.hasMoreElements();)
-        {
-            ZipEntry entry = (ZipEntry)entries.nextElement();
-            if(!entry.isDirectory())
-            {
-            	parseXmlInputStream(zipFile.getInputStream(entry));
-            }
-        }
-        zipFile.close();
-        prioritizeRuleGroups();
+    	reloadZipFile(zipFile, false);
+    }
+    
+    /**
+     * reloads the rule project zip file for a running BusinessRulesEngine instance.
+     * 
+     * the rules are parsed and compiled into a new rule set, which then replaces the current
+     * rule set in one step. threads running the rules using a context of the previous rule set
+     * are not affected; contexts created after the reload use the new rule set.
+     * 
+     * if the file can not be parsed or - when requested - the new rule set is not valid, the
+     * current rules stay active.
+     * 
+     * @param zipFile		path and name of the zip file
+     * @param validate		indicator if the new rule set is validated before it is activated
+     * @throws Exception	exception when the file could not be located or parsed or the rules are not valid
+     */
+    public void reloadZipFile(ZipFile zipFile, boolean validate) throws Exception
+    {
+    	long loadStart = System.currentTimeMillis();
+    	ArrayList<RuleGroup> parsedGroups = new ArrayList<RuleGroup>();
+    	ArrayList<ReferenceField> parsedReferenceFields = new ArrayList<ReferenceField>();
+    	try
+    	{
+	    	for(Enumeration<?> entries = zipFile.entries();entries.hasMoreElements();)
+	        {
+	            ZipEntry entry = (ZipEntry)entries.nextElement();
+	            if(!entry.isDirectory())
+	            {
+	            	parseXmlInputStream(zipFile.getInputStream(entry), parsedGroups, parsedReferenceFields);
+	            }
+	        }
+    	}
+    	finally
+    	{
+    		zipFile.close();
+    	}
+        activateRuleSet(parsedGroups, parsedReferenceFields, loadStart, validate);
     }
     
     /**
@@ -572,12 +615,11 @@ public class BusinessRulesEngine
      */
     public void reloadRuleFile(String rulesFilename) throws Exception
     {
-    	clear();
-    	groups.clear();
-        referenceFields.clear();
-        
-        parseXmlFile(rulesFilename);
-        prioritizeRuleGroups();
+    	long loadStart = System.currentTimeMillis();
+    	ArrayList<RuleGroup> parsedGroups = new ArrayList<RuleGroup>();
+    	ArrayList<ReferenceField> parsedReferenceFields = new ArrayList<ReferenceField>();
+        parseXmlFile(rulesFilename, parsedGroups, parsedReferenceFields);
+        activateRuleSet(parsedGroups, parsedReferenceFields, loadStart, false);
     }
     
     /**
@@ -588,15 +630,14 @@ public class BusinessRulesEngine
      */
     public void reloadRuleFile(File[] rulesFiles) throws Exception
     {
-    	clear();
-    	groups.clear();
-        referenceFields.clear();
-        
+    	long loadStart = System.currentTimeMillis();
+    	ArrayList<RuleGroup> parsedGroups = new ArrayList<RuleGroup>();
+    	ArrayList<ReferenceField> parsedReferenceFields = new ArrayList<ReferenceField>();
         for(int i=0;i<rulesFiles.length;i++)
         {
-            parseXmlFile(rulesFiles[i].getPath());
+            parseXmlFile(rulesFiles[i].getPath(), parsedGroups, parsedReferenceFields);
         }
-        prioritizeRuleGroups();
+        activateRuleSet(parsedGroups, parsedReferenceFields, loadStart, false);
     }
     
     /**
@@ -607,10 +648,9 @@ public class BusinessRulesEngine
      */
     public void reloadRuleFileFolder(String folderName) throws Exception
     {
-    	clear();
-    	groups.clear();
-        referenceFields.clear();
-        
+    	long loadStart = System.currentTimeMillis();
+    	ArrayList<RuleGroup> parsedGroups = new ArrayList<RuleGroup>();
+    	ArrayList<ReferenceField> parsedReferenceFields = new ArrayList<ReferenceField>();
         File folder = new File(folderName);
         if(folder.exists() && folder.isDirectory())
         {
@@ -618,10 +658,10 @@ public class BusinessRulesEngine
         	for(int i=0;i<files.length;i++)
             {
         		File file = new File(files[i]);
-                parseXmlFile(file.getPath());
+                parseXmlFile(file.getPath(), parsedGroups, parsedReferenceFields);
             }
         }
-        prioritizeRuleGroups();
+        activateRuleSet(parsedGroups, parsedReferenceFields, loadStart, false);
     }
     
     /**
@@ -636,44 +676,643 @@ public class BusinessRulesEngine
     public void run(String csvfileName,String fieldSeperator) throws Exception
     {
     	status = STATUS_ENGINE_EXECUTED;
-    	// reader for the data file
-	    BufferedReader reader = new BufferedReader(new FileReader(csvfileName));
-    	String line;
+    	// the tokenizer reads the rows from the datafile and splits them
+    	// into their fields. empty lines and lines starting with a hash sign
+    	// (comment) are skipped and are not counted
+    	CsvTokenizer tokenizer = new CsvTokenizer(new FileReader(csvfileName), fieldSeperator);
     	
     	// counts number of lines in data file
 	    long counter=0;
-    	
-	    // splitter object will split the row from the datafile into
-        // its fields using the default semicolon (;) separator
-        Splitter splitter = new Splitter(Splitter.TYPE_COMMA_SEPERATED, fieldSeperator);
-
-    	while ((line=reader.readLine())!=null)
+	    try
 	    {
-        	// only if the line is not empty 
-        	// and does not start with a hash sign (comment).
-        	// otherwise the line will be NOT be processed nor counted!
-	        if(!line.trim().equals("") && !line.startsWith("#"))
-	        {
-	        	line = line.replace("\"","");
-		        // get a row object containing the fields and data
-	        	RowFieldCollection row = splitter.getRowFieldCollection(line); 
-		        // run rules on this data
-		        run("row: " + counter, row);
-		        counter++;
-	        }
-	    }	
-    	reader.close();
+	    	while (tokenizer.nextRow())
+	    	{
+	    		// get a row object containing the fields and data
+	    		RowFieldCollection row = tokenizer.getRowFieldCollection(); 
+	    		// run rules on this data
+	    		run("row: " + counter, row);
+	    		counter++;
+	    	}
+	    }
+	    finally
+	    {
+	    	tokenizer.close();
+	    }
     }
     
     /**
-     *  the prioritizer will make sure that all rulegroups that other rulegroups
-     *  depend on will be executed first.
-     *	   
+     * method runs the rules for all groups and subgroups against all objects of the list.
+     * 
+     * the list is split into batches, which are run in parallel using the fork/join pool of
+     * the engine. each batch uses its own execution context. when all batches are finished, their
+     * results and counters are merged into the collection of results of the engine.
+     * 
+     * if preserveInputOrder is set to true (the default), the results are in the same order
+     * as the objects of the list - the same as if the objects were run sequentially. otherwise the
+     * results of a batch are merged as soon as the batch is finished.
+     * 
+     * note that after a parallel run the groups of the engine do not contain the results of the
+     * last object. use the collection of results or the counters to evaluate the execution.
+     * 
+     * @param		objects			a list of objects to run the rules against
+     * @throws		Exception		exception running the rules against the objects
+     */
+    public void runParallel(List<? extends Object> objects) throws Exception
+    {
+    	status = STATUS_ENGINE_EXECUTED;
+    	RuleExecutionTask task = new RuleExecutionTask(this, objects, 0, objects.size(), 0, null);
+    	try
+    	{
+    		mergeExecutionCollection(getForkJoinPool().invoke(task));
+    	}
+    	catch(RuntimeException ex)
+    	{
+    		throw getTaskException(ex);
+    	}
+    }
+    
+    /**
+     * method runs the rules for all groups and subgroups against all objects of the iterator.
+     * 
+     * the objects are read from the iterator in the calling thread and passed in batches to tasks,
+     * which are run using the given executor - e.g. an executor starting a virtual thread for each
+     * task. each task uses its own execution context. the number of batches that are read ahead is
+     * limited, so that the objects do not have to be kept in memory.
+     * 
+     * the results are merged the same way as for the runParallel(List) method. the executor is
+     * not shut down by this method. if a task fails or the calling thread is interrupted, the
+     * remaining tasks are cancelled and the exception of the task is thrown.
+     * 
+     * @param		objects			an iterator over the objects to run the rules against
+     * @param		executor		the executor running the tasks
+     * @throws		Exception		exception running the rules against the objects
+     */
+    public void runParallel(Iterator<? extends Object> objects, ExecutorService executor) throws Exception
+    {
+    	status = STATUS_ENGINE_EXECUTED;
+    	// maximum number of batches that are read ahead and wait to be run or merged
+    	int maximumTasks = 2 * Runtime.getRuntime().availableProcessors();
+    	ArrayDeque<Future<RuleExecutionCollection>> tasks = new ArrayDeque<Future<RuleExecutionCollection>>();
+    	boolean completed = false;
+    	try
+    	{
+	    	ArrayList<Object> batch = new ArrayList<Object>(parallelBatchSize);
+	    	// counts number of objects
+	    	long counter=0;
+	    	while(objects.hasNext())
+	    	{
+	    		batch.add(objects.next());
+	    		if(batch.size()==parallelBatchSize)
+	    		{
+	    			if(tasks.size()==maximumTasks)
+	    			{
+	    				mergeExecutionCollection(tasks.poll().get());
+	    			}
+	    			tasks.add(executor.submit(createBatchTask(batch, counter)));
+	    			counter = counter + batch.size();
+	    			batch = new ArrayList<Object>(parallelBatchSize);
+	    		}
+	    	}
+	    	if(batch.size()>0)
+	    	{
+	    		tasks.add(executor.submit(createBatchTask(batch, counter)));
+	    	}
+	    	while(!tasks.isEmpty())
+	    	{
+	    		mergeExecutionCollection(tasks.poll().get());
+	    	}
+	    	completed = true;
+    	}
+    	catch(ExecutionException ex)
+    	{
+    		// pass on the exception of the task instead of the wrapper of the executor
+    		Throwable cause = ex.getCause();
+    		if(cause instanceof RuntimeException)
+    		{
+    			throw getTaskException((RuntimeException)cause);
+    		}
+    		else if(cause instanceof Exception)
+    		{
+    			throw (Exception)cause;
+    		}
+    		else if(cause instanceof Error)
+    		{
+    			throw (Error)cause;
+    		}
+    		throw ex;
+    	}
+    	catch(InterruptedException ex)
+    	{
+    		// keep the interrupted status for the caller
+    		Thread.currentThread().interrupt();
+    		throw ex;
+    	}
+    	finally
+    	{
+    		// the remaining tasks are not needed, when the objects could not all be run
+    		if(!completed)
+    		{
+    			for(Future<RuleExecutionCollection> task : tasks)
+    			{
+    				task.cancel(true);
+    			}
+    		}
+    	}
+    }
+    
+    /**
+     * creates a task running the rules against all objects of the batch
+     * 
+     * @param	batch			the objects
+     * @param	labelOffset		the running number of the first object of the batch, used for the label
+     * @return					the task
+     */
+    private Callable<RuleExecutionCollection> createBatchTask(List<Object> batch, long labelOffset)
+    {
+    	final RuleExecutionTask task = new RuleExecutionTask(this, batch, 0, batch.size(), labelOffset, null);
+    	return new Callable<RuleExecutionCollection>()
+    	{
+    		public RuleExecutionCollection call()
+    		{
+    			// the batch is not larger than the batch size, so the task runs in the calling thread
+    			return task.invoke();
+    		}
+    	};
+    }
+    
+    /**
+     * method runs the rules for all groups and subgroups against the rows of the csv file.
+     * 
+     * the file is mapped into memory and only the boundaries of the lines are determined while
+     * reading it. the lines are passed in batches - as bytes - to tasks, which are run in parallel
+     * using the fork/join pool of the engine. the tasks split the lines into their fields and run
+     * the rules against them. the number of batches that are read ahead is limited.
+     * 
+     * the results are merged the same way as for the runParallel(List) method and the labels of
+     * the rows are the same as when running the file sequentially. the file is decoded using the
+     * default charset of the platform. in contrast to the sequential run, each row must be on one
+     * line - quoted fields can not contain line breaks.
+     * 
+     * @param		csvfileName		the CSV file to use
+     * @param		fieldSeperator	the separator between the fields/columns in the csv file
+     * @throws		Exception		exception running the rules against the rows
+     */
+    public void runParallel(String csvfileName,String fieldSeperator) throws Exception
+    {
+    	status = STATUS_ENGINE_EXECUTED;
+    	ForkJoinPool pool = getForkJoinPool();
+    	// maximum number of batches that are read ahead and wait to be run or merged
+    	int maximumTasks = 2 * pool.getParallelism();
+    	ArrayDeque<ForkJoinTask<RuleExecutionCollection>> tasks = new ArrayDeque<ForkJoinTask<RuleExecutionCollection>>();
+    	
+    	MappedFileReader reader = new MappedFileReader(csvfileName);
+    	try
+    	{
+	    	ArrayList<ByteBuffer> lines = new ArrayList<ByteBuffer>(parallelBatchSize);
+	    	// counts number of lines in data file
+	    	long counter=0;
+	    	while (reader.nextLine())
+	    	{
+	    		lines.add(reader.getLineBuffer());
+	    		if(lines.size()==parallelBatchSize)
+	    		{
+	    			if(tasks.size()==maximumTasks)
+	    			{
+	    				mergeExecutionCollection(tasks.poll().join());
+	    			}
+	    			tasks.add(pool.submit(new RuleExecutionTask(this, lines, 0, lines.size(), counter, fieldSeperator)));
+	    			counter = counter + lines.size();
+	    			lines = new ArrayList<ByteBuffer>(parallelBatchSize);
+	    		}
+	    	}
+	    	if(lines.size()>0)
+	    	{
+	    		tasks.add(pool.submit(new RuleExecutionTask(this, lines, 0, lines.size(), counter, fieldSeperator)));
+	    	}
+	    	while(!tasks.isEmpty())
+	    	{
+	    		mergeExecutionCollection(tasks.poll().join());
+	    	}
+    	}
+    	catch(RuntimeException ex)
+    	{
+    		// wait for the remaining tasks, so that no task runs after the method returned
+    		while(!tasks.isEmpty())
+    		{
+    			tasks.poll().quietlyJoin();
+    		}
+    		throw getTaskException(ex);
+    	}
+    	finally
+    	{
+    		reader.close();
+    	}
+    }
+    
+    /**
+     * method runs the rules for all groups and subgroups against the records of the Avro container file.
+     * 
+     * the file is read as a stream, block by block. the schema of the file is analyzed once and the
+     * record and the row passed to the rules are reused for all records: the rules access the fields of
+     * the rows by their position. the labels of the rows are the same as for a csv file: "row: " plus the
+     * running number of the record.
+     * 
+     * @param		avroFileName	the Avro file to use
+     * @throws		Exception		exception reading the file or running the rules against the records
+     */
+    public void runAvro(String avroFileName) throws Exception
+    {
+    	status = STATUS_ENGINE_EXECUTED;
+    	AvroFileReader reader = new AvroFileReader(avroFileName);
+    	// counts number of records in the file
+    	long counter=0;
+    	try
+    	{
+    		while(reader.nextRow())
+    		{
+    			run("row: " + counter, reader.getRowFieldCollection());
+    			counter++;
+    		}
+    	}
+    	finally
+    	{
+    		reader.close();
+    	}
+    }
+    
+    /**
+     * method runs the rules for all groups and subgroups against the records of the Avro container file.
+     * 
+     * the blocks of the file are read - and uncompressed - in the calling thread, without decoding their
+     * records. they are passed in batches of at least the parallel batch size of records to tasks, which are
+     * run in parallel using the fork/join pool of the engine. the tasks decode the records and run the rules
+     * against them. the number of batches that are read ahead is limited.
+     * 
+     * the results are merged the same way as for the runParallel(List) method and the labels of the rows
+     * are the same as when running the file sequentially. the rows of all tasks share the header row of the
+     * file, so actions must not add fields to the rows.
+     * 
+     * @param		avroFileName	the Avro file to use
+     * @throws		Exception		exception reading the file or running the rules against the records
+     */
+    public void runAvroParallel(String avroFileName) throws Exception
+    {
+    	status = STATUS_ENGINE_EXECUTED;
+    	ForkJoinPool pool = getForkJoinPool();
+    	// maximum number of batches that are read ahead and wait to be run or merged
+    	int maximumTasks = 2 * pool.getParallelism();
+    	ArrayDeque<ForkJoinTask<RuleExecutionCollection>> tasks = new ArrayDeque<ForkJoinTask<RuleExecutionCollection>>();
+    	
+    	AvroFileReader reader = new AvroFileReader(avroFileName);
+    	try
+    	{
+    		ArrayList<ByteBuffer> blocks = new ArrayList<ByteBuffer>();
+    		// the number of records of the blocks of the batch
+    		long batchCount = 0;
+    		// counts number of records in the file
+    		long counter=0;
+    		while(reader.nextBlock())
+    		{
+    			blocks.add(reader.getBlock());
+    			batchCount = batchCount + reader.getBlockCount();
+    			if(batchCount>=parallelBatchSize)
+    			{
+    				if(tasks.size()==maximumTasks)
+    				{
+    					mergeExecutionCollection(tasks.poll().join());
+    				}
+    				tasks.add(pool.submit(new AvroExecutionTask(this, reader.getSchema(), reader.getHeader(), blocks, counter)));
+    				counter = counter + batchCount;
+    				blocks = new ArrayList<ByteBuffer>();
+    				batchCount = 0;
+    			}
+    		}
+    		if(blocks.size()>0)
+    		{
+    			tasks.add(pool.submit(new AvroExecutionTask(this, reader.getSchema(), reader.getHeader(), blocks, counter)));
+    		}
+    		while(!tasks.isEmpty())
+    		{
+    			mergeExecutionCollection(tasks.poll().join());
+    		}
+    	}
+    	catch(RuntimeException ex)
+    	{
+    		// wait for the remaining tasks, so that no task runs after the method returned
+    		while(!tasks.isEmpty())
+    		{
+    			tasks.poll().quietlyJoin();
+    		}
+    		throw getTaskException(ex);
+    	}
+    	finally
+    	{
+    		reader.close();
+    	}
+    }
+    
+    /**
+     * method runs the rules for all groups and subgroups against the records of the query.
+     * 
+     * the query is run using a forward-only, read-only cursor with the given fetch size, so that the
+     * records are streamed from the database instead of being kept in memory. the values of the records
+     * are copied to a RowFieldCollection - using the column labels as the names of the fields - which is
+     * reused for all records. the labels of the rows are the same as for a csv file: "row: " plus the
+     * running number of the record. the connection is not closed.
+     * 
+     * @param		connection		the connection to the database
+     * @param		sql				the query to run
+     * @param		fetchSize		the number of records the driver fetches from the database at once
+     * @return					the number of records
+     * @throws		Exception		exception reading the records or running the rules against them
+     */
+    public long runJdbc(Connection connection, String sql, int fetchSize) throws Exception
+    {
+    	status = STATUS_ENGINE_EXECUTED;
+    	ResultSetReader reader = new ResultSetReader(connection, sql, fetchSize);
+    	// counts number of records of the query
+    	long counter=0;
+    	try
+    	{
+    		while(reader.nextRow())
+    		{
+    			run("row: " + counter, reader.getRowFieldCollection());
+    			counter++;
+    		}
+    	}
+    	finally
+    	{
+    		reader.close();
+    	}
+    	return counter;
+    }
+    
+    /**
+     * method runs the rules for all groups and subgroups against the records of the partitioned query.
+     * 
+     * each partition - a range of the key - is read by a task using its own connection to the database
+     * and its own execution context. the tasks are run using the given executor, so the number of threads
+     * of the executor limits the number of connections used at the same time. the records are streamed
+     * from the database and copied to a RowFieldCollection, which is reused for all records of a partition.
+     * 
+     * the results are merged in the order of the partitions if preserveInputOrder is set to true, and
+     * otherwise as soon as a partition is finished. the labels of the rows contain the number of the partition
+     * and the running number of the record within the partition. the executor is not shut down by this method.
+     * 
+     * @param		query			the partitioned query
+     * @param		executor		the executor running the tasks
+     * @return					the number of records
+     * @throws		Exception		exception reading the records or running the rules against them
+     */
+    public long runJdbcParallel(PartitionedQuery query, ExecutorService executor) throws Exception
+    {
+    	status = STATUS_ENGINE_EXECUTED;
+    	ArrayList<JdbcExecutionTask> partitionTasks = new ArrayList<JdbcExecutionTask>();
+    	ArrayDeque<Future<RuleExecutionCollection>> tasks = new ArrayDeque<Future<RuleExecutionCollection>>();
+    	for(int i=0;i<query.getNumberOfPartitions();i++)
+    	{
+    		JdbcExecutionTask task = new JdbcExecutionTask(this, query, i);
+    		partitionTasks.add(task);
+    		tasks.add(executor.submit(task));
+    	}
+    	try
+    	{
+	    	while(!tasks.isEmpty())
+	    	{
+	    		mergeExecutionCollection(tasks.poll().get());
+	    	}
+    	}
+    	catch(ExecutionException ex)
+    	{
+    		// wait for the remaining tasks, so that no task runs after the method returned
+    		while(!tasks.isEmpty())
+    		{
+    			try
+    			{
+    				tasks.poll().get();
+    			}
+    			catch(ExecutionException tex)
+    			{
+    			}
+    		}
+    		if(ex.getCause() instanceof RuntimeException)
+    		{
+    			throw getTaskException((RuntimeException)ex.getCause());
+    		}
+    		else if(ex.getCause() instanceof Exception)
+    		{
+    			throw (Exception)ex.getCause();
+    		}
+    		throw ex;
+    	}
+    	// counts number of records of all partitions
+    	long counter=0;
+    	for(int i=0;i<partitionTasks.size();i++)
+    	{
+    		counter = counter + partitionTasks.get(i).getNumberOfRows();
+    	}
+    	return counter;
+    }
+    
+    /**
+     * method runs the rules for all groups and subgroups against the rows of the batch in
+     * columnar mode: each rule is evaluated over the complete column it refers to.
+     * 
+     * the rules must access the fields using the getFieldValue method with the name or the index
+     * of a column of the batch as the parameter. no execution results are created - the result
+     * contains the rows where the rules and groups passed or failed. the counters of the result
+     * are added to the counters of the engine. actions are not executed.
+     * 
+     * @param		batch			the batch of rows
+     * @return					the result of the execution
+     * @throws		Exception		exception running the rules against the rows
      */
-    private void prioritizeRuleGroups()
+    public ColumnBatchResult run(ColumnBatch batch) throws Exception
     {
-        RuleGroupPrioritizer prioritizer = new RuleGroupPrioritizer(groups);
-        groups = prioritizer.getPrioritizedList();
+    	status = STATUS_ENGINE_EXECUTED;
+    	ColumnBatchResult result = ColumnarExecution.run(ruleSet, batch);
+    	mergeExecutionCollection(result.getRuleExecutionCollection());
+    	return result;
+    }
+    
+    /**
+     * merges the results and counters of a parallel task into the collection of results
+     * of the engine. the tasks may call this method concurrently.
+     * 
+     * @param	results		the results of the task or null if there are none
+     */
+    void mergeExecutionCollection(RuleExecutionCollection results)
+    {
+    	if(results!=null)
+    	{
+    		synchronized(executionCollection)
+    		{
+    			executionCollection.merge(results);
+    		}
+    	}
+    }
+    
+    /**
+     * returns the exception that caused a parallel task to fail. the checked exceptions
+     * thrown when running the rules are wrapped by the tasks and are unwrapped here.
+     * 
+     * @param	ex		the exception thrown by the task
+     * @return			the original exception
+     */
+    private static Exception getTaskException(RuntimeException ex)
+    {
+    	Throwable cause = ex;
+    	while(cause!=null && cause instanceof RuntimeException)
+    	{
+    		cause = cause.getCause();
+    	}
+    	if(cause instanceof Exception)
+    	{
+    		return (Exception)cause;
+    	}
+    	else
+    	{
+    		return ex;
+    	}
+    }
+    
+    /**
+     *  creates a new rule set from the parsed groups and makes it the rule set of the engine.
+     *  
+     *  the prioritizer will make sure that all rulegroups that other rulegroups depend on
+     *  will be executed first. then the rules are compiled: the checks of the rules are resolved
+     *  and the expected values and parameters of the rules are converted once - when the rules
+     *  are loaded - and not for every object the rules run against.
+     *  
+     *  the rule set does not change and may be shared by multiple threads, each one using its own
+     *  execution context. the engine itself runs the rules using its own context, whose copies of the
+     *  groups are the groups of the engine. the groups of the rule set are not run.
+     *  
+     *  the new rule set replaces the current one only after it has been created - and validated
+     *  if requested - so that the engine never contains a partly loaded set of rules.
+     *  
+     *  @param parsedGroups				the groups parsed from the rule files
+     *  @param parsedReferenceFields	the reference fields parsed from the rule files
+     *  @param loadStart				the time the loading of the rules started
+     *  @param validate					indicator if the rule set is validated before it is activated
+     *  @throws Exception				when the rule set is not valid
+     */
+    private synchronized void activateRuleSet(ArrayList<RuleGroup> parsedGroups, ArrayList<ReferenceField> parsedReferenceFields, long loadStart, boolean validate) throws Exception
+    {
+        RuleGroupPrioritizer prioritizer = new RuleGroupPrioritizer(parsedGroups);
+        ArrayList<RuleGroup> prioritizedGroups = prioritizer.getPrioritizedList();
+        for(int i=0;i<prioritizedGroups.size();i++)
+    	{
+        	prioritizedGroups.get(i).compile();
+    	}
+        MappingCollection newMappingCollection = loadMappingCollection(prioritizedGroups);
+        RuleSet newRuleSet = new RuleSet(prioritizedGroups, parsedReferenceFields, newMappingCollection, ruleSetVersion + 1, System.currentTimeMillis() - loadStart);
+        if(validate)
+        {
+        	newRuleSet.validate();
+        }
+        ruleSetVersion++;
+        clear();
+        referenceFields = parsedReferenceFields;
+        mappingCollection = newMappingCollection;
+    	context = newRuleSet.createExecutionContext(executionCollection);
+        groups = context.getGroups();
+    	// the rule set is replaced last, so that threads creating a context see the complete rules
+    	ruleSet = newRuleSet;
+    }
+    
+    /**
+     * creates the collection of mappings for a new rule set and loads the mapping files used by the
+     * actions of the groups - so that they are not loaded while the rules are run. maps of the current
+     * collection are used again, if the files have not been modified since.
+     * 
+     * a mapping file that can not be read is not loaded here. the action using it fails when it is run.
+     * 
+     * @param groups	the groups of the new rule set
+     * @return			the collection of mappings
+     */
+    private MappingCollection loadMappingCollection(ArrayList<RuleGroup> groups)
+    {
+    	MappingCollection newMappingCollection = new MappingCollection(mappingOffHeapThreshold);
+    	for(int i=0;i<groups.size();i++)
+    	{
+    		ArrayList<XmlAction> actions = groups.get(i).getActions();
+    		for(int f=0;f<actions.size();f++)
+    		{
+    			XmlAction action = actions.get(f);
+    			// the mapping file is the last parameter of the action
+    			if(StringAction.class.getName().equals(action.getClassName()) && StringAction.METHOD_REPLACE_VALUE_FROM_MAP.equals(action.getMethodName()) && action.getParameters().size()>0)
+    			{
+    				String filename = action.getParameters().get(action.getParameters().size()-1).getValue();
+    				try
+    				{
+    					newMappingCollection.load(filename, mappingCollection);
+    				}
+    				catch(Exception ex)
+    				{
+    					logger.warn("mapping file of action [" + action.getId() + "] could not be loaded: " + filename + " - " + ex.getMessage());
+    				}
+    			}
+    		}
+    	}
+    	return newMappingCollection;
+    }
+    
+    /**
+     * returns the rule set containing the compiled groups and rules that have been
+     * loaded by the engine. the rule set can be shared by multiple threads.
+     * 
+     * @return	the rule set
+     */
+    public RuleSet getRuleSet()
+    {
+    	return ruleSet;
+    }
+    
+    /**
+     * returns the header row for the given names of fields. when the names of the fields are
+     * the same, the same header row is returned - so that rows from different sessions or
+     * sources share one header row and the fields are resolved by the rules only once.
+     * 
+     * the returned header row is shared and must not be changed. if too many different header
+     * rows are requested, new header rows are returned without being kept.
+     * 
+     * @param	fieldNames	the names of the fields
+     * @return				the header row
+     */
+    public HeaderRow getHeaderRow(String[] fieldNames)
+    {
+    	List<String> key = Arrays.asList(fieldNames.clone());
+    	HeaderRow header = headerRows.get(key);
+    	if(header==null)
+    	{
+    		header = new HeaderRow(fieldNames);
+    		if(headerRows.size()<MAXIMUM_NUMBER_OF_HEADER_ROWS)
+    		{
+    			HeaderRow existingHeader = headerRows.putIfAbsent(key, header);
+    			if(existingHeader!=null)
+    			{
+    				header = existingHeader;
+    			}
+    		}
+    	}
+    	return header;
+    }
+    
+    /**
+     * creates a new context to run the rules that have been loaded by the engine. the context
+     * uses the settings of the engine - output type, timestamp format and if the results shall be preserved.
+     * 
+     * multiple threads can run the same rules, each one using its own context. the results
+     * and counters of a context are independent of the engine and of other contexts.
+     * 
+     * @return	a new execution context
+     */
+    public RuleExecutionContext createExecutionContext()
+    {
+    	RuleExecutionContext executionContext = ruleSet.createExecutionContext();
+    	applyContextSettings(executionContext);
+    	return executionContext;
     }
     
     /**
@@ -709,47 +1348,54 @@ public class BusinessRulesEngine
     }
     
     /**
-     * applies settings of the ruleengine to one rulegroup
+     * applies settings of the ruleengine to an execution context
      * 
-     * @param	group	a rulegroup
+     * @param	executionContext	the context to run the rules
      */
-    private void applyGroupSettings(RuleGroup group)
+    private void applyContextSettings(RuleExecutionContext executionContext)
     {
-    		group.setTimestampFormat(timestampFormat);
-            group.setOutputType(outputType);
-            group.setPreserveRuleExcecutionResults(preserveRuleExcecutionResults);
+    	executionContext.setTimestampFormat(timestampFormat);
+    	executionContext.setOutputType(outputType);
+    	executionContext.setPreserveRuleExcecutionResults(preserveRuleExcecutionResults);
+    	executionContext.setShortCircuitEvaluation(shortCircuitEvaluation);
+    	executionContext.setAdaptiveRuleOrder(adaptiveRuleOrder);
+    	executionContext.setMetrics(metrics);
     }
     
     /**
      * method is used to parse the given xml file
      * 
-     * @param		filename	path and name of the xml file
+     * @param		filename				path and name of the xml file
+     * @param		parsedGroups			the list the parsed groups are added to
+     * @param		parsedReferenceFields	the list the parsed reference fields are added to
      * @exception	Exception	exception when the xml file could not be parsed
      */
-    private void parseXmlFile(String filename)throws Exception
+    private void parseXmlFile(String filename, ArrayList<RuleGroup> parsedGroups, ArrayList<ReferenceField> parsedReferenceFields)throws Exception
     {
         // create a parser object to parse the xml file
         Parser parser = new Parser(replacer);
         parser.parse(filename); 
         
-        groups.addAll(parser.getGroups());
-        referenceFields.addAll(parser.getReferenceFields());
+        parsedGroups.addAll(parser.getGroups());
+        parsedReferenceFields.addAll(parser.getReferenceFields());
     }
     
     /**
      * method is used to parse the given xml input stream
      * 
-     * @param		stream		the input stream to parse from
+     * @param		stream					the input stream to parse from
+     * @param		parsedGroups			the list the parsed groups are added to
+     * @param		parsedReferenceFields	the list the parsed reference fields are added to
      * @exception	Exception	exception when the inputstream could not be parsed
      */
-    private void parseXmlInputStream(InputStream stream)throws Exception
+    private void parseXmlInputStream(InputStream stream, ArrayList<RuleGroup> parsedGroups, ArrayList<ReferenceField> parsedReferenceFields)throws Exception
     {
         // create a parser object to parse the xml input stream
         Parser parser = new Parser(replacer);
         parser.parse(stream); 
         
-        groups.addAll(parser.getGroups());
-        referenceFields.addAll(parser.getReferenceFields());
+        parsedGroups.addAll(parser.getGroups());
+        parsedReferenceFields.addAll(parser.getReferenceFields());
     }
     
     /**
@@ -863,6 +1509,75 @@ public class BusinessRulesEngine
     	executionCollection.setPreserveRuleExcecutionResults(preserveRuleExcecutionResults);
     }
     
+    /**
+     * indicator if the subgroups and rules are only run until the outcome of the group is decided
+     * 
+     * @return indicator if short-circuit evaluation is used
+     */
+    public boolean getShortCircuitEvaluation()
+    {
+    	return shortCircuitEvaluation;
+    }
+    
+    /**
+     * sets if the subgroups and rules are only run until the outcome of the group is decided.
+     * 
+     * the outcome of the groups and subgroups and the counters of passed and failed groups are the
+     * same as when all rules are run. but the counters and results of the rules only contain the rules
+     * that were run, so this mode should be used when the outcome of the groups is of interest and not
+     * the result of each single rule. default is false.
+     * 
+     * @param	shortCircuitEvaluation indicator if short-circuit evaluation shall be used
+     */
+    public void setShortCircuitEvaluation(boolean shortCircuitEvaluation)
+    {
+    	this.shortCircuitEvaluation = shortCircuitEvaluation;
+    }
+    
+    /**
+     * indicator if the order of the rules is adjusted by their measured cost and selectivity
+     * 
+     * @return indicator if the adaptive rule order is used
+     */
+    public boolean getAdaptiveRuleOrder()
+    {
+    	return adaptiveRuleOrder;
+    }
+    
+    /**
+     * sets if the order of the rules is adjusted by their measured cost and selectivity, so that
+     * rules which decide the outcome of a subgroup cheaply are run first. this is only used together
+     * with short-circuit evaluation. default is false.
+     * 
+     * @param	adaptiveRuleOrder indicator if the adaptive rule order shall be used
+     */
+    public void setAdaptiveRuleOrder(boolean adaptiveRuleOrder)
+    {
+    	this.adaptiveRuleOrder = adaptiveRuleOrder;
+    }
+    
+    /**
+     * returns the metrics in which the executions of the groups, subgroups, rules and actions are recorded
+     * 
+     * @return the metrics or null if no metrics are collected
+     */
+    public RuleEngineMetrics getMetrics()
+    {
+    	return metrics;
+    }
+    
+    /**
+     * sets the metrics in which the number of executions, the failures and the execution time of the groups,
+     * subgroups, rules and actions are recorded. the metrics are used by the engine and by the execution contexts
+     * created afterwards. they are kept when the rules are reloaded. default is null - no metrics are collected.
+     * 
+     * @param	metrics the metrics or null if no metrics shall be collected
+     */
+    public void setMetrics(RuleEngineMetrics metrics)
+    {
+    	this.metrics = metrics;
+    }
+    
     /**
      * method returns the list of groups as defined in the xml file
      * 
@@ -1295,6 +2010,80 @@ public class BusinessRulesEngine
         this.timestampFormat = timestampFormat;
     }
     
+    /**
+     * returns the fork/join pool used to run the rules in parallel.
+     * if no pool has been set, the common pool is returned.
+     * 
+     * @return	the fork/join pool
+     */
+    public ForkJoinPool getForkJoinPool()
+    {
+    	if(forkJoinPool!=null)
+    	{
+    		return forkJoinPool;
+    	}
+    	else
+    	{
+    		return ForkJoinPool.commonPool();
+    	}
+    }
+    
+    /**
+     * sets the fork/join pool used to run the rules in parallel.
+     * set to null to use the common pool.
+     * 
+     * @param	forkJoinPool	the fork/join pool
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool)
+    {
+    	this.forkJoinPool = forkJoinPool;
+    }
+    
+    /**
+     * returns the number of objects a task runs the rules against when running in parallel
+     * 
+     * @return	the size of a batch
+     */
+    public int getParallelBatchSize()
+    {
+    	return parallelBatchSize;
+    }
+    
+    /**
+     * sets the number of objects a task runs the rules against when running in parallel.
+     * larger batches reduce the overhead of creating tasks and execution contexts, smaller
+     * batches distribute the work more evenly. values smaller than one are treated as one.
+     * 
+     * @param	parallelBatchSize	the size of a batch
+     */
+    public void setParallelBatchSize(int parallelBatchSize)
+    {
+    	this.parallelBatchSize = Math.max(1, parallelBatchSize);
+    }
+    
+    /**
+     * indicator if the results of a parallel run are kept in the order of the input objects
+     * 
+     * @return	indicator if the input order is preserved
+     */
+    public boolean getPreserveInputOrder()
+    {
+    	return preserveInputOrder;
+    }
+    
+    /**
+     * sets the indicator if the results of a parallel run are kept in the order of the input objects.
+     * 
+     * if set to false the results of each batch are merged as soon as the batch is finished, which
+     * requires less memory but the order of the results is undefined.
+     * 
+     * @param	preserveInputOrder	indicator if the input order shall be preserved
+     */
+    public void setPreserveInputOrder(boolean preserveInputOrder)
+    {
+    	this.preserveInputOrder = preserveInputOrder;
+    }
+    
     /**
      * load the properties for the rule engine from the given filename
      * 
@@ -1316,6 +2105,17 @@ public class BusinessRulesEngine
 	    
 	    objectsLabel = props.getProperty(PROPERTY_OBJECT_LABEL);
 	    objectsLabelNumberFormat = props.getProperty(PROPERTY_OBJECT_LABEL_FORMAT); 
+	    
+	    shortCircuitEvaluation = Boolean.parseBoolean(props.getProperty(PROPERTY_SHORT_CIRCUIT_EVALUATION));
+	    adaptiveRuleOrder = Boolean.parseBoolean(props.getProperty(PROPERTY_ADAPTIVE_RULE_ORDER));
+	    if(props.getProperty(PROPERTY_MAPPING_OFFHEAP_THRESHOLD)!=null)
+	    {
+	    	mappingOffHeapThreshold = Long.parseLong(props.getProperty(PROPERTY_MAPPING_OFFHEAP_THRESHOLD).trim());
+	    }
+	    if(Boolean.parseBoolean(props.getProperty(PROPERTY_METRICS_ENABLED)) && metrics==null)
+	    {
+	    	metrics = new RuleEngineMetrics();
+	    }
 
 	    if (replacementsFile!=null)
         {
@@ -1479,5 +2279,26 @@ public class BusinessRulesEngine
 	{
 		return mappingCollection;
 	}
+	
+	/**
+	 * returns the size of a mapping file in bytes above which the mappings are kept off the heap
+	 * 
+	 * @return		the threshold. zero if all mappings are kept on the heap
+	 */
+	public long getMappingOffHeapThreshold()
+	{
+		return mappingOffHeapThreshold;
+	}
+	
+	/**
+	 * sets the size of a mapping file in bytes above which the mappings are kept off the heap.
+	 * the setting is used for the mapping files of rule sets loaded afterwards.
+	 * 
+	 * @param mappingOffHeapThreshold	the threshold. zero keeps all mappings on the heap
+	 */
+	public void setMappingOffHeapThreshold(long mappingOffHeapThreshold)
+	{
+		this.mappingOffHeapThreshold = mappingOffHeapThreshold;
+	}
 
 }
@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.engine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * a ColumnBatch contains the values of a number of rows, laid out as typed columns. it is used to
+ * run the rules in columnar mode: each rule is evaluated over a complete column instead of row by row.
+ * <p>
+ * a column is an array of long, double or String values. the values that are null are marked in a
+ * bitmap - one bit per row. for String columns, values that are null in the array are also treated
+ * as null.
+ * <p>
+ * the columns are identified by their name or by their index - in the order they were added. a rule
+ * accesses a column the same way it accesses the field of a RowFieldCollection: using the getFieldValue
+ * method with the name or the index of the field as the parameter.
+ * <p>
+ * example:
+ * <p>
+ * ColumnBatch batch = new ColumnBatch(3);
+ * batch.addColumn("amount", new long[] {100, 250, 75}, null);
+ * batch.addColumn("city", new String[] {"Hamburg", null, "Denver"}, null);
+ * ColumnBatchResult result = engine.run(batch);
+ * <p>
+ * the arrays are not copied. they must not be changed while the rules are run.
+ *
+ * @author uwe geercken
+ */
+public class ColumnBatch
+{
+	static final int TYPE_LONG		= 0;
+	static final int TYPE_DOUBLE	= 1;
+	static final int TYPE_STRING	= 2;
+
+	private final int numberOfRows;
+	private final ArrayList<Column> columns = new ArrayList<Column>();
+	private final HashMap<String,Integer> columnIndexes = new HashMap<String,Integer>();
+
+	/**
+	 * constructor for a batch with the given number of rows
+	 *
+	 * @param numberOfRows		the number of rows of the batch
+	 */
+	public ColumnBatch(int numberOfRows)
+	{
+		this.numberOfRows = numberOfRows;
+	}
+
+	/**
+	 * adds a column of long values
+	 *
+	 * @param name			the name of the column
+	 * @param values		the values of the column - one per row
+	 * @param nulls			bitmap of the rows where the value is null. may be null if there are no null values
+	 * @throws Exception	when the number of values does not match the number of rows of the batch
+	 */
+	public void addColumn(String name, long[] values, BitSet nulls) throws Exception
+	{
+		checkLength(name, values.length);
+		addColumn(new Column(name, TYPE_LONG, values, null, null, nulls));
+	}
+
+	/**
+	 * adds a column of double values
+	 *
+	 * @param name			the name of the column
+	 * @param values		the values of the column - one per row
+	 * @param nulls			bitmap of the rows where the value is null. may be null if there are no null values
+	 * @throws Exception	when the number of values does not match the number of rows of the batch
+	 */
+	public void addColumn(String name, double[] values, BitSet nulls) throws Exception
+	{
+		checkLength(name, values.length);
+		addColumn(new Column(name, TYPE_DOUBLE, null, values, null, nulls));
+	}
+
+	/**
+	 * adds a column of String values. values that are null in the array are treated as null
+	 * values - the same as the values marked in the bitmap.
+	 *
+	 * @param name			the name of the column
+	 * @param values		the values of the column - one per row
+	 * @param nulls			bitmap of the rows where the value is null. may be null
+	 * @throws Exception	when the number of values does not match the number of rows of the batch
+	 */
+	public void addColumn(String name, String[] values, BitSet nulls) throws Exception
+	{
+		checkLength(name, values.length);
+		BitSet allNulls = new BitSet(numberOfRows);
+		if(nulls!=null)
+		{
+			allNulls.or(nulls);
+		}
+		for(int i=0;i<values.length;i++)
+		{
+			if(values[i]==null)
+			{
+				allNulls.set(i);
+			}
+		}
+		addColumn(new Column(name, TYPE_STRING, null, null, values, allNulls));
+	}
+
+	private void checkLength(String name, int length) throws Exception
+	{
+		if(length!=numberOfRows)
+		{
+			throw new Exception("column [" + name + "] has " + length + " values. number of rows of the batch is: " + numberOfRows);
+		}
+	}
+
+	private void addColumn(Column column)
+	{
+		// the first column with a given name is used when accessing columns by name
+		if(!columnIndexes.containsKey(column.name))
+		{
+			columnIndexes.put(column.name, columns.size());
+		}
+		columns.add(column);
+	}
+
+	/**
+	 * returns the number of rows of the batch
+	 *
+	 * @return		the number of rows
+	 */
+	public int getNumberOfRows()
+	{
+		return numberOfRows;
+	}
+
+	/**
+	 * returns the number of columns of the batch
+	 *
+	 * @return		the number of columns
+	 */
+	public int getNumberOfColumns()
+	{
+		return columns.size();
+	}
+
+	/**
+	 * returns the index of the column with the given name
+	 *
+	 * @param name		the name of the column
+	 * @return			the index of the column or -1 if there is no column with that name
+	 */
+	public int getColumnIndex(String name)
+	{
+		Integer index = columnIndexes.get(name);
+		if(index!=null)
+		{
+			return index;
+		}
+		else
+		{
+			return -1;
+		}
+	}
+
+	/**
+	 * returns the name of the column with the given index
+	 *
+	 * @param index		the index of the column
+	 * @return			the name of the column
+	 */
+	public String getColumnName(int index)
+	{
+		return columns.get(index).name;
+	}
+
+	/**
+	 * returns the column with the given index
+	 *
+	 * @param index		the index of the column
+	 * @return			the column
+	 */
+	Column getColumn(int index)
+	{
+		return columns.get(index);
+	}
+
+	/**
+	 * a typed column of the batch. only the array of the type of the column is set.
+	 */
+	static final class Column
+	{
+		final String name;
+		final int type;
+		final long[] longValues;
+		final double[] doubleValues;
+		final String[] stringValues;
+		// the rows where the value is null or null if there are none
+		final BitSet nulls;
+
+		Column(String name, int type, long[] longValues, double[] doubleValues, String[] stringValues, BitSet nulls)
+		{
+			this.name = name;
+			this.type = type;
+			this.longValues = longValues;
+			this.doubleValues = doubleValues;
+			this.stringValues = stringValues;
+			this.nulls = nulls!=null && !nulls.isEmpty() ? nulls : null;
+		}
+
+		/**
+		 * returns the value of the given row - as an object - or null if the value is null
+		 *
+		 * @param row	the row
+		 * @return		the value
+		 */
+		Object getValue(int row)
+		{
+			if(nulls!=null && nulls.get(row))
+			{
+				return null;
+			}
+			else if(type==TYPE_LONG)
+			{
+				return longValues[row];
+			}
+			else if(type==TYPE_DOUBLE)
+			{
+				return doubleValues[row];
+			}
+			else
+			{
+				return stringValues[row];
+			}
+		}
+	}
+}
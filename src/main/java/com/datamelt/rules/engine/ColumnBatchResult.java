@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.engine;
+
+import java.util.BitSet;
+import java.util.HashMap;
+
+import com.datamelt.rules.core.RuleExecutionCollection;
+
+/**
+ * the result of running the rules against a ColumnBatch.
+ * <p>
+ * instead of one execution result per rule and row, the result contains one bitmap per rule with the
+ * rows where the rule passed and one bitmap per group with the rows where the group failed. the rows
+ * are identified by their index in the batch.
+ * <p>
+ * the counters of the result are the same as if the rules had been run row by row.
+ *
+ * @author uwe geercken
+ */
+public class ColumnBatchResult
+{
+	private final int numberOfRows;
+	// the rows where a rule passed, by subgroup id and rule id
+	private final HashMap<String,BitSet> rulesPassed = new HashMap<String,BitSet>();
+	// the rows where a group failed and where it was skipped, by group id
+	private final HashMap<String,BitSet> groupsFailed = new HashMap<String,BitSet>();
+	private final HashMap<String,BitSet> groupsSkipped = new HashMap<String,BitSet>();
+	// the rows where at least one group failed
+	private final BitSet rowsFailed;
+	// the counters of the execution. the collection does not contain results
+	private final RuleExecutionCollection executionCollection = new RuleExecutionCollection();
+
+	/**
+	 * constructor for the result of a batch with the given number of rows
+	 *
+	 * @param numberOfRows		the number of rows of the batch
+	 */
+	ColumnBatchResult(int numberOfRows)
+	{
+		this.numberOfRows = numberOfRows;
+		this.rowsFailed = new BitSet(numberOfRows);
+	}
+
+	private static String getRuleKey(String subgroupId, String ruleId)
+	{
+		return subgroupId + "/" + ruleId;
+	}
+
+	void setRulePassed(String subgroupId, String ruleId, BitSet passed)
+	{
+		rulesPassed.put(getRuleKey(subgroupId, ruleId), passed);
+	}
+
+	void setGroupResult(String groupId, BitSet failed, BitSet skipped)
+	{
+		groupsFailed.put(groupId, failed);
+		groupsSkipped.put(groupId, skipped);
+		rowsFailed.or(failed);
+	}
+
+	/**
+	 * returns the number of rows of the batch
+	 *
+	 * @return		the number of rows
+	 */
+	public int getNumberOfRows()
+	{
+		return numberOfRows;
+	}
+
+	/**
+	 * returns the rows where the given rule of the given subgroup passed. rows where the rule
+	 * was not run - because the group was skipped - are not set.
+	 *
+	 * @param subgroupId	the id of the subgroup
+	 * @param ruleId		the id of the rule
+	 * @return				bitmap of the rows or null if the rule does not exist
+	 */
+	public BitSet getRulePassed(String subgroupId, String ruleId)
+	{
+		return rulesPassed.get(getRuleKey(subgroupId, ruleId));
+	}
+
+	/**
+	 * returns the rows where the given group failed
+	 *
+	 * @param groupId	the id of the group
+	 * @return			bitmap of the rows or null if the group does not exist
+	 */
+	public BitSet getGroupFailed(String groupId)
+	{
+		return groupsFailed.get(groupId);
+	}
+
+	/**
+	 * returns the rows where the given group was skipped, because the group it depends on
+	 * did not have the expected result
+	 *
+	 * @param groupId	the id of the group
+	 * @return			bitmap of the rows or null if the group does not exist
+	 */
+	public BitSet getGroupSkipped(String groupId)
+	{
+		return groupsSkipped.get(groupId);
+	}
+
+	/**
+	 * returns the rows where at least one group failed
+	 *
+	 * @return		bitmap of the rows
+	 */
+	public BitSet getRowsFailed()
+	{
+		return rowsFailed;
+	}
+
+	/**
+	 * returns the collection with the counters of the execution. the collection does not contain
+	 * any execution results.
+	 *
+	 * @return		the collection
+	 */
+	public RuleExecutionCollection getRuleExecutionCollection()
+	{
+		return executionCollection;
+	}
+
+	/**
+	 * returns the number of rules that ran
+	 *
+	 * @return	number of rules that ran
+	 */
+	public long getNumberOfRulesRun()
+	{
+		return executionCollection.getRulesRunCount();
+	}
+
+	/**
+	 * returns the number of rules that failed
+	 *
+	 * @return	number of rules that failed
+	 */
+	public long getNumberOfRulesFailed()
+	{
+		return executionCollection.getRulesFailedCount();
+	}
+
+	/**
+	 * returns the number of rules that passed
+	 *
+	 * @return	number of rules that passed
+	 */
+	public long getNumberOfRulesPassed()
+	{
+		return executionCollection.getRulesPassedCount();
+	}
+
+	/**
+	 * returns the number of groups that failed
+	 *
+	 * @return	number of groups that failed
+	 */
+	public long getNumberOfGroupsFailed()
+	{
+		return executionCollection.getFailedGroupsCount();
+	}
+
+	/**
+	 * returns the number of groups that passed
+	 *
+	 * @return	number of groups that passed
+	 */
+	public long getNumberOfGroupsPassed()
+	{
+		return executionCollection.getPassedGroupsCount();
+	}
+
+	/**
+	 * returns the number of groups that were skipped
+	 *
+	 * @return	number of groups that were skipped
+	 */
+	public long getNumberOfGroupsSkipped()
+	{
+		return executionCollection.getSkippedGroupsCount();
+	}
+}
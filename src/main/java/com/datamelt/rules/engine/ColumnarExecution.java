@@ -0,0 +1,659 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.engine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import com.datamelt.rules.core.CompiledCheck;
+import com.datamelt.rules.core.RuleGroup;
+import com.datamelt.rules.core.RuleObject;
+import com.datamelt.rules.core.RuleSubGroup;
+import com.datamelt.rules.core.XmlRule;
+import com.datamelt.util.ClassUtility;
+import com.datamelt.util.FieldNotFoundException;
+
+/**
+ * runs the rules of a RuleSet against the columns of a ColumnBatch.
+ * <p>
+ * each rule is evaluated over the complete column it refers to, which results in a bitmap of the
+ * rows where the rule passed. the bitmaps of the rules are combined according to the logical operators
+ * of the subgroups (rules) and of the groups (subgroups) - the same way the RuleSubGroup and RuleGroup
+ * classes combine the results of a single row.
+ * <p>
+ * the numeric checks CheckIsGreater, CheckIsGreaterOrEqual, CheckIsSmaller, CheckIsSmallerOrEqual,
+ * CheckIsBetween and CheckIsNotBetween are evaluated directly on the long or double arrays of the columns,
+ * if the rule defines the same type (long or double) for the value as the column has. all other checks
+ * are invoked for each row, using the compiled check of the rule.
+ * <p>
+ * groups that depend on another group are run for the rows where the other group has the expected result.
+ * the other group must be defined before the dependent group. actions are not executed in columnar mode.
+ *
+ * @author uwe geercken
+ */
+final class ColumnarExecution
+{
+	private static final String METHOD_GET_FIELD_VALUE		= "getFieldValue";
+
+	// the checks that are evaluated directly on the arrays of the columns
+	private static final String[] CHECKS = {
+			"com.datamelt.rules.implementation.CheckIsGreater",
+			"com.datamelt.rules.implementation.CheckIsGreaterOrEqual",
+			"com.datamelt.rules.implementation.CheckIsSmaller",
+			"com.datamelt.rules.implementation.CheckIsSmallerOrEqual",
+			"com.datamelt.rules.implementation.CheckIsBetween",
+			"com.datamelt.rules.implementation.CheckIsNotBetween"};
+
+	private static final int CHECK_IS_GREATER				= 0;
+	private static final int CHECK_IS_GREATER_OR_EQUAL		= 1;
+	private static final int CHECK_IS_SMALLER				= 2;
+	private static final int CHECK_IS_SMALLER_OR_EQUAL		= 3;
+	private static final int CHECK_IS_BETWEEN				= 4;
+	private static final int CHECK_IS_NOT_BETWEEN			= 5;
+
+	private ColumnarExecution()
+	{
+	}
+
+	/**
+	 * runs the rules of all groups of the rule set against the rows of the batch
+	 *
+	 * @param ruleSet		the rule set
+	 * @param batch			the batch of rows
+	 * @return				the result of the execution
+	 * @throws Exception	when a rule can not be run in columnar mode or the check of a rule can not be invoked
+	 */
+	static ColumnBatchResult run(RuleSet ruleSet, ColumnBatch batch) throws Exception
+	{
+		int numberOfRows = batch.getNumberOfRows();
+		ColumnBatchResult result = new ColumnBatchResult(numberOfRows);
+		List<RuleGroup> groups = ruleSet.getGroups();
+
+		BitSet allRows = new BitSet(numberOfRows);
+		allRows.set(0, numberOfRows);
+		// the failed state of each group after each row. this is the state a dependent group sees
+		ArrayList<BitSet> groupStates = new ArrayList<BitSet>(groups.size());
+
+		for(int i=0;i<groups.size();i++)
+		{
+			RuleGroup group = groups.get(i);
+
+			// the rows the group is run for
+			BitSet rows = allRows;
+			if(group.getDependentRuleGroupId()!=null && !group.getDependentRuleGroupId().equals(""))
+			{
+				int dependentGroupIndex = getGroupIndex(groups, group.getDependentRuleGroupId());
+				if(dependentGroupIndex>=i)
+				{
+					throw new Exception("rulegroup [" + group.getId() + "] depends on rulegroup [" + group.getDependentRuleGroupId() + "], which is not defined before it. this is not supported in columnar mode");
+				}
+				else if(dependentGroupIndex>=0)
+				{
+					BitSet dependentGroupFailed = groupStates.get(dependentGroupIndex);
+					if(group.getDependentRuleGroupExecuteIf()==RuleGroup.TYPE_FAILED)
+					{
+						rows = (BitSet)dependentGroupFailed.clone();
+					}
+					else
+					{
+						rows = (BitSet)allRows.clone();
+						rows.andNot(dependentGroupFailed);
+					}
+				}
+			}
+			BitSet skipped = (BitSet)allRows.clone();
+			skipped.andNot(rows);
+
+			BitSet failed = (BitSet)rows.clone();
+			failed.andNot(runGroup(group, batch, rows, result));
+
+			int rowsRun = rows.cardinality();
+			int rowsFailed = failed.cardinality();
+			result.getRuleExecutionCollection().addNumberOfGroupsFailed(rowsFailed);
+			result.getRuleExecutionCollection().addNumberOfGroupsPassed(rowsRun - rowsFailed);
+			result.getRuleExecutionCollection().addNumberOfGroupsSkipped(numberOfRows - rowsRun);
+			result.setGroupResult(group.getId(), failed, skipped);
+
+			if(skipped.isEmpty())
+			{
+				groupStates.add(failed);
+			}
+			else
+			{
+				// a group that is skipped keeps the state of the last row it was run for
+				groupStates.add(getGroupState(group, failed, rows, numberOfRows));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * returns the index of the group with the given id
+	 *
+	 * @param groups	the list of groups
+	 * @param groupId	the id of the group
+	 * @return			the index of the group or -1 if it does not exist
+	 */
+	private static int getGroupIndex(List<RuleGroup> groups, String groupId)
+	{
+		for(int i=0;i<groups.size();i++)
+		{
+			if(groups.get(i).getId().equals(groupId))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * determines the failed state of a group for all rows. for the rows the group was not run for,
+	 * the state is the one of the last row the group was run for. before the group was run the first
+	 * time, the state is the one of a group without results.
+	 *
+	 * @param group			the group
+	 * @param failed		the rows where the group failed
+	 * @param rows			the rows the group was run for
+	 * @param numberOfRows	the number of rows
+	 * @return				the rows where the state of the group is failed
+	 */
+	private static BitSet getGroupState(RuleGroup group, BitSet failed, BitSet rows, int numberOfRows)
+	{
+		// the subgroups of a group without results: with 'and' they pass, with 'or' they pass if they have rules
+		boolean state = false;
+		for(int i=0;i<group.getSubGroups().size();i++)
+		{
+			RuleSubGroup subGroup = group.getSubGroups().get(i);
+			boolean subGroupFailed = subGroup.getLogicalOperatorRules()==RuleSubGroup.OPERATOR_OR && subGroup.getRulesCollection().getRules().size()==0;
+			if(i==0)
+			{
+				state = subGroupFailed;
+			}
+			else if(subGroup.getLogicalOperatorSubGroup()==RuleSubGroup.OPERATOR_AND)
+			{
+				state = state || subGroupFailed;
+			}
+			else
+			{
+				state = state && subGroupFailed;
+			}
+		}
+
+		BitSet groupState = new BitSet(numberOfRows);
+		for(int row=0;row<numberOfRows;row++)
+		{
+			if(rows.get(row))
+			{
+				state = failed.get(row);
+			}
+			if(state)
+			{
+				groupState.set(row);
+			}
+		}
+		return groupState;
+	}
+
+	/**
+	 * runs the rules of all subgroups of the group and combines the results of the subgroups
+	 *
+	 * @param group			the group
+	 * @param batch			the batch of rows
+	 * @param rows			the rows to run the rules for
+	 * @param result		the result that receives the results of the rules and the counters
+	 * @return				the rows where the group passed
+	 * @throws Exception	when a rule can not be run
+	 */
+	private static BitSet runGroup(RuleGroup group, ColumnBatch batch, BitSet rows, ColumnBatchResult result) throws Exception
+	{
+		BitSet groupPassed = (BitSet)rows.clone();
+		for(int i=0;i<group.getSubGroups().size();i++)
+		{
+			RuleSubGroup subGroup = group.getSubGroups().get(i);
+			BitSet subGroupPassed = runSubGroup(subGroup, batch, rows, result);
+			if(i==0)
+			{
+				groupPassed = subGroupPassed;
+			}
+			else if(subGroup.getLogicalOperatorSubGroup()==RuleSubGroup.OPERATOR_AND)
+			{
+				groupPassed.and(subGroupPassed);
+			}
+			else
+			{
+				groupPassed.or(subGroupPassed);
+			}
+		}
+		return groupPassed;
+	}
+
+	/**
+	 * runs the rules of the subgroup and combines their results
+	 *
+	 * @param subGroup		the subgroup
+	 * @param batch			the batch of rows
+	 * @param rows			the rows to run the rules for
+	 * @param result		the result that receives the results of the rules and the counters
+	 * @return				the rows where the subgroup passed
+	 * @throws Exception	when a rule can not be run
+	 */
+	private static BitSet runSubGroup(RuleSubGroup subGroup, ColumnBatch batch, BitSet rows, ColumnBatchResult result) throws Exception
+	{
+		boolean operatorAnd = subGroup.getLogicalOperatorRules()==RuleSubGroup.OPERATOR_AND;
+		BitSet subGroupPassed = operatorAnd ? (BitSet)rows.clone() : new BitSet(batch.getNumberOfRows());
+		int rowsRun = rows.cardinality();
+
+		ArrayList<XmlRule> rules = subGroup.getRulesCollection().getRules();
+		for(int i=0;i<rules.size();i++)
+		{
+			XmlRule rule = rules.get(i);
+			BitSet rulePassed = runRule(rule, batch, rows);
+			if(operatorAnd)
+			{
+				subGroupPassed.and(rulePassed);
+			}
+			else
+			{
+				subGroupPassed.or(rulePassed);
+			}
+
+			int rowsPassed = rulePassed.cardinality();
+			result.setRulePassed(subGroup.getId(), rule.getId(), rulePassed);
+			result.getRuleExecutionCollection().addNumberOfRulesRun(rowsRun);
+			result.getRuleExecutionCollection().addNumberOfRulesPassed(rowsPassed);
+			result.getRuleExecutionCollection().addNumberOfRulesFailed(rowsRun - rowsPassed);
+		}
+		return subGroupPassed;
+	}
+
+	/**
+	 * runs the rule for the given rows
+	 *
+	 * @param rule			the rule
+	 * @param batch			the batch of rows
+	 * @param rows			the rows to run the rule for
+	 * @return				the rows where the rule passed
+	 * @throws Exception	when the rule can not be run
+	 */
+	private static BitSet runRule(XmlRule rule, ColumnBatch batch, BitSet rows) throws Exception
+	{
+		CompiledCheck compiledCheck = rule.getCompiledCheck();
+
+		ColumnBatch.Column column1 = getColumn(rule, 0, batch);
+		ColumnBatch.Column column2 = null;
+		if(rule.getRuleObjects().size()>1)
+		{
+			column2 = getColumn(rule, 1, batch);
+		}
+
+		if(compiledCheck.getMethodError()!=null)
+		{
+			throw new Exception("error rule: [" + rule.getId() + "] creating method from xml rule " + compiledCheck.getMethodError());
+		}
+
+		BitSet passed = evaluateColumn(rule, compiledCheck, column1, batch.getNumberOfRows());
+		if(passed!=null)
+		{
+			if(column1.nulls!=null)
+			{
+				if(compiledCheck.getPassesOnNullValue())
+				{
+					passed.or(column1.nulls);
+				}
+				else
+				{
+					passed.andNot(column1.nulls);
+				}
+			}
+			passed.and(rows);
+			return passed;
+		}
+
+		// the check is invoked for each row
+		passed = new BitSet(batch.getNumberOfRows());
+		for(int row=rows.nextSetBit(0);row>=0;row=rows.nextSetBit(row+1))
+		{
+			Object result1 = column1.getValue(row);
+			Object result2 = null;
+			if(column2!=null)
+			{
+				result2 = column2.getValue(row);
+			}
+
+			Object value1;
+			Object value2;
+			try
+			{
+				value1 = compiledCheck.convertValue1(result1);
+				value2 = compiledCheck.convertValue2(result2);
+			}
+			catch(Exception ex)
+			{
+				throw new Exception("error rule: [" + rule.getId() + "] creating method arguments from xml rule " + ex.getMessage());
+			}
+
+			boolean result;
+			if(value1!=null)
+			{
+				try
+				{
+					result = compiledCheck.evaluate(value1, value2);
+				}
+				catch(Exception ex)
+				{
+					throw new Exception("error invoking method on rule: [" + rule.getId() + "]: " + ex.getMessage());
+				}
+			}
+			else
+			{
+				result = compiledCheck.getPassesOnNullValue();
+			}
+			if(result)
+			{
+				passed.set(row);
+			}
+		}
+		return passed;
+	}
+
+	/**
+	 * returns the column that the given rule object of the rule refers to. the rule object must
+	 * use the getFieldValue method with the name or the index of the field as the parameter.
+	 *
+	 * @param rule			the rule
+	 * @param number		the number of the rule object
+	 * @param batch			the batch of rows
+	 * @return				the column
+	 * @throws Exception	when the rule object does not refer to a column of the batch
+	 */
+	private static ColumnBatch.Column getColumn(XmlRule rule, int number, ColumnBatch batch) throws Exception
+	{
+		RuleObject ruleObject = rule.getRuleObjects().get(number);
+		Object[] parameterValues = ruleObject.getParameterValues();
+		if(METHOD_GET_FIELD_VALUE.equals(ruleObject.getMethodName()) && parameterValues!=null && parameterValues.length==1)
+		{
+			int index = -1;
+			if(parameterValues[0] instanceof String)
+			{
+				index = batch.getColumnIndex((String)parameterValues[0]);
+			}
+			else if(parameterValues[0] instanceof Integer && (Integer)parameterValues[0]<batch.getNumberOfColumns())
+			{
+				index = (Integer)parameterValues[0];
+			}
+			if(index<0)
+			{
+				throw new FieldNotFoundException("error rule: [" + rule.getId() + "] - field not found: column [" + parameterValues[0] + "] does not exist in the batch");
+			}
+			return batch.getColumn(index);
+		}
+		throw new Exception("error rule: [" + rule.getId() + "] the method [" + ruleObject.getMethodName() + "] of the rule object can not be used in columnar mode");
+	}
+
+	/**
+	 * evaluates the check of the rule directly on the values of the column - if the check is one of
+	 * the numeric checks and the rule defines the type of the column as the type of the value.
+	 *
+	 * the values of all rows are evaluated. null values are not considered.
+	 *
+	 * @param rule				the rule
+	 * @param compiledCheck		the compiled check of the rule
+	 * @param column			the column
+	 * @param numberOfRows		the number of rows
+	 * @return					the rows where the check passed or null if the check can not be evaluated on the column
+	 */
+	private static BitSet evaluateColumn(XmlRule rule, CompiledCheck compiledCheck, ColumnBatch.Column column, int numberOfRows)
+	{
+		int check = getCheck(rule.getCheckToExecute());
+		if(check<0 || compiledCheck.getNumberOfValues()!=1 || compiledCheck.getInvocationError()!=null)
+		{
+			return null;
+		}
+
+		Class<?> type;
+		if(column.type==ColumnBatch.TYPE_LONG && ClassUtility.TYPE_LONG.equals(compiledCheck.getReturnType1()))
+		{
+			type = long.class;
+		}
+		else if(column.type==ColumnBatch.TYPE_DOUBLE && ClassUtility.TYPE_DOUBLE.equals(compiledCheck.getReturnType1()))
+		{
+			type = double.class;
+		}
+		else
+		{
+			return null;
+		}
+
+		// the limits the values are compared to
+		Class<?>[] parameterTypes = compiledCheck.getMethod().getParameterTypes();
+		Object[] boundValues = compiledCheck.getBoundValues();
+		Number limit1;
+		Number limit2 = null;
+		if(parameterTypes[0]!=type)
+		{
+			return null;
+		}
+		else if(check<CHECK_IS_BETWEEN && parameterTypes.length==2 && isNumeric(parameterTypes[1], type))
+		{
+			limit1 = (Number)boundValues[0];
+		}
+		else if(check>=CHECK_IS_BETWEEN && parameterTypes.length==3 && parameterTypes[1]==type && parameterTypes[2]==type)
+		{
+			limit1 = (Number)boundValues[0];
+			limit2 = (Number)boundValues[1];
+		}
+		else if(check>=CHECK_IS_BETWEEN && parameterTypes.length==2 && parameterTypes[1]==String.class && boundValues[0]!=null)
+		{
+			// the limits are parsed the same way the check parses them
+			try
+			{
+				String[] stringValues= ((String)boundValues[0]).split(",");
+				if(type==long.class)
+				{
+					limit1 = Long.parseLong(stringValues[0].trim());
+					limit2 = Long.parseLong(stringValues[1].trim());
+				}
+				else
+				{
+					limit1 = Double.parseDouble(stringValues[0].trim());
+					limit2 = Double.parseDouble(stringValues[1].trim());
+				}
+			}
+			catch(Exception ex)
+			{
+				// the check reports the error when it is invoked
+				return null;
+			}
+		}
+		else
+		{
+			return null;
+		}
+
+		long[] words = new long[(numberOfRows + 63) >>> 6];
+		if(type==long.class)
+		{
+			evaluateLong(column.longValues, numberOfRows, check, limit1.longValue(), limit2!=null ? limit2.longValue() : 0, words);
+		}
+		else
+		{
+			evaluateDouble(column.doubleValues, numberOfRows, check, limit1.doubleValue(), limit2!=null ? limit2.doubleValue() : 0, words);
+		}
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * returns the number of the check or -1 if the check can not be evaluated on the columns
+	 *
+	 * @param checkToExecute	the class name of the check
+	 * @return					the number of the check
+	 */
+	private static int getCheck(String checkToExecute)
+	{
+		for(int i=0;i<CHECKS.length;i++)
+		{
+			if(CHECKS[i].equals(checkToExecute))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * indicates if a value of the given type is compared to the values of a column of the given
+	 * type using the type of the column
+	 *
+	 * @param parameterType		the type of the value
+	 * @param type				the type of the column
+	 * @return					indicator if the value can be compared
+	 */
+	private static boolean isNumeric(Class<?> parameterType, Class<?> type)
+	{
+		if(type==long.class)
+		{
+			return parameterType==long.class || parameterType==int.class;
+		}
+		else
+		{
+			return parameterType==double.class || parameterType==float.class || parameterType==long.class || parameterType==int.class;
+		}
+	}
+
+	private static void evaluateLong(long[] values, int numberOfRows, int check, long limit1, long limit2, long[] words)
+	{
+		switch(check)
+		{
+			case CHECK_IS_GREATER:
+				for(int i=0;i<numberOfRows;i++)
+				{
+					if(values[i]>limit1)
+					{
+						words[i >>> 6] |= 1L << i;
+					}
+				}
+				break;
+			case CHECK_IS_GREATER_OR_EQUAL:
+				for(int i=0;i<numberOfRows;i++)
+				{
+					if(values[i]>=limit1)
+					{
+						words[i >>> 6] |= 1L << i;
+					}
+				}
+				break;
+			case CHECK_IS_SMALLER:
+				for(int i=0;i<numberOfRows;i++)
+				{
+					if(values[i]<limit1)
+					{
+						words[i >>> 6] |= 1L << i;
+					}
+				}
+				break;
+			case CHECK_IS_SMALLER_OR_EQUAL:
+				for(int i=0;i<numberOfRows;i++)
+				{
+					if(values[i]<=limit1)
+					{
+						words[i >>> 6] |= 1L << i;
+					}
+				}
+				break;
+			case CHECK_IS_BETWEEN:
+				for(int i=0;i<numberOfRows;i++)
+				{
+					if(values[i]>=limit1 && values[i]<=limit2)
+					{
+						words[i >>> 6] |= 1L << i;
+					}
+				}
+				break;
+			default:
+				for(int i=0;i<numberOfRows;i++)
+				{
+					if(values[i]<limit1 || values[i]>limit2)
+					{
+						words[i >>> 6] |= 1L << i;
+					}
+				}
+		}
+	}
+
+	private static void evaluateDouble(double[] values, int numberOfRows, int check, double limit1, double limit2, long[] words)
+	{
+		switch(check)
+		{
+			case CHECK_IS_GREATER:
+				for(int i=0;i<numberOfRows;i++)
+				{
+					if(values[i]>limit1)
+					{
+						words[i >>> 6] |= 1L << i;
+					}
+				}
+				break;
+			case CHECK_IS_GREATER_OR_EQUAL:
+				for(int i=0;i<numberOfRows;i++)
+				{
+					if(values[i]>=limit1)
+					{
+						words[i >>> 6] |= 1L << i;
+					}
+				}
+				break;
+			case CHECK_IS_SMALLER:
+				for(int i=0;i<numberOfRows;i++)
+				{
+					if(values[i]<limit1)
+					{
+						words[i >>> 6] |= 1L << i;
+					}
+				}
+				break;
+			case CHECK_IS_SMALLER_OR_EQUAL:
+				for(int i=0;i<numberOfRows;i++)
+				{
+					if(values[i]<=limit1)
+					{
+						words[i >>> 6] |= 1L << i;
+					}
+				}
+				break;
+			case CHECK_IS_BETWEEN:
+				for(int i=0;i<numberOfRows;i++)
+				{
+					if(values[i]>=limit1 && values[i]<=limit2)
+					{
+						words[i >>> 6] |= 1L << i;
+					}
+				}
+				break;
+			default:
+				for(int i=0;i<numberOfRows;i++)
+				{
+					if(values[i]<limit1 || values[i]>limit2)
+					{
+						words[i >>> 6] |= 1L << i;
+					}
+				}
+		}
+	}
+}
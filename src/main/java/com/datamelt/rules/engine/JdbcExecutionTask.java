@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.engine;
+
+import java.sql.Connection;
+import java.util.concurrent.Callable;
+
+import com.datamelt.db.PartitionedQuery;
+import com.datamelt.db.ResultSetReader;
+import com.datamelt.rules.core.RuleExecutionCollection;
+
+/**
+ * task to run the rules against the records of one partition of a query, used by the parallel
+ * run method for queries of the BusinessRulesEngine.
+ * <p>
+ * the task opens its own connection to the database and streams the records of the partition
+ * using a ResultSetReader and a new execution context. the results are returned or merged the
+ * same way as by the RuleExecutionTask.
+ *
+ * @author uwe geercken
+ */
+class JdbcExecutionTask implements Callable<RuleExecutionCollection>
+{
+	private final BusinessRulesEngine engine;
+	private final PartitionedQuery query;
+	private final int partition;
+	// the number of records of the partition, when the task is finished
+	private long numberOfRows;
+
+	/**
+	 * creates a task for the records of the given partition of the query
+	 *
+	 * @param	engine				the engine, which provides the execution contexts
+	 * @param	query				the partitioned query
+	 * @param	partition			the number of the partition, starting at 0
+	 */
+	JdbcExecutionTask(BusinessRulesEngine engine, PartitionedQuery query, int partition)
+	{
+		this.engine = engine;
+		this.query = query;
+		this.partition = partition;
+	}
+
+	/**
+	 * reads the records of the partition and runs the rules against them using a new
+	 * execution context.
+	 *
+	 * @return				the results of the execution or null if the results have already been merged
+	 * @throws	Exception	exception reading the records or running the rules against them
+	 */
+	@Override
+	public RuleExecutionCollection call() throws Exception
+	{
+		RuleExecutionContext context = engine.createExecutionContext();
+		String labelPrefix = "partition: " + partition + ", row: ";
+
+		Connection connection = query.getConnection();
+		try
+		{
+			ResultSetReader reader = query.createReader(connection, partition);
+			try
+			{
+				long number = 0;
+				while(reader.nextRow())
+				{
+					context.run(labelPrefix + number, reader.getRowFieldCollection());
+					number++;
+				}
+				numberOfRows = number;
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+		finally
+		{
+			connection.close();
+		}
+
+		if(engine.getPreserveInputOrder())
+		{
+			return context.getRuleExecutionCollection();
+		}
+		else
+		{
+			engine.mergeExecutionCollection(context.getRuleExecutionCollection());
+			return null;
+		}
+	}
+
+	/**
+	 * returns the number of records of the partition, which were read by the task
+	 *
+	 * @return		the number of records
+	 */
+	long getNumberOfRows()
+	{
+		return numberOfRows;
+	}
+}
@@ -0,0 +1,489 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.datamelt.rules.engine;
+
+import java.util.ArrayList;
+
+import com.datamelt.rules.core.RuleExecutionCollection;
+import com.datamelt.rules.core.RuleGroup;
+import com.datamelt.rules.metrics.RuleEngineMetrics;
+
+/**
+ * a RuleExecutionContext is used to run the rules of a RuleSet and keeps the results and
+ * counters of the execution.
+ * <p>
+ * the rule set can be shared by multiple threads, but a context must only be used by one
+ * thread at a time. to run the same rules on multiple threads, create one context per thread
+ * using RuleSet.createExecutionContext() or BusinessRulesEngine.createExecutionContext().
+ * <p>
+ * the context has its own copies of the groups and subgroups, which share the compiled rules
+ * and actions of the rule set. after running the rules, the groups of the context can be used
+ * to evaluate the results - the same way as the groups of the BusinessRulesEngine.
+ *
+ * @author uwe geercken
+ */
+public class RuleExecutionContext
+{
+	// the rule set that this context runs
+	private final RuleSet ruleSet;
+	// the groups used to run the rules. they keep the results of the execution
+	private ArrayList<RuleGroup> groups;
+	// contains the results of the execution of the rules
+	private final RuleExecutionCollection executionCollection;
+
+	// type of output that is written
+	private int outputType = BusinessRulesEngine.OUTPUT_TYPE_FAILED_ONLY;
+	// format for the timestamp of the execution results
+	private String timestampFormat = "yyyy-MM-dd HH:mm:ss";
+	// indicates if the results of the rule execution should be kept
+	private boolean preserveRuleExcecutionResults = true;
+	// indicates if subgroups and rules are only run until the outcome of the group is decided
+	private boolean shortCircuitEvaluation = false;
+	// indicates if the order of the rules is adjusted by their measured cost and selectivity
+	private boolean adaptiveRuleOrder = false;
+	// the metrics in which the executions are recorded. null if no metrics are collected
+	private RuleEngineMetrics metrics;
+
+	/**
+	 * creates a context for the given rule set. the groups of the rule set are copied
+	 *
+	 * @param	ruleSet		the rule set to run
+	 */
+	RuleExecutionContext(RuleSet ruleSet)
+	{
+		this(ruleSet, new RuleExecutionCollection());
+	}
+
+	/**
+	 * creates a context for the given rule set that keeps the results of the execution in the
+	 * given collection. the groups of the rule set are copied. used by the BusinessRulesEngine,
+	 * which keeps the results of its own context.
+	 *
+	 * @param	ruleSet					the rule set to run
+	 * @param	executionCollection		the collection for the results of the execution
+	 */
+	RuleExecutionContext(RuleSet ruleSet, RuleExecutionCollection executionCollection)
+	{
+		this.ruleSet = ruleSet;
+		this.groups = new ArrayList<RuleGroup>(ruleSet.getNumberOfGroups());
+		for(int i=0;i<ruleSet.getNumberOfGroups();i++)
+		{
+			groups.add(ruleSet.getGroups().get(i).copy());
+		}
+		this.executionCollection = executionCollection;
+	}
+
+	/**
+	 * runs the rules of all groups against the object with the given label
+	 *
+	 * @param		objectLabel		the label to use for the object
+	 * @param		object			the actual object to use
+	 * @throws		Exception		exception running the rule against the object
+	 */
+	public void run(String objectLabel, Object object) throws Exception
+	{
+		for(int i=0;i<groups.size();i++)
+		{
+			run(groups.get(i),objectLabel,object);
+		}
+	}
+
+	/**
+	 * runs the rules of the given group against the object with the given label.
+	 *
+	 * if the group depends on another group and the result of that group (passed/failed)
+	 * is not the expected one, the group is skipped.
+	 *
+	 * @param		group			the rule group to run
+	 * @param		objectLabel		the label to use for the object
+	 * @param		object			the actual object to use
+	 * @throws		Exception		exception running the rule against the object
+	 */
+	public void run(RuleGroup group, String objectLabel, Object object) throws Exception
+	{
+		// we reset the skipped flag of the group here
+		// a group may be skipped if it depends on another rulegroup
+		// and that groups execution result is not as expected
+		group.setSkipped(0);
+
+		// per default each rulegroup will be run
+		boolean runGroup = true;
+		// check if we have a dependent rulegroup
+		if(group.getDependentRuleGroupId()!=null && !group.getDependentRuleGroupId().equals(""))
+		{
+			// get the dependent group from the list of groups
+			RuleGroup dependentRuleGroup = getGroupById(group.getDependentRuleGroupId());
+			// don't run the group if the dependent group does not exist or does not have the correct status (passed/failed)
+			if(dependentRuleGroup!=null && dependentRuleGroup.getFailed()!=group.getDependentRuleGroupExecuteIf())
+			{
+				runGroup= false;
+				group.setSkipped(1);
+				// increase the counter for the skipped rule groups
+				executionCollection.increaseSkippedGroupCount();
+			}
+		}
+		if(runGroup)
+		{
+			// apply settings of the context to the group
+			group.setMappingCollection(ruleSet.getMappingCollection());
+			group.setTimestampFormat(timestampFormat);
+			group.setOutputType(outputType);
+			group.setPreserveRuleExcecutionResults(preserveRuleExcecutionResults);
+			group.setShortCircuitEvaluation(shortCircuitEvaluation);
+			group.setAdaptiveRuleOrder(adaptiveRuleOrder);
+			group.setMetrics(metrics);
+
+			group.runRules(objectLabel, object);
+			if(group.getFailed()==1) // group failed
+			{
+				// increase the counter of failed groups
+				executionCollection.increaseFailedGroupCount();
+			}
+			else
+			{
+				// increase the counter of passed groups
+				executionCollection.increasePassedGroupCount();
+			}
+			// execution results will be added unless the preserveRuleExcecutionResults is set to false.
+			// the subgroups only contain the results that are output according to the output type
+			for(int i=0;i<group.getSubGroups().size();i++)
+			{
+				executionCollection.addAll(group.getSubGroups().get(i).getResults());
+			}
+			// add the number of executed actions by the rulegroup
+			executionCollection.addNumberOfActionsExecuted(group.getNumberOfActionsExecuted());
+			executionCollection.addNumberOfRulesRun(group.getNumberOfRulesRun());
+			executionCollection.addNumberOfRulesFailed(group.getNumberOfRulesFailed());
+			executionCollection.addNumberOfRulesPassed(group.getNumberOfRulesPassed());
+		}
+	}
+
+	/**
+	 * runs the rules of all groups against the rows of the batch in columnar mode. the counters
+	 * of the result are added to the counters of the context. the groups of the context are not
+	 * changed.
+	 *
+	 * @param		batch			the batch of rows
+	 * @return					the result of the execution
+	 * @throws		Exception		exception running the rules against the rows
+	 */
+	public ColumnBatchResult run(ColumnBatch batch) throws Exception
+	{
+		ColumnBatchResult result = ColumnarExecution.run(ruleSet, batch);
+		executionCollection.merge(result.getRuleExecutionCollection());
+		return result;
+	}
+
+	/**
+	 * clears the collection of execution results and all counters of the context
+	 */
+	public void clear()
+	{
+		executionCollection.clear();
+	}
+
+	/**
+	 * returns the group with the given id from the groups of this context
+	 *
+	 * @param	groupId		the id of the group
+	 * @return				the rulegroup or null if it does not exist
+	 */
+	public RuleGroup getGroupById(String groupId)
+	{
+		for(int i=0;i< groups.size();i++)
+		{
+			RuleGroup group = groups.get(i);
+			if(group.getId().equals(groupId))
+			{
+				return group;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * returns a boolean indicating if the rule group failed when the rules were last run.
+	 * in case a group with the given id is not found returns false.
+	 *
+	 * the compare of the group id is not case sensitive.
+	 *
+	 * @param	groupId		the id of the group
+	 * @return				indicator if the rule group failed
+	 */
+	public boolean getRuleGroupFailed(String groupId)
+	{
+		for(int i=0;i<groups.size();i++)
+		{
+			RuleGroup group = groups.get(i);
+			if(group.getId().toLowerCase().equals(groupId.toLowerCase()))
+			{
+				return group.getFailed()==1;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * returns the groups of this context. after running the rules, the groups
+	 * contain the results of the execution.
+	 *
+	 * @return	list of rulegroups
+	 */
+	public ArrayList<RuleGroup> getGroups()
+	{
+		return groups;
+	}
+
+	/**
+	 * returns the groups of this context - containing the results of the last execution - and
+	 * replaces them with new copies of the groups of the rule set. the returned groups are
+	 * not changed by the context afterwards, so they can be used e.g. by another thread.
+	 *
+	 * must not be used for the context of the BusinessRulesEngine, whose groups are returned by
+	 * the engine. the statistics of the adaptive rule order are kept by the groups, so
+	 * they start again with the new copies.
+	 *
+	 * @return	list of rulegroups containing the results of the last execution
+	 */
+	public ArrayList<RuleGroup> detachGroups()
+	{
+		ArrayList<RuleGroup> detachedGroups = groups;
+		groups = new ArrayList<RuleGroup>(ruleSet.getNumberOfGroups());
+		for(int i=0;i<ruleSet.getNumberOfGroups();i++)
+		{
+			groups.add(ruleSet.getGroups().get(i).copy());
+		}
+		return detachedGroups;
+	}
+
+	/**
+	 * returns the rule set of this context
+	 *
+	 * @return	the rule set
+	 */
+	public RuleSet getRuleSet()
+	{
+		return ruleSet;
+	}
+
+	/**
+	 * returns the collection of results from all groups and subgroups
+	 *
+	 * @return	collection of rule execution results
+	 */
+	public RuleExecutionCollection getRuleExecutionCollection()
+	{
+		return executionCollection;
+	}
+
+	/**
+	 * returns the number of rules that ran
+	 *
+	 * @return	number of rules that ran
+	 */
+	public long getNumberOfRulesRun()
+	{
+		return executionCollection.getRulesRunCount();
+	}
+
+	/**
+	 * returns the number of rules that failed
+	 *
+	 * @return	number of rules that failed
+	 */
+	public long getNumberOfRulesFailed()
+	{
+		return executionCollection.getRulesFailedCount();
+	}
+
+	/**
+	 * returns the number of rules that passed
+	 *
+	 * @return	number of rules that passed
+	 */
+	public long getNumberOfRulesPassed()
+	{
+		return executionCollection.getRulesPassedCount();
+	}
+
+	/**
+	 * returns the number of groups that failed
+	 *
+	 * @return	number of groups that failed
+	 */
+	public long getNumberOfGroupsFailed()
+	{
+		return executionCollection.getFailedGroupsCount();
+	}
+
+	/**
+	 * returns the number of groups that passed
+	 *
+	 * @return	number of groups that passed
+	 */
+	public long getNumberOfGroupsPassed()
+	{
+		return executionCollection.getPassedGroupsCount();
+	}
+
+	/**
+	 * returns the number of groups that were skipped
+	 *
+	 * @return	number of groups that were skipped
+	 */
+	public long getNumberOfGroupsSkipped()
+	{
+		return executionCollection.getSkippedGroupsCount();
+	}
+
+	/**
+	 * returns the number of actions that were executed
+	 *
+	 * @return	number of actions executed
+	 */
+	public long getNumberOfActionsExecuted()
+	{
+		return executionCollection.getActionsExecutedCount();
+	}
+
+	/**
+	 * returns the output type used for the groups of this context
+	 *
+	 * @return	the output type
+	 */
+	public int getOutputType()
+	{
+		return outputType;
+	}
+
+	/**
+	 * sets the output type used for the groups of this context
+	 *
+	 * @param	outputType	the output type
+	 */
+	public void setOutputType(int outputType)
+	{
+		this.outputType = outputType;
+	}
+
+	/**
+	 * returns the format of the timestamp of the execution results
+	 *
+	 * @return	the format of the timestamp
+	 */
+	public String getTimestampFormat()
+	{
+		return timestampFormat;
+	}
+
+	/**
+	 * sets the format of the timestamp of the execution results.
+	 * follows the rules of the java.text.SimpleDateFormat class
+	 *
+	 * @param	timestampFormat		the format of the timestamp
+	 */
+	public void setTimestampFormat(String timestampFormat)
+	{
+		this.timestampFormat = timestampFormat;
+	}
+
+	/**
+	 * indicator if the execution results should be preserved or not
+	 *
+	 * @return	indicator if results are preserved
+	 */
+	public boolean getPreserveRuleExcecutionResults()
+	{
+		return preserveRuleExcecutionResults;
+	}
+
+	/**
+	 * sets the indicator if the execution results should be preserved or not
+	 *
+	 * @param	preserveRuleExcecutionResults	indicator if results shall be preserved
+	 */
+	public void setPreserveRuleExcecutionResults(boolean preserveRuleExcecutionResults)
+	{
+		this.preserveRuleExcecutionResults = preserveRuleExcecutionResults;
+		executionCollection.setPreserveRuleExcecutionResults(preserveRuleExcecutionResults);
+	}
+
+	/**
+	 * indicator if the subgroups and rules are only run until the outcome of the group is decided
+	 *
+	 * @return	indicator if short-circuit evaluation is used
+	 */
+	public boolean getShortCircuitEvaluation()
+	{
+		return shortCircuitEvaluation;
+	}
+
+	/**
+	 * sets if the subgroups and rules are only run until the outcome of the group is decided
+	 *
+	 * @param	shortCircuitEvaluation	indicator if short-circuit evaluation shall be used
+	 */
+	public void setShortCircuitEvaluation(boolean shortCircuitEvaluation)
+	{
+		this.shortCircuitEvaluation = shortCircuitEvaluation;
+	}
+
+	/**
+	 * indicator if the order of the rules is adjusted by their measured cost and selectivity
+	 *
+	 * @return	indicator if the adaptive rule order is used
+	 */
+	public boolean getAdaptiveRuleOrder()
+	{
+		return adaptiveRuleOrder;
+	}
+
+	/**
+	 * sets if the order of the rules is adjusted by their measured cost and selectivity.
+	 * the statistics are kept per context, so each thread adjusts the order of its own copy of the rules.
+	 *
+	 * @param	adaptiveRuleOrder	indicator if the adaptive rule order shall be used
+	 */
+	public void setAdaptiveRuleOrder(boolean adaptiveRuleOrder)
+	{
+		this.adaptiveRuleOrder = adaptiveRuleOrder;
+	}
+
+	/**
+	 * returns the metrics in which the executions of the groups, subgroups, rules and actions are recorded
+	 *
+	 * @return	the metrics or null if no metrics are collected
+	 */
+	public RuleEngineMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * sets the metrics in which the executions of the groups, subgroups, rules and actions are recorded.
+	 * the metrics can be shared by multiple contexts. rows run in columnar mode are not recorded.
+	 *
+	 * @param	metrics		the metrics or null if no metrics shall be collected
+	 */
+	public void setMetrics(RuleEngineMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.datamelt.rules.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.text.DecimalFormat;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import com.datamelt.rules.core.RuleExecutionCollection;
+import com.datamelt.util.ByteFieldSplitter;
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * task to run the rules against a range of objects from a list, used by the parallel run
+ * methods of the BusinessRulesEngine.
+ * <p>
+ * if the range is larger than the batch size, the task is split into two tasks, which are run
+ * in parallel by the fork/join pool. otherwise the rules are run against all objects of the range
+ * using a new execution context.
+ * <p>
+ * when the input order shall be preserved, the results of the two halves are merged
+ * in the order of the objects and returned. otherwise the results of each batch are merged
+ * into the collection of the engine as soon as the batch is finished and null is returned.
+ *
+ * @author uwe geercken
+ */
+class RuleExecutionTask extends RecursiveTask<RuleExecutionCollection>
+{
+	public static final long serialVersionUID = 1964070341;
+
+	private final BusinessRulesEngine engine;
+	private final List<?> objects;
+	private final int from;
+	private final int to;
+	private final long labelOffset;
+	private final String fieldSeperator;
+
+	/**
+	 * creates a task for the objects of the list from the given index (inclusive) to the given index (exclusive).
+	 *
+	 * if a field separator is specified, the objects are the lines of a csv file in form of buffers
+	 * containing their bytes. the lines are split into their fields, which are passed to the rules as
+	 * a RowFieldCollection. otherwise the objects are passed to the rules as they are.
+	 *
+	 * @param	engine				the engine, which provides the execution contexts
+	 * @param	objects				the list of objects
+	 * @param	from				the index of the first object
+	 * @param	to					the index after the last object
+	 * @param	labelOffset			the running number of the first object of the list, used for the label
+	 * @param	fieldSeperator		the separator between the fields of a csv line or null
+	 */
+	RuleExecutionTask(BusinessRulesEngine engine, List<?> objects, int from, int to, long labelOffset, String fieldSeperator)
+	{
+		this.engine = engine;
+		this.objects = objects;
+		this.from = from;
+		this.to = to;
+		this.labelOffset = labelOffset;
+		this.fieldSeperator = fieldSeperator;
+	}
+
+	@Override
+	protected RuleExecutionCollection compute()
+	{
+		if(to - from <= engine.getParallelBatchSize())
+		{
+			try
+			{
+				return runBatch();
+			}
+			catch(RuntimeException rex)
+			{
+				throw rex;
+			}
+			catch(Exception ex)
+			{
+				throw new RuntimeException(ex);
+			}
+		}
+		else
+		{
+			int middle = (from + to) >>> 1;
+			RuleExecutionTask left = new RuleExecutionTask(engine, objects, from, middle, labelOffset, fieldSeperator);
+			RuleExecutionTask right = new RuleExecutionTask(engine, objects, middle, to, labelOffset, fieldSeperator);
+			left.fork();
+			RuleExecutionCollection rightResults = right.compute();
+			RuleExecutionCollection leftResults = left.join();
+			if(leftResults!=null)
+			{
+				leftResults.merge(rightResults);
+			}
+			return leftResults;
+		}
+	}
+
+	/**
+	 * runs the rules against all objects of the range of this task using a new
+	 * execution context.
+	 *
+	 * @return				the results of the execution or null if the results have already been merged
+	 * @throws	Exception	exception running the rules against the objects
+	 */
+	private RuleExecutionCollection runBatch() throws Exception
+	{
+		RuleExecutionContext context = engine.createExecutionContext();
+
+		ByteFieldSplitter splitter = null;
+		if(fieldSeperator!=null)
+		{
+			splitter = new ByteFieldSplitter(fieldSeperator, Charset.defaultCharset());
+		}
+		DecimalFormat df = new DecimalFormat(engine.getObjectLabelNumberFormat());
+
+		for(int i=from;i<to;i++)
+		{
+			Object object = objects.get(i);
+			long number = labelOffset + i;
+			String label;
+			if(splitter!=null)
+			{
+				// get a row object containing the fields and data
+				object = new RowFieldCollection(splitter.split((ByteBuffer)object));
+				label = "row: " + number;
+			}
+			else
+			{
+				label = engine.getObjectLabel(df, number);
+			}
+			context.run(label, object);
+		}
+
+		if(engine.getPreserveInputOrder())
+		{
+			return context.getRuleExecutionCollection();
+		}
+		else
+		{
+			engine.mergeExecutionCollection(context.getRuleExecutionCollection());
+			return null;
+		}
+	}
+}
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.datamelt.rules.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import com.datamelt.rules.core.ReferenceField;
+import com.datamelt.rules.core.RuleExecutionCollection;
+import com.datamelt.rules.core.RuleGroup;
+import com.datamelt.rules.core.RuleSubGroup;
+import com.datamelt.rules.core.XmlRule;
+import com.datamelt.rules.core.util.MappingCollection;
+
+/**
+ * a RuleSet contains the groups, subgroups and rules that have been parsed and compiled
+ * from one or more rule files.
+ * <p>
+ * the rule set does not change after it has been created and it does not carry any state of
+ * the execution of the rules. it can therefore be shared by multiple threads. each thread
+ * runs the rules using its own RuleExecutionContext, which keeps the results and counters
+ * of the execution.
+ * <p>
+ * the rule set of a BusinessRulesEngine is created each time the rule file(s) are loaded. the
+ * version of the rule set is incremented by the engine with each load.
+ *
+ * @author uwe geercken
+ */
+public class RuleSet
+{
+	// the groups as they were parsed, prioritized and compiled
+	private final List<RuleGroup> groups;
+	// the reference fields as they were parsed
+	private final List<ReferenceField> referenceFields;
+	// the collection of mappings used by the actions
+	private final MappingCollection mappingCollection;
+	// the version of the rule set
+	private final long version;
+	// the time the rule set was created and the time it took to load the rules in milliseconds
+	private final long loadTime;
+	private final long loadDuration;
+
+	/**
+	 * creates a rule set from the given groups and reference fields. the lists are copied, so
+	 * that later changes to them do not affect the rule set.
+	 *
+	 * the groups must have been prioritized and compiled before.
+	 *
+	 * @param	groups				the list of rulegroups
+	 * @param	referenceFields		the list of reference fields
+	 * @param	mappingCollection	the collection of mappings used by the actions
+	 */
+	public RuleSet(List<RuleGroup> groups, List<ReferenceField> referenceFields, MappingCollection mappingCollection)
+	{
+		this(groups, referenceFields, mappingCollection, 0, 0);
+	}
+
+	/**
+	 * creates a rule set from the given groups and reference fields with the given version. the lists
+	 * are copied, so that later changes to them do not affect the rule set.
+	 *
+	 * the groups must have been prioritized and compiled before.
+	 *
+	 * @param	groups				the list of rulegroups
+	 * @param	referenceFields		the list of reference fields
+	 * @param	mappingCollection	the collection of mappings used by the actions
+	 * @param	version				the version of the rule set
+	 * @param	loadDuration		the time it took to parse and compile the rules in milliseconds
+	 */
+	public RuleSet(List<RuleGroup> groups, List<ReferenceField> referenceFields, MappingCollection mappingCollection, long version, long loadDuration)
+	{
+		this.version = version;
+		this.loadTime = System.currentTimeMillis();
+		this.loadDuration = loadDuration;
+		this.groups = Collections.unmodifiableList(new ArrayList<RuleGroup>(groups));
+		this.referenceFields = Collections.unmodifiableList(new ArrayList<ReferenceField>(referenceFields));
+		this.mappingCollection = mappingCollection;
+
+		for(int i=0;i<this.groups.size();i++)
+		{
+			this.groups.get(i).setMappingCollection(mappingCollection);
+		}
+	}
+
+	/**
+	 * creates a new context to run the rules of this rule set. the context has its own
+	 * copies of the groups and subgroups, which keep the results of the execution.
+	 *
+	 * a context must only be used by one thread at a time.
+	 *
+	 * @return	a new execution context
+	 */
+	public RuleExecutionContext createExecutionContext()
+	{
+		return new RuleExecutionContext(this);
+	}
+
+	/**
+	 * creates a new context to run the rules of this rule set, which keeps the results of
+	 * the execution in the given collection
+	 *
+	 * @param	executionCollection		the collection for the results of the execution
+	 * @return							a new execution context
+	 */
+	RuleExecutionContext createExecutionContext(RuleExecutionCollection executionCollection)
+	{
+		return new RuleExecutionContext(this, executionCollection);
+	}
+
+	/**
+	 * returns the groups of the rule set. these are the definitions of the groups, which
+	 * are shared by all execution contexts and which must not be run directly.
+	 *
+	 * @return	an unmodifiable list of rulegroups
+	 */
+	public List<RuleGroup> getGroups()
+	{
+		return groups;
+	}
+
+	/**
+	 * returns the reference fields of the rule set
+	 *
+	 * @return	an unmodifiable list of reference fields
+	 */
+	public List<ReferenceField> getReferenceFields()
+	{
+		return referenceFields;
+	}
+
+	/**
+	 * returns the collection of mappings used by the actions
+	 *
+	 * @return	the collection of mappings
+	 */
+	public MappingCollection getMappingCollection()
+	{
+		return mappingCollection;
+	}
+
+	/**
+	 * returns the number of groups of the rule set
+	 *
+	 * @return	number of groups
+	 */
+	public int getNumberOfGroups()
+	{
+		return groups.size();
+	}
+
+	/**
+	 * checks that the rules of the rule set can be run: the ids of the groups are unique, the
+	 * groups that other groups depend on exist and the checks of all rules have been resolved.
+	 *
+	 * @throws Exception	when the rule set is not valid. the message contains all problems found
+	 */
+	public void validate() throws Exception
+	{
+		StringBuilder problems = new StringBuilder();
+		HashSet<String> groupIds = new HashSet<String>();
+		for(int i=0;i<groups.size();i++)
+		{
+			if(!groupIds.add(groups.get(i).getId()))
+			{
+				problems.append("; duplicate group id [" + groups.get(i).getId() + "]");
+			}
+		}
+		for(int i=0;i<groups.size();i++)
+		{
+			RuleGroup group = groups.get(i);
+			String dependentGroupId = group.getDependentRuleGroupId();
+			if(dependentGroupId!=null && !dependentGroupId.equals("") && !groupIds.contains(dependentGroupId))
+			{
+				problems.append("; group [" + group.getId() + "] depends on the undefined group [" + dependentGroupId + "]");
+			}
+			for(int j=0;j<group.getSubGroups().size();j++)
+			{
+				RuleSubGroup subGroup = group.getSubGroups().get(j);
+				for(int k=0;k<subGroup.getRulesCollection().size();k++)
+				{
+					XmlRule rule = subGroup.getRulesCollection().get(k);
+					String error = rule.getCompiledCheck().getMethodError();
+					if(error!=null)
+					{
+						problems.append("; rule [" + rule.getId() + "] of group [" + group.getId() + "]: " + error);
+					}
+				}
+			}
+		}
+		if(problems.length()>0)
+		{
+			throw new Exception("invalid rule set: " + problems.substring(2));
+		}
+	}
+
+	/**
+	 * returns the version of the rule set. the version is incremented each time the
+	 * rules are loaded by the engine.
+	 *
+	 * @return	the version
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * returns the time the rule set was created
+	 *
+	 * @return	the time in milliseconds since the epoch
+	 */
+	public long getLoadTime()
+	{
+		return loadTime;
+	}
+
+	/**
+	 * returns the time it took to parse and compile the rules
+	 *
+	 * @return	the duration in milliseconds
+	 */
+	public long getLoadDuration()
+	{
+		return loadDuration;
+	}
+
+	/**
+	 * returns the number of actions of all groups
+	 *
+	 * @return	number of actions
+	 */
+	public long getNumberOfActions()
+	{
+		long count = 0;
+		for(int i=0;i<groups.size();i++)
+		{
+			count = count + groups.get(i).getNumberOfActions();
+		}
+		return count;
+	}
+
+	/**
+	 * returns the number of rules from all groups and subgroups
+	 *
+	 * @return	number of rules
+	 */
+	public long getNumberOfRules()
+	{
+		long count = 0;
+		for(int i=0;i<groups.size();i++)
+		{
+			count = count + groups.get(i).getNumberOfRules();
+		}
+		return count;
+	}
+}
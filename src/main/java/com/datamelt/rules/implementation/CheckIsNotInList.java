@@ -18,17 +18,17 @@
  */
 package com.datamelt.rules.implementation;
 
-import java.util.HashSet;
-
 import com.datamelt.util.CheckAnnotation;
 import com.datamelt.util.CheckMethodAnnotation;
+import com.datamelt.util.ValueSet;
 
 /**
  * Checks if the given string value is not contained in a list of values separated by comma.
  * Spaces in the individual values are removed from the beginning and the end.
  * 
- * the list of expected values from the rule is cached into a HashSet for better performance
- * if there is more than one value to compare
+ * when a rule with an expected value is compiled, the list is converted once into a ValueSet
+ * using the compile method. the rule then checks the values against the set, without
+ * creating any objects.
  * 
  * An example for a list would be:
  *
@@ -42,7 +42,7 @@ import com.datamelt.util.CheckMethodAnnotation;
 @CheckAnnotation(name="Check Is Not In List", description="Checks if a string is not contained in a list of values. The list is represented by a string where the individual values are seperated by a comma",nameDescriptive="is not in list",checkSingleField=0)
 public class CheckIsNotInList extends GenericCheck
 {
-	/**
+    /**
      * Checks if the given string value is not contained in a list of values separated by comma.
      * 
      * @param value		the first value for the comparison
@@ -52,30 +52,7 @@ public class CheckIsNotInList extends GenericCheck
 	@CheckMethodAnnotation(note="Without parameter Strings are compared case sensitive",noteParameter={"Second string is a comma separated list of values"})
     public static boolean evaluate(String value,String list)
     {
-    	boolean matches = false;
-        if(value!=null)
-        {
-        	HashSet<String>cache = getValueCache();
-        	// if we have a value in the hashset, it means that we
-    		// have more than 1 value
-        	if(cache.size()>0)
-        	{
-        		if(cache.contains(value))
-        		{
-        			matches = true;
-        		}
-	    	}
-        	// if there is no value in the hashset then we have a single value only
-    		// and we do a simple compare of values
-        	else
-        	{
-        		if(value.equals(list))
-        		{
-        			matches = true;
-        		}
-        	}
-        }
-        return !matches;
+    	return evaluate(value, list, false);
     }
     
     /**
@@ -86,53 +63,13 @@ public class CheckIsNotInList extends GenericCheck
      * @param ignoreCase	indication if the case of the values shall be ignored for comparison
      * @return				indication if the value is not contained in the list of values
      */
-	@CheckMethodAnnotation(note="Without parameter Strings are compared case sensitive",noteParameter={"Define if the comparison ignores case differences"})
-    public static boolean evaluate(String value,String list, boolean ignoreCase)
+    @CheckMethodAnnotation(note="Without parameter Strings are compared case sensitive",noteParameter={"Define if the comparison ignores case differences"})
+    public static boolean evaluate(String value, String list, boolean ignoreCase)
     {
     	boolean matches = false;
-    	if(value!=null)
+    	if(value!=null && list!=null)
     	{
-    		HashSet<String>cache = getValueCache();
-    		// if we have a value in the hashset, it means that we
-    		// have more than 1 value
-    		if(cache.size()>0)
-        	{
-	    		if(!ignoreCase)
-	    		{
-		        	if(cache.contains(value))
-		    		{
-		    			matches = true;
-		    		}
-	    		}
-	    		// if there is no value in the hashset then we have a single value only
-	    		// and we do a simple compare of values
-		        else
-		        {
-		        	if(cache.contains(value.toLowerCase())|| cache.contains(value.toUpperCase()))
-		    		{
-		    			matches = true;
-		    		}
-		        }
-        	}
-    		// if there is no value in the hashset then we have a single value only
-    		// and we do a simple compare of values
-    		else
-    		{
-    			if(!ignoreCase)
-	    		{
-		        	if(list.equals(value))
-		    		{
-		    			matches = true;
-		    		}
-	    		}
-		        else
-		        {
-		        	if(list.toLowerCase().contentEquals(value.toLowerCase()))
-		    		{
-		    			matches = true;
-		    		}
-		        }
-    		}
+    		matches = ValueSet.listContains(list, value, ignoreCase);
     	}
         return !matches;
     }
@@ -149,29 +86,7 @@ public class CheckIsNotInList extends GenericCheck
     @CheckMethodAnnotation(noteParameter={"String is a comma separated list of values"})
     public static boolean evaluate(int value, String list)
     {
-    	boolean matches = false;
-    	HashSet<String>cache = getValueCache();
-    	// if we have a value in the hashset, it means that we
-		// have more than 1 value
-    	if(cache.size()>0)
-    	{
-	    	if(cache.contains(String.valueOf(value)))
-			{
-				matches = true;
-	
-	    	}
-    	}
-    	// if there is no value in the hashset then we have a single value only
-		// and we do a simple compare of values
-    	else
-    	{
-    		if(list.equals(String.valueOf(value)))
-			{
-				matches = true;
-	
-	    	}
-    	}
-        return !matches;
+    	return evaluate(String.valueOf(value), list, false);
     }
     
     /**
@@ -186,28 +101,75 @@ public class CheckIsNotInList extends GenericCheck
     @CheckMethodAnnotation(noteParameter={"String is a comma separated list of values"})
     public static boolean evaluate(long value, String list)
     {
-    	boolean matches = false;
-    	HashSet<String>cache = getValueCache();
-    	// if we have a value in the hashset, it means that we
-		// have more than 1 value
-    	if(cache.size()>0)
+    	return evaluate(String.valueOf(value), list, false);
+    }
+    
+    /**
+     * Checks if the given string value is not contained in the set of values. used for
+     * rules that have been compiled.
+     * 
+     * @param value		the first value for the comparison
+     * @param values	the set of values of the rule
+     * @return			indication if the value is not contained in the set of values
+     */
+    public static boolean evaluate(String value, ValueSet values)
+    {
+    	return !(value!=null && values!=null && values.contains(value));
+    }
+    
+    /**
+     * Checks if the given integer value is not contained in the set of values. used for
+     * rules that have been compiled.
+     * 
+     * @param value		the first value for the comparison
+     * @param values	the set of values of the rule
+     * @return			indication if the value is not contained in the set of values
+     */
+    public static boolean evaluate(int value, ValueSet values)
+    {
+    	return !(values!=null && values.contains(value));
+    }
+    
+    /**
+     * Checks if the given long value is not contained in the set of values. used for
+     * rules that have been compiled.
+     * 
+     * @param value		the first value for the comparison
+     * @param values	the set of values of the rule
+     * @return			indication if the value is not contained in the set of values
+     */
+    public static boolean evaluate(long value, ValueSet values)
+    {
+    	return !(values!=null && values.contains(value));
+    }
+    
+    /**
+     * converts the list of values of a rule into a set. the case of the values is considered
+     * 
+     * @param list		list of values separated by commas
+     * @return			the set of values or null if the list is undefined
+     */
+    public static ValueSet compile(String list)
+    {
+    	return compile(list, false);
+    }
+    
+    /**
+     * converts the list of values of a rule into a set
+     * 
+     * @param list			list of values separated by commas
+     * @param ignoreCase	indication if the case of the values shall be ignored for comparison
+     * @return				the set of values or null if the list is undefined
+     */
+    public static ValueSet compile(String list, boolean ignoreCase)
+    {
+    	if(list!=null)
     	{
-	    	if(cache.contains(String.valueOf(value)))
-			{
-				matches = true;
-	
-	    	}
+    		return new ValueSet(list, ignoreCase);
     	}
-    	// if there is no value in the hashset then we have a single value only
-		// and we do a simple compare of values
     	else
     	{
-    		if(list.equals(String.valueOf(value)))
-			{
-				matches = true;
-	
-	    	}
+    		return null;
     	}
-        return !matches;
     }
 }
@@ -20,6 +20,7 @@ package com.datamelt.rules.implementation;
 
 import com.datamelt.util.CheckAnnotation;
 import com.datamelt.util.CheckMethodAnnotation;
+import com.datamelt.util.ValueSet;
 
 /**
  * Checks if a list of string values separated by commas contains a given string.
@@ -48,20 +49,7 @@ public class CheckListHasMember extends GenericCheck
 	@CheckMethodAnnotation(note="First String is a comma separated list of values")
     public static boolean evaluate(String list, String value)
     {
-        boolean matches = false;
-        if(list!=null)
-        {
-        	String [] entries = list.split(",");
-	        for(int i=0;i< entries.length;i++)
-	    	{
-	        	if(entries[i].trim().equals(value.trim()))
-	    		{
-	        		matches = true;
-	    			break;
-	    		}
-	    	}
-        }
-        return matches;
+    	return evaluate(list, value, false);
     }
     
     /**
@@ -76,28 +64,10 @@ public class CheckListHasMember extends GenericCheck
     public static boolean evaluate(String list, String value, boolean ignoreCase)
     {
     	boolean matches = false;
-    	if(list!=null)
+    	if(list!=null && value!=null)
     	{
-	    	String [] entries = list.split(",");
-	        for(int i=0;i<entries.length;i++)
-	    	{
-	        	if(!ignoreCase)
-	    		{
-		        	if(entries[i].trim().equals(value.trim()))
-		    		{
-		    			matches = true;
-		    			break;
-		    		}
-	    		}
-		        else
-		        {
-		        	if(entries[i].trim().toLowerCase().equals(value.trim().toLowerCase()))
-		    		{
-		    			matches = true;
-		    			break;
-		    		}
-		        }
-	    	}
+    		// the member is compared without leading and trailing spaces - the same as the values of the list
+    		matches = ValueSet.listContains(list, value.trim(), ignoreCase);
     	}
         return matches;
     }
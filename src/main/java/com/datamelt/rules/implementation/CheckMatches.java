@@ -19,11 +19,18 @@
 package com.datamelt.rules.implementation;
 
 import com.datamelt.util.CheckAnnotation;
+import com.datamelt.util.CheckMethodAnnotation;
+import com.datamelt.util.PatternMatcher;
 
 /**
  * checks if a string of characters matches a given pattern.
  * <p>
- * the pattern is a regular expression as documented in the java api.
+ * the pattern is a regular expression as documented in the java api. by default the complete string has to match the
+ * pattern and the case of the characters is considered. optionally the case can be ignored and it can be checked if
+ * a part of the string matches the pattern.
+ * <p>
+ * when a rule with an expected value is compiled, the pattern is compiled once using the compile method. patterns
+ * that compare the string to a fixed text or that only use simple constructs are checked without the Pattern class.
  * <p>
  * The first parameter of a given method is always the value of the field that shall be checked. The second parameter is either another field to check against 
  * or an expected value (fixed value) to check against the first value.
@@ -33,22 +40,115 @@ import com.datamelt.util.CheckAnnotation;
 @CheckAnnotation(name="Check Matches", description="Checks if a string matches another one, using a regular expression pattern",nameDescriptive="matches",checkSingleField=0)
 public class CheckMatches extends GenericCheck
 {
-	 /**
+	/**
      * Evaluates if the string matches the given regular expression pattern
      * 
      * @param value		the value to compare
      * @param pattern	the pattern to compare against
      * @return			indication if the string matches the pattern
      */
+    @CheckMethodAnnotation(note="The complete string is compared to the pattern - case sensitive")
     public static boolean evaluate(String value,String pattern)
+    {
+    	return evaluate(value, pattern, false, true);
+    }
+    
+    /**
+     * Evaluates if the string matches the given regular expression pattern
+     * 
+     * @param value			the value to compare
+     * @param pattern		the pattern to compare against
+     * @param ignoreCase	indication if the case of the characters shall be ignored
+     * @return				indication if the string matches the pattern
+     */
+    @CheckMethodAnnotation(note="The complete string is compared to the pattern",noteParameter={"Indicator if the case of the characters shall be ignored"})
+    public static boolean evaluate(String value,String pattern, boolean ignoreCase)
+    {
+    	return evaluate(value, pattern, ignoreCase, true);
+    }
+    
+    /**
+     * Evaluates if the string - or a part of it - matches the given regular expression pattern
+     * 
+     * @param value			the value to compare
+     * @param pattern		the pattern to compare against
+     * @param ignoreCase	indication if the case of the characters shall be ignored
+     * @param fullMatch		indication if the complete string or only a part of it has to match the pattern
+     * @return				indication if the string matches the pattern
+     */
+    @CheckMethodAnnotation(noteParameter={"Indicator if the case of the characters shall be ignored","Indicator if the complete string has to match the pattern or only a part of it"})
+    public static boolean evaluate(String value,String pattern, boolean ignoreCase, boolean fullMatch)
     {
     	if(value!=null && pattern!=null)
     	{
-    		return value.matches(pattern);
+    		return PatternMatcher.getMatcher(pattern, ignoreCase, fullMatch).matches(value);
     	}
     	else
     	{
     		return false;
     	}
     }
+    
+    /**
+     * Evaluates if the string matches the pattern of the given matcher. used for rules that
+     * have been compiled.
+     * 
+     * @param value		the value to compare
+     * @param matcher	the compiled pattern to compare against
+     * @return			indication if the string matches the pattern
+     */
+    public static boolean evaluate(String value,PatternMatcher matcher)
+    {
+    	if(value!=null && matcher!=null)
+    	{
+    		return matcher.matches(value);
+    	}
+    	else
+    	{
+    		return false;
+    	}
+    }
+    
+    /**
+     * compiles the pattern of a rule. the complete string has to match the pattern - case sensitive
+     * 
+     * @param pattern	the pattern
+     * @return			the compiled pattern or null if the pattern is undefined
+     */
+    public static PatternMatcher compile(String pattern)
+    {
+    	return compile(pattern, false, true);
+    }
+    
+    /**
+     * compiles the pattern of a rule. the complete string has to match the pattern
+     * 
+     * @param pattern		the pattern
+     * @param ignoreCase	indication if the case of the characters shall be ignored
+     * @return				the compiled pattern or null if the pattern is undefined
+     */
+    public static PatternMatcher compile(String pattern, boolean ignoreCase)
+    {
+    	return compile(pattern, ignoreCase, true);
+    }
+    
+    /**
+     * compiles the pattern of a rule
+     * 
+     * @param pattern		the pattern
+     * @param ignoreCase	indication if the case of the characters shall be ignored
+     * @param fullMatch		indication if the complete string or only a part of it has to match the pattern
+     * @return				the compiled pattern or null if the pattern is undefined
+     */
+    public static PatternMatcher compile(String pattern, boolean ignoreCase, boolean fullMatch)
+    {
+    	if(pattern!=null)
+    	{
+    		return new PatternMatcher(pattern, ignoreCase, fullMatch);
+    	}
+    	else
+    	{
+    		return null;
+    	}
+    }
 }
@@ -31,16 +31,38 @@ public class GenericCheck implements Serializable
 {
 	public static final long serialVersionUID = 1964070325;
 	public static final String GENERIC_CHECK_METHOD_EVALUATE = "evaluate";
+	// checks may define a compile method, which converts the expected value and the parameters
+	// of a rule once, when the rule is compiled. the result is passed to the evaluate method
+	public static final String GENERIC_CHECK_METHOD_COMPILE = "compile";
 	
-	private static HashSet<String> valueCache;
+	// the cache is kept per thread, so that multiple threads
+	// can run rules at the same time
+	private static final ThreadLocal<HashSet<String>> valueCache = new ThreadLocal<HashSet<String>>();
 	
+	/**
+	 * sets the cache of values for the current thread. the rule engine sets the cache of the
+	 * rule before it invokes a check, which is not part of the rule engine.
+	 * 
+	 * @param cache		the set of values
+	 * @deprecated		checks using a list of values should define a compile method, which converts
+	 * 					the list into a ValueSet once per rule - as the CheckIsInList check does
+	 */
+	@Deprecated
 	public static void setValueCache(HashSet<String> cache)
 	{
-		valueCache = cache;
+		valueCache.set(cache);
 	}
 	
+	/**
+	 * returns the cache of values of the current thread.
+	 * 
+	 * @return			the set of values or null if it was not set by the current thread
+	 * @deprecated		checks using a list of values should define a compile method, which converts
+	 * 					the list into a ValueSet once per rule - as the CheckIsInList check does
+	 */
+	@Deprecated
 	public static HashSet<String> getValueCache()
 	{
-		return valueCache;
+		return valueCache.get();
 	}
 }
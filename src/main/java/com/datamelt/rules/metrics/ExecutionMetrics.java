@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * the metrics of the execution of one element of the rule set - a rule, a subgroup, a group
+ * or an action: the number of times it was run, how often it failed and a histogram of the
+ * time it took.
+ *
+ * for rules, subgroups and groups "failed" is the outcome of the evaluation; for actions it
+ * means that the action threw an exception.
+ *
+ * the metrics can be updated by multiple threads concurrently.
+ *
+ * @author uwe geercken
+ */
+public class ExecutionMetrics
+{
+	public static final String TYPE_GROUP		= "group";
+	public static final String TYPE_SUBGROUP	= "subgroup";
+	public static final String TYPE_RULE		= "rule";
+	public static final String TYPE_ACTION		= "action";
+
+	private final String type;
+	private final String id;
+	private final LongAdder invocations = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * constructor for the metrics of the element with the given type and id
+	 *
+	 * @param type		the type of the element
+	 * @param id		the id of the element
+	 */
+	public ExecutionMetrics(String type, String id)
+	{
+		this.type = type;
+		this.id = id;
+	}
+
+	/**
+	 * records one execution of the element
+	 *
+	 * @param nanos		the duration of the execution in nanoseconds
+	 * @param failed	indicator if the element failed
+	 */
+	public void record(long nanos, boolean failed)
+	{
+		invocations.increment();
+		if(failed)
+		{
+			failures.increment();
+		}
+		latency.record(nanos);
+	}
+
+	/**
+	 * returns the type of the element - group, subgroup, rule or action
+	 *
+	 * @return		the type of the element
+	 */
+	public String getType()
+	{
+		return type;
+	}
+
+	/**
+	 * returns the id of the element
+	 *
+	 * @return		the id of the element
+	 */
+	public String getId()
+	{
+		return id;
+	}
+
+	/**
+	 * returns the number of times the element was run
+	 *
+	 * @return		the number of executions
+	 */
+	public long getInvocations()
+	{
+		return invocations.sum();
+	}
+
+	/**
+	 * returns the number of times the element failed
+	 *
+	 * @return		the number of failures
+	 */
+	public long getFailures()
+	{
+		return failures.sum();
+	}
+
+	/**
+	 * returns the histogram of the duration of the executions
+	 *
+	 * @return		the histogram of the latency in nanoseconds
+	 */
+	public LatencyHistogram getLatency()
+	{
+		return latency;
+	}
+
+	/**
+	 * creates a snapshot of the current values of the metrics
+	 *
+	 * @return		the snapshot
+	 */
+	public ExecutionMetricsSnapshot getSnapshot()
+	{
+		long[] counts = latency.getCounts();
+		return new ExecutionMetricsSnapshot(type, id, invocations.sum(), failures.sum(), latency.getMean(),
+				LatencyHistogram.getValueAtPercentile(counts, 50), LatencyHistogram.getValueAtPercentile(counts, 90),
+				LatencyHistogram.getValueAtPercentile(counts, 99), latency.getMax());
+	}
+
+	/**
+	 * removes all recorded executions
+	 */
+	public void reset()
+	{
+		invocations.reset();
+		failures.reset();
+		latency.reset();
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.metrics;
+
+/**
+ * the values of the metrics of one element of the rule set at a point in time. the latencies
+ * are in nanoseconds; the percentiles are the upper bounds of the buckets of the histogram
+ * containing them.
+ *
+ * @author uwe geercken
+ */
+public class ExecutionMetricsSnapshot
+{
+	private final String type;
+	private final String id;
+	private final long invocations;
+	private final long failures;
+	private final double meanNanos;
+	private final long p50Nanos;
+	private final long p90Nanos;
+	private final long p99Nanos;
+	private final long maxNanos;
+
+	/**
+	 * constructor for a snapshot with the given values
+	 *
+	 * @param type			the type of the element
+	 * @param id			the id of the element
+	 * @param invocations	the number of executions
+	 * @param failures		the number of failed executions
+	 * @param meanNanos		the average duration of the executions
+	 * @param p50Nanos		the median of the duration
+	 * @param p90Nanos		the 90th percentile of the duration
+	 * @param p99Nanos		the 99th percentile of the duration
+	 * @param maxNanos		the highest duration
+	 */
+	public ExecutionMetricsSnapshot(String type, String id, long invocations, long failures, double meanNanos, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos)
+	{
+		this.type = type;
+		this.id = id;
+		this.invocations = invocations;
+		this.failures = failures;
+		this.meanNanos = meanNanos;
+		this.p50Nanos = p50Nanos;
+		this.p90Nanos = p90Nanos;
+		this.p99Nanos = p99Nanos;
+		this.maxNanos = maxNanos;
+	}
+
+	public String getType()
+	{
+		return type;
+	}
+
+	public String getId()
+	{
+		return id;
+	}
+
+	public long getInvocations()
+	{
+		return invocations;
+	}
+
+	public long getFailures()
+	{
+		return failures;
+	}
+
+	/**
+	 * returns the rate of the executions that failed
+	 *
+	 * @return		the rate between 0 and 1 or zero if there were no executions
+	 */
+	public double getFailureRate()
+	{
+		if(invocations==0)
+		{
+			return 0;
+		}
+		return (double)failures / invocations;
+	}
+
+	public double getMeanNanos()
+	{
+		return meanNanos;
+	}
+
+	public long getP50Nanos()
+	{
+		return p50Nanos;
+	}
+
+	public long getP90Nanos()
+	{
+		return p90Nanos;
+	}
+
+	public long getP99Nanos()
+	{
+		return p99Nanos;
+	}
+
+	public long getMaxNanos()
+	{
+		return maxNanos;
+	}
+
+	/**
+	 * returns the total time of all executions in nanoseconds
+	 *
+	 * @return		the total time
+	 */
+	public double getTotalNanos()
+	{
+		return meanNanos * invocations;
+	}
+
+	public String toString()
+	{
+		return type + " [" + id + "] invocations: " + invocations + ", failures: " + failures + String.format(", failure rate: %.4f, mean: %.0f ns, p50: %d ns, p90: %d ns, p99: %d ns, max: %d ns", getFailureRate(), meanNanos, p50Nanos, p90Nanos, p99Nanos, maxNanos);
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * histogram of latencies in nanoseconds, which can be updated by multiple threads concurrently.
+ *
+ * the values are counted in buckets of logarithmic size - similar to a HDR histogram: values
+ * below 32 have their own bucket; above that every power of two is divided into 32 buckets of the
+ * same size. the value of a percentile is therefore accurate to about 3 percent, independent of
+ * the magnitude of the values.
+ *
+ * recording a value only increases the counter of its bucket, the total count and the sum. the
+ * counters are LongAdders, which are striped when threads contend for them, so recording adds only
+ * a few nanoseconds. the counters of the buckets are created when the first value of the bucket
+ * is recorded.
+ *
+ * @author uwe geercken
+ */
+public class LatencyHistogram
+{
+	// the number of bits used to divide a power of two into buckets
+	private static final int SUB_BUCKET_BITS		= 5;
+	private static final int SUB_BUCKET_COUNT		= 1 << SUB_BUCKET_BITS;
+	// enough buckets to cover all positive long values
+	private static final int NUMBER_OF_BUCKETS		= (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<LongAdder>(NUMBER_OF_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(new LongBinaryOperator()
+	{
+		public long applyAsLong(long left, long right)
+		{
+			return Math.max(left, right);
+		}
+	}, 0);
+
+	/**
+	 * records the given value. negative values are recorded as zero
+	 *
+	 * @param value		the value in nanoseconds
+	 */
+	public void record(long value)
+	{
+		if(value<0)
+		{
+			value = 0;
+		}
+		int index = getBucketIndex(value);
+		LongAdder bucket = buckets.get(index);
+		if(bucket==null)
+		{
+			buckets.compareAndSet(index, null, new LongAdder());
+			bucket = buckets.get(index);
+		}
+		bucket.increment();
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * returns the index of the bucket of the given value
+	 *
+	 * @param value		the value
+	 * @return			the index of the bucket
+	 */
+	static int getBucketIndex(long value)
+	{
+		if(value<SUB_BUCKET_COUNT)
+		{
+			return (int)value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKET_COUNT;
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * returns the highest value that is counted in the bucket with the given index
+	 *
+	 * @param index		the index of the bucket
+	 * @return			the highest value of the bucket
+	 */
+	static long getBucketUpperBound(int index)
+	{
+		if(index<SUB_BUCKET_COUNT)
+		{
+			return index;
+		}
+		int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+		long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+		long bucketSize = 1L << (exponent - SUB_BUCKET_BITS);
+		return subBucket * bucketSize + bucketSize - 1;
+	}
+
+	/**
+	 * returns a copy of the counters of the buckets
+	 *
+	 * @return		the counters by the index of the bucket
+	 */
+	public long[] getCounts()
+	{
+		long[] counts = new long[NUMBER_OF_BUCKETS];
+		for(int i=0;i<NUMBER_OF_BUCKETS;i++)
+		{
+			LongAdder bucket = buckets.get(i);
+			if(bucket!=null)
+			{
+				counts[i] = bucket.sum();
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * returns the value below or at which the given percentage of the values of the given counters is.
+	 * the value returned is the highest value of the bucket containing the percentile.
+	 *
+	 * @param counts		the counters of the buckets as returned by getCounts()
+	 * @param percentile	the percentile - between 0 and 100
+	 * @return				the value of the percentile or zero if there are no values
+	 */
+	public static long getValueAtPercentile(long[] counts, double percentile)
+	{
+		long total = 0;
+		for(int i=0;i<counts.length;i++)
+		{
+			total += counts[i];
+		}
+		if(total==0)
+		{
+			return 0;
+		}
+		// the number of values which are at or below the percentile
+		long rank = Math.max(1, (long)Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+		long counted = 0;
+		for(int i=0;i<counts.length;i++)
+		{
+			counted += counts[i];
+			if(counted>=rank)
+			{
+				return getBucketUpperBound(i);
+			}
+		}
+		return getBucketUpperBound(counts.length - 1);
+	}
+
+	/**
+	 * returns the value below or at which the given percentage of the recorded values is
+	 *
+	 * @param percentile	the percentile - between 0 and 100
+	 * @return				the value of the percentile or zero if no values have been recorded
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		return getValueAtPercentile(getCounts(), percentile);
+	}
+
+	/**
+	 * returns the number of recorded values
+	 *
+	 * @return		the number of values
+	 */
+	public long getCount()
+	{
+		return count.sum();
+	}
+
+	/**
+	 * returns the sum of the recorded values
+	 *
+	 * @return		the sum of the values
+	 */
+	public long getSum()
+	{
+		return sum.sum();
+	}
+
+	/**
+	 * returns the highest recorded value
+	 *
+	 * @return		the highest value or zero if no values have been recorded
+	 */
+	public long getMax()
+	{
+		return max.get();
+	}
+
+	/**
+	 * returns the average of the recorded values
+	 *
+	 * @return		the average or zero if no values have been recorded
+	 */
+	public double getMean()
+	{
+		long numberOfValues = count.sum();
+		if(numberOfValues==0)
+		{
+			return 0;
+		}
+		return (double)sum.sum() / numberOfValues;
+	}
+
+	/**
+	 * removes all recorded values
+	 */
+	public void reset()
+	{
+		for(int i=0;i<NUMBER_OF_BUCKETS;i++)
+		{
+			LongAdder bucket = buckets.get(i);
+			if(bucket!=null)
+			{
+				bucket.reset();
+			}
+		}
+		count.reset();
+		sum.reset();
+		max.reset();
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.metrics;
+
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * reporter that writes the metrics of the ruleengine to the log - one line per element.
+ *
+ * the number of elements that are logged per type can be limited using the property
+ * "metrics.reporter.log.top". the elements with the highest total execution time are
+ * logged first. the default is to log all elements.
+ *
+ * @author uwe geercken
+ */
+public class LogMetricsReporter extends MetricsReporter
+{
+	public static final String PROPERTY_TOP		= "metrics.reporter.log.top";
+
+	// the number of elements per type that are logged. zero logs all elements
+	private int top = 0;
+
+	final static Logger logger 					= Logger.getLogger(LogMetricsReporter.class);
+
+	public LogMetricsReporter() throws Exception
+	{
+		super();
+	}
+
+	@Override
+	public void init() throws Exception
+	{
+		if(getProperties()!=null && getProperties().getProperty(PROPERTY_TOP)!=null)
+		{
+			top = Integer.parseInt(getProperties().getProperty(PROPERTY_TOP).trim());
+		}
+	}
+
+	@Override
+	public void report(RuleEngineMetrics metrics) throws Exception
+	{
+		logSnapshots(metrics.getGroups());
+		logSnapshots(metrics.getSubGroups());
+		logSnapshots(metrics.getRules());
+		logSnapshots(metrics.getActions());
+	}
+
+	private void logSnapshots(List<ExecutionMetricsSnapshot> snapshots)
+	{
+		for(int i=0;i<snapshots.size() && (top==0 || i<top);i++)
+		{
+			if(snapshots.get(i).getInvocations()>0)
+			{
+				logger.info(snapshots.get(i));
+			}
+		}
+	}
+
+	@Override
+	public void close() throws Exception
+	{
+	}
+}
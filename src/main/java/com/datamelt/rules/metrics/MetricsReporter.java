@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.metrics;
+
+import java.util.Properties;
+
+/**
+ * a reporter exports the metrics of the ruleengine - e.g. to a log file or to a monitoring system.
+ *
+ * the report method is called in a regular interval. implementations must have a constructor
+ * without arguments; the properties are set before the init method is called.
+ *
+ * @author uwe geercken
+ */
+public abstract class MetricsReporter
+{
+	private Properties properties;
+
+	protected MetricsReporter() throws Exception
+	{
+	}
+
+	public abstract void init() throws Exception;
+	public abstract void report(RuleEngineMetrics metrics) throws Exception;
+	public abstract void close() throws Exception;
+
+	public Properties getProperties()
+	{
+		return properties;
+	}
+
+	public void setProperties(Properties properties)
+	{
+		this.properties = properties;
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * collects the execution metrics of the groups, subgroups, rules and actions of the ruleengine:
+ * the number of executions, the number of failures and a histogram of the execution time of each
+ * element.
+ *
+ * the metrics are collected while the rules are run, if the metrics have been set for the
+ * BusinessRulesEngine or a RuleExecutionContext. they are identified by the id of the element, so
+ * they are kept when the rules are reloaded. the id of a subgroup is only unique within its group,
+ * so subgroups are identified by the id of the group and the id of the subgroup: [group id]/[subgroup id].
+ *
+ * the metrics can be updated by multiple threads concurrently. they can be exported using JMX - by
+ * registering this object as MBean - and using a MetricsReporter.
+ *
+ * example:
+ *
+ * RuleEngineMetrics metrics = new RuleEngineMetrics();
+ * metrics.registerMBean("rules");
+ * engine.setMetrics(metrics);
+ * ...
+ * System.out.println(metrics.getReport());
+ *
+ * @author uwe geercken
+ */
+public class RuleEngineMetrics implements RuleEngineMetricsMXBean
+{
+	public static final String MBEAN_DOMAIN		= "com.datamelt.rules";
+	public static final String SUBGROUP_SEPARATOR	= "/";
+
+	private final ConcurrentHashMap<String,ExecutionMetrics> groups = new ConcurrentHashMap<String,ExecutionMetrics>();
+	private final ConcurrentHashMap<String,ExecutionMetrics> subGroups = new ConcurrentHashMap<String,ExecutionMetrics>();
+	private final ConcurrentHashMap<String,ExecutionMetrics> rules = new ConcurrentHashMap<String,ExecutionMetrics>();
+	private final ConcurrentHashMap<String,ExecutionMetrics> actions = new ConcurrentHashMap<String,ExecutionMetrics>();
+
+	// the time the metrics were created or reset
+	private volatile long startTime = System.currentTimeMillis();
+	// the name of the MBean, if registered
+	private ObjectName objectName;
+
+	/**
+	 * returns the metrics of the group with the given id. the metrics are created if they do not exist
+	 *
+	 * @param groupId		the id of the group
+	 * @return				the metrics of the group
+	 */
+	public ExecutionMetrics getGroupMetrics(String groupId)
+	{
+		return getMetrics(groups, ExecutionMetrics.TYPE_GROUP, groupId);
+	}
+
+	/**
+	 * returns the metrics of the subgroup with the given id. the metrics are created if they do not exist
+	 *
+	 * @param groupId		the id of the group of the subgroup
+	 * @param subGroupId	the id of the subgroup
+	 * @return				the metrics of the subgroup
+	 */
+	public ExecutionMetrics getSubGroupMetrics(String groupId, String subGroupId)
+	{
+		return getMetrics(subGroups, ExecutionMetrics.TYPE_SUBGROUP, groupId + SUBGROUP_SEPARATOR + subGroupId);
+	}
+
+	/**
+	 * returns the metrics of the rule with the given id. the metrics are created if they do not exist
+	 *
+	 * @param ruleId		the id of the rule
+	 * @return				the metrics of the rule
+	 */
+	public ExecutionMetrics getRuleMetrics(String ruleId)
+	{
+		return getMetrics(rules, ExecutionMetrics.TYPE_RULE, ruleId);
+	}
+
+	/**
+	 * returns the metrics of the action with the given id. the metrics are created if they do not exist
+	 *
+	 * @param actionId		the id of the action
+	 * @return				the metrics of the action
+	 */
+	public ExecutionMetrics getActionMetrics(String actionId)
+	{
+		return getMetrics(actions, ExecutionMetrics.TYPE_ACTION, actionId);
+	}
+
+	private static ExecutionMetrics getMetrics(ConcurrentHashMap<String,ExecutionMetrics> metrics, final String type, String id)
+	{
+		if(id==null)
+		{
+			id = "";
+		}
+		ExecutionMetrics elementMetrics = metrics.get(id);
+		if(elementMetrics==null)
+		{
+			elementMetrics = metrics.computeIfAbsent(id, new Function<String,ExecutionMetrics>()
+			{
+				public ExecutionMetrics apply(String key)
+				{
+					return new ExecutionMetrics(type, key);
+				}
+			});
+		}
+		return elementMetrics;
+	}
+
+	/**
+	 * creates the snapshots of the given metrics. the snapshots are sorted by the total execution
+	 * time, so that the most expensive elements are first.
+	 *
+	 * @param metrics		the metrics
+	 * @return				the snapshots of the metrics
+	 */
+	private static List<ExecutionMetricsSnapshot> getSnapshots(ConcurrentHashMap<String,ExecutionMetrics> metrics)
+	{
+		ArrayList<ExecutionMetricsSnapshot> snapshots = new ArrayList<ExecutionMetricsSnapshot>(metrics.size());
+		for(ExecutionMetrics elementMetrics : metrics.values())
+		{
+			snapshots.add(elementMetrics.getSnapshot());
+		}
+		Collections.sort(snapshots, new Comparator<ExecutionMetricsSnapshot>()
+		{
+			public int compare(ExecutionMetricsSnapshot snapshot1, ExecutionMetricsSnapshot snapshot2)
+			{
+				int result = Double.compare(snapshot2.getTotalNanos(), snapshot1.getTotalNanos());
+				if(result==0)
+				{
+					result = snapshot1.getId().compareTo(snapshot2.getId());
+				}
+				return result;
+			}
+		});
+		return snapshots;
+	}
+
+	/**
+	 * returns the snapshots of the metrics of the groups, sorted by their total execution time
+	 *
+	 * @return		the snapshots of the groups
+	 */
+	public List<ExecutionMetricsSnapshot> getGroups()
+	{
+		return getSnapshots(groups);
+	}
+
+	/**
+	 * returns the snapshots of the metrics of the subgroups, sorted by their total execution time
+	 *
+	 * @return		the snapshots of the subgroups
+	 */
+	public List<ExecutionMetricsSnapshot> getSubGroups()
+	{
+		return getSnapshots(subGroups);
+	}
+
+	/**
+	 * returns the snapshots of the metrics of the rules, sorted by their total execution time
+	 *
+	 * @return		the snapshots of the rules
+	 */
+	public List<ExecutionMetricsSnapshot> getRules()
+	{
+		return getSnapshots(rules);
+	}
+
+	/**
+	 * returns the snapshots of the metrics of the actions, sorted by their total execution time
+	 *
+	 * @return		the snapshots of the actions
+	 */
+	public List<ExecutionMetricsSnapshot> getActions()
+	{
+		return getSnapshots(actions);
+	}
+
+	/**
+	 * returns a report of the current metrics of all elements - one line per element
+	 *
+	 * @return		the report
+	 */
+	public String getReport()
+	{
+		StringBuilder report = new StringBuilder();
+		report.append("metrics since: ").append(new java.sql.Timestamp(startTime)).append("\n");
+		appendSnapshots(report, getGroups());
+		appendSnapshots(report, getSubGroups());
+		appendSnapshots(report, getRules());
+		appendSnapshots(report, getActions());
+		return report.toString();
+	}
+
+	private static void appendSnapshots(StringBuilder report, List<ExecutionMetricsSnapshot> snapshots)
+	{
+		for(int i=0;i<snapshots.size();i++)
+		{
+			report.append(snapshots.get(i)).append("\n");
+		}
+	}
+
+	/**
+	 * returns the time the metrics were created or last reset
+	 *
+	 * @return		the time in milliseconds
+	 */
+	public long getStartTime()
+	{
+		return startTime;
+	}
+
+	/**
+	 * removes all recorded executions. the elements are kept
+	 */
+	public void reset()
+	{
+		resetMetrics(groups);
+		resetMetrics(subGroups);
+		resetMetrics(rules);
+		resetMetrics(actions);
+		startTime = System.currentTimeMillis();
+	}
+
+	private static void resetMetrics(ConcurrentHashMap<String,ExecutionMetrics> metrics)
+	{
+		for(ExecutionMetrics elementMetrics : metrics.values())
+		{
+			elementMetrics.reset();
+		}
+	}
+
+	/**
+	 * registers the metrics as MBean with the platform MBean server. the name of the MBean is:
+	 * com.datamelt.rules:type=RuleEngineMetrics,name=[name]
+	 *
+	 * @param name			the name of the MBean
+	 * @throws Exception	when the MBean can not be registered - e.g. if the name is already used
+	 */
+	public synchronized void registerMBean(String name) throws Exception
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName newObjectName = new ObjectName(MBEAN_DOMAIN + ":type=RuleEngineMetrics,name=" + ObjectName.quote(name));
+		server.registerMBean(this, newObjectName);
+		if(objectName!=null)
+		{
+			server.unregisterMBean(objectName);
+		}
+		objectName = newObjectName;
+	}
+
+	/**
+	 * removes the MBean of the metrics from the platform MBean server
+	 *
+	 * @throws Exception	when the MBean can not be unregistered
+	 */
+	public synchronized void unregisterMBean() throws Exception
+	{
+		if(objectName!=null)
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			objectName = null;
+		}
+	}
+
+	/**
+	 * returns the name of the MBean of the metrics
+	 *
+	 * @return		the name of the MBean or null if the metrics are not registered
+	 */
+	public synchronized ObjectName getObjectName()
+	{
+		return objectName;
+	}
+}
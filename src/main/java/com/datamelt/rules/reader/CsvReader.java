@@ -18,13 +18,18 @@
  */
 package com.datamelt.rules.reader;
 
-import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.IOException;
 import java.util.Calendar;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
 import java.util.zip.ZipFile;
 
+import com.datamelt.util.CsvTokenizer;
 import com.datamelt.util.RowFieldCollection;
 import com.datamelt.util.Splitter;
+import com.datamelt.util.VirtualThreads;
 import com.datamelt.rules.core.RuleGroup;
 import com.datamelt.rules.engine.BusinessRulesEngine;
 
@@ -42,11 +47,16 @@ import com.datamelt.rules.engine.BusinessRulesEngine;
  * are run against the rule engine using rules as defined in a rule
  * xml file.
  * 
+ * Optionally the rows are run in parallel, using a virtual thread for
+ * each batch of rows on java 21 runtimes and a pool of platform threads
+ * on older runtimes.
+ * 
  * @author uwe geercken
  */
 public class CsvReader 
 {
     public static final String XML_FILE_EXTENSION  			= ".xml";
+    public static final String OPTION_VIRTUAL_THREADS		= "--virtual-threads";
     
     public static void main(String[] args) throws Exception
     {
@@ -61,9 +71,6 @@ public class CsvReader
     	Calendar start = Calendar.getInstance();
 	    System.out.println("start:                     " + start.getTime());
 
-	    // reader for the data file
-	    BufferedReader reader = new BufferedReader(new FileReader(args[0]));
-	    String line;
 	    // counts number of lines in data file
 	    long counter=0;
 	    
@@ -77,9 +84,10 @@ public class CsvReader
         BusinessRulesEngine engine = new BusinessRulesEngine(zipFile);
         //BusinessRulesEngine engine = new BusinessRulesEngine(fileList);
 
-        // splitter object will split the row of the  data/csv file into
-        // its fields using - in this case - the default semicolon (;) seperator
-        Splitter splitter = new Splitter(Splitter.TYPE_COMMA_SEPERATED);
+        // the tokenizer reads the rows of the data/csv file and splits them into
+        // its fields using - in this case - the default semicolon (;) seperator.
+        // empty rows and rows starting with a hash sign (comment) are skipped
+        CsvTokenizer tokenizer = new CsvTokenizer(new FileReader(args[0]), Splitter.SEPERATOR_SEMICOLON);
 
         // output the number of groups in total as parsed from the xml files
         System.out.println("number of groups:          " + engine.getGroups().size());
@@ -93,25 +101,36 @@ public class CsvReader
             RuleGroup group = (RuleGroup)engine.getGroups().get(i);
             System.out.println("group logic:               " + group.getId() + ": "+ engine.getRuleLogic(i));
         }
-        // read the input file line by line
-        while ((line=reader.readLine())!=null)
-	    {
-        	// only if the line is NOT empty 
-        	// and does NOT start with a hash sign (comment).
-        	// otherwise the line will be NOT be processed nor counted!
-	        if(!line.trim().equals("") && !line.startsWith("#"))
-	        {
-	        	line = line.replace("\"","");
+        if(args.length>2 && args[2].equals(OPTION_VIRTUAL_THREADS))
+        {
+        	// the rows are read in this thread and run in batches by the tasks of the executor
+        	ExecutorService executor = VirtualThreads.newTaskExecutor(true);
+        	RowIterator rows = new RowIterator(tokenizer);
+        	try
+        	{
+        		engine.runParallel(rows, executor);
+        	}
+        	finally
+        	{
+        		executor.shutdown();
+        	}
+        	counter = rows.getNumberOfRows();
+        }
+        else
+        {
+	        // read the input file row by row
+	        while (tokenizer.nextRow())
+		    {
 		        // get a row object containing the fields and data
-		        RowFieldCollection row = splitter.getRowFieldCollection(line); 
+		        RowFieldCollection row = tokenizer.getRowFieldCollection(); 
 		        
 		        // run rules on this data
 		        engine.run("row: " + counter, row);
 		        counter++;
-	        }
-	    }
+		    }
+        }
         // close the reader
-        reader.close();
+        tokenizer.close();
         
         System.out.println("number of lines of data:   " + counter);
         
@@ -146,9 +165,61 @@ public class CsvReader
     	System.out.println();
     	System.out.println("pass the path and name of the data file as the first argument.");
     	System.out.println("pass the path and name of the project zip file containing all rules as the second argument.");
+    	System.out.println("optionally pass " + OPTION_VIRTUAL_THREADS + " as the third argument to run the rows in parallel.");
+    	System.out.println("on java 21 runtimes a virtual thread is used for each batch of rows, otherwise a pool of threads.");
     	System.out.println();
     	System.out.println("example: CsvReader /somefolder/mycsvfile.csv /otherfolder/testrules.zip");
+    	System.out.println("example: CsvReader /somefolder/mycsvfile.csv /otherfolder/testrules.zip " + OPTION_VIRTUAL_THREADS);
     	System.out.println();
     }
     
+    /**
+     * iterator over the rows of the tokenizer. the rows are returned as RowFieldCollection objects.
+     */
+    private static class RowIterator implements Iterator<RowFieldCollection>
+    {
+    	private CsvTokenizer tokenizer;
+    	private boolean hasRow;
+    	private boolean checked;
+    	private long numberOfRows;
+    	
+    	private RowIterator(CsvTokenizer tokenizer)
+    	{
+    		this.tokenizer = tokenizer;
+    	}
+    	
+    	public boolean hasNext()
+    	{
+    		if(!checked)
+    		{
+    			try
+    			{
+    				hasRow = tokenizer.nextRow();
+    			}
+    			catch(IOException ex)
+    			{
+    				throw new RuntimeException("error reading the csv file: " + ex.getMessage(), ex);
+    			}
+    			checked = true;
+    		}
+    		return hasRow;
+    	}
+    	
+    	public RowFieldCollection next()
+    	{
+    		if(!hasNext())
+    		{
+    			throw new NoSuchElementException();
+    		}
+    		checked = false;
+    		numberOfRows++;
+    		return tokenizer.getRowFieldCollection();
+    	}
+    	
+    	private long getNumberOfRows()
+    	{
+    		return numberOfRows;
+    	}
+    }
+    
 }
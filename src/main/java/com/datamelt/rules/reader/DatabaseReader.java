@@ -21,11 +21,22 @@ package com.datamelt.rules.reader;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.util.Calendar;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
 
 import com.datamelt.db.MySqlConnection;
+import com.datamelt.db.PartitionedQuery;
+import com.datamelt.db.ResultSetReader;
 import com.datamelt.rules.core.RuleGroup;
 import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.util.RowFieldCollection;
+import com.datamelt.util.VirtualThreads;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 
 /**
  * DatabaseReader class is used to run the business rule engine
@@ -38,11 +49,33 @@ import java.sql.ResultSet;
  * Pass a ruleengine project zip file created with the Business Rules
  * Maintenance Web Tool.
  * 
+ * Optionally the records are run in parallel, using a virtual thread for
+ * each batch of records on java 21 runtimes and a pool of platform threads
+ * on older runtimes. In this case the values of the records are copied
+ * to RowFieldCollection objects - using the column labels as the names of
+ * the fields - so the rules must access the fields of a RowFieldCollection.
+ * 
+ * The records are streamed from the database using a forward-only, read-only
+ * cursor if the option --fetch-size=[number of records] is given. The values
+ * of each record are copied to a RowFieldCollection, which is reused for all
+ * records.
+ * 
+ * Using the option --partitions=[number of partitions],[lower bound],[upper bound]
+ * the query is split into partitions by the ranges of a numeric key, which are
+ * read in parallel using a connection for each partition. The query must contain
+ * two placeholders for the lower bound - included - and the upper bound - excluded -
+ * of the key of a partition, e.g.: select * from customer where id &gt;= ? and id &lt; ?
+ * 
  * @author uwe geercken
  */
 public class DatabaseReader
 {
     public static final String XML_FILE_EXTENSION = ".xml";
+    public static final String OPTION_VIRTUAL_THREADS = "--virtual-threads";
+    public static final String OPTION_FETCH_SIZE = "--fetch-size=";
+    public static final String OPTION_PARTITIONS = "--partitions=";
+    
+    private static final String MYSQL_DRIVER = "com.mysql.jdbc.Driver";
     
     public static void main(String[] args) throws Exception
     {
@@ -89,17 +122,98 @@ public class DatabaseReader
             System.out.println("group logic:               " + group.getId() + ": "+ engine.getRuleLogic(i));
         }
         
-        // create a connection object using the arguments passed to this program
-        MySqlConnection connection = new MySqlConnection(hostname,databasename,userid,password);
-        // the resultset will contain the reocrds
-        ResultSet rs = connection.getResultSet(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE,sql);
-        // loop over all records of the resultset
-        while (rs.next())
-	    {
-		        // run rules on this recordset
-		        engine.run("row: " + counter, rs);
-		        counter++;
-	    }
+        // the optional arguments
+        boolean virtualThreads = false;
+        int fetchSize = 0;
+        String partitions = null;
+        for(int i=7;i<args.length;i++)
+        {
+        	if(args[i].equals(OPTION_VIRTUAL_THREADS))
+        	{
+        		virtualThreads = true;
+        	}
+        	else if(args[i].startsWith(OPTION_FETCH_SIZE))
+        	{
+        		fetchSize = Integer.parseInt(args[i].substring(OPTION_FETCH_SIZE.length()));
+        	}
+        	else if(args[i].startsWith(OPTION_PARTITIONS))
+        	{
+        		partitions = args[i].substring(OPTION_PARTITIONS.length());
+        	}
+        }
+        
+        if(partitions!=null)
+        {
+        	// the partitions are read and run in parallel, each one using its own connection
+        	String[] values = partitions.split(",");
+        	if(values.length!=3)
+        	{
+        		throw new Exception("the partitions must be specified as: [number of partitions],[lower bound],[upper bound]");
+        	}
+        	// load the driver, so that the connections can be opened using the url
+        	Class.forName(MYSQL_DRIVER);
+        	PartitionedQuery query = new PartitionedQuery(MySqlConnection.getUrl(hostname, MySqlConnection.DEFAULT_PORT, databasename, true), userid, password, sql, Long.parseLong(values[1].trim()), Long.parseLong(values[2].trim()), Integer.parseInt(values[0].trim()));
+        	if(fetchSize>0)
+        	{
+        		query.setFetchSize(fetchSize);
+        	}
+        	ExecutorService executor = VirtualThreads.newTaskExecutor(virtualThreads);
+        	try
+        	{
+        		counter = engine.runJdbcParallel(query, executor);
+        	}
+        	finally
+        	{
+        		executor.shutdown();
+        	}
+        }
+        else if(virtualThreads)
+        {
+            // create a connection using the arguments passed to this program
+            Connection connection = getConnection(hostname, databasename, userid, password);
+        	// the records are read in this thread and run in batches by the tasks of the executor
+        	ExecutorService executor = VirtualThreads.newTaskExecutor(true);
+        	RecordIterator records = new RecordIterator(new ResultSetReader(connection, sql, fetchSize>0 ? fetchSize : ResultSetReader.DEFAULT_FETCH_SIZE));
+        	try
+        	{
+        		engine.runParallel(records, executor);
+        	}
+        	finally
+        	{
+        		executor.shutdown();
+        		records.close();
+        		connection.close();
+        	}
+        	counter = records.getNumberOfRecords();
+        }
+        else if(fetchSize>0)
+        {
+            // create a connection using the arguments passed to this program
+            Connection connection = getConnection(hostname, databasename, userid, password);
+            try
+            {
+            	// the records are streamed using a forward-only cursor
+            	counter = engine.runJdbc(connection, sql, fetchSize);
+            }
+            finally
+            {
+            	connection.close();
+            }
+        }
+        else
+        {
+            // create a connection object using the arguments passed to this program
+            MySqlConnection connection = new MySqlConnection(hostname,databasename,userid,password);
+            // the resultset will contain the reocrds
+            ResultSet rs = connection.getResultSet(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE,sql);
+	        // loop over all records of the resultset
+	        while (rs.next())
+		    {
+			        // run rules on this recordset
+			        engine.run("row: " + counter, rs);
+			        counter++;
+		    }
+        }
         
         System.out.println("number of lines of data:   " + counter);
         // total number of rules
@@ -126,4 +240,77 @@ public class DatabaseReader
 	    System.out.println("end of process.");
     }
     
+    /**
+     * opens a read-only connection to the MySQL database, which uses cursors and does not use
+     * autocommit, so that the records of a query can be streamed.
+     * 
+     * @param	hostname		hostname or IP adress of the database server
+     * @param	databaseName	the name of the database to use
+     * @param	userid			the id of the user
+     * @param	password		the password of the user
+     * @return					the connection
+     * @throws	Exception		exception if the connection can not be established
+     */
+    private static Connection getConnection(String hostname, String databaseName, String userid, String password) throws Exception
+    {
+    	Class.forName(MYSQL_DRIVER);
+    	Connection connection = DriverManager.getConnection(MySqlConnection.getUrl(hostname, MySqlConnection.DEFAULT_PORT, databaseName, true), userid, password);
+    	connection.setReadOnly(true);
+    	connection.setAutoCommit(false);
+    	return connection;
+    }
+    
+    /**
+     * iterator over the records of the query. the values of each record are copied
+     * to a new RowFieldCollection object, using the column labels as the names of the fields.
+     */
+    private static class RecordIterator implements Iterator<RowFieldCollection>
+    {
+    	private ResultSetReader reader;
+    	private boolean hasRecord;
+    	private boolean checked;
+    	
+    	private RecordIterator(ResultSetReader reader)
+    	{
+    		this.reader = reader;
+    	}
+    	
+    	public boolean hasNext()
+    	{
+    		if(!checked)
+    		{
+    			try
+    			{
+    				hasRecord = reader.nextRow();
+    			}
+    			catch(SQLException ex)
+    			{
+    				throw new RuntimeException("error reading the resultset: " + ex.getMessage(), ex);
+    			}
+    			checked = true;
+    		}
+    		return hasRecord;
+    	}
+    	
+    	public RowFieldCollection next()
+    	{
+    		if(!hasNext())
+    		{
+    			throw new NoSuchElementException();
+    		}
+    		checked = false;
+    		// the rows are run in batches, so each record needs its own row
+    		return reader.copyRowFieldCollection();
+    	}
+    	
+    	private long getNumberOfRecords()
+    	{
+    		return reader.getNumberOfRows();
+    	}
+    	
+    	private void close() throws SQLException
+    	{
+    		reader.close();
+    	}
+    }
 }
@@ -18,16 +18,16 @@
  */
 package com.datamelt.rules.reader;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FilenameFilter;
 import java.util.Calendar;
 
 import com.datamelt.rules.core.RuleGroup;
 import com.datamelt.rules.engine.BusinessRulesEngine;
-import com.datamelt.util.Row;
-import com.datamelt.util.Splitter;
+import com.datamelt.rules.parser.xml.RowDefinitionParser;
+import com.datamelt.util.FixedLengthRecord;
+import com.datamelt.util.FixedLengthRecordDecoder;
+import com.datamelt.util.MappedFileReader;
 
 /**
  * TextFileReader class is used to run the business rule engine
@@ -44,9 +44,11 @@ import com.datamelt.util.Splitter;
  * defined in a xml file indicating the start of each field and
  * its length.
  * 
- * Data from the file is read, Row objects are constructed and
+ * Data from the file is read, FixedLengthRecord objects are constructed and
  * are run against the rule engine using rules as defined in a rule
- * xml file.
+ * xml file. The records provide the same methods to access the fields
+ * as the Row objects created by the Splitter, but they decode a field
+ * only when a rule accesses it.
  * 
  * Pass a ruleengine project zip file created with the Business Rules
  * Maintenance Web Tool.
@@ -63,9 +65,9 @@ public class TextFileReader
     	Calendar start = Calendar.getInstance();
 	    System.out.println("start:                     " + start.getTime());
 
-	    // reader for the data file
-	    BufferedReader reader = new BufferedReader(new FileReader(args[0]));
-	    String line;
+	    // reader for the data file. the file is mapped into memory. empty lines
+	    // and lines starting with a hash sign (comment) are skipped and not counted
+	    MappedFileReader reader = new MappedFileReader(args[0]);
 	    // counts number of lines in data file
 	    long counter=0;
 	    
@@ -94,30 +96,22 @@ public class TextFileReader
             System.out.println("group logic:               " + group.getId() + ": "+ engine.getRuleLogic(i));
         }
         
-        // splitter object will split the row from the datafile into
-        // its fields using the definition found in the corresponding
-        // xml row definition file
-        Splitter splitter = new Splitter(Splitter.TYPE_FIXED_LENGTH);
-        //set the row definition file for the fixed length ascii file
-    	splitter.setRowDefinitionFile(args[3]);
-    	//we want to trim whitespace from the fields
-    	splitter.setTrimFields(true);
+        // the decoder will provide the fields of the rows from the datafile
+        // using the definition found in the corresponding xml row definition file.
+        // the fields are trimmed. the start and length of the fields are positions in
+        // bytes, so the records are decoded using the one byte ISO-8859-1 charset
+        RowDefinitionParser parser = new RowDefinitionParser();
+        parser.parse(args[3]);
+        FixedLengthRecordDecoder decoder = new FixedLengthRecordDecoder(parser);
 
-        while ((line=reader.readLine())!=null)
+        while (reader.nextLine())
 	    {
-        	// only if the line is not empty 
-        	// and does not start with a hash sign (comment).
-        	// otherwise the line will be NOT be processed nor counted!
-        	if(!line.trim().equals("") && !line.startsWith("#"))
-	        {
-        		line = line.replace("\"","");
-        		// get a row object containing the fields and data
-        		Row row = splitter.getRow(line);
-            
-		        // run rules on this data
-		        engine.run("row: " + counter, row);
-		        counter++;
-	        }
+        	// get a record object containing the fields and data
+        	FixedLengthRecord record = decoder.decode(reader.getLineBuffer());
+        
+	        // run rules on this data
+	        engine.run("row: " + counter, record);
+	        counter++;
 	    }
         
         reader.close();
@@ -0,0 +1,461 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import com.datamelt.util.RowField;
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * encoding and decoding of the payload of the frames of the binary protocol.
+ * 
+ * the client sends the names of the fields - the header - once and after that only the typed values
+ * of the fields of each row. the server answers a row with the number of groups, rules and actions
+ * and with bitmaps of the failed groups, the skipped groups and the failed rules. the messages of
+ * ClientHandler.MESSAGES are sent as strings.
+ * 
+ * multiple rows may be sent in one batch. the server answers a batch with a batch containing the
+ * result of each row.
+ * 
+ * the first byte of a payload defines its type.
+ * 
+ * @author uwe geercken
+ */
+final class BinaryCodec
+{
+	// the types of the payloads
+	static final byte TYPE_HEADER			= 1;
+	static final byte TYPE_ROW				= 2;
+	static final byte TYPE_MESSAGE			= 3;
+	static final byte TYPE_RESULT			= 4;
+	static final byte TYPE_EXCEPTION		= 5;
+	static final byte TYPE_BATCH			= 6;
+	
+	// the types of the values of the fields
+	private static final byte VALUE_NULL		= 0;
+	private static final byte VALUE_STRING		= 1;
+	private static final byte VALUE_INTEGER		= 2;
+	private static final byte VALUE_LONG		= 3;
+	private static final byte VALUE_DOUBLE		= 4;
+	private static final byte VALUE_FLOAT		= 5;
+	private static final byte VALUE_BOOLEAN		= 6;
+	private static final byte VALUE_SHORT		= 7;
+	private static final byte VALUE_BYTE		= 8;
+	// any other value is sent using java serialization
+	private static final byte VALUE_OBJECT		= 15;
+	
+	private BinaryCodec()
+	{
+	}
+	
+	/**
+	 * returns the type of the payload
+	 * 
+	 * @param payload	the payload
+	 * @return			the type
+	 */
+	static byte getType(byte[] payload)
+	{
+		return payload[0];
+	}
+	
+	/**
+	 * encodes the names of the fields of the row
+	 * 
+	 * @param fieldNames	the names of the fields
+	 * @return				the payload
+	 * @throws IOException	when the payload can not be written
+	 */
+	static byte[] encodeHeader(String[] fieldNames) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeByte(TYPE_HEADER);
+		output.writeInt(fieldNames.length);
+		for(int i=0;i<fieldNames.length;i++)
+		{
+			writeString(output, fieldNames[i]);
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * decodes the names of the fields
+	 * 
+	 * @param payload		the payload
+	 * @return				the names of the fields
+	 * @throws IOException	when the payload is invalid
+	 */
+	static String[] decodeHeader(byte[] payload) throws IOException
+	{
+		DataInputStream input = createInput(payload);
+		int numberOfFields = input.readInt();
+		String[] fieldNames = new String[numberOfFields];
+		for(int i=0;i<numberOfFields;i++)
+		{
+			fieldNames[i] = readString(input);
+		}
+		return fieldNames;
+	}
+	
+	/**
+	 * encodes the values of the fields of the row. the header must have been sent before.
+	 * 
+	 * @param fields		the fields of the row
+	 * @return				the payload
+	 * @throws IOException	when the payload can not be written
+	 */
+	static byte[] encodeRow(RowFieldCollection fields) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeByte(TYPE_ROW);
+		ArrayList<RowField> rowFields = fields.getFields();
+		for(int i=0;i<rowFields.size();i++)
+		{
+			writeValue(output, rowFields.get(i).getValue());
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * decodes the values of the fields of a row
+	 * 
+	 * @param payload			the payload
+	 * @param numberOfFields	the number of fields, as defined by the header
+	 * @return					the values of the fields
+	 * @throws Exception		when the payload is invalid
+	 */
+	static Object[] decodeRow(byte[] payload, int numberOfFields) throws Exception
+	{
+		DataInputStream input = createInput(payload);
+		Object[] values = new Object[numberOfFields];
+		for(int i=0;i<numberOfFields;i++)
+		{
+			values[i] = readValue(input);
+		}
+		return values;
+	}
+	
+	/**
+	 * encodes a batch of payloads - rows or results - into one payload
+	 * 
+	 * @param payloads		the payloads
+	 * @return				the payload of the batch
+	 * @throws IOException	when the payload can not be written
+	 */
+	static byte[] encodeBatch(List<byte[]> payloads) throws IOException
+	{
+		int size = 5;
+		for(int i=0;i<payloads.size();i++)
+		{
+			size = size + 4 + payloads.get(i).length;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(size);
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeByte(TYPE_BATCH);
+		output.writeInt(payloads.size());
+		for(int i=0;i<payloads.size();i++)
+		{
+			output.writeInt(payloads.get(i).length);
+			output.write(payloads.get(i));
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * decodes the payloads contained in a batch
+	 * 
+	 * @param payload		the payload of the batch
+	 * @return				the payloads
+	 * @throws IOException	when the payload is invalid
+	 */
+	static ArrayList<byte[]> decodeBatch(byte[] payload) throws IOException
+	{
+		DataInputStream input = createInput(payload);
+		int numberOfPayloads = input.readInt();
+		ArrayList<byte[]> payloads = new ArrayList<byte[]>(numberOfPayloads);
+		for(int i=0;i<numberOfPayloads;i++)
+		{
+			byte[] bytes = new byte[input.readInt()];
+			input.readFully(bytes);
+			payloads.add(bytes);
+		}
+		return payloads;
+	}
+	
+	/**
+	 * encodes a message
+	 * 
+	 * @param message		the message
+	 * @return				the payload
+	 * @throws IOException	when the payload can not be written
+	 */
+	static byte[] encodeMessage(String message) throws IOException
+	{
+		return encodeString(TYPE_MESSAGE, message);
+	}
+	
+	/**
+	 * encodes the message of an exception running the rules
+	 * 
+	 * @param message		the message of the exception
+	 * @return				the payload
+	 * @throws IOException	when the payload can not be written
+	 */
+	static byte[] encodeException(String message) throws IOException
+	{
+		return encodeString(TYPE_EXCEPTION, message);
+	}
+	
+	/**
+	 * decodes a message or the message of an exception
+	 * 
+	 * @param payload		the payload
+	 * @return				the message
+	 * @throws IOException	when the payload is invalid
+	 */
+	static String decodeString(byte[] payload) throws IOException
+	{
+		return readString(createInput(payload));
+	}
+	
+	/**
+	 * encodes the result of running the rules against a row
+	 * 
+	 * @param numberOfGroups	the number of groups
+	 * @param numberOfRules		the number of rules
+	 * @param numberOfActions	the number of actions
+	 * @param failedGroups		the bitmap of the failed groups
+	 * @param skippedGroups		the bitmap of the skipped groups
+	 * @param failedRules		the bitmap of the failed rules
+	 * @param fields			the fields of the row if they were updated by actions, otherwise null
+	 * @return					the payload
+	 * @throws IOException		when the payload can not be written
+	 */
+	static byte[] encodeResult(int numberOfGroups, int numberOfRules, int numberOfActions, BitSet failedGroups, BitSet skippedGroups, BitSet failedRules, RowFieldCollection fields) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeByte(TYPE_RESULT);
+		output.writeInt(numberOfGroups);
+		output.writeInt(numberOfRules);
+		output.writeInt(numberOfActions);
+		writeBitSet(output, failedGroups);
+		writeBitSet(output, skippedGroups);
+		writeBitSet(output, failedRules);
+		// the values of the fields are only sent back if they may have been changed
+		output.writeBoolean(fields!=null);
+		if(fields!=null)
+		{
+			ArrayList<RowField> rowFields = fields.getFields();
+			output.writeInt(rowFields.size());
+			for(int i=0;i<rowFields.size();i++)
+			{
+				writeValue(output, rowFields.get(i).getValue());
+			}
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * decodes the result of running the rules into the server object. if the result contains
+	 * the values of the fields, they are set on the fields of the server object.
+	 * 
+	 * @param payload		the payload
+	 * @param serverObject	the server object containing the row
+	 * @throws Exception	when the payload is invalid
+	 */
+	static void decodeResult(byte[] payload, RuleEngineServerObject serverObject) throws Exception
+	{
+		DataInputStream input = createInput(payload);
+		serverObject.setTotalGroups(input.readInt());
+		serverObject.setTotalRules(input.readInt());
+		serverObject.setTotalActions(input.readInt());
+		BitSet failedGroups = readBitSet(input);
+		BitSet skippedGroups = readBitSet(input);
+		BitSet failedRules = readBitSet(input);
+		serverObject.setFailedGroups(failedGroups);
+		serverObject.setSkippedGroups(skippedGroups);
+		serverObject.setFailedRules(failedRules);
+		serverObject.setGroupsFailed(failedGroups.cardinality());
+		serverObject.setGroupsSkipped(skippedGroups.cardinality());
+		serverObject.setRulesFailed(failedRules.cardinality());
+		if(input.readBoolean())
+		{
+			ArrayList<RowField> rowFields = serverObject.getFields().getFields();
+			int numberOfFields = input.readInt();
+			for(int i=0;i<numberOfFields;i++)
+			{
+				rowFields.get(i).setValue(readValue(input));
+			}
+		}
+	}
+	
+	private static DataInputStream createInput(byte[] payload)
+	{
+		// skip the type of the payload
+		return new DataInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1));
+	}
+	
+	private static byte[] encodeString(byte type, String value) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeByte(type);
+		writeString(output, value);
+		return bytes.toByteArray();
+	}
+	
+	private static void writeString(DataOutputStream output, String value) throws IOException
+	{
+		if(value==null)
+		{
+			output.writeInt(-1);
+		}
+		else
+		{
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+	
+	private static String readString(DataInputStream input) throws IOException
+	{
+		int length = input.readInt();
+		if(length<0)
+		{
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private static void writeBitSet(DataOutputStream output, BitSet bits) throws IOException
+	{
+		byte[] bytes = bits.toByteArray();
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+	
+	private static BitSet readBitSet(DataInputStream input) throws IOException
+	{
+		byte[] bytes = new byte[input.readInt()];
+		input.readFully(bytes);
+		return BitSet.valueOf(bytes);
+	}
+	
+	private static void writeValue(DataOutputStream output, Object value) throws IOException
+	{
+		if(value==null)
+		{
+			output.writeByte(VALUE_NULL);
+		}
+		else if(value instanceof String)
+		{
+			output.writeByte(VALUE_STRING);
+			writeString(output, (String)value);
+		}
+		else if(value instanceof Integer)
+		{
+			output.writeByte(VALUE_INTEGER);
+			output.writeInt((Integer)value);
+		}
+		else if(value instanceof Long)
+		{
+			output.writeByte(VALUE_LONG);
+			output.writeLong((Long)value);
+		}
+		else if(value instanceof Double)
+		{
+			output.writeByte(VALUE_DOUBLE);
+			output.writeDouble((Double)value);
+		}
+		else if(value instanceof Float)
+		{
+			output.writeByte(VALUE_FLOAT);
+			output.writeFloat((Float)value);
+		}
+		else if(value instanceof Boolean)
+		{
+			output.writeByte(VALUE_BOOLEAN);
+			output.writeBoolean((Boolean)value);
+		}
+		else if(value instanceof Short)
+		{
+			output.writeByte(VALUE_SHORT);
+			output.writeShort((Short)value);
+		}
+		else if(value instanceof Byte)
+		{
+			output.writeByte(VALUE_BYTE);
+			output.writeByte((Byte)value);
+		}
+		else
+		{
+			byte[] bytes = FrameCodec.serialize(value);
+			output.writeByte(VALUE_OBJECT);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+	
+	private static Object readValue(DataInputStream input) throws Exception
+	{
+		byte type = input.readByte();
+		switch(type)
+		{
+			case VALUE_NULL:
+				return null;
+			case VALUE_STRING:
+				return readString(input);
+			case VALUE_INTEGER:
+				return input.readInt();
+			case VALUE_LONG:
+				return input.readLong();
+			case VALUE_DOUBLE:
+				return input.readDouble();
+			case VALUE_FLOAT:
+				return input.readFloat();
+			case VALUE_BOOLEAN:
+				return input.readBoolean();
+			case VALUE_SHORT:
+				return input.readShort();
+			case VALUE_BYTE:
+				return input.readByte();
+			case VALUE_OBJECT:
+				byte[] bytes = new byte[input.readInt()];
+				input.readFully(bytes);
+				return FrameCodec.deserialize(bytes);
+			default:
+				throw new IOException("unknown type of value: " + type);
+		}
+	}
+}
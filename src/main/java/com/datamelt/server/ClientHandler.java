@@ -20,40 +20,45 @@ package com.datamelt.server;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.zip.ZipFile;
 
 import org.apache.log4j.Logger;
 
-import com.datamelt.rules.core.RuleGroup;
 import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.rules.engine.RuleExecutionContext;
 import com.datamelt.server.transform.Transformer;
 
-public class ClientHandler extends Thread
+public class ClientHandler implements Runnable
 {
 	private String processId;
 	private Socket socket;
     private BusinessRulesEngine ruleEngine;
+    // the context used by this handler to run the rules of the shared engine
+    private RuleExecutionContext context;
+    // processes the requests of the client
+    private ServerSession session;
     private String ruleFileFolder;
     private String ruleFile;
     private long clientStart;
     private long serverStart;
-    private long rowsProcessed=0;
     private Transformer transformer;
+    private BufferedOutputStream socketOutputStream;
+    private BufferedInputStream socketInputStream;
     private ObjectOutputStream outputStream;
     private ObjectInputStream inputStream;
     
     // list of possible messages
     // the "exit" message is explicitly excluded here
-    public static final String[] MESSAGES					= {"uptime","rulefile","rowsprocessed","reload","processid","version","groups","hello"};
+    public static final String[] MESSAGES					= {"uptime","rulefile","rowsprocessed","reload","processid","version","groups","hello","ruleset","metrics"};
     
     public static final String RESPONSE_UPTIME 				= "uptime";
     public static final String RESPONSE_RULEFILE 			= "rulefile";
@@ -64,19 +69,47 @@ public class ClientHandler extends Thread
     public static final String RESPONSE_RULEENGINE_VERSION	= "version";
     public static final String RESPONSE_NUMBER_OF_GROUPS	= "groups";
     public static final String RESPONSE_HELLO				= "hello";
-    
-    private static final String DEFAULT_DATETIME_FORMAT		= "yyyy-MM-dd HH:mm:ss";
-    private static SimpleDateFormat sdf						= new SimpleDateFormat(DEFAULT_DATETIME_FORMAT);
+    // the version of the active rules and when and how fast they were loaded
+    public static final String RESPONSE_RULESET				= "ruleset";
+    // the current metrics of the groups, subgroups, rules and actions - if they are collected
+    public static final String RESPONSE_METRICS				= "metrics";
+    // sent by a client to switch to the binary protocol. the server answers with the same
+    // message followed by the process id. servers that don't know the binary protocol
+    // answer with "unknown request" and the client continues with the object stream
+    public static final String RESPONSE_PROTOCOL_BINARY		= "protocol binary";
     
     final static Logger logger 								= Logger.getLogger(ClientHandler.class);
     
     ClientHandler(String processId, Socket socket, BusinessRulesEngine ruleEngine, Transformer transformer, long serverStart) throws Exception
+    {
+    	this(processId, socket, socket.getInputStream(), false, ruleEngine, transformer, null, null, serverStart);
+    }
+    
+    /**
+     * constructor for a handler reading the requests of the client from the given stream. the stream
+     * may contain bytes that have already been read from the socket - e.g. by the RuleEngineNioServer
+     * handing over a connection - and the header of the object stream may already have been sent to the client.
+     * 
+     * @param processId			the id of the process
+     * @param socket			the socket to the client
+     * @param socketInputStream	the stream to read the requests from
+     * @param streamHeaderSent	indicator if the header of the object stream has already been sent to the client
+     * @param ruleEngine		the rule engine
+     * @param transformer		the transformer for the output of the results
+     * @param ruleFileFolder	the folder of the rule file - used when the rules are reloaded
+     * @param ruleFile			the name of the rule file - used when the rules are reloaded
+     * @param serverStart		the time the server was started
+     * @throws Exception		when the streams can not be created
+     */
+    ClientHandler(String processId, Socket socket, InputStream socketInputStream, boolean streamHeaderSent, BusinessRulesEngine ruleEngine, Transformer transformer, String ruleFileFolder, String ruleFile, long serverStart) throws Exception
     {
     	this.clientStart = System.currentTimeMillis();
     	this.serverStart = serverStart;
     	this.processId= processId;
         this.transformer = transformer;
         this.socket = socket;
+        this.ruleFileFolder = ruleFileFolder;
+        this.ruleFile = ruleFile;
         
         this.ruleEngine = ruleEngine;
         
@@ -86,11 +119,24 @@ public class ClientHandler extends Thread
         {
         	ruleEngine.setPreserveRuleExcecutionResults(true);
         }
+        // the rule engine is shared by all handlers. each handler runs
+        // the rules using its own context
+        this.context = ruleEngine.createExecutionContext();
+        this.session = new ServerSession(processId, ruleEngine, transformer, ruleFileFolder, ruleFile, serverStart);
         
-        this.outputStream = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.socketOutputStream = new BufferedOutputStream(socket.getOutputStream());
+        if(streamHeaderSent)
+        {
+        	this.outputStream = new HeaderlessObjectOutputStream(socketOutputStream);
+        }
+        else
+        {
+        	this.outputStream = new ObjectOutputStream(socketOutputStream);
+        }
         // flush MUST be called after creating the output stream, otherwise the stream blocks
         outputStream.flush();
-        this.inputStream = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.socketInputStream = new BufferedInputStream(socketInputStream);
+        this.inputStream = new ObjectInputStream(this.socketInputStream);
     }
 
     @Override
@@ -108,45 +154,20 @@ public class ClientHandler extends Thread
             	{
 	            	RuleEngineServerObject serverObject = (RuleEngineServerObject) object;
 	            		
-	                // set the output type
-	                ruleEngine.setOutputType(serverObject.getOutputType());
-	                
 	                // run the rule engine
-	                try
-	                {
-	                	ruleEngine.run("row_" + rowsProcessed + "_" + sdf.format(new Date()), serverObject.getFields());
-	                	// set the fields of the object by using the results from the rule engine
-		                serverObject.setTotalGroups(ruleEngine.getNumberOfGroups());
-		                serverObject.setGroupsFailed(ruleEngine.getNumberOfGroupsFailed());
-		                serverObject.setGroupsSkipped(ruleEngine.getNumberOfGroupsSkipped());
-		                serverObject.setTotalRules(ruleEngine.getNumberOfRules());
-		                serverObject.setRulesFailed(ruleEngine.getNumberOfRulesFailed());
-		                serverObject.setTotalActions(ruleEngine.getNumberOfActions());
-		                serverObject.setObjectLabel(serverObject.getFields().getFieldValues());
-		                serverObject.setProcessId(processId);
-	                }
-	                catch(Exception ex)
-	                {
-	                	serverObject.setRuleEngineException(true);
-	                	serverObject.setRuleEngineExceptionMessage(ex.getMessage());
-	                }
-	                
-	                // count the processed rows
-	                rowsProcessed++;
+	            	session.evaluate(getContext(), serverObject);
 	                
 	                outputStream.writeObject(serverObject);
-	                outputStream.flush();
-	                
-	                // add additional information of the rule engine to the server object for output purposes
-	                // we don't send these back to the client
-	                serverObject.setRuleGroups(ruleEngine.getGroups());
-	                serverObject.setRuleExecutionCollection(ruleEngine.getRuleExecutionCollection());
+	                flush(outputStream);
 	                
 	                // output the results
-	                output(serverObject,ruleEngine.getGroups());
-	                
-	               	// clear the execution results, otherwise they get accumulated
-	               	ruleEngine.getRuleExecutionCollection().clear();
+	                session.output(context);
+            	}
+            	else if(object instanceof RuleEngineServerObject[])
+            	{
+            		// run the rule engine for a batch of rows. the results are output for each row
+            		outputStream.writeObject(session.evaluate(getContext(), (RuleEngineServerObject[]) object));
+            		flush(outputStream);
             	}
             	else if(object instanceof String)
             	{
@@ -154,66 +175,25 @@ public class ClientHandler extends Thread
             		if(serverObject.equals(RESPONSE_EXIT))
             		{
             			// write response message
-    	                String responseMessage = "exit";
-    	                sendMessage(responseMessage);
+    	                sendMessage(session.processMessage(serverObject));
     	                
-    	                logger.info("client requested exit - closing client socket");
-
     	                if(!socket.isClosed())
             			{
             				socket.close();
             			}
     	               	ok=false;
             		}
-            		else if(serverObject.equals(RESPONSE_RELOAD))
-            		{
-            			ruleEngine.reloadZipFile(new ZipFile(ruleFileFolder + ruleFile));
-            			
-    	                String responseMessage = "reloaded rule file: " + ruleFileFolder + ruleFile;
-    	                sendMessage(responseMessage);
-    	                
-    	                logger.info("reloaded rule file: " + responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_UPTIME))
-            		{
-    	                String responseMessage = getRunTime();
-    	                sendMessage(responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_ROWSPROCESSED))
-            		{
-    	                String responseMessage = "" + rowsProcessed;
-    	                sendMessage(responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_PROCESSID))
-            		{
-    	                String responseMessage = processId;
-    	                sendMessage(responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_RULEFILE))
-            		{
-    	                String responseMessage = ruleFileFolder + ruleFile;
-    	                sendMessage(responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_RULEENGINE_VERSION))
-            		{
-    	                String responseMessage = BusinessRulesEngine.getVersion();
-    	                sendMessage(responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_NUMBER_OF_GROUPS))
-            		{
-    	                String responseMessage = "" + ruleEngine.getNumberOfGroups();
-    	                sendMessage(responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_HELLO))
+            		else if(serverObject.equals(RESPONSE_PROTOCOL_BINARY))
             		{
-    	                sendMessage(RESPONSE_HELLO + " client");
+            			// confirm the binary protocol. from here on the requests are sent as frames
+            			sendMessage(RESPONSE_PROTOCOL_BINARY + " " + processId);
+            			logger.info("client switched to the binary protocol: " + processId);
+            			runFrames(RuleEngineClient.PROTOCOL_BINARY);
+            			ok=false;
             		}
             		else
             		{
-    	                String responseMessage = "unknown request: " + serverObject;
-    	                sendMessage(responseMessage);
-    	                
-    	                logger.info(responseMessage);
+    	                sendMessage(session.processMessage(serverObject));
             		}
             	}
             	else
@@ -276,46 +256,71 @@ public class ClientHandler extends Thread
         }
     }
     
-    private void output(RuleEngineServerObject serverObject,ArrayList<RuleGroup> groups) throws Exception
+    /**
+     * processes the requests sent as frames until the client sends the exit message
+     * 
+     * @param protocol		the protocol of the frames
+     * @throws Exception	when a frame can not be read or processed
+     */
+    private void runFrames(int protocol) throws Exception
     {
-   		if(transformer!=null)
-   		{
-   			transformer.write(serverObject,groups);
-   		}
+    	// the object streams do not buffer any bytes, so the frames can be read from the underlying streams
+    	DataInputStream frameInputStream = new DataInputStream(socketInputStream);
+    	DataOutputStream frameOutputStream = new DataOutputStream(socketOutputStream);
+    	while(!session.getExit())
+    	{
+    		byte[] response = session.processFrame(getContext(), protocol, FrameCodec.readFrame(frameInputStream));
+    		if(response!=null)
+    		{
+    			FrameCodec.writeFrame(frameOutputStream, response);
+    			flush(frameOutputStream);
+    		}
+    		// output the results
+    		session.output(context);
+    	}
+    	if(!socket.isClosed())
+		{
+			socket.close();
+		}
     }
     
-    private void sendMessage(String responseMessage) throws IOException
+    /**
+     * returns the context of the handler. if the rules have been reloaded, a new context
+     * is created for the new rules
+     * 
+     * @return		the context
+     */
+    private RuleExecutionContext getContext()
     {
-        // create an ouput stream
-        //ObjectOutputStream outputStream = new ObjectOutputStream(socket.getOutputStream());
-        // write message to stream
-        outputStream.writeObject(responseMessage);
-       	outputStream.flush();
+    	if(context.getRuleSet()!=ruleEngine.getRuleSet())
+    	{
+    		context = ruleEngine.createExecutionContext();
+    	}
+    	return context;
     }
     
-    private String getRunTime()
+    /**
+     * flushes the responses to the client unless the client has already sent further requests. a client
+     * sending multiple requests without waiting for the responses receives the responses together.
+     * 
+     * @param stream		the stream to flush
+     * @throws IOException	when the stream can not be flushed
+     */
+    private void flush(OutputStream stream) throws IOException
     {
-    	long runTime = System.currentTimeMillis() - serverStart;
-    	long seconds = runTime/1000;
-    	
-    	if(seconds < 60)
-    	{
-    		return "" + seconds + " seconds";
-    	}
-    	else if(seconds >= 60 && seconds < 3600)
-    	{
-    		return "" + seconds/60 + " minute(s)";
-    	}
-    	else if(seconds >= 3600 && seconds < 86400)
-    	{
-    		return "" + seconds/3600 + " hour(s)";
-    	}
-    	else 
+    	if(socketInputStream.available()==0)
     	{
-    		return "" + seconds/86400 + " day(s)";
+    		stream.flush();
     	}
     }
-
+    
+    private void sendMessage(String responseMessage) throws IOException
+    {
+        // write message to stream
+        outputStream.writeObject(responseMessage);
+       	outputStream.flush();
+    }
+    
 	public String getProcessId()
 	{
 		return processId;
@@ -341,13 +346,34 @@ public class ClientHandler extends Thread
 		return clientStart;
 	}
 
+	public long getServerStart() 
+	{
+		return serverStart;
+	}
+
 	public long getRowsProcessed() 
 	{
-		return rowsProcessed;
+		return session.getRowsProcessed();
 	}
 
 	public Transformer getTransformer() 
 	{
 		return transformer;
 	}
+	
+	/**
+	 * object stream that does not write the stream header, because it has already been sent
+	 */
+	private static class HeaderlessObjectOutputStream extends ObjectOutputStream
+	{
+		HeaderlessObjectOutputStream(OutputStream output) throws IOException
+		{
+			super(output);
+		}
+		
+		@Override
+		protected void writeStreamHeader() throws IOException
+		{
+		}
+	}
 }
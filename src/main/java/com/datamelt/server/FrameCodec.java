@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * encoding and decoding of the frames exchanged between the RuleEngineClient and the
+ * RuleEngineNioServer.
+ * 
+ * a connection starts with the protocol magic number sent by the client and answered by the
+ * server. after that each message is sent as a frame: the length of the payload as an integer
+ * followed by the payload. the payload is one object written using java serialization. other
+ * than with a continuous object stream, each frame can be decoded on its own - so the server
+ * does not need a thread per connection that blocks while reading an object.
+ * 
+ * @author uwe geercken
+ */
+final class FrameCodec
+{
+	// the magic number sent at the start of a connection: "JARE"
+	static final int PROTOCOL_MAGIC			= 0x4A415245;
+	// the first two bytes of a java object stream
+	static final int OBJECT_STREAM_MAGIC	= 0xACED;
+	// the maximum length of the payload of a frame
+	static final int MAXIMUM_FRAME_SIZE		= 16 * 1024 * 1024;
+	
+	private FrameCodec()
+	{
+	}
+	
+	/**
+	 * serializes the object into the payload of a frame
+	 * 
+	 * @param object		the object
+	 * @return				the serialized object
+	 * @throws IOException	when the object can not be serialized
+	 */
+	static byte[] serialize(Object object) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+		ObjectOutputStream output = new ObjectOutputStream(bytes);
+		output.writeObject(object);
+		output.close();
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * deserializes the object from the payload of a frame
+	 * 
+	 * @param payload		the payload of the frame
+	 * @return							the object
+	 * @throws IOException				when the object can not be read
+	 * @throws ClassNotFoundException	when the class of the object is not known
+	 */
+	static Object deserialize(byte[] payload) throws IOException, ClassNotFoundException
+	{
+		ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(payload));
+		try
+		{
+			return input.readObject();
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+	
+	/**
+	 * creates a frame for the payload - the length of the payload followed by the payload
+	 * 
+	 * @param payload		the payload
+	 * @return				the frame
+	 */
+	static byte[] createFrame(byte[] payload)
+	{
+		byte[] frame = new byte[payload.length + 4];
+		frame[0] = (byte)(payload.length >>> 24);
+		frame[1] = (byte)(payload.length >>> 16);
+		frame[2] = (byte)(payload.length >>> 8);
+		frame[3] = (byte)payload.length;
+		System.arraycopy(payload, 0, frame, 4, payload.length);
+		return frame;
+	}
+	
+	/**
+	 * writes the payload as a frame to the stream. the stream is not flushed.
+	 * 
+	 * @param output		the stream
+	 * @param payload		the payload
+	 * @throws IOException	when the frame can not be written
+	 */
+	static void writeFrame(DataOutputStream output, byte[] payload) throws IOException
+	{
+		output.writeInt(payload.length);
+		output.write(payload);
+	}
+	
+	/**
+	 * reads the payload of the next frame from the stream
+	 * 
+	 * @param input			the stream
+	 * @return				the payload
+	 * @throws IOException	when the frame can not be read or is too large
+	 */
+	static byte[] readFrame(DataInputStream input) throws IOException
+	{
+		int length = input.readInt();
+		if(length<0 || length>MAXIMUM_FRAME_SIZE)
+		{
+			throw new IOException("invalid frame length: " + length);
+		}
+		byte[] payload = new byte[length];
+		input.readFully(payload);
+		return payload;
+	}
+}
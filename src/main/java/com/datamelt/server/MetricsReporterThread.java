@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import org.apache.log4j.Logger;
+
+import com.datamelt.rules.metrics.MetricsReporter;
+import com.datamelt.rules.metrics.RuleEngineMetrics;
+
+/**
+ * passes the metrics of the ruleengine to a reporter in the given interval. the last report is
+ * made when the thread is stopped, so that the executions since the previous report are not lost.
+ * 
+ * an exception of the reporter is logged and the thread continues with the next interval.
+ * 
+ * @author uwe geercken
+ */
+class MetricsReporterThread extends Thread
+{
+	private final RuleEngineMetrics metrics;
+	private final MetricsReporter reporter;
+	private final long interval;
+	
+	final static Logger logger 	= Logger.getLogger(MetricsReporterThread.class);
+	
+	/**
+	 * constructor for a thread reporting the given metrics
+	 * 
+	 * @param metrics		the metrics of the ruleengine
+	 * @param reporter		the reporter
+	 * @param interval		the interval in milliseconds in which the metrics are reported
+	 */
+	MetricsReporterThread(RuleEngineMetrics metrics, MetricsReporter reporter, long interval)
+	{
+		super("metrics reporter");
+		this.metrics = metrics;
+		this.reporter = reporter;
+		this.interval = interval;
+		setDaemon(true);
+	}
+	
+	@Override
+	public void run()
+	{
+		try
+		{
+			while(!isInterrupted())
+			{
+				Thread.sleep(interval);
+				report();
+			}
+		}
+		catch(InterruptedException ex)
+		{
+			// the reporter has been stopped
+		}
+		report();
+		try
+		{
+			reporter.close();
+		}
+		catch(Exception ex)
+		{
+			logger.error("error closing the metrics reporter: " + ex.getMessage());
+		}
+	}
+	
+	/**
+	 * passes the current metrics to the reporter
+	 */
+	void report()
+	{
+		try
+		{
+			reporter.report(metrics);
+		}
+		catch(Exception ex)
+		{
+			logger.error("error reporting the metrics: " + ex.getMessage());
+		}
+	}
+}
@@ -20,15 +20,25 @@ package com.datamelt.server;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.NoRouteToHostException;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 
 import org.apache.log4j.Logger;
 
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.RowField;
 import com.datamelt.util.RowFieldCollection;
 
 public class RuleEngineClient
@@ -42,16 +52,51 @@ public class RuleEngineClient
 	// the socket to the server
 	private Socket socket;
 	
+	// the protocol used to exchange the objects with the server
+	private int protocol = PROTOCOL_OBJECT_STREAM;
+	
 	private ObjectOutputStream outputStream;
 	private ObjectInputStream inputStream;
+	// the streams used for the framed and the binary protocol
+	private DataOutputStream frameOutputStream;
+	private DataInputStream frameInputStream;
+	
+	// the header last sent to the server using the binary protocol
+	private HeaderRow sentHeader;
+	private String[] sentFieldNames;
+	// the process id of the server for this client - sent when the binary protocol is confirmed
+	private String processId;
 	
 	private long resetInterval=1000;
 	private long counter=0;
 	
+	// the maximum number of rows sent asynchronously without having received their results
+	private int pipelineWindow = DEFAULT_PIPELINE_WINDOW;
+	// the free places of the window, the requests waiting for their results and the thread receiving them
+	private Semaphore pipelinePermits;
+	private LinkedBlockingQueue<PendingRequest> pendingRequests;
+	private Thread responseReceiver;
+	private volatile Exception pipelineException;
+	
+	public static final int DEFAULT_PIPELINE_WINDOW			= 64;
+	
+	// the maximum size of the rows sent in one frame of a batch. the results are sent back in one frame
+	// as well and may be larger than the rows - so only a part of the maximum size of a frame is used
+	static final int MAXIMUM_BATCH_SIZE						= FrameCodec.MAXIMUM_FRAME_SIZE / 4;
+	
 	public static final int OUTPUT_TYPE_ALL_GROUPS 			= 0;
 	public static final int OUTPUT_TYPE_FAILED_GROUPS_ONLY 	= 1;
 	public static final int OUTPUT_TYPE_PASSED_GROUPS_ONLY 	= 2;
 	
+	// objects are exchanged using one continuous object stream - supported by the RuleEngineServer
+	public static final int PROTOCOL_OBJECT_STREAM			= 0;
+	// each object is sent in a frame of its own - supported by the RuleEngineNioServer
+	public static final int PROTOCOL_FRAMED					= 1;
+	// the header is sent once and each row only contains the typed values of the fields. the results
+	// contain bitmaps of the failed groups and rules. the protocol is requested by the client when it
+	// connects; if the server does not support it, the client uses the object stream protocol
+	public static final int PROTOCOL_BINARY					= 2;
+	
 	final static Logger logger = Logger.getLogger(RuleEngineClient.class);
 	
 	public RuleEngineClient(String server, int port) throws UnknownHostException, IOException, NoRouteToHostException
@@ -69,35 +114,355 @@ public class RuleEngineClient
 		init();
 	}
 	
+	/**
+	 * constructor for a client using the given protocol. the framed protocol is used for
+	 * the RuleEngineNioServer. the binary protocol is supported by the RuleEngineServer and
+	 * the RuleEngineNioServer; if the server does not support it, the object stream protocol is used.
+	 * 
+	 * @param server		the server address
+	 * @param port			the port the server runs on
+	 * @param protocol		the protocol to use
+	 * @throws UnknownHostException		when the server is not known
+	 * @throws IOException				when the connection can not be established
+	 * @throws NoRouteToHostException	when the server can not be reached
+	 */
+	public RuleEngineClient(String server, int port, int protocol) throws UnknownHostException, IOException, NoRouteToHostException
+	{
+		this.server = server;
+		this.port = port;
+		this.protocol = protocol;
+		
+		init();
+	}
+	
 	private void init() throws UnknownHostException, IOException, NoRouteToHostException
 	{
 		getServerSocket(server, port);
-		outputStream = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		if(protocol==PROTOCOL_FRAMED)
+		{
+			socket.setTcpNoDelay(true);
+			frameOutputStream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			frameOutputStream.writeInt(FrameCodec.PROTOCOL_MAGIC);
+			frameOutputStream.flush();
+			frameInputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			// the server answers with the same magic number if it supports the protocol
+			int magic = frameInputStream.readInt();
+			if(magic!=FrameCodec.PROTOCOL_MAGIC)
+			{
+				socket.close();
+				throw new IOException("the server does not support the framed protocol");
+			}
+			return;
+		}
+		BufferedOutputStream socketOutputStream = new BufferedOutputStream(socket.getOutputStream());
+		BufferedInputStream socketInputStream = new BufferedInputStream(socket.getInputStream());
+		outputStream = new ObjectOutputStream(socketOutputStream);
+		if(protocol==PROTOCOL_BINARY)
+		{
+			// request the binary protocol before waiting for the header of the server
+			outputStream.writeObject(ClientHandler.RESPONSE_PROTOCOL_BINARY);
+		}
 		// flush MUST be called - otherwise the stream is blocking!
 		outputStream.flush();
-		inputStream = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+		inputStream = new ObjectInputStream(socketInputStream);
+		if(protocol==PROTOCOL_BINARY)
+		{
+			String response;
+			try
+			{
+				response = (String)inputStream.readObject();
+			}
+			catch(ClassNotFoundException ex)
+			{
+				throw new IOException(ex);
+			}
+			if(response.startsWith(ClientHandler.RESPONSE_PROTOCOL_BINARY))
+			{
+				// the object streams do not buffer any bytes, so the frames are written to the underlying streams
+				socket.setTcpNoDelay(true);
+				frameOutputStream = new DataOutputStream(socketOutputStream);
+				frameInputStream = new DataInputStream(socketInputStream);
+				processId = response.substring(ClientHandler.RESPONSE_PROTOCOL_BINARY.length()).trim();
+			}
+			else
+			{
+				logger.info("server does not support the binary protocol - using the object stream protocol");
+				protocol = PROTOCOL_OBJECT_STREAM;
+			}
+		}
 	}
 	
 	public RuleEngineServerObject getServerObject(RowFieldCollection fields) throws Exception
 	{
+		awaitPipeline();
 		sendObject(fields);
 		
-		return receiveObject();
+		return receiveObject(fields);
 	}
 	
 	public String getServerObject(String message) throws IOException, ClassNotFoundException
 	{
+		awaitPipeline();
 		sendMessageObject(message);
 		return receiveMessageObject();
 	}
 	
+	/**
+	 * sends the rows to the server in batches and returns the results in the same order.
+	 * 
+	 * using the framed or the binary protocol, the rows are split into batches that fit into a
+	 * frame. using the binary protocol, a new batch is also started whenever the fields of a row
+	 * differ from the fields of the previous row. a server that does not support batches answers
+	 * with a message; the rows are then sent one by one.
+	 * 
+	 * @param rows			the rows
+	 * @return				the server objects containing the rows and the results
+	 * @throws Exception	when the rows can not be sent or the results can not be received
+	 */
+	public ArrayList<RuleEngineServerObject> getServerObjects(List<RowFieldCollection> rows) throws Exception
+	{
+		awaitPipeline();
+		ArrayList<RuleEngineServerObject> results = new ArrayList<RuleEngineServerObject>(rows.size());
+		if(rows.isEmpty())
+		{
+			return results;
+		}
+		counter = counter + rows.size();
+		if(protocol==PROTOCOL_BINARY)
+		{
+			ArrayList<byte[]> payloads = new ArrayList<byte[]>();
+			int batchSize = 0;
+			for(int i=0;i<rows.size();i++)
+			{
+				byte[] payload = BinaryCodec.encodeRow(rows.get(i));
+				if(!payloads.isEmpty() && (isHeaderChanged(rows.get(i)) || batchSize + payload.length + 4>MAXIMUM_BATCH_SIZE))
+				{
+					sendBatch(payloads, rows, results);
+					payloads.clear();
+					batchSize = 0;
+				}
+				writeHeader(rows.get(i));
+				payloads.add(payload);
+				batchSize = batchSize + payload.length + 4;
+			}
+			sendBatch(payloads, rows, results);
+			return results;
+		}
+		
+		RuleEngineServerObject[] objects = new RuleEngineServerObject[rows.size()];
+		for(int i=0;i<rows.size();i++)
+		{
+			objects[i] = new RuleEngineServerObject(rows.get(i), outputType);
+		}
+		// the number of rows of the batches sent using the framed protocol
+		int batchRows = objects.length;
+		while(results.size()<objects.length)
+		{
+			Object response;
+			int start = results.size();
+			if(protocol==PROTOCOL_FRAMED)
+			{
+				// the number of rows is halved until the batch fits into a frame
+				byte[] payload = FrameCodec.serialize(Arrays.copyOfRange(objects, start, Math.min(objects.length, start + batchRows)));
+				while(payload.length>MAXIMUM_BATCH_SIZE && batchRows>1)
+				{
+					batchRows = batchRows / 2;
+					payload = FrameCodec.serialize(Arrays.copyOfRange(objects, start, Math.min(objects.length, start + batchRows)));
+				}
+				FrameCodec.writeFrame(frameOutputStream, payload);
+				frameOutputStream.flush();
+				response = receiveFrame();
+			}
+			else
+			{
+				outputStream.writeObject(objects);
+				outputStream.flush();
+				// the objects must not be referenced by the next batch
+				outputStream.reset();
+				response = inputStream.readObject();
+			}
+			if(response instanceof RuleEngineServerObject[])
+			{
+				results.addAll(Arrays.asList((RuleEngineServerObject[])response));
+			}
+			else
+			{
+				logger.info("server does not support batches - sending the rows one by one: " + response);
+				for(int i=start;i<rows.size();i++)
+				{
+					counter --;
+					results.add(getServerObject(rows.get(i)));
+				}
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * sends a batch of rows using the binary protocol and adds the results of the rows to the
+	 * given results. the batch is answered before the next batch is sent, so the server never
+	 * has to buffer more than one batch of results.
+	 * 
+	 * @param payloads		the encoded rows of the batch
+	 * @param rows			all rows sent
+	 * @param results		the results received so far
+	 * @throws Exception	when the rows can not be sent or the results can not be received
+	 */
+	private void sendBatch(ArrayList<byte[]> payloads, List<RowFieldCollection> rows, ArrayList<RuleEngineServerObject> results) throws Exception
+	{
+		FrameCodec.writeFrame(frameOutputStream, BinaryCodec.encodeBatch(payloads));
+		frameOutputStream.flush();
+		byte[] payload = FrameCodec.readFrame(frameInputStream);
+		if(BinaryCodec.getType(payload)!=BinaryCodec.TYPE_BATCH)
+		{
+			throw new IOException("unexpected response of type: " + BinaryCodec.getType(payload));
+		}
+		ArrayList<byte[]> batchResults = BinaryCodec.decodeBatch(payload);
+		for(int i=0;i<batchResults.size();i++)
+		{
+			results.add(decodeResult(batchResults.get(i), rows.get(results.size())));
+		}
+	}
+	
+	/**
+	 * sends the row to the server without waiting for the result. the result is received in the
+	 * background and completes the returned future.
+	 * 
+	 * at most the number of rows defined by the pipeline window are sent without their results having
+	 * been received. if the window is full, the method blocks until the next result arrives.
+	 * 
+	 * the futures are completed by the thread receiving the results in the order the rows were sent.
+	 * actions depending on the future should not block and should not use the client.
+	 * 
+	 * @param fields		the row
+	 * @return				the future for the server object containing the row and the results
+	 * @throws IOException	when the row can not be sent
+	 */
+	public CompletableFuture<RuleEngineServerObject> getServerObjectAsync(RowFieldCollection fields) throws IOException
+	{
+		if(pipelinePermits==null)
+		{
+			startPipeline();
+		}
+		if(pipelineException!=null)
+		{
+			throw new IOException("receiving the results failed", pipelineException);
+		}
+		PendingRequest request = new PendingRequest(fields);
+		pipelinePermits.acquireUninterruptibly();
+		try
+		{
+			sendObject(fields);
+		}
+		catch(IOException ex)
+		{
+			pipelinePermits.release();
+			throw ex;
+		}
+		pendingRequests.add(request);
+		if(pipelineException!=null)
+		{
+			// the receiving thread stopped in the meantime
+			failPendingRequests(pipelineException);
+		}
+		return request.future;
+	}
+	
+	/**
+	 * starts the thread receiving the results of the rows sent asynchronously
+	 */
+	private void startPipeline()
+	{
+		pipelinePermits = new Semaphore(pipelineWindow);
+		pendingRequests = new LinkedBlockingQueue<PendingRequest>();
+		responseReceiver = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				receiveResponses();
+			}
+		}, "rule engine client " + server + ":" + port);
+		responseReceiver.setDaemon(true);
+		responseReceiver.start();
+	}
+	
+	/**
+	 * receives the results of the rows sent asynchronously, until the socket is closed
+	 */
+	private void receiveResponses()
+	{
+		try
+		{
+			while(true)
+			{
+				PendingRequest request = pendingRequests.take();
+				try
+				{
+					RuleEngineServerObject object = receiveObject(request.fields);
+					// free the window before completing the future, so that the next row can be sent
+					pipelinePermits.release();
+					request.future.complete(object);
+				}
+				catch(Exception ex)
+				{
+					request.future.completeExceptionally(ex);
+					throw ex;
+				}
+			}
+		}
+		catch(Exception ex)
+		{
+			if(!socket.isClosed())
+			{
+				logger.error("error receiving results from server: " + ex.getMessage());
+			}
+			pipelineException = ex;
+			failPendingRequests(ex);
+			// release the waiting callers
+			pipelinePermits.release(pipelineWindow);
+		}
+	}
+	
+	private void failPendingRequests(Exception ex)
+	{
+		PendingRequest request;
+		while((request = pendingRequests.poll())!=null)
+		{
+			request.future.completeExceptionally(ex);
+		}
+	}
+	
+	/**
+	 * waits until the results of all rows sent asynchronously have been received
+	 */
+	private void awaitPipeline()
+	{
+		if(pipelinePermits!=null)
+		{
+			pipelinePermits.acquireUninterruptibly(pipelineWindow);
+			pipelinePermits.release(pipelineWindow);
+		}
+	}
+	
 	private void sendObject(RowFieldCollection fields) throws IOException
 	{
+		counter ++;
+		// send the row to the server
+		if(protocol==PROTOCOL_BINARY)
+		{
+			writeHeader(fields);
+			FrameCodec.writeFrame(frameOutputStream, BinaryCodec.encodeRow(fields));
+			frameOutputStream.flush();
+			return;
+		}
+		
 		// create a server object
 		RuleEngineServerObject object = new RuleEngineServerObject(fields,outputType);
-		
-		counter ++;
-		// send the object to the server
+		if(protocol==PROTOCOL_FRAMED)
+		{
+			sendFrame(object);
+			return;
+		}
 		
 		outputStream.writeObject(object);
        	outputStream.flush();
@@ -107,8 +472,16 @@ public class RuleEngineClient
        	}
 	}
 	
-	private RuleEngineServerObject receiveObject() throws Exception
+	private RuleEngineServerObject receiveObject(RowFieldCollection fields) throws Exception
 	{
+		if(protocol==PROTOCOL_BINARY)
+		{
+			return decodeResult(FrameCodec.readFrame(frameInputStream), fields);
+		}
+		else if(protocol==PROTOCOL_FRAMED)
+		{
+			return (RuleEngineServerObject)receiveFrame();
+		}
 		RuleEngineServerObject object = (RuleEngineServerObject)inputStream.readObject();
        	return object;
 	}
@@ -116,16 +489,118 @@ public class RuleEngineClient
 	private void sendMessageObject(String message) throws IOException
 	{
 		// send the message to the server
+		if(protocol==PROTOCOL_BINARY)
+		{
+			FrameCodec.writeFrame(frameOutputStream, BinaryCodec.encodeMessage(message));
+			frameOutputStream.flush();
+			return;
+		}
+		else if(protocol==PROTOCOL_FRAMED)
+		{
+			sendFrame(message);
+			return;
+		}
 		outputStream.writeObject(message);
        	outputStream.flush();
 	}
 	
 	private String receiveMessageObject() throws IOException, ClassNotFoundException
 	{
+		if(protocol==PROTOCOL_BINARY)
+		{
+			return BinaryCodec.decodeString(FrameCodec.readFrame(frameInputStream));
+		}
+		else if(protocol==PROTOCOL_FRAMED)
+		{
+			return (String)receiveFrame();
+		}
 		// create a response object from the object we received from the server
         return (String)inputStream.readObject();
 	}
 	
+	private void sendFrame(Object object) throws IOException
+	{
+		FrameCodec.writeFrame(frameOutputStream, FrameCodec.serialize(object));
+		frameOutputStream.flush();
+	}
+	
+	/**
+	 * checks if the fields of the row differ from the header last sent using the binary protocol
+	 * 
+	 * @param fields		the row
+	 * @return				indicator if the header has to be sent
+	 */
+	private boolean isHeaderChanged(RowFieldCollection fields)
+	{
+		if(fields.getHeader()!=null && fields.getHeader()==sentHeader && sentFieldNames.length==fields.getFields().size())
+		{
+			return false;
+		}
+		return !Arrays.equals(getFieldNames(fields), sentFieldNames);
+	}
+	
+	/**
+	 * writes the header for the row using the binary protocol, if it is different from
+	 * the header of the previous row.
+	 * 
+	 * @param fields		the row
+	 * @throws IOException	when the header can not be written
+	 */
+	private void writeHeader(RowFieldCollection fields) throws IOException
+	{
+		if(isHeaderChanged(fields))
+		{
+			sentFieldNames = getFieldNames(fields);
+			FrameCodec.writeFrame(frameOutputStream, BinaryCodec.encodeHeader(sentFieldNames));
+		}
+		sentHeader = fields.getHeader();
+	}
+	
+	private static String[] getFieldNames(RowFieldCollection fields)
+	{
+		ArrayList<RowField> rowFields = fields.getFields();
+		String[] fieldNames = new String[rowFields.size()];
+		for(int i=0;i<rowFields.size();i++)
+		{
+			fieldNames[i] = rowFields.get(i).getName();
+		}
+		return fieldNames;
+	}
+	
+	/**
+	 * decodes the result for a row sent using the binary protocol
+	 * 
+	 * @param payload		the payload of the result
+	 * @param fields		the row
+	 * @return				the server object containing the row and the results
+	 * @throws Exception	when the result is invalid
+	 */
+	private RuleEngineServerObject decodeResult(byte[] payload, RowFieldCollection fields) throws Exception
+	{
+		RuleEngineServerObject object = new RuleEngineServerObject(fields, outputType);
+		object.setProcessId(processId);
+		if(BinaryCodec.getType(payload)==BinaryCodec.TYPE_RESULT)
+		{
+			BinaryCodec.decodeResult(payload, object);
+			object.setObjectLabel(fields.getFieldValues());
+		}
+		else if(BinaryCodec.getType(payload)==BinaryCodec.TYPE_EXCEPTION)
+		{
+			object.setRuleEngineException(true);
+			object.setRuleEngineExceptionMessage(BinaryCodec.decodeString(payload));
+		}
+		else
+		{
+			throw new IOException("unexpected response of type: " + BinaryCodec.getType(payload));
+		}
+		return object;
+	}
+	
+	private Object receiveFrame() throws IOException, ClassNotFoundException
+	{
+		return FrameCodec.deserialize(FrameCodec.readFrame(frameInputStream));
+	}
+	
 	private void getServerSocket(String server, int port) throws UnknownHostException, IOException
 	{
 		// create a socket for the given server
@@ -134,6 +609,10 @@ public class RuleEngineClient
 	
 	public void closeSocket() throws IOException
 	{
+		if(responseReceiver!=null)
+		{
+			responseReceiver.interrupt();
+		}
 		if(!socket.isClosed())
 		{
 			socket.close();
@@ -179,4 +658,43 @@ public class RuleEngineClient
 	{
 		return counter;
 	}
+	
+	public int getProtocol() 
+	{
+		return protocol;
+	}
+	
+	public int getPipelineWindow() 
+	{
+		return pipelineWindow;
+	}
+	
+	/**
+	 * sets the maximum number of rows sent asynchronously without having received their results.
+	 * the window must be set before the first row is sent asynchronously.
+	 * 
+	 * @param pipelineWindow	the size of the window
+	 */
+	public void setPipelineWindow(int pipelineWindow) 
+	{
+		if(pipelinePermits!=null)
+		{
+			throw new IllegalStateException("the pipeline window can not be changed after rows have been sent asynchronously");
+		}
+		this.pipelineWindow = pipelineWindow;
+	}
+	
+	/**
+	 * a row sent asynchronously, waiting for its result
+	 */
+	private static class PendingRequest
+	{
+		private final RowFieldCollection fields;
+		private final CompletableFuture<RuleEngineServerObject> future = new CompletableFuture<RuleEngineServerObject>();
+		
+		PendingRequest(RowFieldCollection fields)
+		{
+			this.fields = fields;
+		}
+	}
 }
@@ -18,16 +18,17 @@
  */
 package com.datamelt.server;
 
-import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.StringReader;
+import java.util.function.BiConsumer;
 
 import org.apache.log4j.Logger;
 
 import com.datamelt.server.ClientHandler;
 import com.datamelt.server.RuleEngineClient;
+import com.datamelt.util.CsvTokenizer;
 import com.datamelt.util.HeaderRow;
 import com.datamelt.util.RowFieldCollection;
-import com.datamelt.util.Splitter;
 
 /**
  * Utility class which can be used to send CSV data to a running rule engine server.
@@ -51,7 +52,6 @@ public class RuleEngineClientCSV
     private static String data;
     private static String inputFile;
     
-    private static Splitter splitter;
     private static HeaderRow headerRow;
     
     final static Logger logger = Logger.getLogger(RuleEngineClientCSV.class);
@@ -66,15 +66,12 @@ public class RuleEngineClientCSV
 		{
 			processArguments(args);
 			
-			// used to split line of data into single columns
-			splitter = new Splitter(Splitter.TYPE_COMMA_SEPERATED,separator);
-			
 			RuleEngineClient client = null;
 			boolean socketConnectionOk = false;
 			try
 			{
 				// create a client to communicate with the server
-				client = new RuleEngineClient(hostname,port);
+				client = new RuleEngineClient(hostname,port,RuleEngineClient.PROTOCOL_BINARY);
 				socketConnectionOk = true;
 			}
 			catch(Exception ex)
@@ -93,7 +90,11 @@ public class RuleEngineClientCSV
 					if(data!=null)
 					{
 						counter++;
-						RowFieldCollection collection = getRowFieldCollection(data);
+						// used to split the data into single columns
+						CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(data),separator);
+						tokenizer.setSkipEmptyAndCommentRows(false);
+						tokenizer.nextRow();
+						RowFieldCollection collection = tokenizer.getRowFieldCollection(headerRow);
 						
 						// get the results from the server
 						RuleEngineServerObject response = client.getServerObject(collection);
@@ -101,36 +102,42 @@ public class RuleEngineClientCSV
 					}
 					else if(inputFile!=null)
 					{
-					    try(BufferedReader reader = new BufferedReader(new FileReader(inputFile));)
+					    // used to read the file and split the rows into single columns.
+					    // empty rows and rows starting with a hash sign (comment) are skipped
+					    try(CsvTokenizer tokenizer = new CsvTokenizer(new FileReader(inputFile),separator);)
 					    {
-						    String line;
-						    while ((line=reader.readLine())!=null)
+						    while (tokenizer.nextRow())
 						    {
-					        	// only if the line is NOT empty 
-					        	// and does NOT start with a hash sign (comment).
-						        if(!line.trim().equals("") && !line.startsWith("#"))
-						        {
-						        	counter++;
-						        	RowFieldCollection collection = getRowFieldCollection(line);
-							        
-						        	// get the results from the server
-						        	try
-						        	{
-						        		RuleEngineServerObject response = client.getServerObject(collection);
-						        		if(!response.getRuleEngineException())
-						        		{
-						        			logger.info("server response: " + response.getFields().getFieldValues());
-						        		}
-						        		else
-						        		{
-						        			logger.error("error processing data: " + response.getRuleEngineExceptionMessage());
-						        		}
-						        	}
-						        	catch(Exception ex)
-						        	{
-						        		logger.error("error receiving result object from server. check server logs.");
-						        	}
-						        }
+					        	counter++;
+					        	RowFieldCollection collection = tokenizer.getRowFieldCollection(headerRow);
+						        
+					        	// send the row without waiting for the result of the previous rows.
+					        	// the results are logged when they arrive
+					        	try
+					        	{
+					        		client.getServerObjectAsync(collection).whenComplete(new BiConsumer<RuleEngineServerObject, Throwable>()
+					        		{
+					        			public void accept(RuleEngineServerObject response, Throwable exception)
+					        			{
+						        			if(exception!=null)
+							        		{
+							        			logger.error("error receiving result object from server. check server logs.");
+							        		}
+						        			else if(!response.getRuleEngineException())
+							        		{
+							        			logger.info("server response: " + response.getFields().getFieldValues());
+							        		}
+							        		else
+							        		{
+							        			logger.error("error processing data: " + response.getRuleEngineExceptionMessage());
+							        		}
+					        			}
+					        		});
+					        	}
+					        	catch(Exception ex)
+					        	{
+					        		logger.error("error sending row to server. check server logs.");
+					        	}
 						    }
 					    }
 					    catch(Exception ex)
@@ -174,12 +181,6 @@ public class RuleEngineClientCSV
 		}
     }
 	
-	private static RowFieldCollection getRowFieldCollection(String line) throws Exception
-	{
-		Object[] fields = splitter.getFields(line);
-		return new RowFieldCollection(headerRow,fields);
-	}
-	
 	private static void processArguments(String[] args)
 	{
 		for(int i=0;i<args.length;i++)
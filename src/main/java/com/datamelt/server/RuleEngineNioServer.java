@@ -0,0 +1,784 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.rules.engine.RuleExecutionContext;
+import com.datamelt.server.transform.Transformer;
+import com.datamelt.util.VirtualThreads;
+
+/**
+ * non-blocking server for the rule engine.
+ * 
+ * other than the RuleEngineServer with its ClientHandler thread per connection, this server
+ * uses a small number of I/O threads, each one handling many connections using a selector.
+ * the rules are run by a separate, fixed number of worker threads. so the number of connections
+ * and the number of rows that are evaluated concurrently are sized independently.
+ * 
+ * the clients use the framed or the binary protocol of the RuleEngineClient: each request and each
+ * response is sent as a frame. the requests are the same as for the ClientHandler: a row or one of
+ * the messages defined in ClientHandler.MESSAGES.
+ * 
+ * the requests of one connection are evaluated one after the other, in the order they were sent.
+ * while a request is evaluated, further requests are buffered; when the buffer is full, the
+ * server stops reading from the connection until the request is finished.
+ * 
+ * clients using the object stream protocol are detected when they connect. if their first message
+ * requests the binary protocol, the connection is switched to the binary protocol. otherwise it is
+ * handed over to a ClientHandler thread, as with the RuleEngineServer.
+ * 
+ * @author uwe geercken
+ */
+public class RuleEngineNioServer
+{
+	private static final int READ_BUFFER_SIZE				= 8192;
+	private static final String DEFAULT_DATETIME_FORMAT		= "yyyy-MM-dd HH:mm:ss";
+	
+	// the state of the protocol of a connection
+	private static final int STATE_HANDSHAKE				= 0;
+	private static final int STATE_OBJECT_STREAM			= 1;
+	private static final int STATE_FRAMES					= 2;
+	
+	final static Logger logger 								= Logger.getLogger(RuleEngineNioServer.class);
+	
+	private final BusinessRulesEngine ruleEngine;
+	private final Transformer transformer;
+	private final String ruleFileFolder;
+	private final String ruleFile;
+	private final int numberOfIoThreads;
+	private final int numberOfWorkers;
+	private final int maximumConnections;
+	
+	private ServerSocketChannel serverChannel;
+	private IoLoop[] ioLoops;
+	private ThreadPoolExecutor workers;
+	private long serverStart;
+	private volatile boolean running;
+	// indicator if the clients handed over to a ClientHandler run in virtual threads
+	private boolean virtualThreads;
+	// the number of the next I/O thread that gets a new connection
+	private int nextIoLoop;
+	
+	private final AtomicInteger numberOfConnections = new AtomicInteger();
+	// each worker runs the rules using its own context
+	private final ThreadLocal<RuleExecutionContext> contexts = new ThreadLocal<RuleExecutionContext>();
+	// the header of an object stream and the request for the binary protocol - as written by an object stream
+	private final byte[] streamHeader;
+	private final byte[] binaryProtocolRequest;
+	
+	/**
+	 * constructor for a server using the given rule engine
+	 * 
+	 * @param ruleEngine			the rule engine - shared by all connections
+	 * @param transformer			the transformer for the output of the results or null
+	 * @param ruleFileFolder		the folder of the rule file - used when the rules are reloaded
+	 * @param ruleFile				the name of the rule file - used when the rules are reloaded
+	 * @param numberOfIoThreads		the number of threads reading and writing the connections
+	 * @param numberOfWorkers		the number of threads running the rules
+	 * @param maximumConnections	the maximum number of connections. further connections are closed
+	 */
+	public RuleEngineNioServer(BusinessRulesEngine ruleEngine, Transformer transformer, String ruleFileFolder, String ruleFile, int numberOfIoThreads, int numberOfWorkers, int maximumConnections)
+	{
+		this.ruleEngine = ruleEngine;
+		this.transformer = transformer;
+		this.ruleFileFolder = ruleFileFolder;
+		this.ruleFile = ruleFile;
+		this.numberOfIoThreads = Math.max(1, numberOfIoThreads);
+		this.numberOfWorkers = Math.max(1, numberOfWorkers);
+		this.maximumConnections = Math.max(1, maximumConnections);
+		
+		byte[] request = serializeString(ClientHandler.RESPONSE_PROTOCOL_BINARY);
+		this.streamHeader = Arrays.copyOfRange(request, 0, 4);
+		this.binaryProtocolRequest = Arrays.copyOfRange(request, 4, request.length);
+		
+		// if no transformer is defined then no detailed output is generated. so we don't need
+		// the detailed results of the rule engine. if one is defined, we keep them.
+		if(transformer!=null)
+		{
+			ruleEngine.setPreserveRuleExcecutionResults(true);
+		}
+	}
+	
+	/**
+	 * sets if the clients using the object stream protocol - which are handed over to a
+	 * ClientHandler - run in virtual threads. virtual threads are only used, if they are
+	 * supported by the runtime.
+	 * 
+	 * @param virtualThreads	indicator if virtual threads are used for the client handlers
+	 */
+	public void setVirtualThreads(boolean virtualThreads)
+	{
+		this.virtualThreads = virtualThreads;
+	}
+	
+	/**
+	 * starts the server on the given port. the port 0 selects a free port.
+	 * 
+	 * @param port			the port
+	 * @throws IOException	when the server can not be started
+	 */
+	public void start(int port) throws IOException
+	{
+		serverStart = System.currentTimeMillis();
+		
+		// a connection has at most one request in the queue of the workers
+		workers = new ThreadPoolExecutor(numberOfWorkers, numberOfWorkers, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(maximumConnections), new NamedThreadFactory("jare-worker-", true));
+		
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.socket().bind(new InetSocketAddress(port));
+		serverChannel.configureBlocking(false);
+		
+		running = true;
+		ioLoops = new IoLoop[numberOfIoThreads];
+		ThreadFactory ioThreadFactory = new NamedThreadFactory("jare-io-", false);
+		for(int i=0;i<numberOfIoThreads;i++)
+		{
+			ioLoops[i] = new IoLoop(Selector.open());
+		}
+		// the first I/O thread also accepts the connections
+		serverChannel.register(ioLoops[0].selector, SelectionKey.OP_ACCEPT);
+		for(int i=0;i<numberOfIoThreads;i++)
+		{
+			ioThreadFactory.newThread(ioLoops[i]).start();
+		}
+		logger.info("nio server started - port: " + getPort() + ", I/O threads: " + numberOfIoThreads + ", workers: " + numberOfWorkers + ", maximum connections: " + maximumConnections);
+	}
+	
+	/**
+	 * stops the server. all connections are closed and the transformer - if defined - is closed.
+	 */
+	public void stop()
+	{
+		running = false;
+		if(ioLoops!=null)
+		{
+			for(IoLoop loop : ioLoops)
+			{
+				loop.selector.wakeup();
+			}
+		}
+		if(workers!=null)
+		{
+			workers.shutdown();
+		}
+		try
+		{
+			if(serverChannel!=null)
+			{
+				serverChannel.close();
+			}
+			if(transformer!=null)
+			{
+				transformer.close();
+			}
+		}
+		catch(Exception ex)
+		{
+			logger.error("error stopping the server: " + ex.getMessage());
+		}
+	}
+	
+	/**
+	 * returns the port the server is listening on
+	 * 
+	 * @return		the port
+	 */
+	public int getPort()
+	{
+		return serverChannel.socket().getLocalPort();
+	}
+	
+	/**
+	 * returns the number of connections using the framed protocol
+	 * 
+	 * @return		the number of open connections
+	 */
+	public int getNumberOfConnections()
+	{
+		return numberOfConnections.get();
+	}
+	
+	/**
+	 * accepts the pending connections and assigns them to the I/O threads
+	 * 
+	 * @throws IOException	when a connection can not be accepted
+	 */
+	private void accept() throws IOException
+	{
+		SocketChannel channel;
+		while((channel = serverChannel.accept())!=null)
+		{
+			if(numberOfConnections.incrementAndGet()>maximumConnections)
+			{
+				numberOfConnections.decrementAndGet();
+				logger.info("maximum number of connections reached - closing connection from: " + channel.socket().getInetAddress());
+				channel.close();
+				continue;
+			}
+			logger.info("client connected from: " + channel.socket().getInetAddress());
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			final SocketChannel acceptedChannel = channel;
+			final IoLoop loop = ioLoops[nextIoLoop];
+			nextIoLoop = (nextIoLoop + 1) % ioLoops.length;
+			loop.execute(new Runnable()
+			{
+				public void run()
+				{
+					loop.register(acceptedChannel);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * returns the context of the current worker. a new context is created, when the
+	 * rules have been reloaded.
+	 * 
+	 * @return		the context of the worker
+	 */
+	private RuleExecutionContext getContext()
+	{
+		RuleExecutionContext context = contexts.get();
+		if(context==null || context.getRuleSet()!=ruleEngine.getRuleSet())
+		{
+			context = ruleEngine.createExecutionContext();
+			contexts.set(context);
+		}
+		return context;
+	}
+	
+	private String getProcessId(String clientInetAddress)
+	{
+		return "client-" + clientInetAddress + "-" + ruleFile + "_" + new SimpleDateFormat(DEFAULT_DATETIME_FORMAT).format(new Date());
+	}
+	
+	/**
+	 * returns the bytes of the string written to an object stream - including the header of the stream
+	 * 
+	 * @param value		the string
+	 * @return			the bytes
+	 */
+	private static byte[] serializeString(String value)
+	{
+		try
+		{
+			return FrameCodec.serialize(value);
+		}
+		catch(IOException ex)
+		{
+			throw new IllegalStateException(ex);
+		}
+	}
+	
+	/**
+	 * a thread reading and writing the connections assigned to it. other threads pass tasks to
+	 * the loop - e.g. the responses of the workers - which are run after the selector wakes up.
+	 */
+	private class IoLoop implements Runnable
+	{
+		private final Selector selector;
+		private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+		
+		IoLoop(Selector selector)
+		{
+			this.selector = selector;
+		}
+		
+		void execute(Runnable task)
+		{
+			tasks.add(task);
+			selector.wakeup();
+		}
+		
+		void register(SocketChannel channel)
+		{
+			try
+			{
+				Connection connection = new Connection(this, channel);
+				connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+			}
+			catch(IOException ex)
+			{
+				numberOfConnections.decrementAndGet();
+				logger.error("error registering connection: " + ex.getMessage());
+			}
+		}
+		
+		public void run()
+		{
+			while(running)
+			{
+				try
+				{
+					selector.select();
+				}
+				catch(IOException ex)
+				{
+					logger.error("error selecting connections: " + ex.getMessage());
+					break;
+				}
+				Runnable task;
+				while((task = tasks.poll())!=null)
+				{
+					// a failing task must not stop the loop and the other connections of the thread
+					try
+					{
+						task.run();
+					}
+					catch(RuntimeException ex)
+					{
+						logger.error("error running task of the I/O thread: " + ex.getMessage());
+					}
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext())
+				{
+					SelectionKey key = keys.next();
+					keys.remove();
+					if(!key.isValid())
+					{
+						continue;
+					}
+					if(key.isAcceptable())
+					{
+						try
+						{
+							accept();
+						}
+						catch(IOException ex)
+						{
+							logger.error("error accepting connection: " + ex.getMessage());
+						}
+						catch(RuntimeException ex)
+						{
+							logger.error("error accepting connection: " + ex.getMessage());
+						}
+						continue;
+					}
+					Connection connection = (Connection)key.attachment();
+					try
+					{
+						if(key.isReadable())
+						{
+							connection.read();
+						}
+						if(key.isValid() && key.isWritable())
+						{
+							connection.write();
+						}
+					}
+					catch(IOException ex)
+					{
+						connection.close();
+					}
+					catch(RuntimeException ex)
+					{
+						// e.g. the request was rejected by the workers. only this connection is closed
+						logger.error("error processing connection - closing connection: " + ex.getMessage());
+						connection.close();
+					}
+				}
+			}
+			// close all remaining connections
+			for(SelectionKey key : selector.keys())
+			{
+				if(key.attachment() instanceof Connection)
+				{
+					((Connection)key.attachment()).close();
+				}
+			}
+			try
+			{
+				selector.close();
+			}
+			catch(IOException ex)
+			{
+				logger.error("error closing selector: " + ex.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * the state of a connection. the buffers and the state of the protocol are only used by the I/O thread
+	 * of the connection; the workers pass their results back to it.
+	 */
+	private class Connection
+	{
+		private final IoLoop loop;
+		private final SocketChannel channel;
+		private final ServerSession session;
+		private SelectionKey key;
+		private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+		private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<ByteBuffer>();
+		private int state = STATE_HANDSHAKE;
+		// the protocol of the frames
+		private int protocol;
+		// the header of the object stream sent by the client
+		private int clientStreamHeader;
+		// indicates if a request of the connection is currently evaluated
+		private boolean busy = false;
+		private boolean closeAfterWrite = false;
+		private boolean closed = false;
+		
+		Connection(IoLoop loop, SocketChannel channel)
+		{
+			this.loop = loop;
+			this.channel = channel;
+			this.session = new ServerSession(getProcessId(channel.socket().getInetAddress().toString()), ruleEngine, transformer, ruleFileFolder, ruleFile, serverStart);
+		}
+		
+		void read() throws IOException
+		{
+			int bytesRead = channel.read(readBuffer);
+			if(bytesRead<0)
+			{
+				close();
+				return;
+			}
+			processFrames();
+		}
+		
+		/**
+		 * processes the bytes received so far: determines the protocol and hands the next
+		 * complete frame to a worker - if no other request is evaluated.
+		 * 
+		 * @throws IOException	when the client sent invalid data
+		 */
+		void processFrames() throws IOException
+		{
+			readBuffer.flip();
+			try
+			{
+				if(state==STATE_HANDSHAKE)
+				{
+					if(readBuffer.remaining()<4)
+					{
+						return;
+					}
+					int magic = readBuffer.getInt(readBuffer.position());
+					if(magic==FrameCodec.PROTOCOL_MAGIC)
+					{
+						readBuffer.getInt();
+						state = STATE_FRAMES;
+						protocol = RuleEngineClient.PROTOCOL_FRAMED;
+						enqueue(ByteBuffer.allocate(4).putInt(0, FrameCodec.PROTOCOL_MAGIC));
+					}
+					else if(magic>>>16==FrameCodec.OBJECT_STREAM_MAGIC)
+					{
+						// the client waits for the header of the object stream of the server before
+						// it sends its first message
+						clientStreamHeader = readBuffer.getInt();
+						state = STATE_OBJECT_STREAM;
+						enqueue(ByteBuffer.wrap(streamHeader));
+					}
+					else
+					{
+						throw new IOException("unknown protocol: " + Integer.toHexString(magic));
+					}
+				}
+				if(state==STATE_OBJECT_STREAM)
+				{
+					// compare the first message of the client with the request for the binary protocol
+					int length = Math.min(readBuffer.remaining(), binaryProtocolRequest.length);
+					for(int i=0;i<length;i++)
+					{
+						if(readBuffer.get(readBuffer.position() + i)!=binaryProtocolRequest[i])
+						{
+							handOver();
+							return;
+						}
+					}
+					if(length<binaryProtocolRequest.length)
+					{
+						return;
+					}
+					readBuffer.position(readBuffer.position() + length);
+					state = STATE_FRAMES;
+					protocol = RuleEngineClient.PROTOCOL_BINARY;
+					byte[] response = serializeString(ClientHandler.RESPONSE_PROTOCOL_BINARY + " " + session.getProcessId());
+					enqueue(ByteBuffer.wrap(response, 4, response.length - 4));
+					logger.info("client switched to the binary protocol: " + session.getProcessId());
+				}
+				if(!busy && readBuffer.remaining()>=4)
+				{
+					int length = readBuffer.getInt(readBuffer.position());
+					if(length<0 || length>FrameCodec.MAXIMUM_FRAME_SIZE)
+					{
+						throw new IOException("invalid frame length: " + length);
+					}
+					if(readBuffer.remaining()>=length + 4)
+					{
+						readBuffer.getInt();
+						byte[] payload = new byte[length];
+						readBuffer.get(payload);
+						busy = true;
+						workers.execute(new Request(this, payload));
+					}
+					else if(readBuffer.capacity()<length + 4)
+					{
+						// the frame does not fit into the buffer
+						ByteBuffer buffer = ByteBuffer.allocate(length + 4);
+						buffer.put(readBuffer);
+						buffer.flip();
+						readBuffer = buffer;
+					}
+				}
+			}
+			finally
+			{
+				if(!closed && key.isValid())
+				{
+					readBuffer.compact();
+					// stop reading while the buffer is full, until the current request is finished
+					if(readBuffer.hasRemaining())
+					{
+						key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+					}
+					else
+					{
+						key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+					}
+				}
+			}
+		}
+		
+		/**
+		 * passes the response of a request back to the I/O thread of the connection
+		 * 
+		 * @param frame		the response frame or null if there is no response
+		 * @param exit		indicator if the connection is closed after the response
+		 */
+		void completed(final byte[] frame, final boolean exit)
+		{
+			loop.execute(new Runnable()
+			{
+				public void run()
+				{
+					if(closed)
+					{
+						return;
+					}
+					busy = false;
+					closeAfterWrite = exit;
+					try
+					{
+						if(frame!=null)
+						{
+							enqueue(ByteBuffer.wrap(frame));
+						}
+						else
+						{
+							write();
+						}
+						if(!closeAfterWrite)
+						{
+							processFrames();
+						}
+					}
+					catch(IOException ex)
+					{
+						close();
+					}
+					catch(RuntimeException ex)
+					{
+						logger.error("error processing connection - closing connection: " + ex.getMessage());
+						close();
+					}
+				}
+			});
+		}
+		
+		void enqueue(ByteBuffer buffer) throws IOException
+		{
+			writeQueue.add(buffer);
+			write();
+		}
+		
+		void write() throws IOException
+		{
+			while(!writeQueue.isEmpty())
+			{
+				ByteBuffer buffer = writeQueue.peek();
+				channel.write(buffer);
+				if(buffer.hasRemaining())
+				{
+					key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+					return;
+				}
+				writeQueue.poll();
+			}
+			if(closeAfterWrite)
+			{
+				close();
+			}
+			else if(key.isValid())
+			{
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+			}
+		}
+		
+		/**
+		 * hands the connection over to a ClientHandler thread, because the client uses the
+		 * object stream protocol. the header of the object stream has already been sent to the client;
+		 * the bytes received so far are passed to the handler.
+		 */
+		void handOver()
+		{
+			final byte[] received = new byte[readBuffer.remaining() + 4];
+			ByteBuffer.wrap(received).putInt(clientStreamHeader).put(readBuffer);
+			closed = true;
+			numberOfConnections.decrementAndGet();
+			key.cancel();
+			// the channel can only be switched to blocking mode after the key has been deregistered
+			// by the next select
+			loop.execute(new Runnable()
+			{
+				public void run()
+				{
+					try
+					{
+						channel.configureBlocking(true);
+						// write the header of the stream, if it is still pending
+						for(ByteBuffer buffer : writeQueue)
+						{
+							while(buffer.hasRemaining())
+							{
+								channel.write(buffer);
+							}
+						}
+						ClientHandler clientHandler = new ClientHandler(session.getProcessId(), channel.socket(), new SequenceInputStream(new ByteArrayInputStream(received), channel.socket().getInputStream()), true, ruleEngine, transformer, ruleFileFolder, ruleFile, serverStart);
+						VirtualThreads.newThread(session.getProcessId(), clientHandler, virtualThreads).start();
+						logger.info("client uses the object stream protocol - connection handed over to a client handler: " + session.getProcessId());
+					}
+					catch(Exception ex)
+					{
+						logger.error("error handing over connection: " + ex.getMessage());
+						try
+						{
+							channel.close();
+						}
+						catch(IOException ioe)
+						{
+						}
+					}
+				}
+			});
+		}
+		
+		void close()
+		{
+			if(closed)
+			{
+				return;
+			}
+			closed = true;
+			numberOfConnections.decrementAndGet();
+			key.cancel();
+			try
+			{
+				channel.close();
+			}
+			catch(IOException ex)
+			{
+				logger.error("error closing connection: " + ex.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * a request of a connection, evaluated by a worker
+	 */
+	private class Request implements Runnable
+	{
+		private final Connection connection;
+		private final byte[] payload;
+		
+		Request(Connection connection, byte[] payload)
+		{
+			this.connection = connection;
+			this.payload = payload;
+		}
+		
+		public void run()
+		{
+			RuleExecutionContext context = getContext();
+			ServerSession session = connection.session;
+			try
+			{
+				byte[] response = session.processFrame(context, connection.protocol, payload);
+				// output the results before the next request of the connection may be processed
+				session.output(context);
+				connection.completed(response!=null ? FrameCodec.createFrame(response) : null, session.getExit());
+			}
+			catch(Exception ex)
+			{
+				logger.error("error processing request - closing connection: " + ex.getMessage());
+				session.output(context);
+				connection.completed(null, true);
+			}
+		}
+	}
+	
+	/**
+	 * creates named threads for the I/O threads and the workers
+	 */
+	private static class NamedThreadFactory implements ThreadFactory
+	{
+		private final String prefix;
+		private final boolean daemon;
+		private final AtomicInteger counter = new AtomicInteger();
+		
+		NamedThreadFactory(String prefix, boolean daemon)
+		{
+			this.prefix = prefix;
+			this.daemon = daemon;
+		}
+		
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+			thread.setDaemon(daemon);
+			return thread;
+		}
+	}
+}
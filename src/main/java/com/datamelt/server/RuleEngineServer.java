@@ -35,8 +35,12 @@ import org.apache.log4j.Logger;
 
 import com.datamelt.rules.core.ReferenceField;
 import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.rules.metrics.MetricsReporter;
+import com.datamelt.rules.metrics.RuleEngineMetrics;
+import com.datamelt.server.transform.AsyncTransformer;
 import com.datamelt.server.transform.Transformer;
 import com.datamelt.util.FileUtility;
+import com.datamelt.util.VirtualThreads;
 
 public class RuleEngineServer extends Thread
 {
@@ -48,6 +52,16 @@ public class RuleEngineServer extends Thread
     private int port;
     private String propertiesFileFullname;
     private long serverStart;
+    private boolean nioMode;
+    private int nioIoThreads;
+    private int nioWorkers;
+    private int nioMaximumConnections;
+    private int watchInterval;
+    private boolean virtualThreads;
+    private boolean metricsEnabled;
+    private boolean metricsJmx;
+    private MetricsReporter metricsReporter;
+    private int metricsReporterInterval;
     
     private static final String PROPERTIES_FILE 			= "server.properties";
     
@@ -55,10 +69,28 @@ public class RuleEngineServer extends Thread
     private static final String PROPERTY_FOLDER_RULEFILE 	= "rulefile.folder";
     private static final String PROPERTY_RULEFILE 			= "rulefile.name";
     private static final String PROPERTY_TRANSFORMER 		= "transformer.classname";
+    private static final String PROPERTY_TRANSFORMER_ASYNC	= "transformer.async";
+    private static final String PROPERTY_MODE 				= "server.mode";
+    private static final String PROPERTY_NIO_IO_THREADS		= "server.nio.iothreads";
+    private static final String PROPERTY_NIO_WORKERS		= "server.nio.workers";
+    private static final String PROPERTY_NIO_CONNECTIONS	= "server.nio.maxconnections";
+    private static final String PROPERTY_WATCH_INTERVAL		= "rulefile.watch.interval";
+    private static final String PROPERTY_THREADS			= "server.threads";
+    private static final String PROPERTY_METRICS			= "metrics.enabled";
+    private static final String PROPERTY_METRICS_JMX		= "metrics.jmx";
+    private static final String PROPERTY_METRICS_REPORTER	= "metrics.reporter.classname";
+    private static final String PROPERTY_METRICS_INTERVAL	= "metrics.reporter.interval";
 
     private static final int 	DEFAULT_PORT 				= 9000;
     private static final String DEFAULT_FOLDER_RULEFOLDER 	= ".";
     private static final String DEFAULT_RULEFILE 			= "rules.zip";
+    private static final int 	DEFAULT_NIO_IO_THREADS		= 2;
+    private static final int 	DEFAULT_NIO_CONNECTIONS		= 1024;
+    private static final int 	DEFAULT_WATCH_INTERVAL		= 10;
+    private static final int 	DEFAULT_METRICS_INTERVAL	= 60;
+    
+    private static final String MODE_NIO					= "nio";
+    private static final String THREADS_VIRTUAL				= "virtual";
     
     private static final String DEFAULT_DATETIME_FORMAT		= "yyyy-MM-dd HH:mm:ss";
     private static boolean ok								= true;
@@ -75,6 +107,7 @@ public class RuleEngineServer extends Thread
     	setVariables();
     	createSocket();
         createTransformer();
+        createMetricsReporter();
     }
     
     private RuleEngineServer(String propertiesFile) throws Exception
@@ -84,6 +117,7 @@ public class RuleEngineServer extends Thread
     	setVariables();
     	createSocket();
         createTransformer();
+        createMetricsReporter();
     }
     
     private void loadProperties() throws IOException
@@ -125,13 +159,58 @@ public class RuleEngineServer extends Thread
     	{
     		ruleFile = DEFAULT_RULEFILE;
     	}
+    	// in nio mode the connections are handled by a small number of I/O threads and the rules are
+    	// run by a fixed number of workers - instead of a thread per connection
+    	nioMode = getProperty(PROPERTY_MODE)!=null && getProperty(PROPERTY_MODE).trim().equals(MODE_NIO);
+    	nioIoThreads = getIntegerProperty(PROPERTY_NIO_IO_THREADS, DEFAULT_NIO_IO_THREADS);
+    	nioWorkers = getIntegerProperty(PROPERTY_NIO_WORKERS, Runtime.getRuntime().availableProcessors());
+    	nioMaximumConnections = getIntegerProperty(PROPERTY_NIO_CONNECTIONS, DEFAULT_NIO_CONNECTIONS);
+    	// interval in seconds in which the rule file is checked for modifications. zero turns the check off
+    	watchInterval = getIntegerProperty(PROPERTY_WATCH_INTERVAL, DEFAULT_WATCH_INTERVAL);
+    	// the client handlers run in virtual threads, if requested and supported by the runtime
+    	if(getProperty(PROPERTY_THREADS)!=null && getProperty(PROPERTY_THREADS).trim().equals(THREADS_VIRTUAL))
+    	{
+    		if(VirtualThreads.isSupported())
+    		{
+    			virtualThreads = true;
+    		}
+    		else
+    		{
+    			logger.warn("virtual threads are not supported by the runtime - using platform threads for the clients");
+    		}
+    	}
+    	// the metrics of the groups, subgroups, rules and actions are collected, if enabled. they are available
+    	// using the "metrics" message, as MBean and from the reporter
+    	metricsEnabled = getProperty(PROPERTY_METRICS)!=null && getProperty(PROPERTY_METRICS).trim().equals("true");
+    	metricsJmx = getProperty(PROPERTY_METRICS_JMX)!=null && getProperty(PROPERTY_METRICS_JMX).trim().equals("true");
+    	metricsReporterInterval = getIntegerProperty(PROPERTY_METRICS_INTERVAL, DEFAULT_METRICS_INTERVAL);
     }
     
     private void createSocket() throws IOException
     {
+    	// the nio server opens its own channel
+    	if(nioMode)
+    	{
+    		return;
+    	}
     	serverSocket = ServerSocketFactory.getDefault().createServerSocket(port);
     }
     
+    private void createMetricsReporter() throws Exception
+    {
+    	if(metricsEnabled && getProperty(PROPERTY_METRICS_REPORTER)!=null)
+    	{
+    		String className = getProperty(PROPERTY_METRICS_REPORTER).trim();
+    		if(className.length()>0)
+    		{
+    			Class<?> reporterClass = Class.forName(className);
+    			metricsReporter = (MetricsReporter)reporterClass.newInstance();
+    			metricsReporter.setProperties(properties);
+    			metricsReporter.init();
+    		}
+    	}
+    }
+    
     private void createTransformer() throws Exception
     {
     	if(getProperty(PROPERTY_TRANSFORMER)!=null)
@@ -143,6 +222,13 @@ public class RuleEngineServer extends Thread
 	    		transformer = (Transformer)transformerClass.newInstance();
 	    		transformer.setProperties(properties);
 	    		transformer.init();
+	    		// the output is written by a separate thread, so that the clients do not wait for it
+	    		if(getProperty(PROPERTY_TRANSFORMER_ASYNC)!=null && getProperty(PROPERTY_TRANSFORMER_ASYNC).trim().equals("true"))
+	    		{
+	    			transformer = new AsyncTransformer(transformer);
+	    			transformer.setProperties(properties);
+	    			transformer.init();
+	    		}
 	    	}
     	}
     }
@@ -175,7 +261,27 @@ public class RuleEngineServer extends Thread
     	if(FileUtility.fileExists(server.ruleFileFolder, server.ruleFile))
     	{
     		logger.info("using properties from: " + server.propertiesFileFullname);
-    		if(server.transformer!=null)
+    		if(server.transformer instanceof AsyncTransformer)
+    		{
+    			logger.info("output with transformer: " + ((AsyncTransformer)server.transformer).getTransformer().getClass() + " - written asynchronously");
+    			// write the results remaining in the queue when the server stops
+    			final Transformer transformer = server.transformer;
+    			Runtime.getRuntime().addShutdownHook(new Thread()
+    			{
+    				public void run()
+    				{
+    					try
+    					{
+    						transformer.close();
+    					}
+    					catch(Exception ex)
+    					{
+    						logger.error("error closing the transformer: " + ex.getMessage());
+    					}
+    				}
+    			});
+    		}
+    		else if(server.transformer!=null)
     		{
     			logger.info("output with transformer: " + server.transformer.getClass());
     		}
@@ -187,15 +293,69 @@ public class RuleEngineServer extends Thread
     		logger.info("rule engine file: rule groups: " + ruleEngine.getNumberOfGroups());
     		logger.info("rule engine file: rules: " + ruleEngine.getNumberOfRules());
     		logger.info("rule engine file: actions: " + ruleEngine.getNumberOfActions());
+    		logger.info("rule engine file: version: " + ruleEngine.getRuleSet().getVersion() + " - load time: " + ruleEngine.getRuleSet().getLoadDuration() + " ms");
             for(ReferenceField field : ruleEngine.getReferenceFields())
             {
             	logger.info("rule engine file: reference field: " + field.getName() + " - type: " + field.getJavaTypeName());
             }
+    		if(server.metricsEnabled)
+    		{
+    			RuleEngineMetrics metrics = new RuleEngineMetrics();
+    			ruleEngine.setMetrics(metrics);
+    			logger.info("metrics of the groups, subgroups, rules and actions are collected");
+    			if(server.metricsJmx)
+    			{
+    				metrics.registerMBean(server.ruleFile);
+    				logger.info("metrics are available as MBean: " + metrics.getObjectName());
+    			}
+    			if(server.metricsReporter!=null && server.metricsReporterInterval>0)
+    			{
+    				final MetricsReporterThread reporterThread = new MetricsReporterThread(metrics, server.metricsReporter, server.metricsReporterInterval * 1000L);
+    				reporterThread.start();
+    				// report the metrics collected since the last report when the server stops
+    				Runtime.getRuntime().addShutdownHook(new Thread()
+    				{
+    					public void run()
+    					{
+    						reporterThread.interrupt();
+    						try
+    						{
+    							reporterThread.join();
+    						}
+    						catch(InterruptedException ex)
+    						{
+    							// the server stops anyway
+    						}
+    					}
+    				});
+    				logger.info("metrics reported with: " + server.metricsReporter.getClass() + " every " + server.metricsReporterInterval + " seconds");
+    			}
+    		}
+    		if(server.watchInterval>0)
+    		{
+    			RuleFileWatcher watcher = new RuleFileWatcher(ruleEngine, server.ruleFileFolder + server.ruleFile, server.watchInterval * 1000L);
+    			watcher.start();
+    			logger.info("rule engine file: checked for modifications every " + server.watchInterval + " seconds");
+    		}
     		InetAddress IP=InetAddress.getLocalHost();
     		logger.info("server ready for connections: " + IP.getHostAddress() + ", port: " + server.port);
     		
     		// start the server
-    		server.start();
+    		if(server.nioMode)
+    		{
+    			RuleEngineNioServer nioServer = new RuleEngineNioServer(ruleEngine, server.transformer, server.ruleFileFolder, server.ruleFile, server.nioIoThreads, server.nioWorkers, server.nioMaximumConnections);
+    			// clients using the object stream protocol are handed over to client handlers
+    			nioServer.setVirtualThreads(server.virtualThreads);
+    			nioServer.start(server.port);
+    		}
+    		else
+    		{
+    			if(server.virtualThreads)
+    			{
+    				logger.info("clients are handled in virtual threads");
+    			}
+    			server.start();
+    		}
     		
     	}
     	else
@@ -213,8 +373,9 @@ public class RuleEngineServer extends Thread
             {
                 final Socket socketToClient = serverSocket.accept();
                 logger.info("client connected from: " + socketToClient.getInetAddress());
-                ClientHandler clientHandler = new ClientHandler(getProcessId(socketToClient.getInetAddress().toString()),socketToClient,ruleEngine,transformer,serverStart);
-                clientHandler.start();
+                String processId = getProcessId(socketToClient.getInetAddress().toString());
+                ClientHandler clientHandler = new ClientHandler(processId,socketToClient,socketToClient.getInputStream(),false,ruleEngine,transformer,ruleFileFolder,ruleFile,serverStart);
+                VirtualThreads.newThread(processId, clientHandler, virtualThreads).start();
             }
             catch (Exception e)
             {
@@ -240,6 +401,18 @@ public class RuleEngineServer extends Thread
 		return properties.getProperty(key);
 	}
 	
+	private int getIntegerProperty(String key, int defaultValue)
+	{
+		if(getProperty(key)!=null && getProperty(key).trim().length()>0)
+		{
+			return Integer.parseInt(getProperty(key).trim());
+		}
+		else
+		{
+			return defaultValue;
+		}
+	}
+	
 	private String getProcessId(String clientInetAddress)
 	{
 		return "client-" + clientInetAddress + "-" + ruleFile + "_" + sdf.format(new Date());
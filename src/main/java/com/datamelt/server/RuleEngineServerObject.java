@@ -20,6 +20,7 @@ package com.datamelt.server;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
 
 import com.datamelt.rules.core.RuleExecutionCollection;
 import com.datamelt.rules.core.RuleGroup;
@@ -43,6 +44,10 @@ public class RuleEngineServerObject implements Serializable
      private String processId;
      private boolean ruleEngineException = false;
      private String ruleEngineExceptionMessage;
+     // bitmaps of the results by the number of the group or rule - only set by the binary protocol
+     private BitSet failedGroups;
+     private BitSet skippedGroups;
+     private BitSet failedRules;
      
      public static final long serialVersionUID = 200003;
      
@@ -212,4 +217,52 @@ public class RuleEngineServerObject implements Serializable
 	{
 		this.ruleEngineExceptionMessage = ruleEngineExceptionMessage;
 	}
+
+	/**
+	 * returns the bitmap of the failed groups, by the number of the group. it is only
+	 * available if the binary protocol is used.
+	 * 
+	 * @return	the failed groups
+	 */
+	public BitSet getFailedGroups()
+	{
+		return failedGroups;
+	}
+
+	public void setFailedGroups(BitSet failedGroups)
+	{
+		this.failedGroups = failedGroups;
+	}
+
+	/**
+	 * returns the bitmap of the skipped groups, by the number of the group. it is only
+	 * available if the binary protocol is used.
+	 * 
+	 * @return	the skipped groups
+	 */
+	public BitSet getSkippedGroups()
+	{
+		return skippedGroups;
+	}
+
+	public void setSkippedGroups(BitSet skippedGroups)
+	{
+		this.skippedGroups = skippedGroups;
+	}
+
+	/**
+	 * returns the bitmap of the failed rules. the rules are numbered in the order of the
+	 * groups, subgroups and rules. it is only available if the binary protocol is used.
+	 * 
+	 * @return	the failed rules
+	 */
+	public BitSet getFailedRules()
+	{
+		return failedRules;
+	}
+
+	public void setFailedRules(BitSet failedRules)
+	{
+		this.failedRules = failedRules;
+	}
 }
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.io.File;
+import java.util.zip.ZipFile;
+
+import org.apache.log4j.Logger;
+
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.rules.engine.RuleSet;
+
+/**
+ * watches the rule project zip file of the server and reloads the rules when the file has been modified.
+ * 
+ * the file is checked in the given interval. a modified file is only reloaded when its modification time
+ * has not changed since the previous check, so that a file that is still being written is not loaded.
+ * 
+ * the rules are parsed, compiled and validated in the thread of the watcher. the new rule set then
+ * replaces the current one in one step: rows that are being evaluated finish using the previous rules,
+ * all following rows use the new rules. if the new rules are not valid, the current rules stay
+ * active and the file is not loaded again until it is modified again.
+ * 
+ * @author uwe geercken
+ */
+class RuleFileWatcher extends Thread
+{
+	private final BusinessRulesEngine ruleEngine;
+	private final String ruleFileName;
+	private final long interval;
+	
+	// the modification time of the file at the previous check
+	private long previousModified;
+	// the modification time of the file which could not be loaded
+	private long failedModified;
+	
+	final static Logger logger 	= Logger.getLogger(RuleFileWatcher.class);
+	
+	/**
+	 * constructor for a watcher of the given rule file
+	 * 
+	 * @param ruleEngine	the rule engine
+	 * @param ruleFileName	path and name of the rule project zip file
+	 * @param interval		the interval in milliseconds in which the file is checked
+	 */
+	RuleFileWatcher(BusinessRulesEngine ruleEngine, String ruleFileName, long interval)
+	{
+		super("rule file watcher");
+		this.ruleEngine = ruleEngine;
+		this.ruleFileName = ruleFileName;
+		this.interval = interval;
+		this.previousModified = new File(ruleFileName).lastModified();
+		setDaemon(true);
+	}
+	
+	@Override
+	public void run()
+	{
+		try
+		{
+			while(!isInterrupted())
+			{
+				Thread.sleep(interval);
+				check();
+			}
+		}
+		catch(InterruptedException ex)
+		{
+			// the watcher has been stopped
+		}
+	}
+	
+	/**
+	 * checks if the rule file has been modified since the current rules were loaded and reloads it
+	 * 
+	 * @return		indicator if the rules have been reloaded
+	 */
+	boolean check()
+	{
+		long lastModified = new File(ruleFileName).lastModified();
+		RuleSet ruleSet = ruleEngine.getRuleSet();
+		long loadStart = ruleSet.getLoadTime() - ruleSet.getLoadDuration();
+		boolean reloaded = false;
+		if(lastModified>loadStart && lastModified==previousModified && lastModified!=failedModified)
+		{
+			try
+			{
+				ruleEngine.reloadZipFile(new ZipFile(ruleFileName), true);
+				ruleSet = ruleEngine.getRuleSet();
+				logger.info("reloaded modified rule file: " + ruleFileName + " - version: " + ruleSet.getVersion() + ", load time: " + ruleSet.getLoadDuration() + " ms");
+				reloaded = true;
+			}
+			catch(Exception ex)
+			{
+				failedModified = lastModified;
+				logger.error("error reloading modified rule file: " + ruleFileName + " - the rules of version " + ruleSet.getVersion() + " stay active: " + ex.getMessage());
+			}
+		}
+		previousModified = lastModified;
+		return reloaded;
+	}
+}
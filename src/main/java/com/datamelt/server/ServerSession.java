@@ -0,0 +1,472 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.zip.ZipFile;
+
+import org.apache.log4j.Logger;
+
+import com.datamelt.rules.core.RuleExecutionCollection;
+import com.datamelt.rules.core.RuleGroup;
+import com.datamelt.rules.core.RuleSubGroup;
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.rules.engine.RuleExecutionContext;
+import com.datamelt.rules.engine.RuleSet;
+import com.datamelt.server.transform.Transformer;
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * the state of the connection of a client to the server and the processing of its requests.
+ * 
+ * the session is used by the ClientHandler and the RuleEngineNioServer. it runs the rules for
+ * the rows sent by the client, answers the messages defined in ClientHandler.MESSAGES and decodes
+ * and encodes the frames of the framed and the binary protocol.
+ * 
+ * the requests of one session are processed one after the other. the rules are run using the
+ * execution context passed by the caller, so that a worker thread may process the requests of
+ * different sessions using the same context.
+ * 
+ * @author uwe geercken
+ */
+class ServerSession
+{
+	private static final String DEFAULT_DATETIME_FORMAT		= "yyyy-MM-dd HH:mm:ss";
+	
+	final static Logger logger 								= Logger.getLogger(ServerSession.class);
+	
+	private final String processId;
+	private final BusinessRulesEngine ruleEngine;
+	private final Transformer transformer;
+	private final String ruleFileFolder;
+	private final String ruleFile;
+	private final long serverStart;
+	private final SimpleDateFormat sdf						= new SimpleDateFormat(DEFAULT_DATETIME_FORMAT);
+	
+	private volatile long rowsProcessed = 0;
+	private volatile boolean exit = false;
+	// the header sent by a client using the binary protocol
+	private HeaderRow header;
+	// the last row that was evaluated. it is passed to the transformer
+	private RuleEngineServerObject evaluatedObject;
+	
+	/**
+	 * constructor for the session of a client
+	 * 
+	 * @param processId			the id of the process
+	 * @param ruleEngine		the rule engine
+	 * @param transformer		the transformer for the output of the results or null
+	 * @param ruleFileFolder	the folder of the rule file
+	 * @param ruleFile			the name of the rule file
+	 * @param serverStart		the time the server was started
+	 */
+	ServerSession(String processId, BusinessRulesEngine ruleEngine, Transformer transformer, String ruleFileFolder, String ruleFile, long serverStart)
+	{
+		this.processId = processId;
+		this.ruleEngine = ruleEngine;
+		this.transformer = transformer;
+		this.ruleFileFolder = ruleFileFolder;
+		this.ruleFile = ruleFile;
+		this.serverStart = serverStart;
+	}
+	
+	/**
+	 * runs the rules against the row of the server object and sets the results in the server object.
+	 * if an exception occurs, the exception indicator and message of the server object are set.
+	 * 
+	 * @param context		the context used to run the rules
+	 * @param serverObject	the server object containing the row
+	 * @return				the server object
+	 */
+	RuleEngineServerObject evaluate(RuleExecutionContext context, RuleEngineServerObject serverObject)
+	{
+		// the output type of the client selects groups - not rule results. the results of all
+		// rules are kept for the output of the transformer
+		context.setOutputType(BusinessRulesEngine.OUTPUT_TYPE_FAILED_AND_PASSED);
+		try
+		{
+			context.run("row_" + rowsProcessed + "_" + sdf.format(new Date()), serverObject.getFields());
+			// set the fields of the object by using the results from the rule engine
+			serverObject.setTotalGroups(context.getRuleSet().getNumberOfGroups());
+			serverObject.setGroupsFailed(context.getNumberOfGroupsFailed());
+			serverObject.setGroupsSkipped(context.getNumberOfGroupsSkipped());
+			serverObject.setTotalRules(context.getRuleSet().getNumberOfRules());
+			serverObject.setRulesFailed(context.getNumberOfRulesFailed());
+			serverObject.setTotalActions(context.getRuleSet().getNumberOfActions());
+			serverObject.setObjectLabel(serverObject.getFields().getFieldValues());
+			serverObject.setProcessId(processId);
+		}
+		catch(Exception ex)
+		{
+			serverObject.setRuleEngineException(true);
+			serverObject.setRuleEngineExceptionMessage(ex.getMessage());
+		}
+		// count the processed rows
+		rowsProcessed++;
+		evaluatedObject = serverObject;
+		return serverObject;
+	}
+	
+	/**
+	 * runs the rules against the rows of a batch of server objects. the results of each row are
+	 * passed to the transformer before the next row is evaluated.
+	 * 
+	 * @param context		the context used to run the rules
+	 * @param serverObjects	the server objects containing the rows
+	 * @return				the server objects
+	 */
+	RuleEngineServerObject[] evaluate(RuleExecutionContext context, RuleEngineServerObject[] serverObjects)
+	{
+		for(int i=0;i<serverObjects.length;i++)
+		{
+			evaluate(context, serverObjects[i]);
+			output(context);
+		}
+		return serverObjects;
+	}
+	
+	/**
+	 * creates the response to one of the messages defined in ClientHandler.MESSAGES or to the exit message
+	 * 
+	 * @param message		the message
+	 * @return				the response
+	 * @throws Exception	when the rules can not be reloaded
+	 */
+	String processMessage(String message) throws Exception
+	{
+		if(message.equals(ClientHandler.RESPONSE_EXIT))
+		{
+			logger.info("client requested exit - closing client connection");
+			exit = true;
+			return ClientHandler.RESPONSE_EXIT;
+		}
+		else if(message.equals(ClientHandler.RESPONSE_RELOAD))
+		{
+			// the new rules are validated and replace the current rules in one step. other
+			// clients continue to evaluate rows while the rules are loaded
+			try
+			{
+				ruleEngine.reloadZipFile(new ZipFile(ruleFileFolder + ruleFile), true);
+				String responseMessage = "reloaded rule file: " + ruleFileFolder + ruleFile + " - " + getRuleSetInfo();
+				logger.info(responseMessage);
+				return responseMessage;
+			}
+			catch(Exception ex)
+			{
+				String responseMessage = "error reloading rule file: " + ruleFileFolder + ruleFile + " - " + ex.getMessage() + " - active rules: " + getRuleSetInfo();
+				logger.error(responseMessage);
+				return responseMessage;
+			}
+		}
+		else if(message.equals(ClientHandler.RESPONSE_RULESET))
+		{
+			return getRuleSetInfo();
+		}
+		else if(message.equals(ClientHandler.RESPONSE_METRICS))
+		{
+			if(ruleEngine.getMetrics()!=null)
+			{
+				return ruleEngine.getMetrics().getReport();
+			}
+			else
+			{
+				return "metrics are not enabled";
+			}
+		}
+		else if(message.equals(ClientHandler.RESPONSE_UPTIME))
+		{
+			return getRunTime();
+		}
+		else if(message.equals(ClientHandler.RESPONSE_ROWSPROCESSED))
+		{
+			return "" + rowsProcessed;
+		}
+		else if(message.equals(ClientHandler.RESPONSE_PROCESSID))
+		{
+			return processId;
+		}
+		else if(message.equals(ClientHandler.RESPONSE_RULEFILE))
+		{
+			return ruleFileFolder + ruleFile;
+		}
+		else if(message.equals(ClientHandler.RESPONSE_RULEENGINE_VERSION))
+		{
+			return BusinessRulesEngine.getVersion();
+		}
+		else if(message.equals(ClientHandler.RESPONSE_NUMBER_OF_GROUPS))
+		{
+			return "" + ruleEngine.getNumberOfGroups();
+		}
+		else if(message.equals(ClientHandler.RESPONSE_HELLO))
+		{
+			return ClientHandler.RESPONSE_HELLO + " client";
+		}
+		else
+		{
+			String responseMessage = "unknown request: " + message;
+			logger.info(responseMessage);
+			return responseMessage;
+		}
+	}
+	
+	/**
+	 * processes the payload of a frame sent by the client and creates the payload of the response
+	 * 
+	 * @param context		the context used to run the rules
+	 * @param protocol		the protocol - RuleEngineClient.PROTOCOL_FRAMED or RuleEngineClient.PROTOCOL_BINARY
+	 * @param payload		the payload of the frame
+	 * @return				the payload of the response or null if there is no response
+	 * @throws Exception	when the payload is invalid
+	 */
+	byte[] processFrame(RuleExecutionContext context, int protocol, byte[] payload) throws Exception
+	{
+		if(protocol==RuleEngineClient.PROTOCOL_BINARY)
+		{
+			return processBinaryFrame(context, payload);
+		}
+		Object object = FrameCodec.deserialize(payload);
+		Object response;
+		if(object instanceof RuleEngineServerObject)
+		{
+			response = evaluate(context, (RuleEngineServerObject)object);
+		}
+		else if(object instanceof RuleEngineServerObject[])
+		{
+			response = evaluate(context, (RuleEngineServerObject[])object);
+		}
+		else if(object instanceof String)
+		{
+			response = processMessage((String)object);
+		}
+		else
+		{
+			response = "unknown or unhandled object received";
+			logger.info(response);
+		}
+		return FrameCodec.serialize(response);
+	}
+	
+	private byte[] processBinaryFrame(RuleExecutionContext context, byte[] payload) throws Exception
+	{
+		switch(BinaryCodec.getType(payload))
+		{
+			case BinaryCodec.TYPE_HEADER:
+				// the header is used for all following rows. it is not answered.
+				// sessions sending the same fields share the header row of the engine
+				header = ruleEngine.getHeaderRow(BinaryCodec.decodeHeader(payload));
+				return null;
+			case BinaryCodec.TYPE_ROW:
+				return evaluateRow(context, payload);
+			case BinaryCodec.TYPE_BATCH:
+				ArrayList<byte[]> rows = BinaryCodec.decodeBatch(payload);
+				ArrayList<byte[]> results = new ArrayList<byte[]>(rows.size());
+				for(int i=0;i<rows.size();i++)
+				{
+					results.add(evaluateRow(context, rows.get(i)));
+					output(context);
+				}
+				return BinaryCodec.encodeBatch(results);
+			case BinaryCodec.TYPE_MESSAGE:
+				return BinaryCodec.encodeMessage(processMessage(BinaryCodec.decodeString(payload)));
+			default:
+				throw new Exception("unknown type of frame: " + BinaryCodec.getType(payload));
+		}
+	}
+	
+	/**
+	 * runs the rules against a row sent using the binary protocol
+	 * 
+	 * @param context		the context used to run the rules
+	 * @param payload		the payload of the row
+	 * @return				the payload of the result
+	 * @throws Exception	when the payload is invalid
+	 */
+	private byte[] evaluateRow(RuleExecutionContext context, byte[] payload) throws Exception
+	{
+		if(header==null)
+		{
+			return BinaryCodec.encodeException("no header was sent before the row");
+		}
+		RowFieldCollection fields = new RowFieldCollection(header, BinaryCodec.decodeRow(payload, header.getNumberOfFields()));
+		RuleEngineServerObject serverObject = evaluate(context, new RuleEngineServerObject(fields, 0));
+		if(serverObject.getRuleEngineException())
+		{
+			return BinaryCodec.encodeException(serverObject.getRuleEngineExceptionMessage());
+		}
+		return encodeResult(context, fields);
+	}
+	
+	/**
+	 * encodes the results of the groups and rules that were last run. the rules are numbered in the order
+	 * of the groups, subgroups and rules. the rules of a skipped group are not failed. the values
+	 * of the fields are added, if actions were executed.
+	 * 
+	 * @param context		the context used to run the rules
+	 * @param fields		the fields of the row
+	 * @return				the payload of the response
+	 * @throws Exception	when the payload can not be written
+	 */
+	private byte[] encodeResult(RuleExecutionContext context, RowFieldCollection fields) throws Exception
+	{
+		ArrayList<RuleGroup> groups = context.getGroups();
+		BitSet failedGroups = new BitSet(groups.size());
+		BitSet skippedGroups = new BitSet(groups.size());
+		BitSet failedRules = new BitSet();
+		int ruleNumber = 0;
+		for(int i=0;i<groups.size();i++)
+		{
+			RuleGroup group = groups.get(i);
+			boolean skipped = group.getSkipped()==1;
+			if(skipped)
+			{
+				skippedGroups.set(i);
+			}
+			else if(group.getFailed()==1)
+			{
+				failedGroups.set(i);
+			}
+			for(int j=0;j<group.getSubGroups().size();j++)
+			{
+				RuleSubGroup subGroup = group.getSubGroups().get(j);
+				int numberOfRules = subGroup.getRulesCollection().size();
+				for(int k=0;k<numberOfRules;k++)
+				{
+					if(!skipped && subGroup.getRuleFailed(k))
+					{
+						failedRules.set(ruleNumber);
+					}
+					ruleNumber++;
+				}
+			}
+		}
+		RowFieldCollection updatedFields = null;
+		if(context.getNumberOfActionsExecuted()>0)
+		{
+			updatedFields = fields;
+		}
+		return BinaryCodec.encodeResult(groups.size(), ruleNumber, (int)context.getRuleSet().getNumberOfActions(), failedGroups, skippedGroups, failedRules, updatedFields);
+	}
+	
+	/**
+	 * passes the results of the last row that was evaluated to the transformer and clears
+	 * the results of the context.
+	 * 
+	 * @param context	the context used to run the rules
+	 */
+	void output(RuleExecutionContext context)
+	{
+		RuleEngineServerObject serverObject = evaluatedObject;
+		evaluatedObject = null;
+		try
+		{
+			if(serverObject!=null && transformer!=null)
+			{
+				if(transformer.isAsynchronous())
+				{
+					// the results are output later by another thread. so the transformer gets the groups
+					// and results of this row and the context continues with new ones
+					RuleExecutionCollection results = new RuleExecutionCollection();
+					results.merge(context.getRuleExecutionCollection());
+					serverObject.setRuleExecutionCollection(results);
+					serverObject.setRuleGroups(context.detachGroups());
+					transformer.write(serverObject, serverObject.getRuleGroups());
+				}
+				else
+				{
+					// add additional information of the rule engine to the server object for output purposes
+					// we don't send these back to the client
+					serverObject.setRuleGroups(context.getGroups());
+					serverObject.setRuleExecutionCollection(context.getRuleExecutionCollection());
+					// the transformer may be shared by multiple sessions
+					synchronized(transformer)
+					{
+						transformer.write(serverObject, context.getGroups());
+					}
+				}
+			}
+		}
+		catch(Exception ex)
+		{
+			logger.error("error writing output: " + ex.getMessage());
+		}
+		finally
+		{
+			// clear the execution results, otherwise they get accumulated
+			context.clear();
+		}
+	}
+	
+	/**
+	 * returns the version of the active rule set, the time it was loaded and the time it took to load it
+	 * 
+	 * @return		the information about the rule set
+	 */
+	private String getRuleSetInfo()
+	{
+		RuleSet ruleSet = ruleEngine.getRuleSet();
+		return "version: " + ruleSet.getVersion() + ", loaded: " + sdf.format(new Date(ruleSet.getLoadTime())) + ", load time: " + ruleSet.getLoadDuration() + " ms, groups: " + ruleSet.getNumberOfGroups() + ", rules: " + ruleSet.getNumberOfRules();
+	}
+	
+	private String getRunTime()
+	{
+		long runTime = System.currentTimeMillis() - serverStart;
+		long seconds = runTime/1000;
+		
+		if(seconds < 60)
+		{
+			return "" + seconds + " seconds";
+		}
+		else if(seconds >= 60 && seconds < 3600)
+		{
+			return "" + seconds/60 + " minute(s)";
+		}
+		else if(seconds >= 3600 && seconds < 86400)
+		{
+			return "" + seconds/3600 + " hour(s)";
+		}
+		else 
+		{
+			return "" + seconds/86400 + " day(s)";
+		}
+	}
+	
+	/**
+	 * indicates if the client requested to close the connection
+	 * 
+	 * @return		indicator if the client requested the exit
+	 */
+	boolean getExit()
+	{
+		return exit;
+	}
+	
+	String getProcessId()
+	{
+		return processId;
+	}
+	
+	long getRowsProcessed()
+	{
+		return rowsProcessed;
+	}
+}
@@ -0,0 +1,342 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server.transform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+
+import com.datamelt.rules.core.RuleGroup;
+import com.datamelt.server.RuleEngineServerObject;
+
+/**
+ * transformer that passes the results to another transformer asynchronously.
+ * 
+ * the results of the rows are put into a bounded queue and the threads serving the clients
+ * continue immediately. a separate writer thread takes the results from the queue and passes
+ * them in batches to the write(List) method of the other transformer. a batch is written when
+ * it contains the number of rows defined by the flush size or when the flush interval has
+ * passed since the first row of the batch was taken from the queue.
+ * 
+ * when the queue is full the overflow policy decides what happens: with "block" (the default)
+ * the thread serving the client waits until there is space in the queue - so the clients are
+ * slowed down to the speed of the output. with "drop" the results of the row are not output
+ * and the number of dropped rows is counted.
+ * 
+ * rows are only put into the queue while the transformer is not closed. closing the transformer
+ * waits until the rows that are currently being put into the queue are there, so that all rows
+ * accepted by the write method are output.
+ * 
+ * the groups passed to the write method must not be changed after the method returned, as
+ * they are output later. the rule engine server passes copies of the groups of the context.
+ * 
+ * @author uwe geercken
+ */
+public class AsyncTransformer extends Transformer
+{
+	public static final String PROPERTY_QUEUE_SIZE		= "transformer.async.queuesize";
+	public static final String PROPERTY_FLUSH_SIZE		= "transformer.async.flushsize";
+	public static final String PROPERTY_FLUSH_INTERVAL	= "transformer.async.flushinterval";
+	public static final String PROPERTY_OVERFLOW		= "transformer.async.overflow";
+	
+	public static final String OVERFLOW_BLOCK			= "block";
+	public static final String OVERFLOW_DROP			= "drop";
+	
+	private static final int DEFAULT_QUEUE_SIZE			= 10000;
+	private static final int DEFAULT_FLUSH_SIZE			= 100;
+	private static final long DEFAULT_FLUSH_INTERVAL	= 1000;
+	
+	private final Transformer transformer;
+	private ArrayBlockingQueue<RuleEngineServerObject> queue;
+	private int flushSize;
+	private long flushInterval;
+	private boolean dropOnOverflow;
+	private Thread writerThread;
+	private volatile boolean closed = false;
+	// the writing threads hold the read lock while putting rows into the queue. closing requires the write lock
+	private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+	private final AtomicLong droppedRows = new AtomicLong();
+	private final AtomicLong writtenRows = new AtomicLong();
+	
+	final static Logger logger 	= Logger.getLogger(AsyncTransformer.class);
+	
+	/**
+	 * constructor for a transformer passing the results to the given transformer. the given
+	 * transformer must already be initialized.
+	 * 
+	 * @param transformer	the transformer writing the results
+	 * @throws Exception	exception creating the transformer
+	 */
+	public AsyncTransformer(Transformer transformer) throws Exception
+	{
+		super();
+		this.transformer = transformer;
+	}
+	
+	/**
+	 * creates the queue according to the properties and starts the writer thread
+	 */
+	public void init() throws Exception
+	{
+		int queueSize = getIntegerProperty(PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+		flushSize = getIntegerProperty(PROPERTY_FLUSH_SIZE, DEFAULT_FLUSH_SIZE);
+		flushInterval = getIntegerProperty(PROPERTY_FLUSH_INTERVAL, (int)DEFAULT_FLUSH_INTERVAL);
+		if(queueSize<1 || flushSize<1 || flushInterval<1)
+		{
+			throw new Exception("the queue size, flush size and flush interval of the asynchronous transformer must be greater than zero");
+		}
+		String overflow = getProperties()!=null ? getProperties().getProperty(PROPERTY_OVERFLOW) : null;
+		if(overflow==null || overflow.trim().equals("") || overflow.trim().equals(OVERFLOW_BLOCK))
+		{
+			dropOnOverflow = false;
+		}
+		else if(overflow.trim().equals(OVERFLOW_DROP))
+		{
+			dropOnOverflow = true;
+		}
+		else
+		{
+			throw new Exception("invalid overflow policy of the asynchronous transformer: " + overflow);
+		}
+		queue = new ArrayBlockingQueue<RuleEngineServerObject>(queueSize);
+		writerThread = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				writeBatches();
+			}
+		}, "transformer writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+	
+	/**
+	 * puts the results of a row into the queue. if the queue is full, the method waits until
+	 * there is space in the queue or drops the results - depending on the overflow policy.
+	 * 
+	 * @param serverObject	the server object containing the results of the row
+	 * @param groups		the groups containing the results of the row
+	 * @throws Exception	when the transformer is closed, the writer thread has stopped or the thread was interrupted while waiting
+	 */
+	public void write(RuleEngineServerObject serverObject, ArrayList<RuleGroup> groups) throws Exception
+	{
+		closeLock.readLock().lock();
+		try
+		{
+			if(closed)
+			{
+				throw new Exception("the asynchronous transformer is closed");
+			}
+			serverObject.setRuleGroups(groups);
+			if(dropOnOverflow)
+			{
+				if(!queue.offer(serverObject))
+				{
+					droppedRows.incrementAndGet();
+				}
+			}
+			else
+			{
+				// the writer thread keeps taking rows from the queue, as the transformer can not be closed
+				// while the read lock is held. wait in intervals, so that the thread does not wait forever
+				// if the writer thread has stopped
+				while(!queue.offer(serverObject, flushInterval, TimeUnit.MILLISECONDS))
+				{
+					if(!writerThread.isAlive())
+					{
+						throw new Exception("the writer thread of the asynchronous transformer has stopped");
+					}
+				}
+			}
+		}
+		finally
+		{
+			closeLock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * puts the results of the rows into the queue
+	 * 
+	 * @param serverObjects	the server objects containing the results of the rows
+	 * @throws Exception	when the transformer is closed or the thread was interrupted while waiting
+	 */
+	public void write(List<RuleEngineServerObject> serverObjects) throws Exception
+	{
+		for(int i=0;i<serverObjects.size();i++)
+		{
+			write(serverObjects.get(i), serverObjects.get(i).getRuleGroups());
+		}
+	}
+	
+	/**
+	 * the results are output later, so the groups passed to the write method must not be
+	 * changed afterwards
+	 */
+	public boolean isAsynchronous()
+	{
+		return true;
+	}
+	
+	/**
+	 * takes the results from the queue and writes them in batches until the transformer is
+	 * closed and the queue is empty
+	 */
+	private void writeBatches()
+	{
+		ArrayList<RuleEngineServerObject> batch = new ArrayList<RuleEngineServerObject>(flushSize);
+		long reportedDroppedRows = 0;
+		while(!closed || !queue.isEmpty())
+		{
+			try
+			{
+				RuleEngineServerObject serverObject = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+				if(serverObject!=null)
+				{
+					batch.add(serverObject);
+					// collect rows until the batch is full or the flush interval has passed
+					long flushTime = System.currentTimeMillis() + flushInterval;
+					queue.drainTo(batch, flushSize - batch.size());
+					while(batch.size()<flushSize && !closed && System.currentTimeMillis()<flushTime)
+					{
+						serverObject = queue.poll(flushTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+						if(serverObject!=null)
+						{
+							batch.add(serverObject);
+							queue.drainTo(batch, flushSize - batch.size());
+						}
+					}
+					writeBatch(batch);
+				}
+			}
+			catch(InterruptedException ex)
+			{
+				// the writer thread is only stopped by closing the transformer
+			}
+			if(droppedRows.get()>reportedDroppedRows)
+			{
+				reportedDroppedRows = droppedRows.get();
+				logger.warn("output queue of the transformer is full - number of rows not output: " + reportedDroppedRows);
+			}
+		}
+		writeBatch(batch);
+	}
+	
+	/**
+	 * passes the batch to the transformer and clears it
+	 * 
+	 * @param batch		the results of the rows
+	 */
+	private void writeBatch(ArrayList<RuleEngineServerObject> batch)
+	{
+		if(batch.size()>0)
+		{
+			try
+			{
+				transformer.write(batch);
+				writtenRows.addAndGet(batch.size());
+			}
+			catch(Exception ex)
+			{
+				logger.error("error writing output: " + ex.getMessage());
+			}
+			batch.clear();
+		}
+	}
+	
+	/**
+	 * writes the results remaining in the queue, stops the writer thread and closes the other transformer.
+	 * rows that are being put into the queue by other threads are written as well.
+	 */
+	public void close() throws Exception
+	{
+		// waits until no thread is putting rows into the queue
+		closeLock.writeLock().lock();
+		try
+		{
+			closed = true;
+		}
+		finally
+		{
+			closeLock.writeLock().unlock();
+		}
+		if(writerThread!=null)
+		{
+			writerThread.join();
+		}
+		transformer.close();
+	}
+	
+	/**
+	 * returns the number of rows that were not output because the queue was full
+	 * 
+	 * @return		the number of dropped rows
+	 */
+	public long getNumberOfDroppedRows()
+	{
+		return droppedRows.get();
+	}
+	
+	/**
+	 * returns the number of rows that were passed to the other transformer
+	 * 
+	 * @return		the number of written rows
+	 */
+	public long getNumberOfWrittenRows()
+	{
+		return writtenRows.get();
+	}
+	
+	/**
+	 * returns the number of rows waiting in the queue
+	 * 
+	 * @return		the number of queued rows
+	 */
+	public int getNumberOfQueuedRows()
+	{
+		return queue.size();
+	}
+	
+	/**
+	 * returns the transformer writing the results
+	 * 
+	 * @return		the transformer
+	 */
+	public Transformer getTransformer()
+	{
+		return transformer;
+	}
+	
+	private int getIntegerProperty(String key, int defaultValue)
+	{
+		if(getProperties()!=null && getProperties().getProperty(key)!=null && getProperties().getProperty(key).trim().length()>0)
+		{
+			return Integer.parseInt(getProperties().getProperty(key).trim());
+		}
+		else
+		{
+			return defaultValue;
+		}
+	}
+}
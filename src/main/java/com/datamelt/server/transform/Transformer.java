@@ -19,7 +19,9 @@
 package com.datamelt.server.transform;
 
 import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import com.datamelt.rules.core.RuleGroup;
@@ -37,6 +39,35 @@ public abstract class Transformer
 	public abstract void write(RuleEngineServerObject serverObject,ArrayList<RuleGroup> group) throws Exception;
 	public abstract void close() throws Exception;
 	
+	/**
+	 * writes the results of multiple rows. the groups containing the results of a row are
+	 * available from the server object of the row.
+	 * 
+	 * the default implementation calls the write method for each row. transformers may override
+	 * it, e.g. to flush the output once per batch.
+	 * 
+	 * @param serverObjects	the server objects containing the results of the rows
+	 * @throws Exception	exception writing the results
+	 */
+	public void write(List<RuleEngineServerObject> serverObjects) throws Exception
+	{
+		for(int i=0;i<serverObjects.size();i++)
+		{
+			write(serverObjects.get(i), serverObjects.get(i).getRuleGroups());
+		}
+	}
+	
+	/**
+	 * indicates if the results are written after the write method returned. in this case the
+	 * server object and groups passed to the write method must not be changed afterwards.
+	 * 
+	 * @return		indicator if the transformer writes asynchronously
+	 */
+	public boolean isAsynchronous()
+	{
+		return false;
+	}
+	
 	public Properties getProperties() 
 	{
 		return properties;
@@ -52,4 +83,16 @@ public abstract class Transformer
 		return new SimpleDateFormat(format);
 	}
 	
+	/**
+	 * returns a formatter for date and time values using the given pattern. in contrast to
+	 * a SimpleDateFormat, the formatter is thread-safe and can be created once and be shared.
+	 * 
+	 * @param format	the pattern of the formatter
+	 * @return			the formatter
+	 */
+	public DateTimeFormatter getDateTimeFormatter(String format)
+	{
+		return DateTimeFormatter.ofPattern(format);
+	}
+	
 }
@@ -20,8 +20,12 @@ package com.datamelt.server.transform.log;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.List;
+
+import org.apache.velocity.VelocityContext;
 
 import com.datamelt.rules.core.RuleGroup;
 import com.datamelt.server.RuleEngineServerObject;
@@ -36,8 +40,12 @@ public class LogTransformer extends Transformer
 	
 	private BufferedWriter writer;
 	private VelocityDataWriter dataWriter;
+	// the context for the merge with the template. it is reused for all rows and groups
+	private VelocityContext context;
 	
 	private static String DATETIME_FORMAT 						= "yyyy-MM-dd HH:mm:ss"; 
+	// the formatter is thread-safe and is shared
+	private static final DateTimeFormatter TIMESTAMP_FORMATTER	= DateTimeFormatter.ofPattern(DATETIME_FORMAT);
 	
 	public LogTransformer() throws Exception
 	{
@@ -51,21 +59,23 @@ public class LogTransformer extends Transformer
 						
 		// velocity writer
 		dataWriter = new VelocityDataWriter(getProperties().getProperty(PROPERTY_TEMPLATE_FOLDER), getProperties().getProperty(PROPERTY_TEMPLATE_FILENAME));
+		context = dataWriter.createContext();
 	}
 	public void write(RuleEngineServerObject serverObject,ArrayList<RuleGroup> groups) throws Exception
 	{
 		// review this loop: depends on how the output should look like
 		// currently it outputs all groups separately
 		
+		// the template is merged directly into the output file. the timestamp and server object
+		// are the same for all groups of the row
 		try
 		{
+			context.put("timestamp", TIMESTAMP_FORMATTER.format(LocalDateTime.now()));
+			context.put("serverobject", serverObject);
 			for(int i=0;i<groups.size();i++)
 			{
-				dataWriter.addObject("timestamp",getSimpleDateFormat(DATETIME_FORMAT).format(new Date()));
-				dataWriter.addObject("serverobject" , serverObject);
-				dataWriter.addObject("group" , groups.get(i));
-				writer.append(dataWriter.merge());
-				dataWriter.clearObjects();
+				context.put("group", groups.get(i));
+				dataWriter.merge(context, writer);
 			}
 		}
 		catch(Exception ex)
@@ -74,6 +84,16 @@ public class LogTransformer extends Transformer
 		}
 	}
 	
+	public void write(List<RuleEngineServerObject> serverObjects) throws Exception
+	{
+		for(int i=0;i<serverObjects.size();i++)
+		{
+			write(serverObjects.get(i), serverObjects.get(i).getRuleGroups());
+		}
+		// make the results of the batch visible in the output file
+		writer.flush();
+	}
+	
 	public void close() throws Exception
 	{
 		writer.close();
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+
+/**
+ * decodes the records of the blocks of an Avro container file, which have been read using the
+ * nextBlock() method of the AvroFileReader, into rows for the ruleengine.
+ *
+ * the blocks can be decoded independently of each other, so each thread decoding blocks uses its
+ * own decoder. the same as for the AvroFileReader, the GenericRecord and the RowFieldCollection are
+ * reused for all records and the values of a record are copied by their position into the row.
+ *
+ * @author uwe geercken
+ */
+public class AvroBlockDecoder
+{
+	private final GenericDatumReader<GenericRecord> datumReader;
+	private final AvroSchemaUtility schemaUtility;
+	private final HeaderRow header;
+	// the values of the current record. the array is reused for all records
+	private final Object[] values;
+
+	private BinaryDecoder decoder;
+	private GenericRecord record;
+	private RowFieldCollection row;
+
+	/**
+	 * constructor for a decoder of blocks written with the given schema. the rows get the given
+	 * header row, which can be shared by multiple decoders
+	 *
+	 * @param schema		the schema of the file
+	 * @param header		the header row containing the names of the fields of the schema
+	 * @throws Exception	exception when the schema is not of type [RECORD]
+	 */
+	public AvroBlockDecoder(Schema schema, HeaderRow header) throws Exception
+	{
+		this.datumReader = new GenericDatumReader<GenericRecord>(schema);
+		this.schemaUtility = AvroSchemaUtility.getSchemaUtility(schema);
+		this.header = header;
+		this.values = new Object[schemaUtility.getNumberOfFields()];
+	}
+
+	/**
+	 * sets the block which is decoded next. the block must be backed by an array
+	 *
+	 * @param block		the block containing the binary encoded records
+	 */
+	public void setBlock(ByteBuffer block)
+	{
+		decoder = DecoderFactory.get().binaryDecoder(block.array(), block.arrayOffset() + block.position(), block.remaining(), decoder);
+	}
+
+	/**
+	 * decodes the next record of the block and copies its values into the row
+	 *
+	 * @return				true if a record was decoded, false if the end of the block was reached
+	 * @throws IOException	exception when the record can not be decoded
+	 */
+	public boolean nextRow() throws IOException
+	{
+		if(decoder==null || decoder.isEnd())
+		{
+			return false;
+		}
+		record = datumReader.read(record, decoder);
+		schemaUtility.getGenericRecordValues(record, values);
+		if(row==null)
+		{
+			row = new RowFieldCollection(header, values);
+		}
+		else
+		{
+			row.replaceFieldValues(values);
+		}
+		return true;
+	}
+
+	/**
+	 * returns the row containing the values of the current record. the same row is returned
+	 * for all records
+	 *
+	 * @return		the row of the current record
+	 */
+	public RowFieldCollection getRowFieldCollection()
+	{
+		return row;
+	}
+
+	/**
+	 * returns the current record. the same record is reused for all records
+	 *
+	 * @return		the current record
+	 */
+	public GenericRecord getRecord()
+	{
+		return record;
+	}
+}
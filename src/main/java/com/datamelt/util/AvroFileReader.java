@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * reader for the records of an Avro container file, which passes them to the ruleengine as rows.
+ *
+ * the file is read block by block as a stream. the schema of the file is analyzed once and the
+ * GenericRecord and the RowFieldCollection are reused for all records: the values of a record are
+ * copied by their position into the fields of the row, which share the header row of the file.
+ * the rules therefore access the fields of all rows by the same index, without looking up the
+ * names of the fields. values of type Utf8 are passed as strings.
+ *
+ * because the row is reused, it must not be kept after the next row is read. use a copy of the
+ * values if they are needed later.
+ *
+ * alternatively the blocks of the file can be read without decoding them, using nextBlock(). the
+ * records of the blocks can then be decoded in other threads - e.g. in parallel - using an
+ * AvroBlockDecoder. rows and blocks can not be read from the same reader.
+ *
+ * example:
+ *
+ * AvroFileReader reader = new AvroFileReader("data.avro");
+ * while(reader.nextRow())
+ * {
+ *     RowFieldCollection row = reader.getRowFieldCollection();
+ *     ...
+ * }
+ * reader.close();
+ *
+ * @author uwe geercken
+ */
+public class AvroFileReader implements Closeable
+{
+	private final DataFileReader<GenericRecord> reader;
+	private final AvroSchemaUtility schemaUtility;
+	private final HeaderRow header;
+	// the values of the current record. the array is reused for all records
+	private final Object[] values;
+
+	private GenericRecord record;
+	private RowFieldCollection row;
+	// the current block and the number of records it contains
+	private ByteBuffer block;
+	private long blockCount;
+
+	/**
+	 * constructor for a reader of the Avro file with the given name
+	 *
+	 * @param filename		path and name of the Avro file
+	 * @throws Exception	exception when the file can not be opened or the schema of the file is not of type [RECORD]
+	 */
+	public AvroFileReader(String filename) throws Exception
+	{
+		this(new File(filename));
+	}
+
+	/**
+	 * constructor for a reader of the given Avro file
+	 *
+	 * @param file			the Avro file
+	 * @throws Exception	exception when the file can not be opened or the schema of the file is not of type [RECORD]
+	 */
+	public AvroFileReader(File file) throws Exception
+	{
+		reader = new DataFileReader<GenericRecord>(file, new GenericDatumReader<GenericRecord>());
+		try
+		{
+			schemaUtility = AvroSchemaUtility.getSchemaUtility(reader.getSchema());
+		}
+		catch(Exception ex)
+		{
+			reader.close();
+			throw ex;
+		}
+		header = new HeaderRow(schemaUtility.getFieldNames());
+		values = new Object[schemaUtility.getNumberOfFields()];
+	}
+
+	/**
+	 * reads the next record of the file and copies its values into the row
+	 *
+	 * @return				true if a record was read, false if the end of the file was reached
+	 * @throws IOException	exception when the file can not be read
+	 */
+	public boolean nextRow() throws IOException
+	{
+		if(!reader.hasNext())
+		{
+			return false;
+		}
+		record = reader.next(record);
+		schemaUtility.getGenericRecordValues(record, values);
+		if(row==null)
+		{
+			row = new RowFieldCollection(header, values);
+		}
+		else
+		{
+			row.replaceFieldValues(values);
+		}
+		return true;
+	}
+
+	/**
+	 * returns the row containing the values of the current record. the same row is returned
+	 * for all records
+	 *
+	 * @return		the row of the current record
+	 */
+	public RowFieldCollection getRowFieldCollection()
+	{
+		return row;
+	}
+
+	/**
+	 * returns the current record. the same record is reused for all records of the file
+	 *
+	 * @return		the current record
+	 */
+	public GenericRecord getRecord()
+	{
+		return record;
+	}
+
+	/**
+	 * reads the next block of the file without decoding its records. the block is uncompressed
+	 * if the file uses a codec.
+	 *
+	 * @return				true if a block was read, false if the end of the file was reached
+	 * @throws IOException	exception when the file can not be read
+	 */
+	public boolean nextBlock() throws IOException
+	{
+		if(!reader.hasNext())
+		{
+			return false;
+		}
+		blockCount = reader.getBlockCount();
+		// the buffer of the reader is reused for the next block, so the block is copied
+		ByteBuffer data = reader.nextBlock();
+		block = ByteBuffer.allocate(data.remaining());
+		block.put(data.duplicate());
+		block.flip();
+		return true;
+	}
+
+	/**
+	 * returns the current block containing the binary encoded records. the block is not
+	 * changed when the next block is read
+	 *
+	 * @return		the current block
+	 */
+	public ByteBuffer getBlock()
+	{
+		return block;
+	}
+
+	/**
+	 * returns the number of records of the current block
+	 *
+	 * @return		the number of records
+	 */
+	public long getBlockCount()
+	{
+		return blockCount;
+	}
+
+	/**
+	 * returns the schema the file was written with
+	 *
+	 * @return		the schema of the file
+	 */
+	public Schema getSchema()
+	{
+		return reader.getSchema();
+	}
+
+	/**
+	 * returns the header row containing the names of the fields of the schema. the header row
+	 * is shared by all rows of the reader
+	 *
+	 * @return		the header row
+	 */
+	public HeaderRow getHeader()
+	{
+		return header;
+	}
+
+	/**
+	 * closes the file
+	 *
+	 * @throws IOException	exception when the file can not be closed
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		reader.close();
+	}
+}
@@ -19,6 +19,7 @@
 package com.datamelt.util;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
@@ -29,6 +30,10 @@ import org.apache.avro.util.Utf8;
 /**
  * utility class to simplify the retrieval of fields and data of an Avro file.
  * 
+ * the names of the fields are determined once, when the utility is created.
+ * as all records of an Avro file are written using the same schema, the utility for a schema
+ * can be shared by all records: use getSchemaUtility() to get the utility for a schema, which is
+ * created once and then taken from a cache. the number of cached schemas is limited.
  * 
  * @author uwe geercken
  */
@@ -38,7 +43,14 @@ public class AvroSchemaUtility
 	private static final String FIELDTYPE_UNION			= "union";
 	private static final String COMPLEX_TYPE_RECORD		= "record";
 	
+	// the maximum number of schemas that are cached. schemas above the limit are analyzed each time
+	private static final int MAXIMUM_NUMBER_OF_SCHEMAS	= 100;
+	
+	// the utilities by schema
+	private static final ConcurrentHashMap<Schema,AvroSchemaUtility> schemaUtilities = new ConcurrentHashMap<Schema,AvroSchemaUtility>();
+	
 	private List<Field> fields;
+	private String[] fieldNames;
 	
 	/*
 	 * constructor for AvroSchemaUtility object. 
@@ -56,6 +68,39 @@ public class AvroSchemaUtility
 		}
 		
 		this.fields = avroSchema.getFields();
+		this.fieldNames = new String[fields.size()];
+		for(int i=0;i<fields.size();i++)
+		{
+			fieldNames[i] = fields.get(i).name();
+		}
+	}
+	
+	/**
+	 * returns the utility for the given schema. the utility is created when the schema is
+	 * requested the first time and is then taken from a cache, so that the schema is only
+	 * analyzed once - e.g. for all records of an Avro file. when the maximum number of cached
+	 * schemas is reached, the utility for a further schema is created but not cached.
+	 * 
+	 * @param avroSchema	an Avro schema
+	 * @return				the utility for the schema
+	 * @throws Exception	thrown when the complex type of the schema is not equal to [RECORD]
+	 */
+	public static AvroSchemaUtility getSchemaUtility(Schema avroSchema) throws Exception
+	{
+		AvroSchemaUtility schemaUtility = schemaUtilities.get(avroSchema);
+		if(schemaUtility==null)
+		{
+			schemaUtility = new AvroSchemaUtility(avroSchema);
+			if(schemaUtilities.size()<MAXIMUM_NUMBER_OF_SCHEMAS)
+			{
+				AvroSchemaUtility existingUtility = schemaUtilities.putIfAbsent(avroSchema, schemaUtility);
+				if(existingUtility!=null)
+				{
+					schemaUtility = existingUtility;
+				}
+			}
+		}
+		return schemaUtility;
 	}
 
 	/*
@@ -125,14 +170,17 @@ public class AvroSchemaUtility
 	 */
 	public String[] getFieldNames()
 	{
-		String[] fieldNames = new String[fields.size()];
-		
-		for(int i=0;i<fields.size();i++)
-		{
-			fieldNames[i] = fields.get(i).name();
-		}
-		
-		return fieldNames;
+		return fieldNames.clone();
+	}
+	
+	/**
+	 * returns the number of fields of the schema
+	 * 
+	 * @return				the number of fields
+	 */
+	public int getNumberOfFields()
+	{
+		return fieldNames.length;
 	}
 	
 	/**
@@ -143,16 +191,43 @@ public class AvroSchemaUtility
 	 */
 	public Object[] getGenericRecordData(GenericRecord record)
 	{
-		Object[] objects = new Object[getFieldNames().length];
-		for(int i=0;i<getFieldNames().length;i++)
+		Object[] objects = new Object[fieldNames.length];
+		for(int i=0;i<fieldNames.length;i++)
 		{
-			objects[i] = record.get(getFieldNames()[i]);
-			if(objects[i] instanceof Utf8)
-			{
-				objects[i] = objects[i].toString();
-			}
+			objects[i] = getValue(record.get(fieldNames[i]));
 		}
 		return objects;
 	}
+	
+	/**
+	 * collects all values of the avro record into the given array. the values are retrieved by
+	 * their position, so the record must use the schema of this utility - or an equal schema.
+	 * 
+	 * @param record		an avro record using the schema of this utility
+	 * @param objects		the array for the values, having at least the length of the number of fields
+	 */
+	public void getGenericRecordValues(GenericRecord record, Object[] objects)
+	{
+		for(int i=0;i<fieldNames.length;i++)
+		{
+			objects[i] = getValue(record.get(i));
+		}
+	}
+	
+	/**
+	 * returns the value of a field as it is passed to the rules: values of type Utf8 are
+	 * converted to strings
+	 * 
+	 * @param value		the value of the field of the record
+	 * @return			the value for the rules
+	 */
+	private static Object getValue(Object value)
+	{
+		if(value instanceof Utf8)
+		{
+			return value.toString();
+		}
+		return value;
+	}
 
 }
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * splits a line of a CSV file, which is given as a range of bytes, into its fields.
+ *
+ * the bytes are scanned for the separator and only the bytes of each field are decoded
+ * to a string. the line itself is never decoded. a field may be enclosed in quotes, in
+ * which case it may contain the separator and quotes - the latter written as two
+ * quote characters ("").
+ *
+ * the charset must encode the separator and the quote character the same way as ASCII
+ * does and must not use these bytes as part of other characters. this is the case for
+ * UTF-8 and the ISO-8859 charsets.
+ *
+ * a splitter reuses its internal buffer and must only be used by one thread at a time.
+ *
+ * @author uwe geercken
+ */
+public class ByteFieldSplitter
+{
+	private static final byte QUOTE	= (byte)'"';
+
+	private final byte[] separator;
+	private final Charset charset;
+
+	// the bytes of the current field
+	private byte[] value = new byte[256];
+	private int valueLength;
+	// the fields of the current line. the array is reused for all lines
+	private String[] fields = new String[16];
+	private int numberOfFields;
+
+	/**
+	 * constructor for a splitter using the given separator and charset. separators which escape
+	 * characters the way a regular expression does - such as \\| or \\t - are converted to the
+	 * literal separator.
+	 *
+	 * @param fieldSeperator	the separator between the fields
+	 * @param charset			the charset of the bytes
+	 */
+	public ByteFieldSplitter(String fieldSeperator, Charset charset)
+	{
+		if(fieldSeperator==null || fieldSeperator.length()==0)
+		{
+			fieldSeperator = Splitter.SEPERATOR_SEMICOLON;
+		}
+		else if(Splitter.getLiteralSeparator(fieldSeperator)!=null)
+		{
+			fieldSeperator = Splitter.getLiteralSeparator(fieldSeperator);
+		}
+		this.separator = fieldSeperator.getBytes(charset);
+		this.charset = charset;
+	}
+
+	/**
+	 * splits the remaining bytes of the buffer into fields
+	 *
+	 * @param line		the buffer containing the bytes of the line
+	 * @return			an array of fields
+	 */
+	public Object[] split(ByteBuffer line)
+	{
+		return split(line, line.position(), line.limit());
+	}
+
+	/**
+	 * splits the bytes of the buffer from the start position (inclusive) to the end position
+	 * (exclusive) into fields. the position of the buffer is not changed.
+	 *
+	 * @param buffer	the buffer containing the bytes of the line
+	 * @param start		the position of the first byte of the line
+	 * @param end		the position after the last byte of the line
+	 * @return			an array of fields
+	 */
+	public Object[] split(ByteBuffer buffer, int start, int end)
+	{
+		numberOfFields = 0;
+		int i = start;
+		while(true)
+		{
+			valueLength = 0;
+			if(i<end && buffer.get(i)==QUOTE)
+			{
+				i++;
+				while(i<end)
+				{
+					byte b = buffer.get(i);
+					if(b==QUOTE)
+					{
+						// two quotes are an escaped quote
+						if(i+1<end && buffer.get(i+1)==QUOTE)
+						{
+							append(QUOTE);
+							i = i + 2;
+							continue;
+						}
+						i++;
+						break;
+					}
+					append(b);
+					i++;
+				}
+			}
+			while(i<end && !matchesSeparator(buffer, i, end))
+			{
+				append(buffer.get(i));
+				i++;
+			}
+			addField(new String(value, 0, valueLength, charset));
+			if(i>=end)
+			{
+				break;
+			}
+			i = i + separator.length;
+		}
+		Object[] objects = new Object[numberOfFields];
+		System.arraycopy(fields, 0, objects, 0, numberOfFields);
+		return objects;
+	}
+
+	/**
+	 * checks if the separator starts at the given position of the buffer
+	 *
+	 * @param buffer	the buffer
+	 * @param position	the position to check
+	 * @param end		the position after the last byte of the line
+	 * @return			indicator if the separator starts at the position
+	 */
+	private boolean matchesSeparator(ByteBuffer buffer, int position, int end)
+	{
+		if(buffer.get(position)!=separator[0] || position + separator.length>end)
+		{
+			return false;
+		}
+		for(int i=1;i<separator.length;i++)
+		{
+			if(buffer.get(position + i)!=separator[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * appends a byte to the bytes of the current field. the array is enlarged if required
+	 *
+	 * @param b		the byte to append
+	 */
+	private void append(byte b)
+	{
+		if(valueLength==value.length)
+		{
+			byte[] newValue = new byte[value.length * 2];
+			System.arraycopy(value, 0, newValue, 0, valueLength);
+			value = newValue;
+		}
+		value[valueLength] = b;
+		valueLength++;
+	}
+
+	/**
+	 * adds a field to the fields of the current line. the array is enlarged if required
+	 *
+	 * @param field		the value of the field
+	 */
+	private void addField(String field)
+	{
+		if(numberOfFields==fields.length)
+		{
+			String[] newFields = new String[fields.length * 2];
+			System.arraycopy(fields, 0, newFields, 0, fields.length);
+			fields = newFields;
+		}
+		fields[numberOfFields] = field;
+		numberOfFields++;
+	}
+
+	/**
+	 * returns the charset used to decode the fields
+	 *
+	 * @return		the charset
+	 */
+	public Charset getCharset()
+	{
+		return charset;
+	}
+}
@@ -0,0 +1,514 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * tokenizer which reads the rows of a CSV file from a reader and splits them into
+ * their fields in one pass.
+ *
+ * the characters are read into a buffer and scanned for the field separator and the
+ * end of the line. no regular expressions are used and no string is created for the
+ * line itself. the separator may consist of more than one character; it is always
+ * taken literally.
+ *
+ * a field may be enclosed in quotes. a quoted field may contain the separator, line
+ * breaks and quotes - the latter written as two quote characters (""). the enclosing
+ * quotes are not part of the value of the field. a quote that is not at the beginning
+ * of a field is taken literally.
+ *
+ * rows that are empty or that start with a hash sign (#) are skipped per default - the
+ * same way the readers of the ruleengine skip them.
+ *
+ * the array of fields is reused for all rows. use getField() to access the fields of the
+ * current row or getFields() to get a copy of them.
+ *
+ * example:
+ *
+ * CsvTokenizer tokenizer = new CsvTokenizer(new FileReader("data.csv"), ";");
+ * while(tokenizer.nextRow())
+ * {
+ *     RowFieldCollection row = tokenizer.getRowFieldCollection(header);
+ *     ...
+ * }
+ * tokenizer.close();
+ *
+ * @author uwe geercken
+ */
+public class CsvTokenizer implements Closeable
+{
+	public static final char QUOTE_DEFAULT				= '"';
+	public static final char COMMENT_CHARACTER			= '#';
+
+	private static final int BUFFER_SIZE_DEFAULT		= 65536;
+	private static final int NUMBER_OF_FIELDS_DEFAULT	= 16;
+
+	// indicators what ended a field
+	private static final int END_OF_FIELD				= 0;
+	private static final int END_OF_LINE				= 1;
+	private static final int END_OF_INPUT				= 2;
+
+	private final Reader reader;
+	private final char[] separator;
+	private char quote = QUOTE_DEFAULT;
+	private boolean skipEmptyAndCommentRows = true;
+
+	// the window of characters read from the reader
+	private char[] buffer;
+	private int position;
+	private int limit;
+
+	// the fields of the current row. the array is reused for all rows
+	private String[] fields = new String[NUMBER_OF_FIELDS_DEFAULT];
+	private int numberOfFields;
+	// collects the characters of a field that spans more than one buffer
+	private final StringBuilder value = new StringBuilder();
+	// indicates if the last field read was enclosed in quotes
+	private boolean quoted;
+
+	/**
+	 * constructor for a tokenizer reading from the given reader and using the given
+	 * separator between the fields
+	 *
+	 * @param reader			the reader to read the rows from
+	 * @param fieldSeperator	the separator between the fields
+	 */
+	public CsvTokenizer(Reader reader, String fieldSeperator)
+	{
+		this(reader, fieldSeperator, BUFFER_SIZE_DEFAULT);
+	}
+
+	/**
+	 * constructor for a tokenizer reading from the given reader and using the given
+	 * separator between the fields and the given size of the buffer
+	 *
+	 * if no separator is given, the semicolon (;) is used. separators which escape characters
+	 * the way a regular expression does - such as \\| or \\t - are converted to the literal
+	 * separator, so that the separators used with the Splitter class can be used.
+	 *
+	 * @param reader			the reader to read the rows from
+	 * @param fieldSeperator	the separator between the fields
+	 * @param bufferSize		the number of characters that are read at once
+	 */
+	public CsvTokenizer(Reader reader, String fieldSeperator, int bufferSize)
+	{
+		this.reader = reader;
+		if(fieldSeperator!=null && fieldSeperator.length()>0)
+		{
+			String literalSeparator = Splitter.getLiteralSeparator(fieldSeperator);
+			this.separator = literalSeparator!=null ? literalSeparator.toCharArray() : fieldSeperator.toCharArray();
+		}
+		else
+		{
+			this.separator = Splitter.SEPERATOR_SEMICOLON.toCharArray();
+		}
+		this.buffer = new char[Math.max(bufferSize, separator.length)];
+	}
+
+	/**
+	 * reads the next row and splits it into its fields.
+	 *
+	 * @return				true if a row was read, false if the end of the input was reached
+	 * @throws IOException	exception when the reader can not be read
+	 */
+	public boolean nextRow() throws IOException
+	{
+		while(fill())
+		{
+			if(skipEmptyAndCommentRows && buffer[position]==COMMENT_CHARACTER)
+			{
+				skipLine();
+				continue;
+			}
+			readRow();
+			if(skipEmptyAndCommentRows && numberOfFields==1 && !quoted && fields[0].trim().equals(""))
+			{
+				continue;
+			}
+			return true;
+		}
+		numberOfFields = 0;
+		return false;
+	}
+
+	/**
+	 * reads the fields of a row until the end of the line or the end of the input
+	 *
+	 * @throws IOException	exception when the reader can not be read
+	 */
+	private void readRow() throws IOException
+	{
+		numberOfFields = 0;
+		int end;
+		do
+		{
+			value.setLength(0);
+			quoted = false;
+			if(fill() && buffer[position]==quote)
+			{
+				quoted = true;
+				position++;
+				readQuoted();
+			}
+			end = readUnquoted();
+			addField(value.toString());
+		}
+		while(end==END_OF_FIELD);
+	}
+
+	/**
+	 * reads the characters of a quoted field up to and including the closing quote
+	 *
+	 * @throws IOException	exception when the reader can not be read
+	 */
+	private void readQuoted() throws IOException
+	{
+		int start = position;
+		while(true)
+		{
+			if(position>=limit)
+			{
+				value.append(buffer, start, position - start);
+				if(!fill())
+				{
+					return;
+				}
+				start = position;
+			}
+			if(buffer[position]==quote)
+			{
+				value.append(buffer, start, position - start);
+				position++;
+				// two quotes are an escaped quote
+				if(fill() && buffer[position]==quote)
+				{
+					value.append(quote);
+					position++;
+					start = position;
+				}
+				else
+				{
+					return;
+				}
+			}
+			else
+			{
+				position++;
+			}
+		}
+	}
+
+	/**
+	 * reads the characters of a field up to the next separator or the end of the line
+	 *
+	 * @return				indicator what ended the field
+	 * @throws IOException	exception when the reader can not be read
+	 */
+	private int readUnquoted() throws IOException
+	{
+		int start = position;
+		while(true)
+		{
+			if(position>=limit)
+			{
+				value.append(buffer, start, position - start);
+				if(!fill())
+				{
+					return END_OF_INPUT;
+				}
+				start = position;
+			}
+			char c = buffer[position];
+			if(c=='\n' || c=='\r')
+			{
+				value.append(buffer, start, position - start);
+				skipEndOfLine();
+				return END_OF_LINE;
+			}
+			else if(c==separator[0])
+			{
+				value.append(buffer, start, position - start);
+				if(matchesSeparator())
+				{
+					position = position + separator.length;
+					return END_OF_FIELD;
+				}
+				value.append(c);
+				position++;
+				start = position;
+			}
+			else
+			{
+				position++;
+			}
+		}
+	}
+
+	/**
+	 * checks if the separator starts at the current position. for separators of more than one
+	 * character, more characters are read if required.
+	 *
+	 * @return				indicator if the separator starts at the current position
+	 * @throws IOException	exception when the reader can not be read
+	 */
+	private boolean matchesSeparator() throws IOException
+	{
+		if(separator.length==1)
+		{
+			return true;
+		}
+		if(!ensure(separator.length))
+		{
+			return false;
+		}
+		for(int i=1;i<separator.length;i++)
+		{
+			if(buffer[position + i]!=separator[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * skips the characters up to and including the end of the line
+	 *
+	 * @throws IOException	exception when the reader can not be read
+	 */
+	private void skipLine() throws IOException
+	{
+		while(fill())
+		{
+			char c = buffer[position];
+			if(c=='\n' || c=='\r')
+			{
+				skipEndOfLine();
+				return;
+			}
+			position++;
+		}
+	}
+
+	/**
+	 * skips the line break at the current position. a line break is either a line feed,
+	 * a carriage return or a carriage return followed by a line feed.
+	 *
+	 * @throws IOException	exception when the reader can not be read
+	 */
+	private void skipEndOfLine() throws IOException
+	{
+		char c = buffer[position];
+		position++;
+		if(c=='\r' && fill() && buffer[position]=='\n')
+		{
+			position++;
+		}
+	}
+
+	/**
+	 * makes sure that at least one character is available in the buffer. if all characters
+	 * of the buffer have been used, the next characters are read from the reader.
+	 *
+	 * @return				true if a character is available, false at the end of the input
+	 * @throws IOException	exception when the reader can not be read
+	 */
+	private boolean fill() throws IOException
+	{
+		if(position<limit)
+		{
+			return true;
+		}
+		position = 0;
+		limit = 0;
+		int read;
+		do
+		{
+			read = reader.read(buffer, 0, buffer.length);
+		}
+		while(read==0);
+		if(read>0)
+		{
+			limit = read;
+		}
+		return limit>0;
+	}
+
+	/**
+	 * makes sure that at least the given number of characters is available in the buffer. the
+	 * remaining characters are moved to the beginning of the buffer and more characters are read.
+	 *
+	 * @param length		the number of characters required
+	 * @return				true if the characters are available, false at the end of the input
+	 * @throws IOException	exception when the reader can not be read
+	 */
+	private boolean ensure(int length) throws IOException
+	{
+		if(limit - position>=length)
+		{
+			return true;
+		}
+		int remaining = limit - position;
+		System.arraycopy(buffer, position, buffer, 0, remaining);
+		position = 0;
+		limit = remaining;
+		while(limit<length)
+		{
+			int read = reader.read(buffer, limit, buffer.length - limit);
+			if(read<0)
+			{
+				return false;
+			}
+			limit = limit + read;
+		}
+		return true;
+	}
+
+	/**
+	 * adds a field to the fields of the current row. the array is enlarged if required
+	 *
+	 * @param field		the value of the field
+	 */
+	private void addField(String field)
+	{
+		if(numberOfFields==fields.length)
+		{
+			String[] newFields = new String[fields.length * 2];
+			System.arraycopy(fields, 0, newFields, 0, fields.length);
+			fields = newFields;
+		}
+		fields[numberOfFields] = field;
+		numberOfFields++;
+	}
+
+	/**
+	 * returns the number of fields of the current row
+	 *
+	 * @return		the number of fields
+	 */
+	public int getNumberOfFields()
+	{
+		return numberOfFields;
+	}
+
+	/**
+	 * returns the value of the field with the given index from the current row
+	 *
+	 * @param index		the index of the field
+	 * @return			the value of the field
+	 */
+	public String getField(int index)
+	{
+		if(index<0 || index>=numberOfFields)
+		{
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numberOfFields);
+		}
+		return fields[index];
+	}
+
+	/**
+	 * returns a copy of the fields of the current row. the copy is not changed when the
+	 * next row is read.
+	 *
+	 * @return		an array of objects
+	 */
+	public Object[] getFields()
+	{
+		Object[] objects = new Object[numberOfFields];
+		System.arraycopy(fields, 0, objects, 0, numberOfFields);
+		return objects;
+	}
+
+	/**
+	 * returns a RowFieldCollection containing the fields of the current row. the fields
+	 * get a default name and a running number.
+	 *
+	 * @return		a row field collection object
+	 */
+	public RowFieldCollection getRowFieldCollection()
+	{
+		return new RowFieldCollection(getFields());
+	}
+
+	/**
+	 * returns a RowFieldCollection containing the fields of the current row using the
+	 * names of the fields of the given header row
+	 *
+	 * @param header	the header row
+	 * @return			a row field collection object
+	 */
+	public RowFieldCollection getRowFieldCollection(HeaderRow header)
+	{
+		return new RowFieldCollection(header, getFields());
+	}
+
+	/**
+	 * closes the reader
+	 *
+	 * @throws IOException	exception when the reader can not be closed
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		reader.close();
+	}
+
+	/**
+	 * returns the character used to enclose quoted fields
+	 *
+	 * @return		the quote character
+	 */
+	public char getQuote()
+	{
+		return quote;
+	}
+
+	/**
+	 * sets the character used to enclose quoted fields. default is the double quote (")
+	 *
+	 * @param quote		the quote character
+	 */
+	public void setQuote(char quote)
+	{
+		this.quote = quote;
+	}
+
+	/**
+	 * indicates if empty rows and rows starting with a hash sign (#) are skipped
+	 *
+	 * @return		indicator if empty and comment rows are skipped
+	 */
+	public boolean getSkipEmptyAndCommentRows()
+	{
+		return skipEmptyAndCommentRows;
+	}
+
+	/**
+	 * sets if empty rows and rows starting with a hash sign (#) are skipped. default is true
+	 *
+	 * @param skipEmptyAndCommentRows	indicator if empty and comment rows are skipped
+	 */
+	public void setSkipEmptyAndCommentRows(boolean skipEmptyAndCommentRows)
+	{
+		this.skipEmptyAndCommentRows = skipEmptyAndCommentRows;
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+/**
+ * a segment of a file, defined by the position of its first byte and the position
+ * after its last byte.
+ *
+ * segments created by the MappedFileReader start at the beginning of a line and end after
+ * the end of a line, so that each segment can be read independently of the others.
+ *
+ * @author uwe geercken
+ */
+public class FileSegment
+{
+	private long start;
+	private long end;
+
+	/**
+	 * constructor for a segment from the start position (inclusive) to the end position (exclusive)
+	 *
+	 * @param start		the position of the first byte of the segment
+	 * @param end		the position after the last byte of the segment
+	 */
+	public FileSegment(long start, long end)
+	{
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * returns the position of the first byte of the segment
+	 *
+	 * @return		the start position
+	 */
+	public long getStart()
+	{
+		return start;
+	}
+
+	/**
+	 * returns the position after the last byte of the segment
+	 *
+	 * @return		the end position
+	 */
+	public long getEnd()
+	{
+		return end;
+	}
+
+	/**
+	 * returns the number of bytes of the segment
+	 *
+	 * @return		the length of the segment
+	 */
+	public long getLength()
+	{
+		return end - start;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "[" + start + "," + end + ")";
+	}
+}
@@ -0,0 +1,398 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * a record of a fixed length ASCII file, as created by the FixedLengthRecordDecoder.
+ *
+ * the record keeps a reference to the bytes of the record and decodes a field only when
+ * it is accessed. numeric fields are converted directly from the bytes, without creating
+ * a string. string values are created on first access and are then kept.
+ *
+ * the record has the same methods to access the fields as the Row class - getField(),
+ * getIntegerField(), getLongField(), etc. - so rules that have been defined for rows
+ * created by the Splitter can be run against the records. additionally the fields can be
+ * accessed by the names defined in the row definition file using getFieldValue().
+ *
+ * if the record is shorter than the definition of a field, the field contains the
+ * remaining bytes of the record only.
+ *
+ * @author uwe geercken
+ */
+public class FixedLengthRecord
+{
+	private static final long MAXIMUM_EXACT_MANTISSA		= 1L << 53;
+	private static final long MAXIMUM_EXACT_FLOAT_MANTISSA	= 1L << 24;
+	private static final double[] POWERS_OF_TEN				= {1e0,1e1,1e2,1e3,1e4,1e5,1e6,1e7,1e8,1e9,1e10,1e11,1e12,1e13,1e14,1e15,1e16,1e17,1e18,1e19,1e20,1e21,1e22};
+	private static final float[] FLOAT_POWERS_OF_TEN		= {1e0f,1e1f,1e2f,1e3f,1e4f,1e5f,1e6f,1e7f,1e8f,1e9f,1e10f};
+
+	private final FixedLengthRecordDecoder decoder;
+	private final ByteBuffer buffer;
+	// the string values of the fields, created when they are accessed
+	private final String[] values;
+
+	// the bounds of the field after skipping blanks, set by findValue()
+	private int valueStart;
+	private int valueEnd;
+	// the value of a plain decimal number, set by parseDecimal()
+	private long decimalMantissa;
+	private int decimalScale;
+	private boolean decimalNegative;
+
+	/**
+	 * constructor for a record using the given decoder and the bytes of the record
+	 *
+	 * @param decoder	the decoder defining the fields
+	 * @param buffer	the bytes of the record, starting at position zero
+	 */
+	FixedLengthRecord(FixedLengthRecordDecoder decoder, ByteBuffer buffer)
+	{
+		this.decoder = decoder;
+		this.buffer = buffer;
+		this.values = new String[decoder.getNumberOfFields()];
+	}
+
+	/**
+	 * checks the number of the field
+	 *
+	 * @param number		the number of the field
+	 * @throws Exception	when a wrong field number is specified
+	 */
+	private void checkFieldNumber(int number) throws Exception
+	{
+		if(number<0 || number>values.length-1)
+		{
+			throw new Exception("invalid field number: " + number + ". number of fields is: " + values.length + " - " + getLine());
+		}
+	}
+
+	/**
+	 * determines the bytes of the field without leading and trailing blanks
+	 *
+	 * @param number	the number of the field
+	 */
+	private void findValue(int number)
+	{
+		int limit = buffer.limit();
+		int start = Math.min(decoder.getFieldStart(number), limit);
+		int end = Math.min(decoder.getFieldStart(number) + decoder.getFieldLength(number), limit);
+		while(start<end && isBlank(buffer.get(start)))
+		{
+			start++;
+		}
+		while(end>start && isBlank(buffer.get(end - 1)))
+		{
+			end--;
+		}
+		valueStart = start;
+		valueEnd = end;
+	}
+
+	/**
+	 * checks if the byte is a blank or a control character
+	 *
+	 * @param b		the byte
+	 * @return		indicator if the byte is blank
+	 */
+	private static boolean isBlank(byte b)
+	{
+		return b>=0 && b<=' ';
+	}
+
+	/**
+	 * returns the number of fields of the record
+	 *
+	 * @return		the number of fields
+	 */
+	public int getNumberOfFields()
+	{
+		return values.length;
+	}
+
+	/**
+	 * returns a field of the record as a string
+	 *
+	 * @param number		the number of the field to get
+	 * @return				the field as a string
+	 * @throws Exception	when a wrong field number is specified
+	 */
+	public String getField(int number) throws Exception
+	{
+		checkFieldNumber(number);
+		if(values[number]==null)
+		{
+			int start;
+			int end;
+			if(decoder.getTrimFields())
+			{
+				findValue(number);
+				start = valueStart;
+				end = valueEnd;
+			}
+			else
+			{
+				start = Math.min(decoder.getFieldStart(number), buffer.limit());
+				end = Math.min(decoder.getFieldStart(number) + decoder.getFieldLength(number), buffer.limit());
+			}
+			byte[] bytes = new byte[end - start];
+			for(int i=0;i<bytes.length;i++)
+			{
+				bytes[i] = buffer.get(start + i);
+			}
+			values[number] = new String(bytes, decoder.getCharset());
+		}
+		return values[number];
+	}
+
+	/**
+	 * returns the value of a field of the record
+	 *
+	 * @param number		the number of the field to get
+	 * @return				the value of the field
+	 * @throws Exception	when a wrong field number is specified
+	 */
+	public Object getFieldValue(int number) throws Exception
+	{
+		return getField(number);
+	}
+
+	/**
+	 * returns the value of the field with the given name, as defined in the row definition file
+	 *
+	 * @param name			the name of the field
+	 * @return				the value of the field
+	 * @throws Exception	when the field does not exist
+	 */
+	public Object getFieldValue(String name) throws Exception
+	{
+		int number = decoder.getFieldIndex(name);
+		if(number<0)
+		{
+			throw new FieldNotFoundException("field [" + name + "] does not exist in the row definition");
+		}
+		return getField(number);
+	}
+
+	/**
+	 * returns an integer field of the record. the field is converted directly from its bytes
+	 *
+	 * @param number		the number of the field to get
+	 * @return				the field as an integer
+	 * @throws Exception	when a wrong field number is specified or the field is not a number
+	 */
+	public int getIntegerField(int number) throws Exception
+	{
+		long value = getLongField(number);
+		if(value<Integer.MIN_VALUE || value>Integer.MAX_VALUE)
+		{
+			throw new NumberFormatException("For input string: \"" + getField(number) + "\"");
+		}
+		return (int)value;
+	}
+
+	/**
+	 * returns a long field of the record. the field is converted directly from its bytes
+	 *
+	 * @param number		the number of the field to get
+	 * @return				the field as a long
+	 * @throws Exception	when a wrong field number is specified or the field is not a number
+	 */
+	public long getLongField(int number) throws Exception
+	{
+		checkFieldNumber(number);
+		findValue(number);
+		int i = valueStart;
+		boolean negative = false;
+		if(i<valueEnd && (buffer.get(i)=='-' || buffer.get(i)=='+'))
+		{
+			negative = buffer.get(i)=='-';
+			i++;
+		}
+		if(i==valueEnd)
+		{
+			throw new NumberFormatException("For input string: \"" + getField(number) + "\"");
+		}
+		// accumulate negatively, so that the minimum value can be represented
+		long value = 0;
+		for(;i<valueEnd;i++)
+		{
+			int digit = buffer.get(i) - '0';
+			if(digit<0 || digit>9 || value < (Long.MIN_VALUE + digit) / 10)
+			{
+				throw new NumberFormatException("For input string: \"" + getField(number) + "\"");
+			}
+			value = value * 10 - digit;
+		}
+		if(negative)
+		{
+			return value;
+		}
+		else if(value==Long.MIN_VALUE)
+		{
+			throw new NumberFormatException("For input string: \"" + getField(number) + "\"");
+		}
+		else
+		{
+			return -value;
+		}
+	}
+
+	/**
+	 * returns a double field of the record. plain decimal numbers are converted directly from
+	 * their bytes, other values are converted using the Double class.
+	 *
+	 * @param number		the number of the field to get
+	 * @return				the field as a double
+	 * @throws Exception	when a wrong field number is specified or the field is not a number
+	 */
+	public double getDoubleField(int number) throws Exception
+	{
+		checkFieldNumber(number);
+		findValue(number);
+		if(parseDecimal() && decimalMantissa<=MAXIMUM_EXACT_MANTISSA && decimalScale<POWERS_OF_TEN.length)
+		{
+			// both values are exact doubles, so the division is correctly rounded
+			double value = decimalMantissa / POWERS_OF_TEN[decimalScale];
+			return decimalNegative ? -value : value;
+		}
+		return Double.parseDouble(getField(number));
+	}
+
+	/**
+	 * returns a float field of the record. plain decimal numbers are converted directly from
+	 * their bytes, other values are converted using the Float class.
+	 *
+	 * @param number		the number of the field to get
+	 * @return				the field as a float
+	 * @throws Exception	when a wrong field number is specified or the field is not a number
+	 */
+	public float getFloatField(int number) throws Exception
+	{
+		checkFieldNumber(number);
+		findValue(number);
+		if(parseDecimal() && decimalMantissa<=MAXIMUM_EXACT_FLOAT_MANTISSA && decimalScale<FLOAT_POWERS_OF_TEN.length)
+		{
+			// both values are exact floats, so the division is correctly rounded
+			float value = decimalMantissa / FLOAT_POWERS_OF_TEN[decimalScale];
+			return decimalNegative ? -value : value;
+		}
+		return Float.parseFloat(getField(number));
+	}
+
+	/**
+	 * parses the bytes of the current value as a plain decimal number - digits with an optional
+	 * sign and an optional decimal point.
+	 *
+	 * the digits without the decimal point, the number of decimal places and the sign are
+	 * kept in the decimal fields of the record.
+	 *
+	 * @return		false if the value is not a plain decimal number or has too many digits
+	 */
+	private boolean parseDecimal()
+	{
+		int i = valueStart;
+		boolean negative = false;
+		if(i<valueEnd && (buffer.get(i)=='-' || buffer.get(i)=='+'))
+		{
+			negative = buffer.get(i)=='-';
+			i++;
+		}
+		long mantissa = 0;
+		int scale = -1;
+		int digits = 0;
+		for(;i<valueEnd;i++)
+		{
+			byte b = buffer.get(i);
+			if(b=='.' && scale<0)
+			{
+				scale = 0;
+			}
+			else if(b>='0' && b<='9')
+			{
+				digits++;
+				// more than 18 digits may overflow
+				if(digits>18)
+				{
+					return false;
+				}
+				mantissa = mantissa * 10 + (b - '0');
+				if(scale>=0)
+				{
+					scale++;
+				}
+			}
+			else
+			{
+				return false;
+			}
+		}
+		if(digits==0)
+		{
+			return false;
+		}
+		decimalMantissa = mantissa;
+		decimalScale = Math.max(scale, 0);
+		decimalNegative = negative;
+		return true;
+	}
+
+	/**
+	 * returns a boolean field of the record
+	 *
+	 * @param number		the number of the field to get
+	 * @return				the field as a boolean
+	 * @throws Exception	when a wrong field number is specified
+	 */
+	public boolean getBooleanField(int number) throws Exception
+	{
+		return Boolean.parseBoolean(getField(number));
+	}
+
+	/**
+	 * returns the record as a string
+	 *
+	 * @return		the complete record
+	 */
+	public String getLine()
+	{
+		byte[] bytes = new byte[buffer.limit()];
+		for(int i=0;i<bytes.length;i++)
+		{
+			bytes[i] = buffer.get(i);
+		}
+		return new String(bytes, decoder.getCharset());
+	}
+
+	/**
+	 * returns the decoder of the record
+	 *
+	 * @return		the decoder
+	 */
+	public FixedLengthRecordDecoder getDecoder()
+	{
+		return decoder;
+	}
+
+	public String toString()
+	{
+		return getLine();
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+
+import com.datamelt.rules.parser.xml.RowDefinitionParser;
+
+/**
+ * decoder for the records of a fixed length ASCII file. the layout of the records is
+ * defined by the fields of a row definition file, as parsed by the RowDefinitionParser.
+ *
+ * the decoder works on the raw bytes of a record. decoding a record does not copy or
+ * convert anything: the returned FixedLengthRecord only keeps a reference to the bytes
+ * and decodes a field when it is accessed. numeric fields are converted directly from
+ * the bytes to primitives; strings are only created for fields that are accessed as
+ * strings.
+ *
+ * the start and length of the fields are positions in bytes. so the charset must use
+ * one byte per character - which is the case for the ASCII and ISO-8859 charsets. charsets
+ * using more than one byte per character, such as UTF-8, are refused: the fields would be
+ * shifted by each character of the record using more than one byte.
+ *
+ * the decoder does not change after it has been created and may be shared by multiple threads.
+ *
+ * example:
+ *
+ * FixedLengthRecordDecoder decoder = new FixedLengthRecordDecoder(parser);
+ * while(reader.nextLine())
+ * {
+ *     FixedLengthRecord record = decoder.decode(reader.getLineBuffer());
+ *     engine.run("row: " + counter, record);
+ * }
+ *
+ * @author uwe geercken
+ */
+public class FixedLengthRecordDecoder
+{
+	// the definition of the fields
+	private final String[] names;
+	private final int[] starts;
+	private final int[] lengths;
+	// the index of each field by its name
+	private final HashMap<String,Integer> fieldIndexes = new HashMap<String,Integer>();
+
+	private final Charset charset;
+	private final boolean trimFields;
+
+	/**
+	 * constructor for a decoder using the fields of the parsed row definition file.
+	 * the fields are trimmed and decoded using the ISO-8859-1 charset.
+	 *
+	 * @param parser		the parser containing the fields of the row definition file
+	 * @throws Exception	never thrown for the ISO-8859-1 charset
+	 */
+	public FixedLengthRecordDecoder(RowDefinitionParser parser) throws Exception
+	{
+		this(parser.getFields(), StandardCharsets.ISO_8859_1, true);
+	}
+
+	/**
+	 * constructor for a decoder using the given fields
+	 *
+	 * @param fields		the definition of the fields
+	 * @param charset		the charset used to decode string fields. it must use one byte per character
+	 * @param trimFields	indicator if string fields shall be trimmed (both sides)
+	 * @throws Exception	if the charset uses more than one byte per character
+	 */
+	public FixedLengthRecordDecoder(List<Field> fields, Charset charset, boolean trimFields) throws Exception
+	{
+		if(charset.newEncoder().maxBytesPerChar()>1)
+		{
+			throw new Exception("the charset of a fixed length record must use one byte per character: " + charset.name());
+		}
+		this.names = new String[fields.size()];
+		this.starts = new int[fields.size()];
+		this.lengths = new int[fields.size()];
+		for(int i=0;i<fields.size();i++)
+		{
+			Field field = fields.get(i);
+			names[i] = field.getName();
+			starts[i] = field.getStart();
+			lengths[i] = field.getLength();
+			if(field.getName()!=null && !fieldIndexes.containsKey(field.getName()))
+			{
+				fieldIndexes.put(field.getName(), i);
+			}
+		}
+		this.charset = charset;
+		this.trimFields = trimFields;
+	}
+
+	/**
+	 * creates a record for the remaining bytes of the buffer. the bytes are not copied;
+	 * the buffer must not be changed while the record is used.
+	 *
+	 * @param record	the buffer containing the bytes of the record
+	 * @return			the record
+	 */
+	public FixedLengthRecord decode(ByteBuffer record)
+	{
+		return new FixedLengthRecord(this, record.slice());
+	}
+
+	/**
+	 * creates a record for the given bytes. the bytes are not copied; the array must
+	 * not be changed while the record is used.
+	 *
+	 * @param record	the bytes of the record
+	 * @return			the record
+	 */
+	public FixedLengthRecord decode(byte[] record)
+	{
+		return new FixedLengthRecord(this, ByteBuffer.wrap(record));
+	}
+
+	/**
+	 * returns the index of the field with the given name
+	 *
+	 * @param name		the name of the field
+	 * @return			the index of the field or -1 if there is no field with that name
+	 */
+	public int getFieldIndex(String name)
+	{
+		Integer index = fieldIndexes.get(name);
+		if(index!=null)
+		{
+			return index;
+		}
+		else
+		{
+			return -1;
+		}
+	}
+
+	/**
+	 * returns the number of fields of a record
+	 *
+	 * @return		the number of fields
+	 */
+	public int getNumberOfFields()
+	{
+		return names.length;
+	}
+
+	/**
+	 * returns the name of the field with the given index
+	 *
+	 * @param index		the index of the field
+	 * @return			the name of the field
+	 */
+	public String getFieldName(int index)
+	{
+		return names[index];
+	}
+
+	/**
+	 * returns the position of the first byte of the field with the given index
+	 *
+	 * @param index		the index of the field
+	 * @return			the start of the field
+	 */
+	public int getFieldStart(int index)
+	{
+		return starts[index];
+	}
+
+	/**
+	 * returns the number of bytes of the field with the given index
+	 *
+	 * @param index		the index of the field
+	 * @return			the length of the field
+	 */
+	public int getFieldLength(int index)
+	{
+		return lengths[index];
+	}
+
+	/**
+	 * returns the charset used to decode string fields
+	 *
+	 * @return		the charset
+	 */
+	public Charset getCharset()
+	{
+		return charset;
+	}
+
+	/**
+	 * indicates if string fields are trimmed (both sides)
+	 *
+	 * @return		indicator if the fields are trimmed
+	 */
+	public boolean getTrimFields()
+	{
+		return trimFields;
+	}
+}
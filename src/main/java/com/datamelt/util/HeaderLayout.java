@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * a HeaderLayout describes the layout of a header row: the names of the fields and their index.
+ *
+ * header rows with the same names of fields at the same positions have an equal layout - even if
+ * they are different objects. layouts are interned: as long as the number of distinct layouts is
+ * below a limit, header rows with an equal layout share the same HeaderLayout object and may be
+ * compared by identity.
+ *
+ * a layout is immutable and may be shared by multiple threads.
+ *
+ * @author uwe geercken
+ */
+public final class HeaderLayout
+{
+	// the maximum number of layouts that are interned. further layouts are still created, but not interned
+	private static final int MAXIMUM_NUMBER_OF_LAYOUTS = 10000;
+
+	private static final ConcurrentHashMap<HeaderLayout,HeaderLayout> layouts = new ConcurrentHashMap<HeaderLayout,HeaderLayout>();
+
+	private final Map<String,Integer> fields;
+	private final int hashCode;
+
+	private HeaderLayout(Map<String,Integer> fields)
+	{
+		this.fields = Collections.unmodifiableMap(new HashMap<String,Integer>(fields));
+		this.hashCode = this.fields.hashCode();
+	}
+
+	/**
+	 * returns the layout for the given names of fields and their index. if an equal layout has
+	 * already been created, the existing layout is returned.
+	 *
+	 * @param fields	the names of the fields and their index
+	 * @return			the layout
+	 */
+	public static HeaderLayout getLayout(Map<String,Integer> fields)
+	{
+		HeaderLayout layout = new HeaderLayout(fields);
+		HeaderLayout existingLayout = layouts.get(layout);
+		if(existingLayout!=null)
+		{
+			return existingLayout;
+		}
+		else if(layouts.size()>=MAXIMUM_NUMBER_OF_LAYOUTS)
+		{
+			return layout;
+		}
+		existingLayout = layouts.putIfAbsent(layout, layout);
+		return existingLayout!=null ? existingLayout : layout;
+	}
+
+	/**
+	 * returns the number of fields of the layout
+	 *
+	 * @return	the number of fields
+	 */
+	public int getNumberOfFields()
+	{
+		return fields.size();
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object object)
+	{
+		if(object==this)
+		{
+			return true;
+		}
+		else if(!(object instanceof HeaderLayout))
+		{
+			return false;
+		}
+		HeaderLayout layout = (HeaderLayout)object;
+		return hashCode==layout.hashCode && fields.equals(layout.fields);
+	}
+}
@@ -44,6 +44,9 @@ public class HeaderRow implements Serializable
     //private String[] fieldNames;
     private ArrayList<String> fieldNames = new ArrayList<String>();
     
+    // the layout of the header row. it is determined when it is first requested
+    private transient volatile HeaderLayout layout;
+    
     public static final long serialVersionUID 		= 1964070327;
     
     /**
@@ -148,6 +151,7 @@ public class HeaderRow implements Serializable
     	fields.put(fieldName, newFieldIndex);
 
     	fieldNames.add(fieldName);
+    	layout = null;
     }
     
     public HashMap<String, Integer> getFields()
@@ -155,6 +159,27 @@ public class HeaderRow implements Serializable
 		return fields;
 	}
 
+    /**
+     * returns the layout of the header row: the names of the fields and their index.
+     * header rows with the same fields at the same positions return the same layout
+     * object, as long as not too many different layouts are in use.
+     * 
+     * the layout is determined once. fields must not be added to the hashmap returned by
+     * getFields() afterwards - only by using the addField method.
+     *  
+     * @return	the layout of the header row
+     */
+    public HeaderLayout getLayout()
+    {
+    	HeaderLayout currentLayout = layout;
+    	if(currentLayout==null)
+    	{
+    		currentLayout = HeaderLayout.getLayout(fields);
+    		layout = currentLayout;
+    	}
+    	return currentLayout;
+    }
+
 	/**
      * returns the number of fields that belong to the given row object
      *  
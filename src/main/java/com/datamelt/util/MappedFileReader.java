@@ -0,0 +1,448 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+/**
+ * reader for large text files, which maps the file into memory and reads it line by line.
+ *
+ * the file is mapped in windows of a fixed size using a FileChannel. the line boundaries
+ * are found directly in the mapped bytes; a line is only decoded when its content is
+ * requested - either the complete line using getLine() or its fields using getFields().
+ * getLineBuffer() returns the bytes of the line without copying or decoding them, so that
+ * they can be split into fields later - e.g. by another thread.
+ *
+ * lines end with a line feed or a carriage return followed by a line feed. empty lines and
+ * lines starting with a hash sign (#) are skipped per default - the same way the readers of
+ * the ruleengine skip them. quoted fields may not contain line breaks.
+ *
+ * large files can be divided into segments using the getSegments() method. each segment starts
+ * at the beginning of a line, so that each segment can be read by a separate reader - e.g. in
+ * a separate thread.
+ *
+ * the charset must encode the line feed, the separator and the quote character the same way as
+ * ASCII does. this is the case for UTF-8 and the ISO-8859 charsets.
+ *
+ * @author uwe geercken
+ */
+public class MappedFileReader implements Closeable
+{
+	public static final int WINDOW_SIZE_DEFAULT		= 64 * 1024 * 1024;
+
+	private static final byte LINE_FEED				= (byte)'\n';
+	private static final byte CARRIAGE_RETURN		= (byte)'\r';
+	private static final byte COMMENT_CHARACTER		= (byte)'#';
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	// the part of the file that is read
+	private final long start;
+	private final long end;
+	private int windowSize = WINDOW_SIZE_DEFAULT;
+	private Charset charset = Charset.defaultCharset();
+	private boolean skipEmptyAndCommentRows = true;
+
+	// the currently mapped window of the file
+	private MappedByteBuffer buffer;
+	// the position of the window in the file
+	private long bufferOffset;
+	// the position in the window where the next line starts
+	private int position;
+	// the current line
+	private int lineStart;
+	private int lineEnd;
+
+	// used to split the lines into fields and the separator it uses
+	private ByteFieldSplitter splitter;
+	private String splitterSeperator;
+
+	/**
+	 * constructor for a reader for the complete file
+	 *
+	 * @param fileName		the path and name of the file
+	 * @throws IOException	exception when the file can not be opened
+	 */
+	public MappedFileReader(String fileName) throws IOException
+	{
+		this(fileName, null);
+	}
+
+	/**
+	 * constructor for a reader for the given segment of the file. if the segment is null,
+	 * the complete file is read.
+	 *
+	 * @param fileName		the path and name of the file
+	 * @param segment		the segment of the file to read
+	 * @throws IOException	exception when the file can not be opened
+	 */
+	public MappedFileReader(String fileName, FileSegment segment) throws IOException
+	{
+		this.file = new RandomAccessFile(fileName, "r");
+		this.channel = file.getChannel();
+		if(segment!=null)
+		{
+			this.start = segment.getStart();
+			this.end = Math.min(segment.getEnd(), channel.size());
+		}
+		else
+		{
+			this.start = 0;
+			this.end = channel.size();
+		}
+		this.bufferOffset = start;
+	}
+
+	/**
+	 * divides the file into the given number of segments of about the same size. each segment
+	 * starts at the beginning of a line and ends after the end of a line. for small files fewer
+	 * segments may be returned.
+	 *
+	 * @param fileName				the path and name of the file
+	 * @param numberOfSegments		the number of segments to create
+	 * @return						a list of segments
+	 * @throws IOException			exception when the file can not be read
+	 */
+	public static ArrayList<FileSegment> getSegments(String fileName, int numberOfSegments) throws IOException
+	{
+		ArrayList<FileSegment> segments = new ArrayList<FileSegment>();
+		try(RandomAccessFile file = new RandomAccessFile(fileName, "r"))
+		{
+			long size = file.length();
+			long segmentSize = Math.max(1, size / Math.max(1, numberOfSegments));
+			long segmentStart = 0;
+			while(segmentStart<size)
+			{
+				long segmentEnd = findNextLine(file, Math.min(size, segmentStart + segmentSize));
+				segments.add(new FileSegment(segmentStart, segmentEnd));
+				segmentStart = segmentEnd;
+			}
+		}
+		return segments;
+	}
+
+	/**
+	 * returns the position after the next line feed at or after the given position
+	 *
+	 * @param file			the file
+	 * @param position		the position to start from
+	 * @return				the position of the beginning of the next line or the size of the file
+	 * @throws IOException	exception when the file can not be read
+	 */
+	private static long findNextLine(RandomAccessFile file, long position) throws IOException
+	{
+		if(position==0)
+		{
+			return 0;
+		}
+		byte[] bytes = new byte[8192];
+		// start at the previous byte, in case the position is the beginning of a line
+		file.seek(position - 1);
+		long offset = position - 1;
+		int read;
+		while((read = file.read(bytes))>0)
+		{
+			for(int i=0;i<read;i++)
+			{
+				if(bytes[i]==LINE_FEED)
+				{
+					return offset + i + 1;
+				}
+			}
+			offset = offset + read;
+		}
+		return file.length();
+	}
+
+	/**
+	 * reads the next line.
+	 *
+	 * @return				true if a line was read, false if the end of the file or segment was reached
+	 * @throws IOException	exception when the file can not be read
+	 */
+	public boolean nextLine() throws IOException
+	{
+		while(readLine())
+		{
+			if(skipEmptyAndCommentRows && (isBlankLine() || buffer.get(lineStart)==COMMENT_CHARACTER))
+			{
+				continue;
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * finds the next line in the mapped window. if the line is not completely contained in the
+	 * window, the next window is mapped starting at the beginning of the line.
+	 *
+	 * @return				true if a line was found, false at the end of the file or segment
+	 * @throws IOException	exception when the file can not be read
+	 */
+	private boolean readLine() throws IOException
+	{
+		if(buffer==null || position>=buffer.limit())
+		{
+			if(!map(buffer==null ? bufferOffset : bufferOffset + position))
+			{
+				return false;
+			}
+		}
+		int i = position;
+		while(true)
+		{
+			int limit = buffer.limit();
+			while(i<limit && buffer.get(i)!=LINE_FEED)
+			{
+				i++;
+			}
+			if(i<limit)
+			{
+				lineStart = position;
+				lineEnd = i;
+				position = i + 1;
+				break;
+			}
+			else if(bufferOffset + limit>=end)
+			{
+				// the last line of the file or segment does not end with a line feed
+				lineStart = position;
+				lineEnd = i;
+				position = i;
+				break;
+			}
+			else if(position==0)
+			{
+				throw new IOException("line at position [" + bufferOffset + "] is longer than the window size of [" + windowSize + "] bytes");
+			}
+			else
+			{
+				// map the next window starting at the beginning of the line
+				int scanned = i - position;
+				map(bufferOffset + position);
+				i = scanned;
+			}
+		}
+		if(lineEnd>lineStart && buffer.get(lineEnd - 1)==CARRIAGE_RETURN)
+		{
+			lineEnd--;
+		}
+		return true;
+	}
+
+	/**
+	 * maps the window of the file starting at the given position
+	 *
+	 * @param offset		the position in the file
+	 * @return				true if the window was mapped, false if the position is at the end of the file or segment
+	 * @throws IOException	exception when the file can not be mapped
+	 */
+	private boolean map(long offset) throws IOException
+	{
+		long size = Math.min(windowSize, end - offset);
+		if(size<=0)
+		{
+			return false;
+		}
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+		bufferOffset = offset;
+		position = 0;
+		return true;
+	}
+
+	/**
+	 * checks if the current line only consists of whitespace characters
+	 *
+	 * @return		indicator if the line is blank
+	 */
+	private boolean isBlankLine()
+	{
+		for(int i=lineStart;i<lineEnd;i++)
+		{
+			byte b = buffer.get(i);
+			if(b<0 || b>' ')
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * returns the bytes of the current line. the bytes are not copied; the returned buffer is
+	 * a read-only view of the mapped file, which remains valid after the next line is read.
+	 *
+	 * @return		a buffer containing the bytes of the line
+	 */
+	public ByteBuffer getLineBuffer()
+	{
+		ByteBuffer line = buffer.asReadOnlyBuffer();
+		line.limit(lineEnd);
+		line.position(lineStart);
+		return line.slice();
+	}
+
+	/**
+	 * returns the current line as a string
+	 *
+	 * @return		the line
+	 */
+	public String getLine()
+	{
+		byte[] bytes = new byte[lineEnd - lineStart];
+		for(int i=0;i<bytes.length;i++)
+		{
+			bytes[i] = buffer.get(lineStart + i);
+		}
+		return new String(bytes, charset);
+	}
+
+	/**
+	 * returns the fields of the current line, split using the given separator
+	 *
+	 * @param fieldSeperator	the separator between the fields
+	 * @return					an array of fields
+	 */
+	public Object[] getFields(String fieldSeperator)
+	{
+		if(splitter==null || !splitter.getCharset().equals(charset) || !fieldSeperator.equals(splitterSeperator))
+		{
+			splitter = new ByteFieldSplitter(fieldSeperator, charset);
+			splitterSeperator = fieldSeperator;
+		}
+		return splitter.split(buffer, lineStart, lineEnd);
+	}
+
+	/**
+	 * returns a RowFieldCollection containing the fields of the current line, split using
+	 * the given separator. the fields get a default name and a running number.
+	 *
+	 * @param fieldSeperator	the separator between the fields
+	 * @return					a row field collection object
+	 */
+	public RowFieldCollection getRowFieldCollection(String fieldSeperator)
+	{
+		return new RowFieldCollection(getFields(fieldSeperator));
+	}
+
+	/**
+	 * returns a RowFieldCollection containing the fields of the current line, split using
+	 * the given separator and using the names of the fields of the given header row
+	 *
+	 * @param header			the header row
+	 * @param fieldSeperator	the separator between the fields
+	 * @return					a row field collection object
+	 */
+	public RowFieldCollection getRowFieldCollection(HeaderRow header, String fieldSeperator)
+	{
+		return new RowFieldCollection(header, getFields(fieldSeperator));
+	}
+
+	/**
+	 * returns the position of the current line in the file
+	 *
+	 * @return		the position of the first byte of the line
+	 */
+	public long getLinePosition()
+	{
+		return bufferOffset + lineStart;
+	}
+
+	/**
+	 * closes the file
+	 *
+	 * @throws IOException	exception when the file can not be closed
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		buffer = null;
+		channel.close();
+		file.close();
+	}
+
+	/**
+	 * returns the charset used to decode the lines
+	 *
+	 * @return		the charset
+	 */
+	public Charset getCharset()
+	{
+		return charset;
+	}
+
+	/**
+	 * sets the charset used to decode the lines. default is the default charset of the platform
+	 *
+	 * @param charset	the charset
+	 */
+	public void setCharset(Charset charset)
+	{
+		this.charset = charset;
+	}
+
+	/**
+	 * returns the number of bytes that are mapped at once
+	 *
+	 * @return		the size of the window
+	 */
+	public int getWindowSize()
+	{
+		return windowSize;
+	}
+
+	/**
+	 * sets the number of bytes that are mapped at once. a line must not be longer
+	 * than the window. the size is used when the next window is mapped.
+	 *
+	 * @param windowSize	the size of the window
+	 */
+	public void setWindowSize(int windowSize)
+	{
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * indicates if empty lines and lines starting with a hash sign (#) are skipped
+	 *
+	 * @return		indicator if empty and comment lines are skipped
+	 */
+	public boolean getSkipEmptyAndCommentRows()
+	{
+		return skipEmptyAndCommentRows;
+	}
+
+	/**
+	 * sets if empty lines and lines starting with a hash sign (#) are skipped. default is true
+	 *
+	 * @param skipEmptyAndCommentRows	indicator if empty and comment lines are skipped
+	 */
+	public void setSkipEmptyAndCommentRows(boolean skipEmptyAndCommentRows)
+	{
+		this.skipEmptyAndCommentRows = skipEmptyAndCommentRows;
+	}
+}
@@ -0,0 +1,367 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * checks values against a regular expression pattern. the pattern is compiled once when the
+ * matcher is created.
+ *
+ * when the matcher is created, the pattern is analyzed and - where possible - replaced by a
+ * cheaper way of matching the values:
+ *
+ * - a pattern without special characters is compared to the value as a literal string
+ * - a literal string followed or preceded by .* is checked as a prefix or suffix of the value
+ * - other patterns that only use the supported subset of the syntax (see RegexAutomaton) are
+ *   checked using a deterministic automaton, which needs time proportional to the length of
+ *   the value only and is therefore safe for patterns that are taken from untrusted sources
+ * - all remaining patterns are checked using the Pattern class
+ *
+ * the result is always the same as the one of the Pattern class. if fullMatch is true, the
+ * complete value has to match the pattern - like Matcher.matches() - otherwise a part of the
+ * value has to match - like Matcher.find(). if ignoreCase is true, the value is compared case
+ * insensitive, using the flags CASE_INSENSITIVE and UNICODE_CASE.
+ *
+ * the matcher does not change after it has been created and may be shared by multiple threads.
+ *
+ * @author uwe geercken
+ */
+public class PatternMatcher
+{
+	public static final int TYPE_PATTERN		= 0;
+	public static final int TYPE_AUTOMATON		= 1;
+	public static final int TYPE_EQUALS			= 2;
+	public static final int TYPE_PREFIX			= 3;
+	public static final int TYPE_SUFFIX			= 4;
+	public static final int TYPE_CONTAINS		= 5;
+
+	// the maximum number of matchers kept by getMatcher()
+	private static final int MAXIMUM_CACHED_MATCHERS = 1000;
+	private static final ConcurrentHashMap<String,PatternMatcher> matchers = new ConcurrentHashMap<String,PatternMatcher>();
+
+	private final String pattern;
+	private final boolean ignoreCase;
+	private final boolean fullMatch;
+
+	private final Pattern compiledPattern;
+	private RegexAutomaton automaton;
+	private int type = TYPE_PATTERN;
+	// the literal string for the prefix, suffix, contains and equals types
+	private String literal;
+	// indicator if the parts of the value before and after the literal must not contain line terminators
+	private boolean singleLine;
+
+	/**
+	 * constructor for a matcher that checks if the complete value matches the pattern - case sensitive
+	 *
+	 * @param pattern		the regular expression pattern
+	 */
+	public PatternMatcher(String pattern)
+	{
+		this(pattern, false, true);
+	}
+
+	/**
+	 * constructor for a matcher using the given pattern
+	 *
+	 * @param pattern		the regular expression pattern
+	 * @param ignoreCase	indicator if the case of the characters shall be ignored
+	 * @param fullMatch		indicator if the complete value has to match the pattern or only a part of it
+	 */
+	public PatternMatcher(String pattern, boolean ignoreCase, boolean fullMatch)
+	{
+		this.pattern = pattern;
+		this.ignoreCase = ignoreCase;
+		this.fullMatch = fullMatch;
+		// the pattern is always compiled, so that invalid patterns are reported
+		this.compiledPattern = Pattern.compile(pattern, ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+
+		RegexAutomaton.Expression expression = RegexAutomaton.parse(pattern);
+		if(expression!=null && !setLiteral(expression) && !ignoreCase)
+		{
+			automaton = RegexAutomaton.create(expression, fullMatch);
+			if(automaton!=null)
+			{
+				type = TYPE_AUTOMATON;
+			}
+		}
+	}
+
+	/**
+	 * returns a matcher for the given pattern. the matchers are cached, so that patterns that are
+	 * used repeatedly - e.g. because they are taken from a field of the data - are only compiled once.
+	 *
+	 * @param pattern		the regular expression pattern
+	 * @param ignoreCase	indicator if the case of the characters shall be ignored
+	 * @param fullMatch		indicator if the complete value has to match the pattern or only a part of it
+	 * @return				the matcher
+	 */
+	public static PatternMatcher getMatcher(String pattern, boolean ignoreCase, boolean fullMatch)
+	{
+		String key = (ignoreCase ? "i" : "-") + (fullMatch ? "f" : "-") + pattern;
+		PatternMatcher matcher = matchers.get(key);
+		if(matcher==null)
+		{
+			matcher = new PatternMatcher(pattern, ignoreCase, fullMatch);
+			if(matchers.size()>=MAXIMUM_CACHED_MATCHERS)
+			{
+				matchers.clear();
+			}
+			matchers.put(key, matcher);
+		}
+		return matcher;
+	}
+
+	/**
+	 * checks if the parsed pattern is a literal string - optionally preceded or followed by .* -
+	 * and sets the type of the matcher accordingly
+	 *
+	 * @param expression	the parsed pattern
+	 * @return				indicator if the pattern is a literal string
+	 */
+	private boolean setLiteral(RegexAutomaton.Expression expression)
+	{
+		ArrayList<RegexAutomaton.Node> nodes = new ArrayList<RegexAutomaton.Node>();
+		if(expression.node.type==RegexAutomaton.NODE_CONCATENATION)
+		{
+			nodes.addAll(expression.node.children);
+		}
+		else
+		{
+			nodes.add(expression.node);
+		}
+		boolean leadingAny = !nodes.isEmpty() && nodes.get(0).isAnyCharacters();
+		if(leadingAny)
+		{
+			nodes.remove(0);
+		}
+		boolean trailingAny = !nodes.isEmpty() && nodes.get(nodes.size() - 1).isAnyCharacters();
+		if(trailingAny)
+		{
+			nodes.remove(nodes.size() - 1);
+		}
+		if(nodes.isEmpty())
+		{
+			return false;
+		}
+		StringBuilder buffer = new StringBuilder();
+		for(RegexAutomaton.Node node : nodes)
+		{
+			if(!node.isCharacter())
+			{
+				return false;
+			}
+			buffer.append((char)node.ranges[0]);
+		}
+
+		if(fullMatch)
+		{
+			// the anchors have no effect, when the complete value has to match
+			singleLine = leadingAny || trailingAny;
+			if(leadingAny && trailingAny)
+			{
+				type = TYPE_CONTAINS;
+			}
+			else if(leadingAny)
+			{
+				type = TYPE_SUFFIX;
+			}
+			else if(trailingAny)
+			{
+				type = TYPE_PREFIX;
+			}
+			else
+			{
+				type = TYPE_EQUALS;
+			}
+		}
+		else if(expression.anchorEnd || (expression.anchorStart && leadingAny))
+		{
+			return false;
+		}
+		else if(expression.anchorStart)
+		{
+			// .* at the end may also match no characters
+			type = TYPE_PREFIX;
+		}
+		else
+		{
+			type = TYPE_CONTAINS;
+		}
+		literal = buffer.toString();
+		return true;
+	}
+
+	/**
+	 * checks if the value matches the pattern
+	 *
+	 * @param value		the value to check
+	 * @return			indicator if the value matches the pattern
+	 */
+	public boolean matches(String value)
+	{
+		switch(type)
+		{
+			case TYPE_EQUALS:
+				return value.length()==literal.length() && value.regionMatches(ignoreCase, 0, literal, 0, literal.length());
+			case TYPE_PREFIX:
+				return value.regionMatches(ignoreCase, 0, literal, 0, literal.length()) && (!singleLine || !containsLineTerminator(value, literal.length(), value.length()));
+			case TYPE_SUFFIX:
+				int start = value.length() - literal.length();
+				return start>=0 && value.regionMatches(ignoreCase, start, literal, 0, literal.length()) && (!singleLine || !containsLineTerminator(value, 0, start));
+			case TYPE_CONTAINS:
+				return containsLiteral(value);
+			case TYPE_AUTOMATON:
+				int result = automaton.match(value);
+				if(result!=RegexAutomaton.RESULT_UNKNOWN)
+				{
+					return result==RegexAutomaton.RESULT_MATCH;
+				}
+				// values containing surrogate characters are checked using the pattern
+				return matchesPattern(value);
+			default:
+				return matchesPattern(value);
+		}
+	}
+
+	/**
+	 * checks if the value matches the compiled pattern
+	 *
+	 * @param value		the value to check
+	 * @return			indicator if the value matches the pattern
+	 */
+	private boolean matchesPattern(String value)
+	{
+		if(fullMatch)
+		{
+			return compiledPattern.matcher(value).matches();
+		}
+		else
+		{
+			return compiledPattern.matcher(value).find();
+		}
+	}
+
+	/**
+	 * checks if the value contains the literal. if the parts before and after the literal must not
+	 * contain line terminators, the literal has to be found after the last line terminator that
+	 * precedes it and before the first one that follows it.
+	 *
+	 * @param value		the value to check
+	 * @return			indicator if the value contains the literal
+	 */
+	private boolean containsLiteral(String value)
+	{
+		int from = 0;
+		int to = value.length() - literal.length();
+		if(singleLine)
+		{
+			for(int i=0;i<value.length();i++)
+			{
+				if(RegexAutomaton.isLineTerminator(value.charAt(i)))
+				{
+					to = Math.min(to, i);
+					from = Math.max(from, i - literal.length() + 1);
+				}
+			}
+		}
+		if(!ignoreCase)
+		{
+			int index = value.indexOf(literal, from);
+			return index>=0 && index<=to;
+		}
+		for(int i=from;i<=to;i++)
+		{
+			if(value.regionMatches(true, i, literal, 0, literal.length()))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * checks if the value contains a line terminator between the given positions
+	 *
+	 * @param value		the value
+	 * @param start		the first position to check
+	 * @param end		the position after the last one to check
+	 * @return			indicator if there is a line terminator
+	 */
+	private static boolean containsLineTerminator(String value, int start, int end)
+	{
+		for(int i=start;i<end;i++)
+		{
+			if(RegexAutomaton.isLineTerminator(value.charAt(i)))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * returns the regular expression pattern
+	 *
+	 * @return		the pattern
+	 */
+	public String getPattern()
+	{
+		return pattern;
+	}
+
+	/**
+	 * indicates if the case of the characters is ignored
+	 *
+	 * @return		indicator if the case is ignored
+	 */
+	public boolean getIgnoreCase()
+	{
+		return ignoreCase;
+	}
+
+	/**
+	 * indicates if the complete value has to match the pattern or only a part of it
+	 *
+	 * @return		indicator if the complete value has to match
+	 */
+	public boolean getFullMatch()
+	{
+		return fullMatch;
+	}
+
+	/**
+	 * returns the way the values are matched: one of TYPE_PATTERN, TYPE_AUTOMATON, TYPE_EQUALS,
+	 * TYPE_PREFIX, TYPE_SUFFIX or TYPE_CONTAINS
+	 *
+	 * @return		the type of the matcher
+	 */
+	public int getType()
+	{
+		return type;
+	}
+
+	public String toString()
+	{
+		return pattern;
+	}
+}
@@ -0,0 +1,963 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+/**
+ * a deterministic finite automaton for a subset of the regular expression syntax of the
+ * Pattern class.
+ *
+ * the automaton is created from the pattern once. it checks a value in a single pass over
+ * its characters - without backtracking - so the time to check a value only depends on
+ * the length of the value and not on the pattern. patterns that are taken from rule files
+ * can therefore not cause an excessive runtime for certain values.
+ *
+ * the supported syntax: characters, escaped characters, the dot, character classes with
+ * ranges and negation, the predefined classes \d, \w and \s (and their negations), groups,
+ * non-capturing groups, alternations and the greedy or reluctant quantifiers *, +, ?, {n},
+ * {n,} and {n,m}. ^ is supported at the beginning and $ at the end of the pattern. patterns
+ * using other constructs - e.g. back references, lookarounds, possessive quantifiers or
+ * flags - are not supported and parse() returns null for them.
+ *
+ * the automaton works on the characters of the value. for values containing surrogate pairs
+ * the result is unknown and the value has to be checked using the Pattern class.
+ *
+ * the automaton does not change after it has been created and may be shared by multiple threads.
+ *
+ * @author uwe geercken
+ */
+class RegexAutomaton
+{
+	static final int RESULT_NO_MATCH	= 0;
+	static final int RESULT_MATCH		= 1;
+	static final int RESULT_UNKNOWN		= 2;
+
+	// limits for the size of the automaton. patterns exceeding them are checked using the Pattern class
+	private static final int MAXIMUM_REPETITION		= 100;
+	private static final int MAXIMUM_NFA_STATES		= 10000;
+	private static final int MAXIMUM_DFA_STATES		= 1000;
+
+	// the characters that the dot does not match
+	static final int[] RANGES_DOT	= {0,9,11,12,14,0x84,0x86,0x2027,0x202a,0xffff};
+	private static final int[] RANGES_DIGIT	= {'0','9'};
+	private static final int[] RANGES_WORD	= {'0','9','A','Z','_','_','a','z'};
+	private static final int[] RANGES_SPACE	= {9,13,' ',' '};
+
+	// node types of the parsed pattern
+	static final int NODE_CHARACTERS	= 0;
+	static final int NODE_CONCATENATION	= 1;
+	static final int NODE_ALTERNATION	= 2;
+	static final int NODE_REPETITION	= 3;
+
+	// state types of the nondeterministic automaton
+	private static final int STATE_CHARACTERS	= 0;
+	private static final int STATE_SPLIT		= 1;
+	private static final int STATE_MATCH		= 2;
+
+	// the first character of each class of characters. all characters of a class lead to the same state
+	private final int[] classStarts;
+	// the class of each ASCII character
+	private final int[] asciiClasses = new int[128];
+	// the next state for each state and class of characters or -1 if the value can not match
+	private final int[] transitions;
+	private final boolean[] accepting;
+	private final boolean anchorStart;
+	private final boolean anchorEnd;
+	private final boolean fullMatch;
+
+	/**
+	 * a node of a parsed pattern
+	 */
+	static class Node
+	{
+		int type;
+		// the characters as pairs of the first and the last character of each range
+		int[] ranges;
+		ArrayList<Node> children;
+		int minimum;
+		// the maximum number of repetitions or -1 if unlimited
+		int maximum;
+
+		/**
+		 * indicates if the node is a single character
+		 *
+		 * @return		indicator if the node matches exactly one character
+		 */
+		boolean isCharacter()
+		{
+			return type==NODE_CHARACTERS && ranges.length==2 && ranges[0]==ranges[1];
+		}
+
+		/**
+		 * indicates if the node is a dot that may be repeated any number of times
+		 *
+		 * @return		indicator if the node is .*
+		 */
+		boolean isAnyCharacters()
+		{
+			return type==NODE_REPETITION && minimum==0 && maximum==-1 && children.get(0).type==NODE_CHARACTERS && Arrays.equals(children.get(0).ranges, RANGES_DOT);
+		}
+	}
+
+	/**
+	 * a parsed pattern: the root node and the anchors at the beginning and the end of the pattern
+	 */
+	static class Expression
+	{
+		Node node;
+		boolean anchorStart;
+		boolean anchorEnd;
+	}
+
+	/**
+	 * parses a pattern
+	 *
+	 * @param pattern	the pattern
+	 * @return			the parsed pattern or null if the pattern uses syntax that is not supported
+	 */
+	static Expression parse(String pattern)
+	{
+		Parser parser = new Parser(pattern);
+		try
+		{
+			Expression expression = new Expression();
+			expression.node = parser.parseAlternation(0);
+			if(parser.position<pattern.length())
+			{
+				return null;
+			}
+			// the anchors would only apply to one of the alternatives
+			if((parser.anchorStart || parser.anchorEnd) && parser.alternation)
+			{
+				return null;
+			}
+			expression.anchorStart = parser.anchorStart;
+			expression.anchorEnd = parser.anchorEnd;
+			return expression;
+		}
+		catch(Exception ex)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * creates the automaton for a parsed pattern
+	 *
+	 * @param expression	the parsed pattern
+	 * @param fullMatch		indicator if the complete value has to match the pattern or only a part of it
+	 * @return				the automaton or null if the pattern results in too many states
+	 */
+	static RegexAutomaton create(Expression expression, boolean fullMatch)
+	{
+		try
+		{
+			return new RegexAutomaton(expression, fullMatch);
+		}
+		catch(Exception ex)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * constructor for the automaton of a parsed pattern. the nondeterministic automaton of the
+	 * pattern is created first and then converted to the deterministic one.
+	 *
+	 * @param expression	the parsed pattern
+	 * @param fullMatch		indicator if the complete value has to match the pattern or only a part of it
+	 * @throws Exception	when the pattern results in too many states
+	 */
+	private RegexAutomaton(Expression expression, boolean fullMatch) throws Exception
+	{
+		this.fullMatch = fullMatch;
+		this.anchorStart = fullMatch || expression.anchorStart;
+		this.anchorEnd = !fullMatch && expression.anchorEnd;
+
+		NfaBuilder nfa = new NfaBuilder();
+		int matchState = nfa.addState(STATE_MATCH, null, -1, -1);
+		int startState = nfa.build(expression.node, matchState);
+
+		// divide the characters into classes, so that all characters of a class are part of the same ranges
+		TreeSet<Integer> starts = new TreeSet<Integer>();
+		starts.add(0);
+		for(int i=0;i<nfa.size;i++)
+		{
+			if(nfa.types[i]==STATE_CHARACTERS)
+			{
+				for(int j=0;j<nfa.ranges[i].length;j+=2)
+				{
+					starts.add(nfa.ranges[i][j]);
+					if(nfa.ranges[i][j+1]<0xffff)
+					{
+						starts.add(nfa.ranges[i][j+1] + 1);
+					}
+				}
+			}
+		}
+		classStarts = new int[starts.size()];
+		int index = 0;
+		for(Integer start : starts)
+		{
+			classStarts[index++] = start;
+		}
+		for(int i=0;i<asciiClasses.length;i++)
+		{
+			asciiClasses[i] = getClass(i);
+		}
+
+		// create the states of the deterministic automaton. each state is a set of states of the nondeterministic one
+		BitSet startSet = nfa.closure(startState);
+		ArrayList<BitSet> sets = new ArrayList<BitSet>();
+		HashMap<BitSet,Integer> stateNumbers = new HashMap<BitSet,Integer>();
+		ArrayList<int[]> rows = new ArrayList<int[]>();
+		sets.add(startSet);
+		stateNumbers.put(startSet, 0);
+		for(int state=0;state<sets.size();state++)
+		{
+			BitSet set = sets.get(state);
+			int[] row = new int[classStarts.length];
+			Arrays.fill(row, -1);
+			rows.add(row);
+			// when only a part of the value has to match, the result is known once the state accepts
+			if(!fullMatch && !anchorEnd && set.get(matchState))
+			{
+				continue;
+			}
+			for(int characterClass=0;characterClass<classStarts.length;characterClass++)
+			{
+				BitSet next = nfa.move(set, classStarts[characterClass]);
+				if(!anchorStart)
+				{
+					next.or(startSet);
+				}
+				if(!next.isEmpty())
+				{
+					Integer nextState = stateNumbers.get(next);
+					if(nextState==null)
+					{
+						if(sets.size()>=MAXIMUM_DFA_STATES)
+						{
+							throw new Exception("the pattern results in more than " + MAXIMUM_DFA_STATES + " states");
+						}
+						nextState = sets.size();
+						sets.add(next);
+						stateNumbers.put(next, nextState);
+					}
+					row[characterClass] = nextState;
+				}
+			}
+		}
+
+		transitions = new int[sets.size() * classStarts.length];
+		accepting = new boolean[sets.size()];
+		for(int state=0;state<sets.size();state++)
+		{
+			System.arraycopy(rows.get(state), 0, transitions, state * classStarts.length, classStarts.length);
+			accepting[state] = sets.get(state).get(matchState);
+		}
+	}
+
+	/**
+	 * returns the class of a character
+	 *
+	 * @param character		the character
+	 * @return				the class of the character
+	 */
+	private int getClass(int character)
+	{
+		int index = Arrays.binarySearch(classStarts, character);
+		if(index>=0)
+		{
+			return index;
+		}
+		else
+		{
+			return -index - 2;
+		}
+	}
+
+	/**
+	 * checks the value against the pattern
+	 *
+	 * @param value		the value
+	 * @return			RESULT_MATCH, RESULT_NO_MATCH or RESULT_UNKNOWN if the value contains surrogate characters
+	 */
+	int match(String value)
+	{
+		boolean earlyMatch = !fullMatch && !anchorEnd;
+		int numberOfClasses = classStarts.length;
+		int length = value.length();
+		// $ also matches before a line terminator at the end of the value
+		int terminatorPosition = -1;
+		if(anchorEnd && length>1 && value.charAt(length - 2)=='\r' && value.charAt(length - 1)=='\n')
+		{
+			terminatorPosition = length - 2;
+		}
+		else if(anchorEnd && length>0 && isLineTerminator(value.charAt(length - 1)))
+		{
+			terminatorPosition = length - 1;
+		}
+		boolean acceptingBeforeTerminator = false;
+
+		int state = 0;
+		if(earlyMatch && accepting[state])
+		{
+			return RESULT_MATCH;
+		}
+		for(int i=0;i<length;i++)
+		{
+			char character = value.charAt(i);
+			if(Character.isSurrogate(character))
+			{
+				return RESULT_UNKNOWN;
+			}
+			if(i==terminatorPosition)
+			{
+				acceptingBeforeTerminator = accepting[state];
+			}
+			int characterClass;
+			if(character<128)
+			{
+				characterClass = asciiClasses[character];
+			}
+			else
+			{
+				characterClass = getClass(character);
+			}
+			state = transitions[state * numberOfClasses + characterClass];
+			if(state<0)
+			{
+				return acceptingBeforeTerminator ? RESULT_MATCH : RESULT_NO_MATCH;
+			}
+			else if(earlyMatch && accepting[state])
+			{
+				return RESULT_MATCH;
+			}
+		}
+		return accepting[state] || acceptingBeforeTerminator ? RESULT_MATCH : RESULT_NO_MATCH;
+	}
+
+	/**
+	 * returns the number of states of the automaton
+	 *
+	 * @return		the number of states
+	 */
+	int getNumberOfStates()
+	{
+		return accepting.length;
+	}
+
+	/**
+	 * checks if the character is a line terminator
+	 *
+	 * @param character		the character
+	 * @return				indicator if the character terminates a line
+	 */
+	static boolean isLineTerminator(char character)
+	{
+		return character=='\n' || character=='\r' || character=='\u0085' || character=='\u2028' || character=='\u2029';
+	}
+
+	/**
+	 * sorts the ranges of characters and merges ranges that overlap or are adjacent
+	 *
+	 * @param ranges	the ranges as pairs of the first and the last character
+	 * @return			the normalized ranges
+	 */
+	private static int[] normalize(ArrayList<int[]> ranges)
+	{
+		int[][] sorted = ranges.toArray(new int[ranges.size()][]);
+		Arrays.sort(sorted, new Comparator<int[]>()
+		{
+			public int compare(int[] range1, int[] range2)
+			{
+				return Integer.compare(range1[0], range2[0]);
+			}
+		});
+		ArrayList<int[]> merged = new ArrayList<int[]>();
+		for(int[] range : sorted)
+		{
+			int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+			if(last!=null && range[0]<=last[1] + 1)
+			{
+				last[1] = Math.max(last[1], range[1]);
+			}
+			else
+			{
+				merged.add(new int[] {range[0],range[1]});
+			}
+		}
+		int[] result = new int[merged.size() * 2];
+		for(int i=0;i<merged.size();i++)
+		{
+			result[i*2] = merged.get(i)[0];
+			result[i*2+1] = merged.get(i)[1];
+		}
+		return result;
+	}
+
+	/**
+	 * returns the characters that are not part of the given ranges
+	 *
+	 * @param ranges	the normalized ranges
+	 * @return			the complement of the ranges
+	 */
+	private static int[] complement(int[] ranges)
+	{
+		ArrayList<int[]> result = new ArrayList<int[]>();
+		int next = 0;
+		for(int i=0;i<ranges.length;i+=2)
+		{
+			if(ranges[i]>next)
+			{
+				result.add(new int[] {next,ranges[i] - 1});
+			}
+			next = ranges[i+1] + 1;
+		}
+		if(next<=0xffff)
+		{
+			result.add(new int[] {next,0xffff});
+		}
+		return normalize(result);
+	}
+
+	/**
+	 * recursive descent parser for the supported subset of the pattern syntax
+	 */
+	private static class Parser
+	{
+		private final String pattern;
+		private int position;
+		private boolean anchorStart;
+		private boolean anchorEnd;
+		// indicator if the pattern has alternatives on the top level
+		private boolean alternation;
+
+		private Parser(String pattern)
+		{
+			this.pattern = pattern;
+		}
+
+		private Node parseAlternation(int depth) throws Exception
+		{
+			ArrayList<Node> alternatives = new ArrayList<Node>();
+			alternatives.add(parseConcatenation(depth));
+			while(position<pattern.length() && pattern.charAt(position)=='|')
+			{
+				position++;
+				alternation = alternation || depth==0;
+				alternatives.add(parseConcatenation(depth));
+			}
+			if(alternatives.size()==1)
+			{
+				return alternatives.get(0);
+			}
+			Node node = new Node();
+			node.type = NODE_ALTERNATION;
+			node.children = alternatives;
+			return node;
+		}
+
+		private Node parseConcatenation(int depth) throws Exception
+		{
+			Node node = new Node();
+			node.type = NODE_CONCATENATION;
+			node.children = new ArrayList<Node>();
+			while(position<pattern.length())
+			{
+				char character = pattern.charAt(position);
+				if(character=='|')
+				{
+					break;
+				}
+				else if(character==')')
+				{
+					if(depth==0)
+					{
+						throw new Exception("unbalanced parenthesis");
+					}
+					break;
+				}
+				else if(character=='^' && position==0)
+				{
+					anchorStart = true;
+					position++;
+				}
+				else if(character=='$' && position==pattern.length() - 1)
+				{
+					anchorEnd = true;
+					position++;
+				}
+				else
+				{
+					Node atom = parseQuantifier(parseAtom(depth));
+					// nested concatenations are flattened
+					if(atom.type==NODE_CONCATENATION)
+					{
+						node.children.addAll(atom.children);
+					}
+					else
+					{
+						node.children.add(atom);
+					}
+				}
+			}
+			if(node.children.size()==1)
+			{
+				return node.children.get(0);
+			}
+			return node;
+		}
+
+		private Node parseAtom(int depth) throws Exception
+		{
+			char character = pattern.charAt(position);
+			if(character=='(')
+			{
+				position++;
+				if(position<pattern.length() && pattern.charAt(position)=='?')
+				{
+					if(!pattern.startsWith("?:", position))
+					{
+						throw new Exception("unsupported group");
+					}
+					position += 2;
+				}
+				Node node = parseAlternation(depth + 1);
+				if(position>=pattern.length() || pattern.charAt(position)!=')')
+				{
+					throw new Exception("unbalanced parenthesis");
+				}
+				position++;
+				return node;
+			}
+			else if(character=='.')
+			{
+				position++;
+				return createCharacters(RANGES_DOT);
+			}
+			else if(character=='[')
+			{
+				return parseClass();
+			}
+			else if(character=='\\')
+			{
+				return createCharacters(parseEscape());
+			}
+			else if("*+?{}]^$".indexOf(character)>=0 || Character.isSurrogate(character))
+			{
+				throw new Exception("unsupported character: " + character);
+			}
+			else
+			{
+				position++;
+				return createCharacters(new int[] {character,character});
+			}
+		}
+
+		private Node parseQuantifier(Node atom) throws Exception
+		{
+			if(position>=pattern.length())
+			{
+				return atom;
+			}
+			int minimum;
+			int maximum;
+			char character = pattern.charAt(position);
+			if(character=='*')
+			{
+				minimum = 0;
+				maximum = -1;
+				position++;
+			}
+			else if(character=='+')
+			{
+				minimum = 1;
+				maximum = -1;
+				position++;
+			}
+			else if(character=='?')
+			{
+				minimum = 0;
+				maximum = 1;
+				position++;
+			}
+			else if(character=='{')
+			{
+				position++;
+				minimum = parseNumber();
+				maximum = minimum;
+				if(position<pattern.length() && pattern.charAt(position)==',')
+				{
+					position++;
+					if(position<pattern.length() && pattern.charAt(position)=='}')
+					{
+						maximum = -1;
+					}
+					else
+					{
+						maximum = parseNumber();
+					}
+				}
+				if(position>=pattern.length() || pattern.charAt(position)!='}' || (maximum>=0 && maximum<minimum))
+				{
+					throw new Exception("invalid repetition");
+				}
+				position++;
+			}
+			else
+			{
+				return atom;
+			}
+			if(position<pattern.length())
+			{
+				// reluctant quantifiers do not change if a value matches. possessive ones do
+				if(pattern.charAt(position)=='?')
+				{
+					position++;
+				}
+				else if(pattern.charAt(position)=='+')
+				{
+					throw new Exception("unsupported possessive quantifier");
+				}
+			}
+			if(position<pattern.length() && "*+?{".indexOf(pattern.charAt(position))>=0)
+			{
+				throw new Exception("unsupported quantifier");
+			}
+			Node node = new Node();
+			node.type = NODE_REPETITION;
+			node.children = new ArrayList<Node>();
+			node.children.add(atom);
+			node.minimum = minimum;
+			node.maximum = maximum;
+			return node;
+		}
+
+		private int parseNumber() throws Exception
+		{
+			int start = position;
+			while(position<pattern.length() && pattern.charAt(position)>='0' && pattern.charAt(position)<='9' && position - start<4)
+			{
+				position++;
+			}
+			if(position==start)
+			{
+				throw new Exception("invalid repetition");
+			}
+			int number = Integer.parseInt(pattern.substring(start, position));
+			if(number>MAXIMUM_REPETITION)
+			{
+				throw new Exception("too many repetitions");
+			}
+			return number;
+		}
+
+		private Node parseClass() throws Exception
+		{
+			position++;
+			boolean negate = false;
+			if(position<pattern.length() && pattern.charAt(position)=='^')
+			{
+				negate = true;
+				position++;
+			}
+			int first = position;
+			ArrayList<int[]> ranges = new ArrayList<int[]>();
+			while(true)
+			{
+				if(position>=pattern.length())
+				{
+					throw new Exception("unclosed character class");
+				}
+				char character = pattern.charAt(position);
+				if(character==']' && position>first)
+				{
+					position++;
+					break;
+				}
+				else if(character=='[' || character=='&' || character=='^' || character==']' || Character.isSurrogate(character))
+				{
+					throw new Exception("unsupported character class");
+				}
+				else if(character=='-' && position>first && pattern.charAt(position + 1)!=']')
+				{
+					throw new Exception("unsupported character class");
+				}
+				int low;
+				if(character=='\\')
+				{
+					int[] escaped = parseEscape();
+					if(escaped.length!=2 || escaped[0]!=escaped[1])
+					{
+						for(int i=0;i<escaped.length;i+=2)
+						{
+							ranges.add(new int[] {escaped[i],escaped[i+1]});
+						}
+						continue;
+					}
+					low = escaped[0];
+				}
+				else
+				{
+					low = character;
+					position++;
+				}
+				int high = low;
+				if(position + 1<pattern.length() && pattern.charAt(position)=='-' && pattern.charAt(position + 1)!=']')
+				{
+					position++;
+					char next = pattern.charAt(position);
+					if(next=='\\')
+					{
+						int[] escaped = parseEscape();
+						if(escaped.length!=2 || escaped[0]!=escaped[1])
+						{
+							throw new Exception("unsupported character class");
+						}
+						high = escaped[0];
+					}
+					else if(next=='[' || next=='&' || next=='^' || Character.isSurrogate(next))
+					{
+						throw new Exception("unsupported character class");
+					}
+					else
+					{
+						high = next;
+						position++;
+					}
+					if(high<low)
+					{
+						throw new Exception("invalid range");
+					}
+				}
+				ranges.add(new int[] {low,high});
+			}
+			int[] normalized = normalize(ranges);
+			if(negate)
+			{
+				normalized = complement(normalized);
+			}
+			return createCharacters(normalized);
+		}
+
+		private int[] parseEscape() throws Exception
+		{
+			position++;
+			if(position>=pattern.length())
+			{
+				throw new Exception("unterminated escape");
+			}
+			char character = pattern.charAt(position);
+			position++;
+			switch(character)
+			{
+				case 'd': return RANGES_DIGIT;
+				case 'D': return complement(RANGES_DIGIT);
+				case 'w': return RANGES_WORD;
+				case 'W': return complement(RANGES_WORD);
+				case 's': return RANGES_SPACE;
+				case 'S': return complement(RANGES_SPACE);
+				case 't': return new int[] {'\t','\t'};
+				case 'n': return new int[] {'\n','\n'};
+				case 'r': return new int[] {'\r','\r'};
+				case 'f': return new int[] {'\f','\f'};
+				case 'e': return new int[] {0x1b,0x1b};
+				case 'a': return new int[] {0x07,0x07};
+				default:
+					if(character>=128 || Character.isLetterOrDigit(character))
+					{
+						throw new Exception("unsupported escape: " + character);
+					}
+					return new int[] {character,character};
+			}
+		}
+
+		private static Node createCharacters(int[] ranges)
+		{
+			Node node = new Node();
+			node.type = NODE_CHARACTERS;
+			node.ranges = ranges;
+			return node;
+		}
+	}
+
+	/**
+	 * builds the nondeterministic automaton of a parsed pattern
+	 */
+	private static class NfaBuilder
+	{
+		private int[] types = new int[64];
+		private int[][] ranges = new int[64][];
+		private int[] next1 = new int[64];
+		private int[] next2 = new int[64];
+		private int size;
+
+		private int addState(int type, int[] characters, int state1, int state2) throws Exception
+		{
+			if(size>=MAXIMUM_NFA_STATES)
+			{
+				throw new Exception("the pattern results in more than " + MAXIMUM_NFA_STATES + " states");
+			}
+			if(size==types.length)
+			{
+				types = Arrays.copyOf(types, size * 2);
+				ranges = Arrays.copyOf(ranges, size * 2);
+				next1 = Arrays.copyOf(next1, size * 2);
+				next2 = Arrays.copyOf(next2, size * 2);
+			}
+			types[size] = type;
+			ranges[size] = characters;
+			next1[size] = state1;
+			next2[size] = state2;
+			return size++;
+		}
+
+		/**
+		 * builds the states of the node
+		 *
+		 * @param node			the node
+		 * @param next			the state that follows when the node has matched
+		 * @return				the first state of the node
+		 * @throws Exception	when the pattern results in too many states
+		 */
+		private int build(Node node, int next) throws Exception
+		{
+			switch(node.type)
+			{
+				case NODE_CHARACTERS:
+					return addState(STATE_CHARACTERS, node.ranges, next, -1);
+				case NODE_CONCATENATION:
+					for(int i=node.children.size()-1;i>=0;i--)
+					{
+						next = build(node.children.get(i), next);
+					}
+					return next;
+				case NODE_ALTERNATION:
+					int state = build(node.children.get(node.children.size() - 1), next);
+					for(int i=node.children.size()-2;i>=0;i--)
+					{
+						state = addState(STATE_SPLIT, null, build(node.children.get(i), next), state);
+					}
+					return state;
+				default:
+					Node child = node.children.get(0);
+					int start;
+					if(node.maximum<0)
+					{
+						int loop = addState(STATE_SPLIT, null, -1, next);
+						next1[loop] = build(child, loop);
+						start = loop;
+					}
+					else
+					{
+						start = next;
+						for(int i=node.minimum;i<node.maximum;i++)
+						{
+							start = addState(STATE_SPLIT, null, build(child, start), next);
+						}
+					}
+					for(int i=0;i<node.minimum;i++)
+					{
+						start = build(child, start);
+					}
+					return start;
+			}
+		}
+
+		/**
+		 * returns the states that can be reached from the given state without consuming a character.
+		 * only states that consume a character and the match state are part of the result.
+		 *
+		 * @param state		the state
+		 * @return			the reachable states
+		 */
+		private BitSet closure(int state)
+		{
+			BitSet result = new BitSet(size);
+			addClosure(state, result, new BitSet(size));
+			return result;
+		}
+
+		private void addClosure(int state, BitSet result, BitSet visited)
+		{
+			ArrayDeque<Integer> stack = new ArrayDeque<Integer>();
+			stack.push(state);
+			while(!stack.isEmpty())
+			{
+				int current = stack.pop();
+				if(visited.get(current))
+				{
+					continue;
+				}
+				visited.set(current);
+				if(types[current]==STATE_SPLIT)
+				{
+					stack.push(next2[current]);
+					stack.push(next1[current]);
+				}
+				else
+				{
+					result.set(current);
+				}
+			}
+		}
+
+		/**
+		 * returns the states that are reached from the given states with the character
+		 *
+		 * @param states		the states
+		 * @param character		the character
+		 * @return				the reached states
+		 */
+		private BitSet move(BitSet states, int character)
+		{
+			BitSet result = new BitSet(size);
+			BitSet visited = new BitSet(size);
+			for(int state=states.nextSetBit(0);state>=0;state=states.nextSetBit(state+1))
+			{
+				if(types[state]==STATE_CHARACTERS && contains(ranges[state], character))
+				{
+					addClosure(next1[state], result, visited);
+				}
+			}
+			return result;
+		}
+
+		private static boolean contains(int[] characters, int character)
+		{
+			for(int i=0;i<characters.length;i+=2)
+			{
+				if(character>=characters[i] && character<=characters[i+1])
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
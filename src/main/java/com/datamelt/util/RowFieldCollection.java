@@ -177,10 +177,10 @@ public class RowFieldCollection implements Serializable
      */
     public RowFieldCollection(GenericRecord record, Schema schema) throws Exception
     {
-    	AvroSchemaUtility schemaUtility = new AvroSchemaUtility(schema);
-    	String[] fieldNames = schemaUtility.getFieldNames();
+    	// the schema is only analyzed for the first record of the schema
+    	AvroSchemaUtility schemaUtility = AvroSchemaUtility.getSchemaUtility(schema);
     	Object[] objects = schemaUtility.getGenericRecordData(record);
-    	this.header = new HeaderRow(fieldNames);
+    	this.header = new HeaderRow(schemaUtility.getFieldNames());
         setFields(objects);
     }
     
@@ -195,10 +195,11 @@ public class RowFieldCollection implements Serializable
      */
     public RowFieldCollection(GenericRecord record) throws Exception
     {
-    	AvroSchemaUtility schemaUtility = new AvroSchemaUtility(record.getSchema());
-    	String[] fieldNames = schemaUtility.getFieldNames();
-    	Object[] objects = schemaUtility.getGenericRecordData(record);
-    	this.header = new HeaderRow(fieldNames);
+    	// the schema is only analyzed for the first record of the schema
+    	AvroSchemaUtility schemaUtility = AvroSchemaUtility.getSchemaUtility(record.getSchema());
+    	Object[] objects = new Object[schemaUtility.getNumberOfFields()];
+    	schemaUtility.getGenericRecordValues(record, objects);
+    	this.header = new HeaderRow(schemaUtility.getFieldNames());
         setFields(objects);
     }
 
@@ -262,7 +263,7 @@ public class RowFieldCollection implements Serializable
     	String[] headerFields = header.getFieldNames();
     	
     	// if the static fieldNames array is defined
-    	if(headerFields!=null)
+    	if(headerFields!=null && headerFields.length>0)
     	{
 	    	for(int i=0;i<headerFields.length;i++)
 	        {
@@ -284,6 +285,33 @@ public class RowFieldCollection implements Serializable
     	}
     }
     
+    /**
+     * replaces the values of the fields with the given values, so that the row can be reused for
+     * the next record of a file. the existing field objects are kept if the number of values is the
+     * same as the number of fields; otherwise the fields are created again. the indicators if the
+     * fields or the row were updated and if the row failed are reset.
+     * 
+     * @param fieldValues	an array of objects
+     */
+    public void replaceFieldValues(Object[] fieldValues)
+    {
+    	if(fields.size()==fieldValues.length)
+    	{
+    		for(int i=0;i<fieldValues.length;i++)
+    		{
+    			RowField field = fields.get(i);
+    			field.setValue(fieldValues[i]);
+    			field.setUpdated(false);
+    		}
+    	}
+    	else
+    	{
+    		setFields(fieldValues);
+    	}
+    	collectionUpdated = false;
+    	rowFailed = false;
+    }
+    
     /**
      * Add a field to the array of fields.
      * 
@@ -18,6 +18,8 @@
  */
 package com.datamelt.util;
 
+import java.util.ArrayList;
+
 import com.datamelt.util.Field;
 import com.datamelt.util.Row;
 
@@ -30,7 +32,12 @@ import com.datamelt.rules.parser.xml.RowDefinitionParser;
  * 
  * the default is to use the semicolon (;) as a separator. a given row
  * will be split into its fields using this separator or another given
- * separator. it uses the java split method of the String class.
+ * separator. the separator is a regular expression - as used by the split method of
+ * the String class. separators which do not contain characters that have a special
+ * meaning in a regular expression - or only escaped ones, such as \\| or \\t - are
+ * split without using a regular expression.
+ * 
+ * to read complete CSV files - including quoted fields - use the CsvTokenizer class.
  * 
  * the other possibility is to split a given row into its fields by
  * providing an xml file, which defines the layout of the row. this way
@@ -44,6 +51,10 @@ import com.datamelt.rules.parser.xml.RowDefinitionParser;
  * representing a given row of data (passed as argument) after it has
  * been split.
  * 
+ * to read large fixed length files, the FixedLengthRecordDecoder can be used
+ * instead. it decodes the fields directly from the bytes of the file and only
+ * when they are accessed.
+ * 
  * @author uwe geercken
  *
  */
@@ -73,8 +84,13 @@ public class Splitter
     public static final String FIELDTYPE_BOOLEAN   	= "boolean";
     public static final String FIELDTYPE_BIGDECIMAL	= "bigdecimal";
     
+    // the characters that have a special meaning in a regular expression
+    private static final String REGEX_METACHARACTERS	= "\\.$|()[]{}^?*+";
+    
     //default field separator
     private String fieldSeperator 					= SEPERATOR_SEMICOLON;
+    // the field separator as a literal string or null if it is a regular expression
+    private String literalSeperator					= SEPERATOR_SEMICOLON;
 	private RowDefinitionParser parser = null;
 	
 	/** 
@@ -112,7 +128,7 @@ public class Splitter
 	public Splitter(int type, String fieldSeperator)
 	{
 		this.type = type;
-		this.fieldSeperator = fieldSeperator;
+		setFieldSeperator(fieldSeperator);
 	}
 	
 	/**
@@ -231,16 +247,27 @@ public class Splitter
 		Object[] objects;
 		if(type==TYPE_COMMA_SEPERATED)
 		{
-			fields = line.split(fieldSeperator,-1);
+			if(literalSeperator!=null || fieldSeperator==null)
+			{
+				fields = split(line,literalSeperator);
+			}
+			else
+			{
+				fields = line.split(fieldSeperator,-1);
+			}
 			objects = new Object[fields.length];	 
 			if(removeQuotes)
 			{
 				for(int i=0;i<fields.length;i++)
 				{
-					if(fields[i].startsWith("\"") && fields[i].endsWith("\""));
+					if(fields[i].length()>1 && fields[i].startsWith("\"") && fields[i].endsWith("\""))
 					{
 						objects[i] = fields[i].substring(1,fields[i].length()-1);
 					}
+					else
+					{
+						objects[i] = fields[i];
+					}
 				}
 			}
 			else
@@ -253,11 +280,11 @@ public class Splitter
 		}
 		else if(type==TYPE_FIXED_LENGTH)
 		{
-			fields = new String[parser.getFields().size()];
-			objects = new Object[fields.length];
-			for(int i=0;i<parser.getFields().size();i++)
+			ArrayList<Field> definedFields = parser.getFields();
+			objects = new Object[definedFields.size()];
+			for(int i=0;i<objects.length;i++)
 			{
-				Field field = (Field)parser.getFields().get(i);
+				Field field = definedFields.get(i);
 				String fieldValue = line.substring(field.getStart(),field.getStart()+field.getLength());
 				if(trimFields)
 				{
@@ -276,6 +303,103 @@ public class Splitter
 		return objects;
 	}
 
+	/**
+	 * returns the separator - a regular expression - as a literal string, if it does not contain
+	 * characters with a special meaning in a regular expression. characters escaped using a backslash
+	 * are taken literally and \\t, \\n and \\r are converted to a tab, a new line and a carriage return.
+	 * 
+	 * example: the separator \\| is returned as |. for the separator | null is returned, as it
+	 * is a regular expression.
+	 * 
+	 * @param separator		the separator
+	 * @return				the literal separator or null if the separator is an other regular expression
+	 */
+	public static String getLiteralSeparator(String separator)
+	{
+		if(separator==null || separator.length()==0)
+		{
+			return null;
+		}
+		StringBuilder literal = new StringBuilder(separator.length());
+		for(int i=0;i<separator.length();i++)
+		{
+			char character = separator.charAt(i);
+			if(character=='\\')
+			{
+				if(i + 1==separator.length())
+				{
+					return null;
+				}
+				i++;
+				char escapedCharacter = separator.charAt(i);
+				if(escapedCharacter=='t')
+				{
+					literal.append('\t');
+				}
+				else if(escapedCharacter=='n')
+				{
+					literal.append('\n');
+				}
+				else if(escapedCharacter=='r')
+				{
+					literal.append('\r');
+				}
+				else if(Character.isLetterOrDigit(escapedCharacter))
+				{
+					// a character class or a back reference
+					return null;
+				}
+				else
+				{
+					literal.append(escapedCharacter);
+				}
+			}
+			else if(REGEX_METACHARACTERS.indexOf(character)>=0)
+			{
+				return null;
+			}
+			else
+			{
+				literal.append(character);
+			}
+		}
+		return literal.toString();
+	}
+
+	/**
+	 * splits the line into its fields at each occurrence of the separator. the separator
+	 * is taken literally. empty fields - also at the end of the line - are kept. this is
+	 * the same result as splitting the line using the separator as a regular expression.
+	 * 
+	 * @param line			a line of data
+	 * @param separator		the separator between the fields
+	 * @return				an array of fields
+	 */
+	private static String[] split(String line, String separator)
+	{
+		if(separator==null || separator.length()==0)
+		{
+			return new String[] {line};
+		}
+		int numberOfFields = 1;
+		int index = line.indexOf(separator);
+		while(index>=0)
+		{
+			numberOfFields++;
+			index = line.indexOf(separator, index + separator.length());
+		}
+		String[] fields = new String[numberOfFields];
+		int start = 0;
+		for(int i=0;i<numberOfFields-1;i++)
+		{
+			index = line.indexOf(separator, start);
+			fields[i] = line.substring(start, index);
+			start = index + separator.length();
+		}
+		fields[numberOfFields-1] = line.substring(start);
+		return fields;
+	}
+
 	/**
 	 * returns the currently used field seperator that is used as 
 	 * delimiter for a CSV file.
@@ -296,6 +420,7 @@ public class Splitter
 	public void setFieldSeperator(String fieldSeperator) 
 	{
 		this.fieldSeperator = fieldSeperator;
+		this.literalSeperator = getLiteralSeparator(fieldSeperator);
 	}
 
 	/**
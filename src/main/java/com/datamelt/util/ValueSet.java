@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+/**
+ * a set of values, created from a list of values separated by commas - as used by the
+ * CheckIsInList and CheckIsNotInList checks. spaces are removed from the beginning and
+ * the end of the individual values of the list. the values that are checked are compared
+ * as they are.
+ *
+ * the values are kept in a hash table using open addressing, so that checking if a value is
+ * contained in the set does not create any objects. if the set ignores the case of the
+ * values, the hash of the values is calculated from the case folded characters, so that the
+ * values do not have to be converted to lower or upper case.
+ *
+ * values that are integer or long numbers are additionally kept in a table of primitive
+ * long values, so that numbers can be checked without converting them to a string. only
+ * values that are exactly the string representation of the number - e.g. 12 but not 012 or
+ * +12 - are considered. this is the same result as comparing the string representation of
+ * the number to the values.
+ *
+ * the set does not change after it has been created and may be shared by multiple threads.
+ *
+ * @author uwe geercken
+ */
+public class ValueSet
+{
+	public static final String SEPARATOR = ",";
+
+	private final boolean ignoreCase;
+	private final int size;
+
+	// the values and their hash codes. the length of the tables is a power of two
+	private final String[] values;
+	private final int[] hashes;
+	private final int mask;
+
+	// the values that are numbers. used indicates the occupied slots
+	private final long[] numbers;
+	private final boolean[] used;
+	private final int numbersMask;
+
+	/**
+	 * constructor for a set of the values of the given list. the case of the values is considered
+	 *
+	 * @param list			list of values separated by commas
+	 */
+	public ValueSet(String list)
+	{
+		this(list, false);
+	}
+
+	/**
+	 * constructor for a set of the values of the given list
+	 *
+	 * @param list			list of values separated by commas
+	 * @param ignoreCase	indicator if the case of the values shall be ignored
+	 */
+	public ValueSet(String list, boolean ignoreCase)
+	{
+		this.ignoreCase = ignoreCase;
+		String[] entries = list.split(SEPARATOR);
+		int capacity = getCapacity(entries.length);
+		values = new String[capacity];
+		hashes = new int[capacity];
+		mask = capacity - 1;
+		numbers = new long[capacity];
+		used = new boolean[capacity];
+		numbersMask = capacity - 1;
+
+		int count = 0;
+		for(int i=0;i<entries.length;i++)
+		{
+			String entry = entries[i].trim();
+			if(add(entry))
+			{
+				count++;
+			}
+			Long number = getNumber(entry);
+			if(number!=null)
+			{
+				addNumber(number);
+			}
+		}
+		size = count;
+	}
+
+	/**
+	 * returns the length of the tables for the given number of values: a power of two, so that
+	 * at most half of the slots are occupied
+	 *
+	 * @param numberOfValues	the number of values
+	 * @return					the length of the tables
+	 */
+	private static int getCapacity(int numberOfValues)
+	{
+		int capacity = 2;
+		while(capacity < numberOfValues * 2)
+		{
+			capacity = capacity * 2;
+		}
+		return capacity;
+	}
+
+	/**
+	 * returns the number of the value, if the value is exactly the string representation of a long number
+	 *
+	 * @param value		the value
+	 * @return			the number or null if the value is not a number
+	 */
+	private static Long getNumber(String value)
+	{
+		try
+		{
+			long number = Long.parseLong(value);
+			if(Long.toString(number).equals(value))
+			{
+				return number;
+			}
+		}
+		catch(NumberFormatException ex)
+		{
+			// the value is not a number
+		}
+		return null;
+	}
+
+	private boolean add(String value)
+	{
+		int hash = hash(value);
+		int slot = mix(hash) & mask;
+		while(values[slot]!=null)
+		{
+			if(hashes[slot]==hash && equals(values[slot], value))
+			{
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		values[slot] = value;
+		hashes[slot] = hash;
+		return true;
+	}
+
+	private void addNumber(long number)
+	{
+		int slot = mix(Long.hashCode(number)) & numbersMask;
+		while(used[slot])
+		{
+			if(numbers[slot]==number)
+			{
+				return;
+			}
+			slot = (slot + 1) & numbersMask;
+		}
+		numbers[slot] = number;
+		used[slot] = true;
+	}
+
+	/**
+	 * checks if the value is contained in the set
+	 *
+	 * @param value		the value
+	 * @return			indicator if the set contains the value
+	 */
+	public boolean contains(String value)
+	{
+		int hash = hash(value);
+		int slot = mix(hash) & mask;
+		while(values[slot]!=null)
+		{
+			if(hashes[slot]==hash && equals(values[slot], value))
+			{
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * checks if the number is contained in the set
+	 *
+	 * @param number	the number
+	 * @return			indicator if the set contains the number
+	 */
+	public boolean contains(long number)
+	{
+		int slot = mix(Long.hashCode(number)) & numbersMask;
+		while(used[slot])
+		{
+			if(numbers[slot]==number)
+			{
+				return true;
+			}
+			slot = (slot + 1) & numbersMask;
+		}
+		return false;
+	}
+
+	/**
+	 * calculates the hash of the value. if the case is ignored, the case folded characters are used.
+	 *
+	 * @param value		the value
+	 * @return			the hash
+	 */
+	private int hash(String value)
+	{
+		if(!ignoreCase)
+		{
+			// the hash code of a string is only calculated once
+			return value.hashCode();
+		}
+		int hash = 0;
+		for(int i=0;i<value.length();i++)
+		{
+			hash = 31 * hash + fold(value.charAt(i));
+		}
+		return hash;
+	}
+
+	private boolean equals(String entry, String value)
+	{
+		return entry.length()==value.length() && entry.regionMatches(ignoreCase, 0, value, 0, entry.length());
+	}
+
+	/**
+	 * returns the case folded character. two characters are equal ignoring the case, if their
+	 * case folded characters are equal - the same as for String.equalsIgnoreCase().
+	 *
+	 * @param character		the character
+	 * @return				the case folded character
+	 */
+	private static char fold(char character)
+	{
+		return Character.toLowerCase(Character.toUpperCase(character));
+	}
+
+	/**
+	 * spreads the bits of the hash, so that hashes that only differ in the higher bits use different slots
+	 *
+	 * @param hash		the hash
+	 * @return			the mixed hash
+	 */
+	private static int mix(int hash)
+	{
+		hash = hash * 0x9e3779b9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * checks if a list of values separated by commas contains the given value. spaces are removed
+	 * from the beginning and the end of the values of the list. the given value is compared as it
+	 * is - the same as when checking if a ValueSet contains a value.
+	 *
+	 * the list is not split, so no objects are created.
+	 *
+	 * @param list			list of values separated by commas
+	 * @param value			the value
+	 * @param ignoreCase	indicator if the case of the values shall be ignored
+	 * @return				indicator if the list contains the value
+	 */
+	public static boolean listContains(String list, String value, boolean ignoreCase)
+	{
+		int length = value.length();
+		// empty values at the end of the list are ignored - the same as when the list is split
+		int listEnd = list.length();
+		while(listEnd>0 && list.charAt(listEnd - 1)==SEPARATOR.charAt(0))
+		{
+			listEnd--;
+		}
+		int start = 0;
+		while(start<=listEnd)
+		{
+			int end = list.indexOf(SEPARATOR, start);
+			if(end<0 || end>listEnd)
+			{
+				end = listEnd;
+			}
+			int entryStart = start;
+			int entryEnd = end;
+			while(entryStart<entryEnd && list.charAt(entryStart)<=' ')
+			{
+				entryStart++;
+			}
+			while(entryEnd>entryStart && list.charAt(entryEnd - 1)<=' ')
+			{
+				entryEnd--;
+			}
+			if(entryEnd - entryStart==length && list.regionMatches(ignoreCase, entryStart, value, 0, length))
+			{
+				return true;
+			}
+			start = end + 1;
+		}
+		return false;
+	}
+
+	/**
+	 * returns the number of different values of the set
+	 *
+	 * @return		the number of values
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * indicates if the set ignores the case of the values
+	 *
+	 * @return		indicator if the case is ignored
+	 */
+	public boolean getIgnoreCase()
+	{
+		return ignoreCase;
+	}
+}
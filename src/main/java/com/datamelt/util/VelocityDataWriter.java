@@ -23,6 +23,7 @@ import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Properties;
@@ -37,6 +38,11 @@ import org.apache.velocity.app.VelocityEngine;
  * 
  * The format will be specified in external velocity templates.
  * 
+ * The template is loaded and parsed once, when the writer is created. The merge methods
+ * taking a Writer render directly into it, without creating an intermediate String.
+ * The template itself can be shared by multiple threads: each thread uses its own
+ * context - created with createContext() - and calls merge(VelocityContext, Writer).
+ * 
  * @author uwegeercken
  *
  */
@@ -54,6 +60,8 @@ public class VelocityDataWriter
     
     private Template template;
     private Hashtable <String,Object>objects= new Hashtable<String,Object>();
+    // the context used to merge the objects of this writer. it is reused for each merge
+    private VelocityContext context = new VelocityContext();
     
     /**
      * constructor for velocity datawriter class expects the path and the name of a template
@@ -90,6 +98,7 @@ public class VelocityDataWriter
         VelocityEngine ve = new VelocityEngine();
         ve.init(properties);
         template = ve.getTemplate(templateName);
+        context = new VelocityContext();
     }
     
     /**
@@ -99,6 +108,11 @@ public class VelocityDataWriter
     public void clearObjects()
     {
         objects.clear();
+        String[] keys = context.getKeys();
+        for(int i=0;i<keys.length;i++)
+        {
+        	context.remove(keys[i]);
+        }
     }
     
     /**
@@ -161,6 +175,57 @@ public class VelocityDataWriter
 		return writer.toString();
 	}    
     
+	/**
+	 * merges all objects that have been passed to this writer with the given
+	 * template and writes the result directly to the given writer.
+	 * 
+	 * the context used for the merge is reused, so this method must not be called
+	 * by multiple threads at the same time. use merge(VelocityContext, Writer) instead.
+	 * 
+	 * @param writer		the writer for the output
+	 * @throws Exception	exception if the merge of the objects and the template was unsuccessful
+	 */
+	public void merge(Writer writer) throws Exception
+	{
+		if (objects.size()== 0)
+		{
+			throw new Exception("VelocityDataWriter: no objects to process");
+		}
+		for (Enumeration<String> e = objects.keys(); e.hasMoreElements() ;)
+		{
+			String objectKey = (String)e.nextElement();
+			context.put(objectKey, objects.get(objectKey));
+		}
+		template.merge(context,writer);
+	}
+    
+	/**
+	 * merges the objects of the given context with the template and writes the result
+	 * directly to the given writer.
+	 * 
+	 * the template is not changed by the merge, so multiple threads may call this method at
+	 * the same time - each one using its own context. a context may be reused for multiple
+	 * merges: objects put into the context with the same name replace the previous ones.
+	 * 
+	 * @param context		the context containing the objects
+	 * @param writer		the writer for the output
+	 * @throws Exception	exception if the merge of the objects and the template was unsuccessful
+	 */
+	public void merge(VelocityContext context, Writer writer) throws Exception
+	{
+		template.merge(context,writer);
+	}
+    
+	/**
+	 * creates a new context for the objects to merge with the template
+	 * 
+	 * @return				the context
+	 */
+	public VelocityContext createContext()
+	{
+		return new VelocityContext();
+	}
+    
 	/**
 	 * first merges the objects that have been passed to this datawriter object
 	 * with the velocity template and then writes the output to the given path
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * creates the threads of the rule engine server and the executors used by the readers.
+ *
+ * virtual threads are available with java 21 or later. when the jar is built with java 21 it
+ * contains a second version of this class - in META-INF/versions/21 - which creates virtual
+ * threads when they are requested. this version is used on java 8 to 20 runtimes and always
+ * creates platform threads.
+ *
+ * @author uwe geercken
+ */
+public final class VirtualThreads
+{
+	private VirtualThreads()
+	{
+	}
+	
+	/**
+	 * indicates if virtual threads are supported by the runtime
+	 * 
+	 * @return		indicator if virtual threads are supported
+	 */
+	public static boolean isSupported()
+	{
+		return false;
+	}
+	
+	/**
+	 * creates a new thread for the given task. the thread is not started.
+	 * 
+	 * @param name		the name of the thread
+	 * @param task		the task run by the thread
+	 * @param virtual	indicator if a virtual thread shall be created, if they are supported
+	 * @return			the thread
+	 */
+	public static Thread newThread(String name, Runnable task, boolean virtual)
+	{
+		return new Thread(task, name);
+	}
+	
+	/**
+	 * creates an executor to run tasks. if virtual threads are requested and supported, the
+	 * executor starts a new virtual thread for each task. otherwise the executor uses a
+	 * fixed number of platform threads - one for each processor.
+	 * 
+	 * @param virtual	indicator if virtual threads shall be used, if they are supported
+	 * @return			the executor
+	 */
+	public static ExecutorService newTaskExecutor(boolean virtual)
+	{
+		return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+	}
+}
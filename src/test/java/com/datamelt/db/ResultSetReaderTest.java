@@ -0,0 +1,109 @@
+package com.datamelt.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.util.RowFieldCollection;
+
+class ResultSetReaderTest
+{
+	static final String USERID = "sa";
+	static final String PASSWORD = "";
+
+	/**
+	 * creates an in-memory database containing the table customer with the given number of records.
+	 * the database exists as long as the returned connection is open.
+	 */
+	static Connection createDatabase(String url, int numberOfRecords) throws Exception
+	{
+		Connection connection = DriverManager.getConnection(url, USERID, PASSWORD);
+		try(Statement statement = connection.createStatement())
+		{
+			statement.execute("create table customer (id bigint primary key, name varchar(20), amount int)");
+		}
+		try(PreparedStatement statement = connection.prepareStatement("insert into customer values (?, ?, ?)"))
+		{
+			for(int i=0;i<numberOfRecords;i++)
+			{
+				statement.setLong(1, i);
+				statement.setString(2, "name" + i);
+				statement.setInt(3, i % 200);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+		return connection;
+	}
+
+	@Test
+	void testRows() throws Exception
+	{
+		try(Connection connection = createDatabase("jdbc:h2:mem:resultsetreader", 500))
+		{
+			try(ResultSetReader reader = new ResultSetReader(connection, "select id, name, amount as total from customer where id < ? order by id", 50, 300L))
+			{
+				assertEquals("TOTAL", reader.getHeader().getFieldName(2));
+				RowFieldCollection firstRow = null;
+				long counter = 0;
+				while(reader.nextRow())
+				{
+					RowFieldCollection row = reader.getRowFieldCollection();
+					if(firstRow==null)
+					{
+						firstRow = row;
+					}
+					// the row is reused for all records
+					assertSame(firstRow, row);
+					assertFalse(row.isCollectionUpdated());
+					assertEquals(counter, ((Number)row.getFieldValue("ID")).longValue());
+					assertEquals("name" + counter, row.getFieldValue(1));
+					assertEquals((int)(counter % 200), row.getFieldValue("TOTAL"));
+					counter++;
+				}
+				assertEquals(300, counter);
+				assertEquals(300, reader.getNumberOfRows());
+			}
+		}
+	}
+
+	@Test
+	void testCopyRow() throws Exception
+	{
+		try(Connection connection = createDatabase("jdbc:h2:mem:resultsetreadercopy", 10))
+		{
+			try(ResultSetReader reader = new ResultSetReader(connection, "select name from customer order by id", ResultSetReader.DEFAULT_FETCH_SIZE))
+			{
+				assertTrue(reader.nextRow());
+				RowFieldCollection copy = reader.copyRowFieldCollection();
+				assertTrue(reader.nextRow());
+				assertNotSame(copy, reader.getRowFieldCollection());
+				assertEquals("name0", copy.getFieldValue("NAME"));
+				assertEquals("name1", reader.getRowFieldCollection().getFieldValue("NAME"));
+			}
+		}
+	}
+
+	@Test
+	void testPartitionBounds() throws Exception
+	{
+		PartitionedQuery query = new PartitionedQuery("jdbc:h2:mem:unused", USERID, PASSWORD, "select * from customer where id >= ? and id < ?", 10, 109, 3);
+		assertEquals(3, query.getNumberOfPartitions());
+		assertEquals(10, query.getPartitionLowerBound(0));
+		assertEquals(44, query.getPartitionUpperBound(0));
+		assertEquals(44, query.getPartitionLowerBound(1));
+		assertEquals(77, query.getPartitionLowerBound(2));
+		assertEquals(110, query.getPartitionUpperBound(2));
+
+		// less values than partitions
+		assertEquals(2, new PartitionedQuery("jdbc:h2:mem:unused", USERID, PASSWORD, "", 5, 6, 4).getNumberOfPartitions());
+		assertThrows(Exception.class, () -> new PartitionedQuery("jdbc:h2:mem:unused", USERID, PASSWORD, "", 6, 5, 4));
+		assertThrows(Exception.class, () -> new PartitionedQuery("jdbc:h2:mem:unused", USERID, PASSWORD, "", 0, 5, 0));
+		assertThrows(Exception.class, () -> new PartitionedQuery("jdbc:h2:mem:unused", USERID, PASSWORD, "", Long.MIN_VALUE, Long.MAX_VALUE - 1, 4));
+	}
+}
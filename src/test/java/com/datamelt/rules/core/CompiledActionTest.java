@@ -0,0 +1,136 @@
+package com.datamelt.rules.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.core.action.ActionInvocationException;
+import com.datamelt.util.RowFieldCollection;
+
+class CompiledActionTest
+{
+	private static final String ROW_CLASS = "com.datamelt.util.RowFieldCollection";
+
+	public static class FailingAction
+	{
+		public String fail(XmlAction action, String value) throws ActionInvocationException
+		{
+			throw new ActionInvocationException("invalid value: " + value);
+		}
+	}
+
+	private static ActionObject createGetter(String field) throws Exception
+	{
+		ActionObject getter = new ActionObject(ROW_CLASS, "getFieldValue");
+		getter.setReturnType("integer");
+		getter.addParameter(new Parameter("string", field));
+		return getter;
+	}
+
+	private static ActionObject createSetter(String field, String type) throws Exception
+	{
+		ActionObject setter = new ActionObject(ROW_CLASS, "setFieldValue");
+		setter.addParameter(new Parameter("string", field));
+		setter.addParameter(new Parameter(type, "", true));
+		return setter;
+	}
+
+	@Test
+	void testGetterValuesArePassedToAction() throws Exception
+	{
+		XmlAction action = new XmlAction("a1", "add values");
+		action.setClassName("com.datamelt.rules.core.action.MathAction");
+		action.setMethodName("addValues");
+		action.addActionGetterObject(createGetter("a"));
+		action.addActionGetterObject(createGetter("b"));
+		action.setActionSetterObject(createSetter("sum", "integer"));
+		RowFieldCollection row = new RowFieldCollection(new String[] {"a","b","sum"}, new Object[] {2, 3, 0});
+
+		CompiledAction compiledAction = action.getCompiledAction();
+		compiledAction.execute(row);
+
+		assertNull(compiledAction.getMethodError());
+		assertNotNull(compiledAction.getActionInstance());
+		assertEquals(5, row.getFieldValue("sum"));
+	}
+
+	@Test
+	void testParameterIsPassedToAction() throws Exception
+	{
+		XmlAction action = new XmlAction("a2", "set value");
+		action.setClassName("com.datamelt.rules.core.action.StringAction");
+		action.setMethodName("setValue");
+		action.addParameter(new Parameter("string", "BAD"));
+		action.setActionSetterObject(createSetter("flag", "string"));
+		RowFieldCollection row = new RowFieldCollection(new String[] {"flag"}, new Object[] {"OK"});
+
+		action.getCompiledAction().execute(row);
+
+		assertEquals("BAD", row.getFieldValue("flag"));
+	}
+
+	@Test
+	void testUnknownMethodReportsError() throws Exception
+	{
+		XmlAction action = new XmlAction("a3", "unknown");
+		action.setClassName("com.datamelt.rules.core.action.StringAction");
+		action.setMethodName("noSuchMethod");
+		action.setActionSetterObject(createSetter("flag", "string"));
+		RowFieldCollection row = new RowFieldCollection(new String[] {"flag"}, new Object[] {"OK"});
+
+		CompiledAction compiledAction = action.getCompiledAction();
+
+		assertNotNull(compiledAction.getMethodError());
+		assertThrows(Exception.class, () -> compiledAction.execute(row));
+		assertEquals("OK", row.getFieldValue("flag"));
+	}
+
+	@Test
+	void testRecompiledAfterChange() throws Exception
+	{
+		XmlAction action = new XmlAction("a4", "set value");
+		action.setClassName("com.datamelt.rules.core.action.StringAction");
+		action.setMethodName("setValue");
+		action.addParameter(new Parameter("string", "BAD"));
+		action.setActionSetterObject(createSetter("flag", "string"));
+		CompiledAction compiledAction = action.getCompiledAction();
+
+		action.setMethodName("noSuchMethod");
+
+		assertNotSame(compiledAction, action.getCompiledAction());
+		assertNotNull(action.getCompiledAction().getMethodError());
+	}
+
+	@Test
+	void testGetterExceptionIsChained() throws Exception
+	{
+		XmlAction action = new XmlAction("a4", "add values");
+		action.setClassName("com.datamelt.rules.core.action.MathAction");
+		action.setMethodName("addValues");
+		action.addActionGetterObject(createGetter("a"));
+		action.addActionGetterObject(createGetter("missing"));
+		action.setActionSetterObject(createSetter("sum", "integer"));
+		RowFieldCollection row = new RowFieldCollection(new String[] {"a","sum"}, new Object[] {2, 0});
+
+		Exception ex = assertThrows(Exception.class, () -> action.getCompiledAction().execute(row));
+		// the exception of the getter is the cause
+		assertNotNull(ex.getCause());
+		assertTrue(ex.getCause().getMessage().contains("missing"));
+		assertEquals(0, row.getFieldValue("sum"));
+	}
+
+	@Test
+	void testActionInvocationExceptionKeepsType() throws Exception
+	{
+		XmlAction action = new XmlAction("a5", "failing action");
+		action.setClassName(FailingAction.class.getName());
+		action.setMethodName("fail");
+		action.addParameter(new Parameter("string", "BAD"));
+		action.setActionSetterObject(createSetter("flag", "string"));
+		RowFieldCollection row = new RowFieldCollection(new String[] {"flag"}, new Object[] {"OK"});
+
+		ActionInvocationException ex = assertThrows(ActionInvocationException.class, () -> action.getCompiledAction().execute(row));
+		assertTrue(ex.getCause() instanceof ActionInvocationException);
+		assertEquals("OK", row.getFieldValue("flag"));
+	}
+}
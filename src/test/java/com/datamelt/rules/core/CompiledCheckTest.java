@@ -0,0 +1,144 @@
+package com.datamelt.rules.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.implementation.GenericCheck;
+import com.datamelt.util.PatternMatcher;
+import com.datamelt.util.ValueSet;
+
+class CompiledCheckTest
+{
+	// a check, which is not part of the rule engine, using the cache of values of the rule
+	public static class ValueCacheCheck extends GenericCheck
+	{
+		@SuppressWarnings("deprecation")
+		public static boolean evaluate(String value, String expectedValue)
+		{
+			return getValueCache().contains(value);
+		}
+	}
+
+	private static XmlRule createRule(String check, String returnType, String expectedValue, String expectedType)
+	{
+		XmlRule rule = new XmlRule("rule1", "test rule");
+		rule.getRuleObjects().add(new RuleObject("com.datamelt.util.RowFieldCollection", "getFieldValue", returnType, "field1", "string"));
+		rule.setCheckToExecute(check);
+		rule.setExpectedValueRule(expectedValue);
+		rule.setExpectedValueRuleType(expectedType);
+		return rule;
+	}
+
+	@Test
+	void testExpectedValueIsBound() throws Exception
+	{
+		XmlRule rule = createRule("com.datamelt.rules.implementation.CheckIsGreater", "integer", "18", "integer");
+
+		CompiledCheck check = rule.getCompiledCheck();
+
+		assertNull(check.getMethodError());
+		assertTrue(check.evaluate(check.convertValue1("25"), null));
+		assertFalse(check.evaluate(check.convertValue1("12"), null));
+	}
+
+	@Test
+	void testParameterIsBound() throws Exception
+	{
+		XmlRule rule = createRule("com.datamelt.rules.implementation.CheckIsEqual", "string", "Yesterday", "string");
+		rule.addParameter(new Parameter("boolean", "true"));
+
+		CompiledCheck check = rule.getCompiledCheck();
+
+		assertTrue(check.evaluate("YESTERDAY", null));
+	}
+
+	@Test
+	void testUnknownMethodReportsError() throws Exception
+	{
+		XmlRule rule = createRule("com.datamelt.rules.implementation.CheckIsGreater", "boolean", "true", "boolean");
+
+		CompiledCheck check = rule.getCompiledCheck();
+
+		assertNotNull(check.getMethodError());
+	}
+
+	@Test
+	void testRecompiledAfterChange() throws Exception
+	{
+		XmlRule rule = createRule("com.datamelt.rules.implementation.CheckIsGreater", "integer", "18", "integer");
+		CompiledCheck check = rule.getCompiledCheck();
+
+		rule.setExpectedValueRule("30");
+
+		assertNotSame(check, rule.getCompiledCheck());
+		assertFalse(rule.getCompiledCheck().evaluate(Integer.valueOf(25), null));
+	}
+
+	@Test
+	void testPatternIsCompiled() throws Exception
+	{
+		XmlRule rule = createRule("com.datamelt.rules.implementation.CheckMatches", "string", "ham.*", "string");
+		// ignore case and a part of the value has to match
+		rule.addParameter(new Parameter("boolean", "true"));
+		rule.addParameter(new Parameter("boolean", "false"));
+
+		CompiledCheck check = rule.getCompiledCheck();
+
+		assertEquals(1, check.getBoundValues().length);
+		assertTrue(check.getBoundValues()[0] instanceof PatternMatcher);
+		assertTrue(check.evaluate("Bad HAMburg", null));
+		assertFalse(check.evaluate("Hanover", null));
+	}
+
+	@Test
+	void testInvalidPatternReportsError() throws Exception
+	{
+		XmlRule rule = createRule("com.datamelt.rules.implementation.CheckNotMatches", "string", "[0-9", "string");
+
+		CompiledCheck check = rule.getCompiledCheck();
+
+		assertNotNull(check.getInvocationError());
+		assertThrows(Exception.class, () -> check.evaluate("123", null));
+	}
+
+	@Test
+	void testValueSetIsCompiled() throws Exception
+	{
+		XmlRule rule = createRule("com.datamelt.rules.implementation.CheckIsInList", "string", "DE, fr,It", "string");
+		rule.addParameter(new Parameter("boolean", "true"));
+		XmlRule numberRule = createRule("com.datamelt.rules.implementation.CheckIsNotInList", "long", "10,20,30", "string");
+
+		CompiledCheck check = rule.getCompiledCheck();
+		CompiledCheck numberCheck = numberRule.getCompiledCheck();
+
+		assertTrue(check.getBoundValues()[0] instanceof ValueSet);
+		assertTrue(check.evaluate("it", null));
+		assertTrue(check.evaluate("FR", null));
+		assertFalse(check.evaluate("ES", null));
+		assertFalse(numberCheck.evaluate(numberCheck.convertValue1("20"), null));
+		assertTrue(numberCheck.evaluate(numberCheck.convertValue1("25"), null));
+	}
+
+	@Test
+	void testPassesOnNullValue() throws Exception
+	{
+		XmlRule rule = createRule("com.datamelt.rules.implementation.CheckIsNull", "string", null, null);
+
+		assertTrue(rule.getCompiledCheck().getPassesOnNullValue());
+	}
+
+	@Test
+	void testValueCacheOfCustomCheck() throws Exception
+	{
+		XmlRule rule = createRule(ValueCacheCheck.class.getName(), "string", "Hamburg,Denver", "string");
+		assertEquals(2, rule.getValueCache().size());
+
+		CompiledCheck check = rule.getCompiledCheck();
+
+		assertTrue(check.evaluate("Denver", null));
+		assertFalse(check.evaluate("Stockholm", null));
+		// a single value is not cached
+		assertTrue(createRule(ValueCacheCheck.class.getName(), "string", "Hamburg", "string").getValueCache().isEmpty());
+	}
+}
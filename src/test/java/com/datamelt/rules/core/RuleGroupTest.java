@@ -0,0 +1,80 @@
+package com.datamelt.rules.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.util.RowFieldCollection;
+
+class RuleGroupTest
+{
+	private static RuleSubGroup createSubGroup(String id, String operatorSubGroup, String operatorRules, String... expectedValues)
+	{
+		RuleSubGroup subGroup = new RuleSubGroup(id, "test subgroup", operatorSubGroup, operatorRules);
+		for(String expectedValue : expectedValues)
+		{
+			XmlRule rule = new XmlRule(id + "_greater" + expectedValue, "test rule");
+			rule.getRuleObjects().add(new RuleObject("com.datamelt.util.RowFieldCollection", "getFieldValue", "integer", "amount", "string"));
+			rule.setCheckToExecute("com.datamelt.rules.implementation.CheckIsGreater");
+			rule.setExpectedValueRule(expectedValue);
+			rule.setExpectedValueRuleType("integer");
+			subGroup.getRulesCollection().add(rule);
+		}
+		return subGroup;
+	}
+
+	private static RuleGroup createGroup(boolean shortCircuitEvaluation)
+	{
+		RuleGroup group = new RuleGroup("group1", "test group");
+		group.getSubGroups().add(createSubGroup("subgroup1", "and", "and", "10", "50"));
+		group.getSubGroups().add(createSubGroup("subgroup2", "and", "or", "30", "1"));
+		group.getSubGroups().add(createSubGroup("subgroup3", "or", "and", "5", "15"));
+		group.compile();
+		group.setTimestampFormat("yyyy-MM-dd HH:mm:ss");
+		group.setShortCircuitEvaluation(shortCircuitEvaluation);
+		return group;
+	}
+
+	@Test
+	void testShortCircuitEvaluationKeepsOutcome() throws Exception
+	{
+		for(String amount : new String[] {"0", "3", "12", "20", "40", "60"})
+		{
+			RowFieldCollection row = new RowFieldCollection(new String[] {"amount"}, new Object[] {amount});
+			RuleGroup group = createGroup(false);
+			RuleGroup shortCircuitGroup = createGroup(true);
+			group.runRules("row: " + amount, row);
+			shortCircuitGroup.runRules("row: " + amount, row);
+
+			assertEquals(group.getFailed(), shortCircuitGroup.getFailed(), "amount: " + amount);
+			for(int i=0;i<group.getSubGroups().size();i++)
+			{
+				RuleSubGroup subGroup = group.getSubGroups().get(i);
+				RuleSubGroup shortCircuitSubGroup = shortCircuitGroup.getSubGroups().get(i);
+				assertFalse(subGroup.getSkipped());
+				if(!shortCircuitSubGroup.getSkipped())
+				{
+					assertEquals(subGroup.getFailed(), shortCircuitSubGroup.getFailed(), "amount: " + amount);
+					assertTrue(shortCircuitSubGroup.getNumberOfRulesRun()<=subGroup.getNumberOfRulesRun());
+				}
+				else
+				{
+					assertEquals(0, shortCircuitSubGroup.getNumberOfRulesRun());
+				}
+			}
+		}
+	}
+
+	@Test
+	void testSubGroupIsSkipped() throws Exception
+	{
+		// the first subgroup fails, so the second one - connected with 'and' - is not run
+		RuleGroup group = createGroup(true);
+		group.runRules("row: 0", new RowFieldCollection(new String[] {"amount"}, new Object[] {"3"}));
+
+		assertEquals(1, group.getSubGroups().get(0).getNumberOfRulesRun());
+		assertTrue(group.getSubGroups().get(1).getSkipped());
+		assertFalse(group.getSubGroups().get(2).getSkipped());
+		assertEquals(1, group.getFailed());
+	}
+}
@@ -0,0 +1,137 @@
+package com.datamelt.rules.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.RowFieldCollection;
+
+class RuleObjectTest
+{
+	private static RuleObject createRuleObject(String fieldName)
+	{
+		return new RuleObject("com.datamelt.util.RowFieldCollection", "getFieldValue", "string", fieldName, "string");
+	}
+
+	@Test
+	void testFieldIsResolvedPerHeader() throws Exception
+	{
+		RuleObject ruleObject = createRuleObject("city");
+		HeaderRow header = new HeaderRow(new String[] {"id","city"});
+
+		assertEquals("Hamburg", ruleObject.getValue(new RowFieldCollection(header, new Object[] {"1","Hamburg"})));
+		assertEquals("Denver", ruleObject.getValue(new RowFieldCollection(header, new Object[] {"2","Denver"})));
+
+		// a different header row with another layout
+		HeaderRow otherHeader = new HeaderRow(new String[] {"city","id"});
+		assertEquals("Stockholm", ruleObject.getValue(new RowFieldCollection(otherHeader, new Object[] {"Stockholm","3"})));
+		assertEquals("Denver", ruleObject.getValue(new RowFieldCollection(header, new Object[] {"2","Denver"})));
+	}
+
+	@Test
+	void testHeaderWithAddedField() throws Exception
+	{
+		RuleObject ruleObject = createRuleObject("city");
+		RowFieldCollection row = new RowFieldCollection(new String[] {"id"}, new Object[] {"1"});
+
+		assertThrows(InvocationTargetException.class, () -> ruleObject.getValue(row));
+		row.addField("city", "Hamburg");
+		assertEquals("Hamburg", ruleObject.getValue(row));
+	}
+
+	@Test
+	void testOtherClass() throws Exception
+	{
+		RuleObject ruleObject = new RuleObject("java.lang.String", "length", "integer");
+
+		assertEquals(5, ruleObject.getValue("hello"));
+		assertThrows(NoSuchMethodException.class, () -> ruleObject.getValue(Integer.valueOf(5)));
+	}
+
+	@Test
+	void testEqualHeadersShareAccessor() throws Exception
+	{
+		RuleObject ruleObject = createRuleObject("city");
+		// two header rows with the same layout, as created for each row or each session
+		HeaderRow header = new HeaderRow(new String[] {"id","city"});
+		HeaderRow equalHeader = new HeaderRow(new String[] {"id","city"});
+		assertSame(header.getLayout(), equalHeader.getLayout());
+
+		RuleObjectAccessor accessor = ruleObject.getAccessor(new RowFieldCollection(header, new Object[] {"0","Hamburg"}), null);
+		for(int i=0;i<100;i++)
+		{
+			RowFieldCollection row = new RowFieldCollection(i % 2 == 0 ? header : equalHeader, new Object[] {String.valueOf(i),"city" + i});
+			assertSame(accessor, ruleObject.getAccessor(row, accessor));
+			assertEquals("city" + i, accessor.getValue(row));
+		}
+
+		// a header row with another layout requires a new accessor
+		RowFieldCollection otherRow = new RowFieldCollection(new HeaderRow(new String[] {"city","id"}), new Object[] {"Stockholm","3"});
+		RuleObjectAccessor otherAccessor = ruleObject.getAccessor(otherRow, accessor);
+		assertNotSame(accessor, otherAccessor);
+		assertEquals("Stockholm", otherAccessor.getValue(otherRow));
+
+		// a changed rule object requires a new accessor
+		RowFieldCollection row = new RowFieldCollection(header, new Object[] {"1","Denver"});
+		ruleObject.setParameter("id");
+		RuleObjectAccessor changedAccessor = ruleObject.getAccessor(row, accessor);
+		assertNotSame(accessor, changedAccessor);
+		assertEquals("1", changedAccessor.getValue(row));
+	}
+
+	@Test
+	void testAccessorsInParallelThreads() throws Exception
+	{
+		RuleObject ruleObject = createRuleObject("city");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			ArrayList<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+			for(int t=0;t<4;t++)
+			{
+				// the threads alternate between two layouts and create a new header row for each row
+				final boolean cityFirst = t % 2 == 0;
+				futures.add(executor.submit(() ->
+				{
+					RuleObjectAccessor accessor = null;
+					int numberOfBindings = 0;
+					for(int i=0;i<10000;i++)
+					{
+						RowFieldCollection row;
+						if(cityFirst)
+						{
+							row = new RowFieldCollection(new String[] {"city","id"}, new Object[] {"city" + i, String.valueOf(i)});
+						}
+						else
+						{
+							row = new RowFieldCollection(new String[] {"id","city"}, new Object[] {String.valueOf(i), "city" + i});
+						}
+						RuleObjectAccessor rowAccessor = ruleObject.getAccessor(row, accessor);
+						if(rowAccessor!=accessor)
+						{
+							numberOfBindings++;
+							accessor = rowAccessor;
+						}
+						assertEquals("city" + i, accessor.getValue(row));
+					}
+					return numberOfBindings;
+				}));
+			}
+			for(Future<Integer> future : futures)
+			{
+				assertEquals(1, future.get().intValue());
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+}
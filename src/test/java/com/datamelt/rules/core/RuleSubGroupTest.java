@@ -0,0 +1,190 @@
+package com.datamelt.rules.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.db.PartitionedQuery;
+import com.datamelt.db.ResultSetReader;
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.RowFieldCollection;
+
+class RuleSubGroupTest
+{
+	private static RuleSubGroup createSubGroup(int outputType)
+	{
+		return createSubGroup(outputType, "and", "10", "50");
+	}
+
+	private static RuleSubGroup createSubGroup(int outputType, String operatorRules, String... expectedValues)
+	{
+		RuleSubGroup subGroup = new RuleSubGroup("subgroup1", "test subgroup", "and", operatorRules);
+		for(String expectedValue : expectedValues)
+		{
+			XmlRule rule = new XmlRule("greater" + expectedValue, "test rule");
+			rule.getRuleObjects().add(new RuleObject("com.datamelt.util.RowFieldCollection", "getFieldValue", "integer", "amount", "string"));
+			rule.setCheckToExecute("com.datamelt.rules.implementation.CheckIsGreater");
+			rule.setExpectedValueRule(expectedValue);
+			rule.setExpectedValueRuleType("integer");
+			subGroup.getRulesCollection().add(rule);
+		}
+		subGroup.compile();
+		subGroup.setOutputType(outputType);
+		subGroup.setTimestampFormat("yyyy-MM-dd HH:mm:ss");
+		return subGroup;
+	}
+
+	@Test
+	void testResultsFollowOutputType() throws Exception
+	{
+		RowFieldCollection row = new RowFieldCollection(new String[] {"amount"}, new Object[] {"20"});
+
+		RuleSubGroup failedOnly = createSubGroup(BusinessRulesEngine.OUTPUT_TYPE_FAILED_ONLY);
+		failedOnly.runRules("row: 0", row);
+		assertEquals(1, failedOnly.getResults().size());
+		assertEquals("greater50", failedOnly.getResults().get(0).getRule().getId());
+		assertEquals(1, failedOnly.getResults().get(0).getFailed());
+		assertEquals(2, failedOnly.getNumberOfRulesRun());
+		assertEquals(1, failedOnly.getNumberOfRulesFailed());
+		assertFalse(failedOnly.getRuleFailed(0));
+		assertTrue(failedOnly.getRuleFailed(1));
+
+		RuleSubGroup passedOnly = createSubGroup(BusinessRulesEngine.OUTPUT_TYPE_PASSED_ONLY);
+		passedOnly.runRules("row: 0", row);
+		assertEquals(1, passedOnly.getResults().size());
+		assertEquals(0, passedOnly.getResults().get(0).getFailed());
+
+		RuleSubGroup noOutput = createSubGroup(BusinessRulesEngine.OUTPUT_TYPE_NO_OUTPUT);
+		noOutput.runRules("row: 0", row);
+		assertEquals(0, noOutput.getResults().size());
+		assertEquals(1, noOutput.getFailed());
+	}
+
+	@Test
+	void testTimestampIsFormattedOnRequest() throws Exception
+	{
+		RuleSubGroup subGroup = createSubGroup(BusinessRulesEngine.OUTPUT_TYPE_FAILED_AND_PASSED);
+		subGroup.runRules("row: 0", new RowFieldCollection(new String[] {"amount"}, new Object[] {"20"}));
+
+		RuleExecutionResult result = subGroup.getResults().get(0);
+		assertEquals(2, subGroup.getResults().size());
+		assertTrue(result.getTimestamp().matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}"));
+		assertSame(result.getMessage(), result.getMessage());
+	}
+
+	@Test
+	void testShortCircuitEvaluation() throws Exception
+	{
+		RowFieldCollection row = new RowFieldCollection(new String[] {"amount"}, new Object[] {"5"});
+
+		RuleSubGroup subGroup = createSubGroup(BusinessRulesEngine.OUTPUT_TYPE_FAILED_AND_PASSED);
+		subGroup.setShortCircuitEvaluation(true);
+		subGroup.runRules("row: 0", row);
+		assertEquals(1, subGroup.getNumberOfRulesRun());
+		assertEquals(1, subGroup.getNumberOfRulesFailed());
+		assertEquals(1, subGroup.getResults().size());
+		assertEquals(1, subGroup.getFailed());
+		assertTrue(subGroup.getRuleRun(0));
+		assertFalse(subGroup.getRuleRun(1));
+		assertFalse(subGroup.getRuleFailed(1));
+	}
+
+	@Test
+	void testAdaptiveRuleOrder() throws Exception
+	{
+		// the first rule never decides the outcome of the 'or' subgroup, the second one always does
+		RuleSubGroup subGroup = createSubGroup(BusinessRulesEngine.OUTPUT_TYPE_NO_OUTPUT, "or", "100", "1");
+		subGroup.setShortCircuitEvaluation(true);
+		subGroup.setAdaptiveRuleOrder(true);
+		RowFieldCollection row = new RowFieldCollection(new String[] {"amount"}, new Object[] {"20"});
+
+		subGroup.runRules("row: 0", row);
+		assertTrue(subGroup.getRuleRun(0));
+		assertTrue(subGroup.getRuleRun(1));
+		for(int i=1;i<2000;i++)
+		{
+			subGroup.runRules("row: " + i, row);
+			assertEquals(0, subGroup.getFailed());
+		}
+		assertFalse(subGroup.getRuleRun(0));
+		assertTrue(subGroup.getRuleRun(1));
+		assertEquals(1, subGroup.getNumberOfRulesRun());
+		assertEquals(1, subGroup.getNumberOfRulesPassed());
+	}
+
+	@Test
+	void testPartitionsAreBoundOnce() throws Exception
+	{
+		String url = "jdbc:h2:mem:subgrouppartitions";
+		try(Connection connection = DriverManager.getConnection(url, "sa", ""))
+		{
+			try(Statement statement = connection.createStatement())
+			{
+				statement.execute("create table customer (id bigint primary key, amount int)");
+			}
+			try(PreparedStatement statement = connection.prepareStatement("insert into customer values (?, ?)"))
+			{
+				for(int i=0;i<1000;i++)
+				{
+					statement.setLong(1, i);
+					statement.setInt(2, i % 200);
+					statement.addBatch();
+				}
+				statement.executeBatch();
+			}
+
+			PartitionedQuery query = new PartitionedQuery(url, "sa", "", "select id, amount as \"amount\" from customer where id >= ? and id < ?", 0, 999, 4);
+			RuleSubGroup subGroup = createSubGroup(BusinessRulesEngine.OUTPUT_TYPE_NO_OUTPUT);
+			ExecutorService executor = Executors.newFixedThreadPool(4);
+			AtomicInteger numberOfRows = new AtomicInteger();
+			try
+			{
+				ArrayList<Future<HeaderRow>> futures = new ArrayList<Future<HeaderRow>>();
+				for(int p=0;p<query.getNumberOfPartitions();p++)
+				{
+					final int partition = p;
+					futures.add(executor.submit(() ->
+					{
+						// each partition uses its own copy of the subgroup - as an execution context does
+						RuleSubGroup partitionSubGroup = subGroup.copy();
+						try(Connection partitionConnection = query.getConnection(); ResultSetReader reader = query.createReader(partitionConnection, partition))
+						{
+							while(reader.nextRow())
+							{
+								RowFieldCollection row = reader.getRowFieldCollection();
+								// all rows of the partitions use the shared header, so the field is resolved once
+								assertSame(reader.getHeader(), row.getHeader());
+								partitionSubGroup.runRules("row", row);
+								assertEquals((Integer)row.getFieldValue("amount")>50 ? 0 : 1, partitionSubGroup.getFailed());
+								numberOfRows.incrementAndGet();
+							}
+							return reader.getHeader();
+						}
+					}));
+				}
+				HeaderRow header = futures.get(0).get();
+				for(Future<HeaderRow> future : futures)
+				{
+					// the partitions share one header row
+					assertSame(header, future.get());
+				}
+				assertEquals(1000, numberOfRows.get());
+			}
+			finally
+			{
+				executor.shutdown();
+			}
+		}
+	}
+}
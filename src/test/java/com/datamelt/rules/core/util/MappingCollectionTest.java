@@ -0,0 +1,123 @@
+package com.datamelt.rules.core.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.engine.BusinessRulesEngine;
+
+class MappingCollectionTest
+{
+	private static File createFile(String suffix, String content) throws Exception
+	{
+		File file = File.createTempFile("mappingcollection", suffix);
+		file.deleteOnExit();
+		try(FileOutputStream stream = new FileOutputStream(file))
+		{
+			stream.write(content.getBytes(StandardCharsets.ISO_8859_1));
+		}
+		return file;
+	}
+
+	private static File createMappingFile(int numberOfEntries) throws Exception
+	{
+		StringBuilder content = new StringBuilder("# mappings\n");
+		for(int i=0;i<numberOfEntries;i++)
+		{
+			content.append("key").append(i).append('=').append("value").append(i).append('\n');
+		}
+		// escaped characters, a continued line and a key that is defined twice
+		content.append("M\\u00fcnchen=Munich\n");
+		content.append("long\\ key=first \\\n    second\n");
+		content.append("key0=replaced\n");
+		return createFile(".properties", content.toString());
+	}
+
+	@Test
+	void testOffHeapSameAsHeap() throws Exception
+	{
+		File file = createMappingFile(20000);
+		KeyValueMap heapMap = new KeyValueMap(file.getPath());
+		KeyValueMap offHeapMap = new KeyValueMap(file.getPath(), true);
+
+		assertFalse(heapMap.isOffHeap());
+		assertTrue(offHeapMap.isOffHeap());
+		assertEquals(20002, heapMap.getNumberOfEntries());
+		assertEquals(heapMap.getNumberOfEntries(), offHeapMap.getNumberOfEntries());
+		for(int i=0;i<20000;i+=7)
+		{
+			assertEquals(heapMap.getValue("key" + i), offHeapMap.getValue("key" + i));
+		}
+		assertEquals("replaced", offHeapMap.getValue("key0"));
+		assertEquals("Munich", offHeapMap.getValue("München"));
+		assertEquals("first second", offHeapMap.getValue("long key"));
+		assertNull(offHeapMap.getValue("key20000"));
+		assertNull(offHeapMap.getValue(""));
+	}
+
+	@Test
+	void testHitsAndMisses() throws Exception
+	{
+		File file = createMappingFile(10);
+		// the file is larger than the threshold, so it is kept off the heap
+		MappingCollection collection = new MappingCollection(16);
+		assertEquals("value1", collection.getValue(file.getPath(), "key1"));
+		assertEquals("value2", collection.getValue(file.getPath(), "key2"));
+		assertEquals("value3", collection.getValue(file.getPath(), "key3"));
+		assertNull(collection.getValue(file.getPath(), "unknown"));
+
+		assertTrue(collection.getMap(file.getPath()).isOffHeap());
+		assertEquals(3, collection.getNumberOfHits());
+		assertEquals(1, collection.getNumberOfMisses());
+		assertEquals(0.75d, collection.getHitRatio());
+	}
+
+	@Test
+	void testUnmodifiedMapIsReused() throws Exception
+	{
+		File file = createMappingFile(10);
+		MappingCollection collection = new MappingCollection();
+		KeyValueMap map = collection.load(file.getPath());
+
+		MappingCollection next = new MappingCollection();
+		assertSame(map, next.load(file.getPath(), collection));
+
+		file.setLastModified(map.getLastModified() + 5000);
+		MappingCollection modified = new MappingCollection();
+		assertNotSame(map, modified.load(file.getPath(), next));
+	}
+
+	@Test
+	void testMappingFilesAreLoadedWithRules() throws Exception
+	{
+		File mappingFile = createMappingFile(10);
+		String rules = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<rulegroup>\n"
+				+ "<group id=\"g1\" description=\"city group\" validfrom=\"2000-01-01\" validuntil=\"2099-12-31\">\n"
+				+ "  <subgroup id=\"s1\" description=\"city\" ruleoperator=\"and\">\n"
+				+ "    <rule id=\"r1\" description=\"city is not empty\">\n"
+				+ "      <object classname=\"com.datamelt.util.RowFieldCollection\" method=\"getFieldValue\" parameter=\"city\" parametertype=\"string\" type=\"string\"/>\n"
+				+ "      <execute value=\"com.datamelt.rules.implementation.CheckIsNotEmpty\"/>\n"
+				+ "    </rule>\n"
+				+ "  </subgroup>\n"
+				+ "  <action id=\"a1\" description=\"map city\" classname=\"com.datamelt.rules.core.action.StringAction\" method=\"replaceValueFromMap\" executeif=\"always\">\n"
+				+ "    <parameter type=\"string\" value=\"" + mappingFile.getPath() + "\"/>\n"
+				+ "  </action>\n"
+				+ "</group>\n"
+				+ "</rulegroup>\n";
+		File ruleFile = createFile(".xml", rules);
+
+		BusinessRulesEngine engine = new BusinessRulesEngine(ruleFile.getPath());
+		KeyValueMap map = engine.getMappingCollection().getMap(mappingFile.getPath());
+		assertNotNull(map);
+		assertSame(engine.getMappingCollection(), engine.getRuleSet().getMappingCollection());
+
+		// the map is used again by the next rule set, as the file did not change
+		engine.reloadRuleFile(ruleFile.getPath());
+		assertSame(map, engine.getMappingCollection().getMap(mappingFile.getPath()));
+	}
+}
@@ -0,0 +1,108 @@
+package com.datamelt.rules.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.core.ReferenceField;
+import com.datamelt.rules.core.RuleGroup;
+import com.datamelt.rules.core.RuleObject;
+import com.datamelt.rules.core.RuleSubGroup;
+import com.datamelt.rules.core.XmlRule;
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.RowFieldCollection;
+
+class ColumnBatchTest
+{
+	private static XmlRule createRule(String id, String check, String field, String returnType, String expectedValue, String expectedType)
+	{
+		XmlRule rule = new XmlRule(id, "test rule");
+		rule.getRuleObjects().add(new RuleObject("com.datamelt.util.RowFieldCollection", "getFieldValue", returnType, field, "string"));
+		rule.setCheckToExecute(check);
+		rule.setExpectedValueRule(expectedValue);
+		rule.setExpectedValueRuleType(expectedType);
+		return rule;
+	}
+
+	private static RuleSet createRuleSet()
+	{
+		RuleGroup group1 = new RuleGroup("group1", "test group");
+		RuleSubGroup subGroup1 = new RuleSubGroup("subgroup1", "test subgroup", "and", "and");
+		subGroup1.getRulesCollection().add(createRule("amount", "com.datamelt.rules.implementation.CheckIsGreater", "amount", "long", "100", "long"));
+		subGroup1.getRulesCollection().add(createRule("rate", "com.datamelt.rules.implementation.CheckIsBetween", "rate", "double", "1.0,2.5", "string"));
+		RuleSubGroup subGroup2 = new RuleSubGroup("subgroup2", "test subgroup", "or", "or");
+		subGroup2.getRulesCollection().add(createRule("city", "com.datamelt.rules.implementation.CheckIsNull", "city", "string", null, null));
+		subGroup2.getRulesCollection().add(createRule("prefix", "com.datamelt.rules.implementation.CheckStartsWith", "city", "string", "Ham", "string"));
+		group1.getSubGroupCollection().add(subGroup1);
+		group1.getSubGroupCollection().add(subGroup2);
+
+		// only run when the first group failed
+		RuleGroup group2 = new RuleGroup("group2", "dependent group");
+		group2.setDependentRuleGroupId("group1");
+		group2.setDependentRuleGroupExecuteIf(RuleGroup.TYPE_FAILED);
+		RuleSubGroup subGroup3 = new RuleSubGroup("subgroup3", "test subgroup", "and", "and");
+		subGroup3.getRulesCollection().add(createRule("small", "com.datamelt.rules.implementation.CheckIsSmaller", "amount", "long", "50", "integer"));
+		group2.getSubGroupCollection().add(subGroup3);
+
+		ArrayList<RuleGroup> groups = new ArrayList<RuleGroup>();
+		groups.add(group1);
+		groups.add(group2);
+		for(RuleGroup group : groups)
+		{
+			group.compile();
+		}
+		return new RuleSet(groups, new ArrayList<ReferenceField>(), null);
+	}
+
+	@Test
+	void testSameResultAsRowByRow() throws Exception
+	{
+		long[] amounts = {150, 20, 300, 120, 0, 101};
+		double[] rates = {1.5, 2.0, 3.0, 1.0, 2.5, 0.5};
+		String[] cities = {"Hamburg", null, "Denver", "Stockholm", "Hanover", null};
+		BitSet amountNulls = new BitSet();
+		amountNulls.set(4);
+
+		ColumnBatch batch = new ColumnBatch(amounts.length);
+		batch.addColumn("amount", amounts, amountNulls);
+		batch.addColumn("rate", rates, null);
+		batch.addColumn("city", cities, null);
+
+		RuleSet ruleSet = createRuleSet();
+		ColumnBatchResult result = ruleSet.createExecutionContext().run(batch);
+
+		RuleExecutionContext context = ruleSet.createExecutionContext();
+		HeaderRow header = new HeaderRow(new String[] {"amount","rate","city"});
+		for(int i=0;i<amounts.length;i++)
+		{
+			Long amount = amountNulls.get(i) ? null : amounts[i];
+			context.run("row: " + i, new RowFieldCollection(header, new Object[] {amount, rates[i], cities[i]}));
+			for(RuleGroup group : context.getGroups())
+			{
+				boolean skipped = group.getSkipped()==1;
+				assertEquals(skipped, result.getGroupSkipped(group.getId()).get(i), group.getId() + " row " + i);
+				assertEquals(!skipped && group.getFailed()==1, result.getGroupFailed(group.getId()).get(i), group.getId() + " row " + i);
+			}
+		}
+
+		assertEquals(context.getNumberOfRulesRun(), result.getNumberOfRulesRun());
+		assertEquals(context.getNumberOfRulesPassed(), result.getNumberOfRulesPassed());
+		assertEquals(context.getNumberOfRulesFailed(), result.getNumberOfRulesFailed());
+		assertEquals(context.getNumberOfGroupsPassed(), result.getNumberOfGroupsPassed());
+		assertEquals(context.getNumberOfGroupsFailed(), result.getNumberOfGroupsFailed());
+		assertEquals(context.getNumberOfGroupsSkipped(), result.getNumberOfGroupsSkipped());
+	}
+
+	@Test
+	void testMissingColumn() throws Exception
+	{
+		ColumnBatch batch = new ColumnBatch(2);
+		batch.addColumn("amount", new long[] {1, 2}, null);
+
+		assertThrows(Exception.class, () -> createRuleSet().createExecutionContext().run(batch));
+		assertThrows(Exception.class, () -> batch.addColumn("rate", new double[] {1.0}, null));
+	}
+}
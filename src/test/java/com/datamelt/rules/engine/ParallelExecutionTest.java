@@ -0,0 +1,326 @@
+package com.datamelt.rules.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.db.PartitionedQuery;
+import com.datamelt.rules.core.RuleExecutionCollection;
+import com.datamelt.util.RowFieldCollection;
+import com.datamelt.util.VirtualThreads;
+
+class ParallelExecutionTest
+{
+	private static BusinessRulesEngine createEngine() throws Exception
+	{
+		String rules = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<rulegroup>\n"
+				+ "<group id=\"g1\" description=\"amount group\" validfrom=\"2000-01-01\" validuntil=\"2099-12-31\">\n"
+				+ "  <subgroup id=\"s1\" description=\"amount\" ruleoperator=\"and\">\n"
+				+ "    <rule id=\"r1\" description=\"amount greater\">\n"
+				+ "      <object classname=\"com.datamelt.util.RowFieldCollection\" method=\"getFieldValue\" parameter=\"amount\" parametertype=\"string\" type=\"integer\"/>\n"
+				+ "      <expected value=\"100\" type=\"integer\"/>\n"
+				+ "      <execute value=\"com.datamelt.rules.implementation.CheckIsGreater\"/>\n"
+				+ "    </rule>\n"
+				+ "  </subgroup>\n"
+				+ "</group>\n"
+				+ "</rulegroup>\n";
+		File file = File.createTempFile("parallelexecution", ".xml");
+		file.deleteOnExit();
+		try(FileOutputStream stream = new FileOutputStream(file))
+		{
+			stream.write(rules.getBytes(StandardCharsets.UTF_8));
+		}
+		return new BusinessRulesEngine(file.getPath());
+	}
+
+	private static ArrayList<Object> createRows(int numberOfRows)
+	{
+		ArrayList<Object> rows = new ArrayList<Object>();
+		for(int i=0;i<numberOfRows;i++)
+		{
+			rows.add(new RowFieldCollection(new String[] {"amount"}, new Object[] {String.valueOf(i % 200)}));
+		}
+		return rows;
+	}
+
+	private static ArrayList<String> getLabels(BusinessRulesEngine engine)
+	{
+		RuleExecutionCollection results = engine.getRuleExecutionCollection();
+		ArrayList<String> labels = new ArrayList<String>();
+		for(int i=0;i<results.size();i++)
+		{
+			labels.add(results.get(i).getObjectLabel());
+		}
+		return labels;
+	}
+
+	private static void assertSameResult(BusinessRulesEngine sequential, BusinessRulesEngine parallel, boolean ordered)
+	{
+		assertEquals(sequential.getNumberOfGroupsFailed(), parallel.getNumberOfGroupsFailed());
+		assertEquals(sequential.getNumberOfGroupsPassed(), parallel.getNumberOfGroupsPassed());
+		assertEquals(sequential.getNumberOfRulesFailed(), parallel.getNumberOfRulesFailed());
+		assertEquals(sequential.getNumberOfRulesPassed(), parallel.getNumberOfRulesPassed());
+
+		ArrayList<String> sequentialLabels = getLabels(sequential);
+		ArrayList<String> parallelLabels = getLabels(parallel);
+		if(!ordered)
+		{
+			Collections.sort(sequentialLabels);
+			Collections.sort(parallelLabels);
+		}
+		assertEquals(sequentialLabels, parallelLabels);
+	}
+
+	@Test
+	void testSameResultAsSequential() throws Exception
+	{
+		ArrayList<Object> rows = createRows(1000);
+		BusinessRulesEngine sequential = createEngine();
+		sequential.run(rows);
+		assertEquals(505, sequential.getNumberOfGroupsFailed());
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			int[] batchSizes = {1, 7, 64, 1000, 5000};
+			for(int i=0;i<batchSizes.length;i++)
+			{
+				for(int j=0;j<2;j++)
+				{
+					boolean ordered = j==0;
+					BusinessRulesEngine parallel = createEngine();
+					parallel.setForkJoinPool(pool);
+					parallel.setParallelBatchSize(batchSizes[i]);
+					parallel.setPreserveInputOrder(ordered);
+					parallel.runParallel(rows);
+					assertSameResult(sequential, parallel, ordered);
+				}
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void testLabelsSameAsSequential() throws Exception
+	{
+		ArrayList<Object> rows = createRows(300);
+		String[] objectsLabels = {"customer", "", null};
+		for(int i=0;i<objectsLabels.length;i++)
+		{
+			BusinessRulesEngine sequential = createEngine();
+			sequential.setObjectsLabel(objectsLabels[i]);
+			sequential.run(rows);
+
+			BusinessRulesEngine parallel = createEngine();
+			parallel.setObjectsLabel(objectsLabels[i]);
+			parallel.setParallelBatchSize(16);
+			parallel.runParallel(rows);
+
+			assertSameResult(sequential, parallel, true);
+		}
+	}
+
+	@Test
+	void testException() throws Exception
+	{
+		ArrayList<Object> rows = createRows(200);
+		// the field used by the rule is missing
+		rows.set(150, new RowFieldCollection(new String[] {"other"}, new Object[] {"1"}));
+
+		BusinessRulesEngine engine = createEngine();
+		engine.setParallelBatchSize(16);
+		Exception ex = assertThrows(Exception.class, () -> engine.runParallel(rows));
+		// the checked exception thrown by the rules is not wrapped
+		assertFalse(ex instanceof RuntimeException);
+	}
+
+	@Test
+	void testExecutorSameResultAsSequential() throws Exception
+	{
+		ArrayList<Object> rows = createRows(1000);
+		BusinessRulesEngine sequential = createEngine();
+		sequential.run(rows);
+
+		BusinessRulesEngine parallel = createEngine();
+		// small batches, so that multiple tasks are running
+		parallel.setParallelBatchSize(64);
+		ExecutorService executor = VirtualThreads.newTaskExecutor(true);
+		try
+		{
+			parallel.runParallel(rows.iterator(), executor);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		assertEquals(505, parallel.getNumberOfGroupsFailed());
+		assertSameResult(sequential, parallel, true);
+	}
+
+	@Test
+	void testExecutorException() throws Exception
+	{
+		ArrayList<Object> rows = createRows(200);
+		// the field used by the rule is missing
+		rows.set(150, new RowFieldCollection(new String[] {"other"}, new Object[] {"1"}));
+
+		BusinessRulesEngine engine = createEngine();
+		engine.setParallelBatchSize(16);
+		ExecutorService executor = VirtualThreads.newTaskExecutor(true);
+		try
+		{
+			Exception ex = assertThrows(Exception.class, () -> engine.runParallel(rows.iterator(), executor));
+			// the exception of the task is passed on - not the wrapper of the executor
+			assertFalse(ex instanceof ExecutionException);
+			assertFalse(ex instanceof RuntimeException);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testExecutorInterrupted() throws Exception
+	{
+		ArrayList<Object> rows = createRows(200);
+		BusinessRulesEngine engine = createEngine();
+		engine.setParallelBatchSize(16);
+		// the tasks of the engine wait behind a blocked task
+		CountDownLatch latch = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try
+		{
+			executor.submit(() -> { latch.await(); return null; });
+			Thread.currentThread().interrupt();
+			assertThrows(InterruptedException.class, () -> engine.runParallel(rows.iterator(), executor));
+			// the interrupted status is kept
+			assertTrue(Thread.interrupted());
+		}
+		finally
+		{
+			latch.countDown();
+			executor.shutdown();
+		}
+	}
+
+	private static File createAvroFile(int numberOfRecords) throws Exception
+	{
+		Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"row\",\"fields\":[{\"name\":\"amount\",\"type\":\"int\"}]}");
+		File file = File.createTempFile("parallelexecution", ".avro");
+		file.deleteOnExit();
+		try(DataFileWriter<GenericRecord> writer = new DataFileWriter<GenericRecord>(new GenericDatumWriter<GenericRecord>(schema)))
+		{
+			writer.setCodec(CodecFactory.deflateCodec(1));
+			// small blocks, so that the file contains multiple blocks
+			writer.setSyncInterval(128);
+			writer.create(schema, file);
+			for(int i=0;i<numberOfRecords;i++)
+			{
+				GenericRecord record = new GenericData.Record(schema);
+				record.put("amount", i % 200);
+				writer.append(record);
+			}
+		}
+		return file;
+	}
+
+	@Test
+	void testAvroParallelSameResultAsSequential() throws Exception
+	{
+		File file = createAvroFile(1000);
+
+		BusinessRulesEngine sequential = createEngine();
+		sequential.runAvro(file.getPath());
+
+		BusinessRulesEngine parallel = createEngine();
+		// small batches, so that multiple tasks are running
+		parallel.setParallelBatchSize(64);
+		parallel.runAvroParallel(file.getPath());
+
+		assertEquals(505, sequential.getNumberOfGroupsFailed());
+		assertEquals(sequential.getNumberOfGroupsFailed(), parallel.getNumberOfGroupsFailed());
+		assertEquals(sequential.getNumberOfRulesFailed(), parallel.getNumberOfRulesFailed());
+		assertEquals(sequential.getNumberOfRulesPassed(), parallel.getNumberOfRulesPassed());
+
+		RuleExecutionCollection sequentialResults = sequential.getRuleExecutionCollection();
+		RuleExecutionCollection parallelResults = parallel.getRuleExecutionCollection();
+		assertEquals(sequentialResults.size(), parallelResults.size());
+		for(int i=0;i<sequentialResults.size();i++)
+		{
+			assertEquals(sequentialResults.get(i).getObjectLabel(), parallelResults.get(i).getObjectLabel());
+		}
+	}
+
+	@Test
+	void testJdbcParallelSameResultAsSequential() throws Exception
+	{
+		String url = "jdbc:h2:mem:parallelexecution";
+		// the database exists as long as the connection is open
+		try(Connection connection = DriverManager.getConnection(url, "sa", ""))
+		{
+			connection.createStatement().execute("create table amounts (id bigint primary key, amount int)");
+			try(PreparedStatement statement = connection.prepareStatement("insert into amounts values (?, ?)"))
+			{
+				for(int i=0;i<1000;i++)
+				{
+					statement.setLong(1, i);
+					statement.setInt(2, i % 200);
+					statement.addBatch();
+				}
+				statement.executeBatch();
+			}
+
+			BusinessRulesEngine sequential = createEngine();
+			assertEquals(1000, sequential.runJdbc(connection, "select amount as \"amount\" from amounts order by id", 64));
+
+			BusinessRulesEngine parallel = createEngine();
+			PartitionedQuery query = new PartitionedQuery(url, "sa", "", "select amount as \"amount\" from amounts where id >= ? and id < ? order by id", 0, 999, 4);
+			query.setFetchSize(64);
+			ExecutorService executor = VirtualThreads.newTaskExecutor(true);
+			try
+			{
+				assertEquals(1000, parallel.runJdbcParallel(query, executor));
+			}
+			finally
+			{
+				executor.shutdown();
+			}
+
+			assertEquals(505, sequential.getNumberOfGroupsFailed());
+			assertEquals(sequential.getNumberOfGroupsFailed(), parallel.getNumberOfGroupsFailed());
+			assertEquals(sequential.getNumberOfRulesFailed(), parallel.getNumberOfRulesFailed());
+			assertEquals(sequential.getNumberOfRulesPassed(), parallel.getNumberOfRulesPassed());
+			assertEquals("row: 0", sequential.getRuleExecutionCollection().get(0).getObjectLabel());
+			// the results are merged in the order of the partitions
+			RuleExecutionCollection results = parallel.getRuleExecutionCollection();
+			assertTrue(results.get(0).getObjectLabel().startsWith("partition: 0, row: "));
+			assertTrue(results.get(results.size() - 1).getObjectLabel().startsWith("partition: 3, row: "));
+		}
+	}
+}
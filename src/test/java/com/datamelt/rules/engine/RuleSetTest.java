@@ -0,0 +1,172 @@
+package com.datamelt.rules.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.RowFieldCollection;
+
+class RuleSetTest
+{
+	private static final String RULE_AMOUNT = "    <rule id=\"r1\" description=\"amount greater\">\n"
+			+ "      <object classname=\"com.datamelt.util.RowFieldCollection\" method=\"getFieldValue\" parameter=\"amount\" parametertype=\"string\" type=\"integer\"/>\n"
+			+ "      <expected value=\"100\" type=\"integer\"/>\n"
+			+ "      <execute value=\"com.datamelt.rules.implementation.CheckIsGreater\"/>\n"
+			+ "    </rule>\n";
+
+	private static String createGroup(String id, String attributes, String rule)
+	{
+		return "<group id=\"" + id + "\" description=\"amount group\" validfrom=\"2000-01-01\" validuntil=\"2099-12-31\"" + attributes + ">\n"
+				+ "  <subgroup id=\"s1\" description=\"amount\" ruleoperator=\"and\">\n"
+				+ rule
+				+ "  </subgroup>\n"
+				+ "</group>\n";
+	}
+
+	private static BusinessRulesEngine createEngine(String groups) throws Exception
+	{
+		String rules = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<rulegroup>\n"
+				+ groups
+				+ "</rulegroup>\n";
+		File file = File.createTempFile("ruleset", ".xml");
+		file.deleteOnExit();
+		try(FileOutputStream stream = new FileOutputStream(file))
+		{
+			stream.write(rules.getBytes(StandardCharsets.UTF_8));
+		}
+		return new BusinessRulesEngine(file.getPath());
+	}
+
+	private static RowFieldCollection createRow(int amount)
+	{
+		return new RowFieldCollection(new String[] {"amount"}, new Object[] {amount});
+	}
+
+	@Test
+	void testContextsAreIndependent() throws Exception
+	{
+		RuleSet ruleSet = createEngine(createGroup("g1", "", RULE_AMOUNT)).getRuleSet();
+		RuleExecutionContext failingContext = ruleSet.createExecutionContext();
+		RuleExecutionContext passingContext = ruleSet.createExecutionContext();
+
+		failingContext.run("row: 0", createRow(50));
+		passingContext.run("row: 0", createRow(150));
+		passingContext.run("row: 1", createRow(250));
+
+		assertTrue(failingContext.getRuleGroupFailed("g1"));
+		assertFalse(passingContext.getRuleGroupFailed("g1"));
+		assertEquals(1, failingContext.getNumberOfGroupsFailed());
+		assertEquals(0, failingContext.getNumberOfGroupsPassed());
+		assertEquals(0, passingContext.getNumberOfGroupsFailed());
+		assertEquals(2, passingContext.getNumberOfGroupsPassed());
+		assertEquals(1, failingContext.getNumberOfRulesFailed());
+		assertEquals(2, passingContext.getNumberOfRulesPassed());
+
+		// the contexts have their own copies of the groups, the definitions are shared
+		assertNotSame(failingContext.getGroupById("g1"), passingContext.getGroupById("g1"));
+		assertNotSame(ruleSet.getGroups().get(0), failingContext.getGroupById("g1"));
+		assertThrows(UnsupportedOperationException.class, () -> ruleSet.getGroups().clear());
+	}
+
+	@Test
+	void testContextsInParallelThreads() throws Exception
+	{
+		final RuleSet ruleSet = createEngine(createGroup("g1", "", RULE_AMOUNT)).getRuleSet();
+		final RuleExecutionContext[] contexts = new RuleExecutionContext[4];
+		Thread[] threads = new Thread[contexts.length];
+		final Exception[] exceptions = new Exception[contexts.length];
+		for(int i=0;i<threads.length;i++)
+		{
+			final int number = i;
+			contexts[number] = ruleSet.createExecutionContext();
+			threads[number] = new Thread(() ->
+			{
+				try
+				{
+					// context n runs n failing and 1000 - n passing rows
+					for(int j=0;j<1000;j++)
+					{
+						contexts[number].run("row: " + j, createRow(j<number ? 50 : 150));
+					}
+				}
+				catch(Exception ex)
+				{
+					exceptions[number] = ex;
+				}
+			});
+			threads[number].start();
+		}
+		for(int i=0;i<threads.length;i++)
+		{
+			threads[i].join();
+			assertNull(exceptions[i]);
+			assertEquals(i, contexts[i].getNumberOfGroupsFailed());
+			assertEquals(1000 - i, contexts[i].getNumberOfGroupsPassed());
+		}
+	}
+
+	@Test
+	void testValidate() throws Exception
+	{
+		createEngine(createGroup("g1", "", RULE_AMOUNT) + createGroup("g2", " dependentgroupid=\"g1\"", RULE_AMOUNT)).getRuleSet().validate();
+	}
+
+	@Test
+	void testValidateDuplicateGroupId() throws Exception
+	{
+		RuleSet ruleSet = createEngine(createGroup("g1", "", RULE_AMOUNT) + createGroup("g1", "", RULE_AMOUNT)).getRuleSet();
+		Exception ex = assertThrows(Exception.class, () -> ruleSet.validate());
+		assertTrue(ex.getMessage().contains("duplicate group id [g1]"));
+	}
+
+	@Test
+	void testValidateMissingDependentGroup() throws Exception
+	{
+		RuleSet ruleSet = createEngine(createGroup("g1", " dependentgroupid=\"g9\"", RULE_AMOUNT)).getRuleSet();
+		Exception ex = assertThrows(Exception.class, () -> ruleSet.validate());
+		assertTrue(ex.getMessage().contains("group [g1] depends on the undefined group [g9]"));
+	}
+
+	@Test
+	void testValidateMethodError() throws Exception
+	{
+		RuleSet ruleSet = createEngine(createGroup("g1", "", RULE_AMOUNT.replace("CheckIsGreater", "CheckDoesNotExist"))).getRuleSet();
+		Exception ex = assertThrows(Exception.class, () -> ruleSet.validate());
+		assertTrue(ex.getMessage().contains("rule [r1] of group [g1]"));
+	}
+
+	@Test
+	void testHeaderRowsAreShared() throws Exception
+	{
+		BusinessRulesEngine engine = createEngine(createGroup("g1", "", RULE_AMOUNT));
+		String[] fieldNames = {"id","amount"};
+		HeaderRow header = engine.getHeaderRow(fieldNames);
+		// the array may be reused by the caller
+		fieldNames[1] = "other";
+
+		assertSame(header, engine.getHeaderRow(new String[] {"id","amount"}));
+		assertEquals(1, header.getFieldIndex("amount"));
+		assertNotSame(header, engine.getHeaderRow(new String[] {"amount","id"}));
+	}
+
+	@Test
+	void testEngineDoesNotRunRuleSetGroups() throws Exception
+	{
+		BusinessRulesEngine engine = createEngine(createGroup("g1", "", RULE_AMOUNT));
+		engine.setOutputType(BusinessRulesEngine.OUTPUT_TYPE_FAILED_AND_PASSED);
+		engine.run("row", createRow(50));
+
+		RuleSet ruleSet = engine.getRuleSet();
+		// the engine runs its own copies of the groups
+		assertNotSame(ruleSet.getGroups().get(0), engine.getGroups().get(0));
+		assertEquals(1, engine.getGroups().get(0).getSubGroups().get(0).getResults().size());
+		assertEquals(0, ruleSet.getGroups().get(0).getSubGroups().get(0).getResults().size());
+		assertEquals(1, engine.getNumberOfGroupsFailed());
+	}
+}
@@ -0,0 +1,76 @@
+package com.datamelt.rules.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest
+{
+	@Test
+	void testBucketsAreContiguous()
+	{
+		long previousUpperBound = -1;
+		for(int i=0;i<LatencyHistogram.getBucketIndex(Long.MAX_VALUE);i++)
+		{
+			long upperBound = LatencyHistogram.getBucketUpperBound(i);
+			assertEquals(i, LatencyHistogram.getBucketIndex(previousUpperBound + 1));
+			assertEquals(i, LatencyHistogram.getBucketIndex(upperBound));
+			previousUpperBound = upperBound;
+		}
+		assertEquals(Long.MAX_VALUE, LatencyHistogram.getBucketUpperBound(LatencyHistogram.getBucketIndex(Long.MAX_VALUE)));
+	}
+
+	@Test
+	void testPercentiles()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		for(long value=1;value<=10000;value++)
+		{
+			histogram.record(value * 1000);
+		}
+		assertEquals(10000, histogram.getCount());
+		assertEquals(10000000, histogram.getMax());
+		assertEquals(5000500, histogram.getMean(), 0.001);
+		// the percentiles are accurate to the size of the buckets
+		assertEquals(5000000, histogram.getValueAtPercentile(50), 5000000 / 32);
+		assertEquals(9900000, histogram.getValueAtPercentile(99), 9900000 / 32);
+		assertTrue(histogram.getValueAtPercentile(50)>=5000000);
+		assertTrue(histogram.getValueAtPercentile(100)>=10000000);
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getValueAtPercentile(99));
+	}
+
+	@Test
+	void testConcurrentRecording() throws Exception
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		Thread[] threads = new Thread[4];
+		for(int i=0;i<threads.length;i++)
+		{
+			threads[i] = new Thread(() ->
+			{
+				for(int n=0;n<100000;n++)
+				{
+					histogram.record(n % 1000);
+				}
+			});
+			threads[i].start();
+		}
+		for(Thread thread : threads)
+		{
+			thread.join();
+		}
+		assertEquals(400000, histogram.getCount());
+		long total = 0;
+		for(long count : histogram.getCounts())
+		{
+			total += count;
+		}
+		assertEquals(400000, total);
+		assertEquals(999, histogram.getMax());
+	}
+}
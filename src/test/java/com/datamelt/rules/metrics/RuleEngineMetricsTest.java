@@ -0,0 +1,150 @@
+package com.datamelt.rules.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import javax.management.MBeanServer;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.rules.engine.RuleExecutionContext;
+import com.datamelt.util.RowFieldCollection;
+
+class RuleEngineMetricsTest
+{
+	private static final String RULES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<rulegroup>\n"
+			+ "<group id=\"g1\" description=\"amount group\" validfrom=\"2000-01-01\" validuntil=\"2099-12-31\">\n"
+			+ "  <subgroup id=\"s1\" description=\"amount\" ruleoperator=\"and\">\n"
+			+ "    <rule id=\"r1\" description=\"amount greater\">\n"
+			+ "      <object classname=\"com.datamelt.util.RowFieldCollection\" method=\"getFieldValue\" parameter=\"amount\" parametertype=\"string\" type=\"integer\"/>\n"
+			+ "      <expected value=\"100\" type=\"integer\"/>\n"
+			+ "      <execute value=\"com.datamelt.rules.implementation.CheckIsGreater\"/>\n"
+			+ "    </rule>\n"
+			+ "    <rule id=\"r2\" description=\"amount not null\">\n"
+			+ "      <object classname=\"com.datamelt.util.RowFieldCollection\" method=\"getFieldValue\" parameter=\"amount\" parametertype=\"string\" type=\"integer\"/>\n"
+			+ "      <execute value=\"com.datamelt.rules.implementation.CheckIsNotNull\"/>\n"
+			+ "    </rule>\n"
+			+ "  </subgroup>\n"
+			+ "  <action id=\"a1\" description=\"set flag\" classname=\"com.datamelt.rules.core.action.StringAction\" method=\"setValue\" executeif=\"passed\">\n"
+			+ "    <object classname=\"com.datamelt.util.RowFieldCollection\" method=\"setFieldValue\" type=\"setter\" returntype=\"string\">\n"
+			+ "      <parameter type=\"string\" value=\"flag\"/>\n"
+			+ "      <parameter type=\"string\" value=\"\" settervalue=\"true\"/>\n"
+			+ "    </object>\n"
+			+ "    <parameter type=\"string\" value=\"CHECKED\"/>\n"
+			+ "  </action>\n"
+			+ "</group>\n"
+			+ "</rulegroup>\n";
+
+	private static File createRuleFile() throws Exception
+	{
+		File file = File.createTempFile("rulesmetrics", ".zip");
+		file.deleteOnExit();
+		try(ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file)))
+		{
+			stream.putNextEntry(new ZipEntry("rules.xml"));
+			stream.write(RULES.getBytes(StandardCharsets.UTF_8));
+			stream.closeEntry();
+		}
+		return file;
+	}
+
+	private static BusinessRulesEngine createRuleEngine() throws Exception
+	{
+		return new BusinessRulesEngine(new ZipFile(createRuleFile()));
+	}
+
+	private static RowFieldCollection createRow(int amount) throws Exception
+	{
+		return new RowFieldCollection(new String[] {"amount","flag"}, new Object[] {amount, ""});
+	}
+
+	@Test
+	void testExecutionsAreRecorded() throws Exception
+	{
+		BusinessRulesEngine ruleEngine = createRuleEngine();
+		RuleEngineMetrics metrics = new RuleEngineMetrics();
+		ruleEngine.setMetrics(metrics);
+		RuleExecutionContext context = ruleEngine.createExecutionContext();
+		for(int i=0;i<10;i++)
+		{
+			// every second row fails the group
+			context.run("row", createRow(i % 2 == 0 ? 50 : 500));
+		}
+
+		assertEquals(10, metrics.getGroupMetrics("g1").getInvocations());
+		assertEquals(5, metrics.getGroupMetrics("g1").getFailures());
+		assertEquals(10, metrics.getSubGroupMetrics("g1", "s1").getInvocations());
+		assertEquals(5, metrics.getSubGroupMetrics("g1", "s1").getFailures());
+		assertEquals(5, metrics.getRuleMetrics("r1").getFailures());
+		assertEquals(0, metrics.getRuleMetrics("r2").getFailures());
+		assertEquals(10, metrics.getRuleMetrics("r2").getInvocations());
+		// the action is only run for the rows that passed
+		assertEquals(5, metrics.getActionMetrics("a1").getInvocations());
+		assertEquals(0, metrics.getActionMetrics("a1").getFailures());
+
+		ExecutionMetricsSnapshot snapshot = metrics.getGroups().get(0);
+		assertEquals("g1", snapshot.getId());
+		assertEquals(0.5, snapshot.getFailureRate(), 0.0001);
+		assertTrue(snapshot.getMaxNanos()>0);
+		assertTrue(snapshot.getP99Nanos()>=snapshot.getP50Nanos());
+		assertEquals(2, metrics.getRules().size());
+		assertTrue(metrics.getReport().contains("rule [r1] invocations: 10, failures: 5"));
+
+		metrics.reset();
+		assertEquals(0, metrics.getGroupMetrics("g1").getInvocations());
+		assertEquals(0, metrics.getRules().get(0).getInvocations());
+	}
+
+	@Test
+	void testNoMetricsByDefault() throws Exception
+	{
+		BusinessRulesEngine ruleEngine = createRuleEngine();
+		ruleEngine.run("row", createRow(500));
+		assertNull(ruleEngine.getMetrics());
+		assertNull(ruleEngine.getGroups().get(0).getMetrics());
+	}
+
+	@Test
+	void testMetricsAreKeptWhenRulesAreReloaded() throws Exception
+	{
+		BusinessRulesEngine ruleEngine = createRuleEngine();
+		RuleEngineMetrics metrics = new RuleEngineMetrics();
+		ruleEngine.setMetrics(metrics);
+		ruleEngine.run("row", createRow(500));
+		ruleEngine.reloadZipFile(new ZipFile(createRuleFile()));
+		ruleEngine.run("row", createRow(500));
+		assertEquals(2, metrics.getGroupMetrics("g1").getInvocations());
+		assertEquals(2, metrics.getActionMetrics("a1").getInvocations());
+	}
+
+	@Test
+	void testMBean() throws Exception
+	{
+		RuleEngineMetrics metrics = new RuleEngineMetrics();
+		metrics.getRuleMetrics("r1").record(1000, true);
+		metrics.registerMBean("metricstest");
+		try
+		{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertTrue(server.isRegistered(metrics.getObjectName()));
+			String report = (String)server.getAttribute(metrics.getObjectName(), "Report");
+			assertTrue(report.contains("rule [r1] invocations: 1, failures: 1"));
+			server.invoke(metrics.getObjectName(), "reset", null, null);
+			assertEquals(0, metrics.getRuleMetrics("r1").getInvocations());
+		}
+		finally
+		{
+			metrics.unregisterMBean();
+		}
+		assertNull(metrics.getObjectName());
+	}
+}
@@ -0,0 +1,239 @@
+package com.datamelt.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.util.RowFieldCollection;
+
+class RuleEngineNioServerTest
+{
+	private static final String RULES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<rulegroup>\n"
+			+ "<group id=\"g1\" description=\"amount group\" validfrom=\"2000-01-01\" validuntil=\"2099-12-31\">\n"
+			+ "  <subgroup id=\"s1\" description=\"amount\" ruleoperator=\"and\">\n"
+			+ "    <rule id=\"r1\" description=\"amount greater 100\">\n"
+			+ "      <object classname=\"com.datamelt.util.RowFieldCollection\" method=\"getFieldValue\" parameter=\"amount\" parametertype=\"string\" type=\"integer\"/>\n"
+			+ "      <expected value=\"100\" type=\"integer\"/>\n"
+			+ "      <execute value=\"com.datamelt.rules.implementation.CheckIsGreater\"/>\n"
+			+ "    </rule>\n"
+			+ "  </subgroup>\n"
+			+ "</group>\n"
+			+ "</rulegroup>\n";
+
+	private BusinessRulesEngine ruleEngine;
+	private RuleEngineNioServer server;
+
+	@BeforeEach
+	void startServer() throws Exception
+	{
+		File file = File.createTempFile("nioserver", ".xml");
+		file.deleteOnExit();
+		try(FileOutputStream stream = new FileOutputStream(file))
+		{
+			stream.write(RULES.getBytes(StandardCharsets.UTF_8));
+		}
+		ruleEngine = new BusinessRulesEngine(new File[] {file});
+		server = new RuleEngineNioServer(ruleEngine, null, ".", "rules.zip", 1, 2, 8);
+		server.start(0);
+	}
+
+	@AfterEach
+	void stopServer()
+	{
+		server.stop();
+	}
+
+	private static RowFieldCollection createRow(String amount)
+	{
+		return new RowFieldCollection(new String[] {"amount"}, new Object[] {amount});
+	}
+
+	@Test
+	void testFramedProtocol() throws Exception
+	{
+		RuleEngineClient client = new RuleEngineClient("127.0.0.1", server.getPort(), RuleEngineClient.PROTOCOL_FRAMED);
+		assertEquals("hello client", client.getServerObject(ClientHandler.RESPONSE_HELLO));
+		assertEquals("1", client.getServerObject(ClientHandler.RESPONSE_NUMBER_OF_GROUPS));
+
+		RuleEngineServerObject failed = client.getServerObject(createRow("50"));
+		assertFalse(failed.getRuleEngineException());
+		assertEquals(1, failed.getTotalGroups());
+		assertEquals(1, failed.getGroupsFailed());
+		assertEquals(1, failed.getRulesFailed());
+
+		RuleEngineServerObject passed = client.getServerObject(createRow("500"));
+		assertEquals(0, passed.getGroupsFailed());
+		assertEquals("2", client.getServerObject(ClientHandler.RESPONSE_ROWSPROCESSED));
+
+		assertEquals(ClientHandler.RESPONSE_EXIT, client.getServerObject(ClientHandler.RESPONSE_EXIT));
+		client.closeSocket();
+	}
+
+	private static void assertBinaryProtocol(RuleEngineClient client) throws Exception
+	{
+		assertEquals(RuleEngineClient.PROTOCOL_BINARY, client.getProtocol());
+		assertEquals("hello client", client.getServerObject(ClientHandler.RESPONSE_HELLO));
+
+		RuleEngineServerObject failed = client.getServerObject(createRow("50"));
+		assertFalse(failed.getRuleEngineException());
+		assertEquals(1, failed.getTotalGroups());
+		assertEquals(1, failed.getTotalRules());
+		assertEquals(1, failed.getGroupsFailed());
+		assertTrue(failed.getFailedGroups().get(0));
+		assertTrue(failed.getFailedRules().get(0));
+
+		// typed values and a different header
+		RuleEngineServerObject passed = client.getServerObject(new RowFieldCollection(new String[] {"id","amount"}, new Object[] {7L, 500}));
+		assertEquals(0, passed.getGroupsFailed());
+		assertTrue(passed.getFailedRules().isEmpty());
+		assertEquals(500, passed.getFields().getFieldValue("amount"));
+
+		assertEquals("2", client.getServerObject(ClientHandler.RESPONSE_ROWSPROCESSED));
+		assertEquals(ClientHandler.RESPONSE_EXIT, client.getServerObject(ClientHandler.RESPONSE_EXIT));
+		client.closeSocket();
+	}
+
+	@Test
+	void testBinaryProtocol() throws Exception
+	{
+		assertBinaryProtocol(new RuleEngineClient("127.0.0.1", server.getPort(), RuleEngineClient.PROTOCOL_BINARY));
+	}
+
+	@Test
+	void testBinaryProtocolWithClientHandler() throws Exception
+	{
+		try(ServerSocket serverSocket = new ServerSocket(0))
+		{
+			Thread acceptor = new Thread(() ->
+			{
+				try
+				{
+					Socket socket = serverSocket.accept();
+					new Thread(new ClientHandler("test", socket, socket.getInputStream(), false, ruleEngine, null, ".", "rules.zip", System.currentTimeMillis())).start();
+				}
+				catch(Exception ex)
+				{
+					fail(ex);
+				}
+			});
+			acceptor.start();
+			assertBinaryProtocol(new RuleEngineClient("127.0.0.1", serverSocket.getLocalPort(), RuleEngineClient.PROTOCOL_BINARY));
+			acceptor.join();
+		}
+	}
+
+	private static void assertBatchAndPipeline(RuleEngineClient client) throws Exception
+	{
+		ArrayList<RowFieldCollection> rows = new ArrayList<RowFieldCollection>();
+		for(int i=0;i<10;i++)
+		{
+			rows.add(createRow(i % 2==0 ? "150" : "10"));
+		}
+		// a different header starts a new batch
+		rows.add(new RowFieldCollection(new String[] {"id","amount"}, new Object[] {1L, 5}));
+		List<RuleEngineServerObject> results = client.getServerObjects(rows);
+		assertEquals(rows.size(), results.size());
+		for(int i=0;i<10;i++)
+		{
+			assertEquals(i % 2, results.get(i).getGroupsFailed());
+			assertEquals(rows.get(i).getFieldValue("amount"), results.get(i).getFields().getFieldValue("amount"));
+		}
+		assertEquals(1, results.get(10).getGroupsFailed());
+
+		client.setPipelineWindow(4);
+		ArrayList<CompletableFuture<RuleEngineServerObject>> futures = new ArrayList<CompletableFuture<RuleEngineServerObject>>();
+		for(int i=0;i<50;i++)
+		{
+			futures.add(client.getServerObjectAsync(createRow(i % 3==0 ? "10" : "150")));
+		}
+		for(int i=0;i<50;i++)
+		{
+			assertEquals(i % 3==0 ? 1 : 0, futures.get(i).get().getGroupsFailed());
+		}
+		// synchronous requests wait for the pending results
+		client.getServerObjectAsync(createRow("1"));
+		assertEquals("62", client.getServerObject(ClientHandler.RESPONSE_ROWSPROCESSED));
+		assertEquals(ClientHandler.RESPONSE_EXIT, client.getServerObject(ClientHandler.RESPONSE_EXIT));
+		client.closeSocket();
+	}
+
+	@Test
+	void testBatchAndPipeline() throws Exception
+	{
+		assertBatchAndPipeline(new RuleEngineClient("127.0.0.1", server.getPort(), RuleEngineClient.PROTOCOL_BINARY));
+		assertBatchAndPipeline(new RuleEngineClient("127.0.0.1", server.getPort(), RuleEngineClient.PROTOCOL_FRAMED));
+		// handed over to a ClientHandler
+		assertBatchAndPipeline(new RuleEngineClient("127.0.0.1", server.getPort()));
+	}
+
+	@Test
+	void testObjectStreamClientIsHandedOver() throws Exception
+	{
+		RuleEngineClient client = new RuleEngineClient("127.0.0.1", server.getPort());
+		assertEquals("hello client", client.getServerObject(ClientHandler.RESPONSE_HELLO));
+		assertEquals(1, client.getServerObject(createRow("50")).getGroupsFailed());
+		assertEquals(ClientHandler.RESPONSE_EXIT, client.getServerObject(ClientHandler.RESPONSE_EXIT));
+		client.closeSocket();
+	}
+
+	@Test
+	void testConnectionsShareWorkers() throws Exception
+	{
+		RuleEngineClient[] clients = new RuleEngineClient[6];
+		for(int i=0;i<clients.length;i++)
+		{
+			clients[i] = new RuleEngineClient("127.0.0.1", server.getPort(), RuleEngineClient.PROTOCOL_FRAMED);
+		}
+		for(int row=0;row<20;row++)
+		{
+			for(RuleEngineClient client : clients)
+			{
+				assertEquals(row % 2, client.getServerObject(createRow(row % 2==0 ? "150" : "10")).getGroupsFailed());
+			}
+		}
+		assertEquals(clients.length, server.getNumberOfConnections());
+		for(RuleEngineClient client : clients)
+		{
+			client.getServerObject(ClientHandler.RESPONSE_EXIT);
+			client.closeSocket();
+		}
+	}
+
+	@Test
+	void testBatchLargerThanFrame() throws Exception
+	{
+		char[] text = new char[1024 * 1024];
+		Arrays.fill(text, 'x');
+		ArrayList<RowFieldCollection> rows = new ArrayList<RowFieldCollection>();
+		for(int i=0;i<20;i++)
+		{
+			rows.add(new RowFieldCollection(new String[] {"amount","text"}, new Object[] {i % 2==0 ? "150" : "10", new String(text)}));
+		}
+		for(int protocol : new int[] {RuleEngineClient.PROTOCOL_BINARY, RuleEngineClient.PROTOCOL_FRAMED})
+		{
+			RuleEngineClient client = new RuleEngineClient("127.0.0.1", server.getPort(), protocol);
+			List<RuleEngineServerObject> results = client.getServerObjects(rows);
+			assertEquals(rows.size(), results.size());
+			for(int i=0;i<rows.size();i++)
+			{
+				assertEquals(i % 2, results.get(i).getGroupsFailed());
+			}
+			assertEquals(ClientHandler.RESPONSE_EXIT, client.getServerObject(ClientHandler.RESPONSE_EXIT));
+			client.closeSocket();
+		}
+	}
+}
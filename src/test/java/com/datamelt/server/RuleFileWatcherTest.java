@@ -0,0 +1,103 @@
+package com.datamelt.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.rules.engine.RuleExecutionContext;
+import com.datamelt.util.RowFieldCollection;
+
+class RuleFileWatcherTest
+{
+	private static String createRules(String expected, String check)
+	{
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<rulegroup>\n"
+				+ "<group id=\"g1\" description=\"amount group\" validfrom=\"2000-01-01\" validuntil=\"2099-12-31\">\n"
+				+ "  <subgroup id=\"s1\" description=\"amount\" ruleoperator=\"and\">\n"
+				+ "    <rule id=\"r1\" description=\"amount greater\">\n"
+				+ "      <object classname=\"com.datamelt.util.RowFieldCollection\" method=\"getFieldValue\" parameter=\"amount\" parametertype=\"string\" type=\"integer\"/>\n"
+				+ "      <expected value=\"" + expected + "\" type=\"integer\"/>\n"
+				+ "      <execute value=\"com.datamelt.rules.implementation." + check + "\"/>\n"
+				+ "    </rule>\n"
+				+ "  </subgroup>\n"
+				+ "</group>\n"
+				+ "</rulegroup>\n";
+	}
+
+	private static void writeZip(File file, String rules, long lastModified) throws Exception
+	{
+		try(ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file)))
+		{
+			stream.putNextEntry(new ZipEntry("rules.xml"));
+			stream.write(rules.getBytes(StandardCharsets.UTF_8));
+			stream.closeEntry();
+		}
+		file.setLastModified(lastModified);
+	}
+
+	private static long getGroupsFailed(RuleExecutionContext context, String amount) throws Exception
+	{
+		context.run("row", new RowFieldCollection(new String[] {"amount"}, new Object[] {amount}));
+		long failed = context.getNumberOfGroupsFailed();
+		context.clear();
+		return failed;
+	}
+
+	@Test
+	void testModifiedFileIsReloaded() throws Exception
+	{
+		File file = File.createTempFile("rulefilewatcher", ".zip");
+		file.deleteOnExit();
+		writeZip(file, createRules("100", "CheckIsGreater"), System.currentTimeMillis() - 60000);
+		BusinessRulesEngine ruleEngine = new BusinessRulesEngine(new ZipFile(file));
+		assertEquals(1, ruleEngine.getRuleSet().getVersion());
+		RuleExecutionContext oldContext = ruleEngine.createExecutionContext();
+
+		RuleFileWatcher watcher = new RuleFileWatcher(ruleEngine, file.getPath(), 1000);
+		assertFalse(watcher.check());
+
+		writeZip(file, createRules("1000", "CheckIsGreater"), System.currentTimeMillis() + 5000);
+		// the file is only loaded when it did not change since the previous check
+		assertFalse(watcher.check());
+		assertTrue(watcher.check());
+		assertEquals(2, ruleEngine.getRuleSet().getVersion());
+
+		// a context of the previous version still uses the previous rules
+		assertEquals(0, getGroupsFailed(oldContext, "500"));
+		assertEquals(1, getGroupsFailed(ruleEngine.createExecutionContext(), "500"));
+	}
+
+	@Test
+	void testInvalidFileKeepsRules() throws Exception
+	{
+		File file = File.createTempFile("rulefilewatcher", ".zip");
+		file.deleteOnExit();
+		writeZip(file, createRules("100", "CheckIsGreater"), System.currentTimeMillis() - 60000);
+		BusinessRulesEngine ruleEngine = new BusinessRulesEngine(new ZipFile(file));
+		RuleFileWatcher watcher = new RuleFileWatcher(ruleEngine, file.getPath(), 1000);
+
+		writeZip(file, createRules("100", "CheckDoesNotExist"), System.currentTimeMillis() + 5000);
+		assertFalse(watcher.check());
+		assertFalse(watcher.check());
+		assertFalse(watcher.check());
+		assertEquals(1, ruleEngine.getRuleSet().getVersion());
+		assertEquals(0, getGroupsFailed(ruleEngine.createExecutionContext(), "500"));
+
+		ServerSession session = new ServerSession("test", ruleEngine, null, file.getParent() + File.separator, file.getName(), System.currentTimeMillis());
+		assertTrue(session.processMessage(ClientHandler.RESPONSE_RELOAD).startsWith("error reloading rule file"));
+		assertTrue(session.processMessage(ClientHandler.RESPONSE_RULESET).startsWith("version: 1,"));
+
+		writeZip(file, createRules("1000", "CheckIsGreater"), System.currentTimeMillis() + 10000);
+		assertTrue(session.processMessage(ClientHandler.RESPONSE_RELOAD).startsWith("reloaded rule file"));
+		assertTrue(session.processMessage(ClientHandler.RESPONSE_RULESET).startsWith("version: 2,"));
+	}
+}
@@ -0,0 +1,181 @@
+package com.datamelt.server.transform;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.core.RuleGroup;
+import com.datamelt.server.RuleEngineServerObject;
+
+class AsyncTransformerTest
+{
+	private static class RecordingTransformer extends Transformer
+	{
+		private final ArrayList<String> labels = new ArrayList<String>();
+		private final ArrayList<Integer> batchSizes = new ArrayList<Integer>();
+		private final CountDownLatch release;
+		private boolean closed = false;
+
+		private RecordingTransformer(CountDownLatch release) throws Exception
+		{
+			this.release = release;
+		}
+
+		public void init() throws Exception
+		{
+		}
+
+		public void write(RuleEngineServerObject serverObject, ArrayList<RuleGroup> groups) throws Exception
+		{
+			labels.add(serverObject.getObjectLabel());
+		}
+
+		public void write(List<RuleEngineServerObject> serverObjects) throws Exception
+		{
+			release.await();
+			batchSizes.add(serverObjects.size());
+			super.write(serverObjects);
+		}
+
+		public void close() throws Exception
+		{
+			closed = true;
+		}
+	}
+
+	private static AsyncTransformer createTransformer(RecordingTransformer recorder, int queueSize, int flushSize, String overflow) throws Exception
+	{
+		Properties properties = new Properties();
+		properties.setProperty(AsyncTransformer.PROPERTY_QUEUE_SIZE, String.valueOf(queueSize));
+		properties.setProperty(AsyncTransformer.PROPERTY_FLUSH_SIZE, String.valueOf(flushSize));
+		properties.setProperty(AsyncTransformer.PROPERTY_FLUSH_INTERVAL, "50");
+		properties.setProperty(AsyncTransformer.PROPERTY_OVERFLOW, overflow);
+		AsyncTransformer transformer = new AsyncTransformer(recorder);
+		transformer.setProperties(properties);
+		transformer.init();
+		return transformer;
+	}
+
+	private static RuleEngineServerObject createServerObject(int number)
+	{
+		RuleEngineServerObject serverObject = new RuleEngineServerObject();
+		serverObject.setObjectLabel("row " + number);
+		return serverObject;
+	}
+
+	@Test
+	void testRowsAreWrittenInBatches() throws Exception
+	{
+		RecordingTransformer recorder = new RecordingTransformer(new CountDownLatch(0));
+		AsyncTransformer transformer = createTransformer(recorder, 50, 20, AsyncTransformer.OVERFLOW_BLOCK);
+		for(int i=0;i<250;i++)
+		{
+			transformer.write(createServerObject(i), new ArrayList<RuleGroup>());
+		}
+		transformer.close();
+
+		assertTrue(recorder.closed);
+		assertEquals(250, recorder.labels.size());
+		for(int i=0;i<250;i++)
+		{
+			assertEquals("row " + i, recorder.labels.get(i));
+		}
+		for(Integer batchSize : recorder.batchSizes)
+		{
+			assertTrue(batchSize<=20);
+		}
+		assertEquals(250, transformer.getNumberOfWrittenRows());
+		assertEquals(0, transformer.getNumberOfDroppedRows());
+		assertThrows(Exception.class, () -> transformer.write(createServerObject(250), new ArrayList<RuleGroup>()));
+	}
+
+	@Test
+	void testRowsAreDroppedWhenQueueIsFull() throws Exception
+	{
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingTransformer recorder = new RecordingTransformer(release);
+		AsyncTransformer transformer = createTransformer(recorder, 5, 1, AsyncTransformer.OVERFLOW_DROP);
+		// the writer is blocked, so at most one batch and the queue can take rows
+		for(int i=0;i<20;i++)
+		{
+			transformer.write(createServerObject(i), new ArrayList<RuleGroup>());
+		}
+		assertTrue(transformer.getNumberOfDroppedRows()>=14);
+		release.countDown();
+		transformer.close();
+
+		assertEquals(20, transformer.getNumberOfWrittenRows() + transformer.getNumberOfDroppedRows());
+		assertEquals(recorder.labels.size(), transformer.getNumberOfWrittenRows());
+	}
+
+	@Test
+	void testCloseWhileWritersAreBlocked() throws Exception
+	{
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingTransformer recorder = new RecordingTransformer(release);
+		AsyncTransformer transformer = createTransformer(recorder, 2, 1, AsyncTransformer.OVERFLOW_BLOCK);
+
+		// the writer is blocked, so the threads wait for space in the queue
+		AtomicInteger acceptedRows = new AtomicInteger();
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		for(int t=0;t<4;t++)
+		{
+			final int thread = t;
+			threads.add(new Thread(() ->
+			{
+				for(int i=0;i<25;i++)
+				{
+					try
+					{
+						transformer.write(createServerObject(thread * 100 + i), new ArrayList<RuleGroup>());
+						acceptedRows.incrementAndGet();
+					}
+					catch(Exception ex)
+					{
+						// the transformer is closed
+						return;
+					}
+				}
+			}));
+		}
+		for(Thread thread : threads)
+		{
+			thread.start();
+		}
+		Thread.sleep(100);
+
+		Thread closer = new Thread(() ->
+		{
+			try
+			{
+				transformer.close();
+			}
+			catch(Exception ex)
+			{
+				fail(ex);
+			}
+		});
+		closer.start();
+		Thread.sleep(100);
+		release.countDown();
+
+		closer.join(10000);
+		assertFalse(closer.isAlive());
+		for(Thread thread : threads)
+		{
+			thread.join(10000);
+			assertFalse(thread.isAlive());
+		}
+		assertTrue(recorder.closed);
+		// all rows accepted by the write method were output
+		assertEquals(acceptedRows.get(), transformer.getNumberOfWrittenRows());
+		assertEquals(acceptedRows.get(), recorder.labels.size());
+		assertTrue(acceptedRows.get()<100);
+	}
+}
@@ -0,0 +1,134 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.jupiter.api.Test;
+
+class AvroFileReaderTest
+{
+	private static final String SCHEMA = "{\"type\":\"record\",\"name\":\"row\",\"fields\":["
+			+ "{\"name\":\"name\",\"type\":\"string\"},"
+			+ "{\"name\":\"amount\",\"type\":\"int\"},"
+			+ "{\"name\":\"comment\",\"type\":[\"null\",\"string\"]}]}";
+
+	static File createAvroFile(int numberOfRecords) throws Exception
+	{
+		Schema schema = new Schema.Parser().parse(SCHEMA);
+		File file = File.createTempFile("avrofilereader", ".avro");
+		file.deleteOnExit();
+		try(DataFileWriter<GenericRecord> writer = new DataFileWriter<GenericRecord>(new GenericDatumWriter<GenericRecord>(schema)))
+		{
+			writer.setCodec(CodecFactory.deflateCodec(1));
+			// small blocks, so that the file contains multiple blocks
+			writer.setSyncInterval(256);
+			writer.create(schema, file);
+			for(int i=0;i<numberOfRecords;i++)
+			{
+				GenericRecord record = new GenericData.Record(schema);
+				record.put("name", "name" + i);
+				record.put("amount", i % 200);
+				record.put("comment", i % 2 == 0 ? null : "comment" + i);
+				writer.append(record);
+			}
+		}
+		return file;
+	}
+
+	@Test
+	void testRows() throws Exception
+	{
+		File file = createAvroFile(1000);
+		try(AvroFileReader reader = new AvroFileReader(file.getPath()))
+		{
+			assertEquals("name", reader.getHeader().getFieldName(0));
+			RowFieldCollection firstRow = null;
+			int counter = 0;
+			while(reader.nextRow())
+			{
+				RowFieldCollection row = reader.getRowFieldCollection();
+				if(firstRow==null)
+				{
+					firstRow = row;
+				}
+				// the row is reused for all records
+				assertSame(firstRow, row);
+				assertSame(reader.getHeader(), row.getHeader());
+				assertEquals("name" + counter, row.getFieldValue("name"));
+				assertEquals(counter % 200, row.getFieldValue(1));
+				assertEquals(counter % 2 == 0 ? null : "comment" + counter, row.getFieldValue("comment"));
+				counter++;
+			}
+			assertEquals(1000, counter);
+		}
+	}
+
+	@Test
+	void testBlocks() throws Exception
+	{
+		File file = createAvroFile(1000);
+		try(AvroFileReader reader = new AvroFileReader(file))
+		{
+			AvroBlockDecoder decoder = new AvroBlockDecoder(reader.getSchema(), reader.getHeader());
+			int numberOfBlocks = 0;
+			int counter = 0;
+			while(reader.nextBlock())
+			{
+				numberOfBlocks++;
+				long blockCount = reader.getBlockCount();
+				decoder.setBlock(reader.getBlock());
+				while(decoder.nextRow())
+				{
+					assertEquals("name" + counter, decoder.getRowFieldCollection().getFieldValue("name"));
+					assertEquals(counter % 200, decoder.getRowFieldCollection().getFieldValue("amount"));
+					counter++;
+					blockCount--;
+				}
+				assertEquals(0, blockCount);
+			}
+			assertTrue(numberOfBlocks>1);
+			assertEquals(1000, counter);
+		}
+	}
+
+	@Test
+	void testRowFieldCollectionFromRecord() throws Exception
+	{
+		Schema schema = new Schema.Parser().parse(SCHEMA);
+		GenericRecord record = new GenericData.Record(schema);
+		record.put("name", new org.apache.avro.util.Utf8("martin"));
+		record.put("amount", 35);
+		RowFieldCollection row = new RowFieldCollection(record);
+		assertEquals("martin", row.getFieldValue("name"));
+		assertEquals(35, row.getFieldValue("amount"));
+		assertNull(row.getFieldValue("comment"));
+
+		RowFieldCollection rowWithSchema = new RowFieldCollection(record, schema);
+		assertEquals("martin", rowWithSchema.getFieldValue(0));
+		// the schema is analyzed once
+		assertSame(AvroSchemaUtility.getSchemaUtility(schema), AvroSchemaUtility.getSchemaUtility(new Schema.Parser().parse(SCHEMA)));
+	}
+
+	@Test
+	void testNumberOfCachedSchemasIsLimited() throws Exception
+	{
+		Schema schema = new Schema.Parser().parse(SCHEMA);
+		AvroSchemaUtility.getSchemaUtility(schema);
+		for(int i=0;i<200;i++)
+		{
+			Schema otherSchema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"row" + i + "\",\"fields\":[{\"name\":\"field" + i + "\",\"type\":\"int\"}]}");
+			assertEquals("field" + i, AvroSchemaUtility.getSchemaUtility(otherSchema).getFieldNames()[0]);
+		}
+		// schemas above the limit are not cached
+		Schema lastSchema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"last\",\"fields\":[{\"name\":\"field\",\"type\":\"int\"}]}");
+		assertNotSame(AvroSchemaUtility.getSchemaUtility(lastSchema), AvroSchemaUtility.getSchemaUtility(lastSchema));
+		assertSame(AvroSchemaUtility.getSchemaUtility(schema), AvroSchemaUtility.getSchemaUtility(schema));
+	}
+}
@@ -0,0 +1,68 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+class CsvTokenizerTest
+{
+	@Test
+	void testSimpleRows() throws Exception
+	{
+		CsvTokenizer tokenizer = new CsvTokenizer(new StringReader("a;b;c\r\n1;;3;\n"), ";");
+
+		assertTrue(tokenizer.nextRow());
+		assertArrayEquals(new Object[] {"a","b","c"}, tokenizer.getFields());
+		assertTrue(tokenizer.nextRow());
+		assertArrayEquals(new Object[] {"1","","3",""}, tokenizer.getFields());
+		assertFalse(tokenizer.nextRow());
+	}
+
+	@Test
+	void testQuotedFields() throws Exception
+	{
+		CsvTokenizer tokenizer = new CsvTokenizer(new StringReader("\"a;b\";\"say \"\"hi\"\"\";\"line\nbreak\""), ";");
+
+		assertTrue(tokenizer.nextRow());
+		assertEquals(3, tokenizer.getNumberOfFields());
+		assertEquals("a;b", tokenizer.getField(0));
+		assertEquals("say \"hi\"", tokenizer.getField(1));
+		assertEquals("line\nbreak", tokenizer.getField(2));
+		assertFalse(tokenizer.nextRow());
+	}
+
+	@Test
+	void testEmptyAndCommentRowsAreSkipped() throws Exception
+	{
+		CsvTokenizer tokenizer = new CsvTokenizer(new StringReader("# comment;x\n\n   \nvalue\n"), ";");
+
+		assertTrue(tokenizer.nextRow());
+		assertEquals("value", tokenizer.getField(0));
+		assertFalse(tokenizer.nextRow());
+	}
+
+	@Test
+	void testSeparatorAcrossBuffer() throws Exception
+	{
+		// a small buffer makes the separator span two reads
+		CsvTokenizer tokenizer = new CsvTokenizer(new StringReader("abc||de|f||ghijk"), "||", 4);
+
+		assertTrue(tokenizer.nextRow());
+		assertArrayEquals(new Object[] {"abc","de|f","ghijk"}, tokenizer.getFields());
+	}
+
+	@Test
+	void testEscapedSeparator() throws Exception
+	{
+		// separators escaped for a regular expression - as used with the Splitter - are taken literally
+		CsvTokenizer tokenizer = new CsvTokenizer(new StringReader("a|b|c\n"), "\\|");
+		assertTrue(tokenizer.nextRow());
+		assertArrayEquals(new Object[] {"a","b","c"}, tokenizer.getFields());
+
+		tokenizer = new CsvTokenizer(new StringReader("a\tb\n"), "\\t");
+		assertTrue(tokenizer.nextRow());
+		assertArrayEquals(new Object[] {"a","b"}, tokenizer.getFields());
+	}
+}
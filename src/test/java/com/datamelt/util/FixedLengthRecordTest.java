@@ -0,0 +1,80 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.parser.xml.RowDefinitionParser;
+
+class FixedLengthRecordTest
+{
+	private static FixedLengthRecordDecoder createDecoder() throws Exception
+	{
+		ArrayList<Field> fields = new ArrayList<Field>();
+		fields.add(new Field("city", 0, 10));
+		fields.add(new Field("count", 10, 6));
+		fields.add(new Field("rate", 16, 8));
+		return new FixedLengthRecordDecoder(fields, StandardCharsets.US_ASCII, true);
+	}
+
+	@Test
+	void testFieldsAreDecoded() throws Exception
+	{
+		FixedLengthRecord record = createDecoder().decode("Hamburg      -42 3.750000".getBytes(StandardCharsets.US_ASCII));
+
+		assertEquals(3, record.getNumberOfFields());
+		assertEquals("Hamburg", record.getField(0));
+		assertEquals("Hamburg", record.getFieldValue("city"));
+		assertEquals(-42, record.getIntegerField(1));
+		assertEquals(-42L, record.getLongField(1));
+		assertEquals(3.75d, record.getDoubleField(2));
+		assertEquals(3.75f, record.getFloatField(2));
+	}
+
+	@Test
+	void testInvalidNumber() throws Exception
+	{
+		FixedLengthRecord record = createDecoder().decode("Denver     12a45 6.000000".getBytes(StandardCharsets.US_ASCII));
+
+		assertThrows(NumberFormatException.class, () -> record.getIntegerField(1));
+		assertThrows(Exception.class, () -> record.getField(3));
+	}
+
+	@Test
+	void testShortRecord() throws Exception
+	{
+		FixedLengthRecord record = createDecoder().decode("Stockholm    7".getBytes(StandardCharsets.US_ASCII));
+
+		assertEquals(7, record.getIntegerField(1));
+		assertEquals("", record.getField(2));
+	}
+
+	@Test
+	void testNonAsciiRecord() throws Exception
+	{
+		File file = File.createTempFile("rowdefinition", ".xml");
+		file.deleteOnExit();
+		try(FileWriter writer = new FileWriter(file))
+		{
+			writer.write("<fields><field name=\"city\" start=\"0\" length=\"10\"/><field name=\"count\" start=\"10\" length=\"6\"/></fields>");
+		}
+		RowDefinitionParser parser = new RowDefinitionParser();
+		parser.parse(file.getPath());
+
+		FixedLengthRecord record = new FixedLengthRecordDecoder(parser).decode("Zürich        12".getBytes(StandardCharsets.ISO_8859_1));
+
+		assertEquals("Zürich", record.getFieldValue("city"));
+		assertEquals(12, record.getIntegerField(1));
+	}
+
+	@Test
+	void testMultiByteCharsetIsRefused() throws Exception
+	{
+		assertThrows(Exception.class, () -> new FixedLengthRecordDecoder(new ArrayList<Field>(), StandardCharsets.UTF_8, true));
+	}
+}
@@ -0,0 +1,78 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+class MappedFileReaderTest
+{
+	private static File createFile(String content) throws Exception
+	{
+		File file = File.createTempFile("mappedfilereader", ".csv");
+		file.deleteOnExit();
+		try(FileOutputStream stream = new FileOutputStream(file))
+		{
+			stream.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+		return file;
+	}
+
+	@Test
+	void testLinesAcrossWindows() throws Exception
+	{
+		File file = createFile("a;b\r\n# comment\n\nccc;\"d;e\"\nlast");
+		ArrayList<String> lines = new ArrayList<String>();
+
+		try(MappedFileReader reader = new MappedFileReader(file.getPath()))
+		{
+			// a small window forces the lines to be remapped
+			reader.setWindowSize(12);
+			reader.setCharset(StandardCharsets.UTF_8);
+			while(reader.nextLine())
+			{
+				lines.add(reader.getLine());
+				if(lines.size()==2)
+				{
+					assertArrayEquals(new Object[] {"ccc","d;e"}, reader.getFields(";"));
+				}
+			}
+		}
+
+		assertEquals(3, lines.size());
+		assertEquals("a;b", lines.get(0));
+		assertEquals("last", lines.get(2));
+	}
+
+	@Test
+	void testSegmentsContainAllLines() throws Exception
+	{
+		StringBuilder content = new StringBuilder();
+		for(int i=0;i<1000;i++)
+		{
+			content.append("line").append(i).append('\n');
+		}
+		File file = createFile(content.toString());
+
+		ArrayList<FileSegment> segments = MappedFileReader.getSegments(file.getPath(), 7);
+		int count = 0;
+		for(FileSegment segment : segments)
+		{
+			try(MappedFileReader reader = new MappedFileReader(file.getPath(), segment))
+			{
+				while(reader.nextLine())
+				{
+					assertEquals("line" + count, reader.getLine());
+					count++;
+				}
+			}
+		}
+
+		assertEquals(7, segments.size());
+		assertEquals(1000, count);
+	}
+}
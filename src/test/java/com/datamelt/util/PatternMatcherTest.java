@@ -0,0 +1,72 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class PatternMatcherTest
+{
+	private static final String[] PATTERNS = {"abc", "abc.*", ".*abc", ".*abc.*", "^abc", "abc$", "^abc$", "a\\.c", "[a-c]+", "[^a-c]*x",
+			"\\d{2,4}-\\w+", "(ab|cd)*e?", "a(?:b|c){1,3}d", "\\s*\\S+\\s*", "x|y|", "(a*)*b", "[-a]|[a-]", ".{3}", "(a|b)+$", "\\d+$", "^.*abc",
+			"a\\b", "(?i)abc", "a++", "[a&&b]", "\\p{Alpha}+", "(a)\\1"};
+
+	private static final String[] VALUES = {"", "abc", "ABC", "xabc", "abcx", "x\nabc", "abc\n", "abc\r\n", "abc\r", "a.c", "abc x",
+			"12-abc_9", "12345-x", "ababe", "cdx", "abcd", "acbd", " \t text ", "x", "y", "aaab", "-", "äbc", "abab\n", "😀abc", "a😀c"};
+
+	@Test
+	void testSameResultAsPattern() throws Exception
+	{
+		for(String pattern : PATTERNS)
+		{
+			for(int flags=0;flags<4;flags++)
+			{
+				boolean ignoreCase = (flags & 1)!=0;
+				boolean fullMatch = (flags & 2)!=0;
+				PatternMatcher matcher = new PatternMatcher(pattern, ignoreCase, fullMatch);
+				Pattern compiledPattern = Pattern.compile(pattern, ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+				for(String value : VALUES)
+				{
+					boolean expected = fullMatch ? compiledPattern.matcher(value).matches() : compiledPattern.matcher(value).find();
+					assertEquals(expected, matcher.matches(value), "pattern [" + pattern + "] value [" + value + "] ignore case: " + ignoreCase + " full match: " + fullMatch);
+				}
+			}
+		}
+	}
+
+	@Test
+	void testMatcherTypes() throws Exception
+	{
+		assertEquals(PatternMatcher.TYPE_EQUALS, new PatternMatcher("a\\.c").getType());
+		assertEquals(PatternMatcher.TYPE_PREFIX, new PatternMatcher("abc.*").getType());
+		assertEquals(PatternMatcher.TYPE_SUFFIX, new PatternMatcher(".*abc", true, true).getType());
+		assertEquals(PatternMatcher.TYPE_CONTAINS, new PatternMatcher("abc", false, false).getType());
+		assertEquals(PatternMatcher.TYPE_PREFIX, new PatternMatcher("^abc", false, false).getType());
+		assertEquals(PatternMatcher.TYPE_AUTOMATON, new PatternMatcher("\\d{2,4}-\\w+").getType());
+		assertEquals(PatternMatcher.TYPE_PATTERN, new PatternMatcher("(a)\\1").getType());
+		assertEquals(PatternMatcher.TYPE_PATTERN, new PatternMatcher("[a-c]+", true, true).getType());
+	}
+
+	@Test
+	void testLinearTimeForNestedQuantifiers() throws Exception
+	{
+		// using backtracking, the time to check the value would grow exponentially with its length
+		PatternMatcher matcher = new PatternMatcher("(a+)+b");
+		StringBuilder value = new StringBuilder();
+		for(int i=0;i<10000;i++)
+		{
+			value.append('a');
+		}
+		value.append('c');
+
+		assertEquals(PatternMatcher.TYPE_AUTOMATON, matcher.getType());
+		assertFalse(matcher.matches(value.toString()));
+	}
+
+	@Test
+	void testInvalidPattern() throws Exception
+	{
+		assertThrows(Exception.class, () -> new PatternMatcher("[a-"));
+	}
+}
@@ -0,0 +1,35 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class SplitterTest
+{
+	@Test
+	void testSameResultAsRegularExpression() throws Exception
+	{
+		String[] separators = {";", ",", "\t", "\\|", "\\t", "\\.", "||", "|", "\\s+", "[,;]", "::"};
+		String[] lines = {"a;b|c,d\te.f||g::h  i", ";a||b;;", "", "|", "no separator"};
+		for(String separator : separators)
+		{
+			Splitter splitter = new Splitter(Splitter.TYPE_COMMA_SEPERATED, separator);
+			for(String line : lines)
+			{
+				assertArrayEquals(line.split(separator, -1), splitter.getFields(line), separator + " - " + line);
+			}
+		}
+	}
+
+	@Test
+	void testLiteralSeparator() throws Exception
+	{
+		assertEquals(";", Splitter.getLiteralSeparator(";"));
+		assertEquals("|", Splitter.getLiteralSeparator("\\|"));
+		assertEquals("\t", Splitter.getLiteralSeparator("\\t"));
+		assertEquals("\\", Splitter.getLiteralSeparator("\\\\"));
+		assertNull(Splitter.getLiteralSeparator("|"));
+		assertNull(Splitter.getLiteralSeparator("\\s"));
+		assertNull(Splitter.getLiteralSeparator(""));
+	}
+}
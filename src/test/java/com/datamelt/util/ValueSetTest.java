@@ -0,0 +1,90 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class ValueSetTest
+{
+	@Test
+	void testValuesAreTrimmed() throws Exception
+	{
+		ValueSet values = new ValueSet("Rome, Paris, New York,Berlin,Rome");
+
+		assertEquals(4, values.size());
+		assertTrue(values.contains("Paris"));
+		assertTrue(values.contains("New York"));
+		assertFalse(values.contains(" Paris"));
+		assertFalse(values.contains("paris"));
+	}
+
+	@Test
+	void testIgnoreCase() throws Exception
+	{
+		ValueSet values = new ValueSet("DE,Fr,it", true);
+
+		assertTrue(values.contains("de"));
+		assertTrue(values.contains("fR"));
+		assertTrue(values.contains("IT"));
+		assertFalse(values.contains("es"));
+	}
+
+	@Test
+	void testNumbers() throws Exception
+	{
+		ValueSet values = new ValueSet("12, -7, 012, abc, 9999999999");
+
+		assertTrue(values.contains(12));
+		assertTrue(values.contains(-7L));
+		assertTrue(values.contains(9999999999L));
+		// 012 is not the string representation of a number
+		assertFalse(values.contains(10));
+	}
+
+	@Test
+	void testManyValues() throws Exception
+	{
+		StringBuilder list = new StringBuilder();
+		for(int i=0;i<1000;i++)
+		{
+			list.append(i * 3).append(',');
+		}
+		ValueSet values = new ValueSet(list.toString());
+
+		for(int i=0;i<3000;i++)
+		{
+			assertEquals(i % 3==0, values.contains(i));
+			assertEquals(i % 3==0, values.contains(String.valueOf(i)));
+		}
+	}
+
+	@Test
+	void testListContains() throws Exception
+	{
+		assertTrue(ValueSet.listContains("Rome, Paris ,New York", "Paris", false));
+		assertTrue(ValueSet.listContains("Rome, Paris ,New York", "new york", true));
+		assertFalse(ValueSet.listContains("Rome, Paris ,New York", "New", false));
+		assertFalse(ValueSet.listContains("Rome,Paris,", "", false));
+	}
+
+	@Test
+	void testPaddedValues() throws Exception
+	{
+		String list = "Rome, Paris ,New York";
+		String[] probes = {"Paris", " Paris", "Paris ", " Paris ", "paris", "New York", "NewYork"};
+		for(int i=0;i<2;i++)
+		{
+			boolean ignoreCase = i==1;
+			ValueSet values = new ValueSet(list, ignoreCase);
+			for(String probe : probes)
+			{
+				// the compiled set and the list give the same result
+				assertEquals(values.contains(probe), ValueSet.listContains(list, probe, ignoreCase), probe);
+			}
+			assertTrue(values.contains("Paris"));
+			assertFalse(values.contains(" Paris"));
+			assertFalse(values.contains("Paris "));
+			assertEquals(ignoreCase, values.contains("paris"));
+		}
+	}
+}
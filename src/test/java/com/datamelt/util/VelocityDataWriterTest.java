@@ -0,0 +1,98 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.velocity.VelocityContext;
+import org.junit.jupiter.api.Test;
+
+class VelocityDataWriterTest
+{
+	private static VelocityDataWriter createWriter() throws Exception
+	{
+		File file = File.createTempFile("velocitydatawriter", ".vm");
+		file.deleteOnExit();
+		try(FileOutputStream stream = new FileOutputStream(file))
+		{
+			stream.write("${name}: #foreach($value in ${values})[$value]#end.".getBytes(StandardCharsets.UTF_8));
+		}
+		return new VelocityDataWriter(file.getParent(), file.getName());
+	}
+
+	private static ArrayList<Integer> createValues(int numberOfValues)
+	{
+		ArrayList<Integer> values = new ArrayList<Integer>();
+		for(int i=0;i<numberOfValues;i++)
+		{
+			values.add(i);
+		}
+		return values;
+	}
+
+	@Test
+	void testMergeIntoWriter() throws Exception
+	{
+		VelocityDataWriter dataWriter = createWriter();
+		dataWriter.addObject("name", "first");
+		dataWriter.addObject("values", createValues(2));
+		String merged = dataWriter.merge();
+
+		StringWriter writer = new StringWriter();
+		dataWriter.merge(writer);
+		assertEquals("first: [0][1].", merged);
+		assertEquals(merged, writer.toString());
+
+		// the objects of the previous merge are removed
+		dataWriter.clearObjects();
+		dataWriter.addObject("name", "second");
+		writer = new StringWriter();
+		dataWriter.merge(writer);
+		assertEquals("second: .", writer.toString());
+	}
+
+	@Test
+	void testSharedTemplate() throws Exception
+	{
+		final VelocityDataWriter dataWriter = createWriter();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		ArrayList<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		for(int t=0;t<4;t++)
+		{
+			final String name = "thread" + t;
+			results.add(executor.submit(() ->
+			{
+				VelocityContext context = dataWriter.createContext();
+				for(int i=0;i<500;i++)
+				{
+					StringWriter writer = new StringWriter();
+					context.put("name", name);
+					context.put("values", createValues(i % 5));
+					dataWriter.merge(context, writer);
+					StringBuilder expected = new StringBuilder(name).append(": ");
+					for(int n=0;n<i % 5;n++)
+					{
+						expected.append('[').append(n).append(']');
+					}
+					if(!writer.toString().equals(expected.append('.').toString()))
+					{
+						return false;
+					}
+				}
+				return true;
+			}));
+		}
+		for(Future<Boolean> result : results)
+		{
+			assertTrue(result.get());
+		}
+		executor.shutdown();
+	}
+}